@@ -0,0 +1,250 @@
+package com.softwareverde.http.querystring;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>Index of the "key=value" pairs within a URL-encoded query string or form body (e.x. "a=1&b=hello+world"), built
+ * directly from the raw bytes in a single pass.</p>
+ *
+ * <p>Only the offsets of each key and value are recorded while indexing; keys and values are percent-decoded (as UTF-8,
+ * with '+' as a space) upon their first access, and then retained.  Keys without percent-encoding are compared against
+ * without being decoded.  Pairs with an empty key are ignored; a key without an '=' has an empty value.  Malformed
+ * percent-encodings are retained literally.</p>
+ *
+ * <p>The indexed bytes must not be modified after indexing.</p>
+ */
+public class QueryStringIndex {
+    protected static final int FIELD_COUNT = 5; // keyStart, keyEnd, valueStart, valueEnd, flags
+    protected static final int KEY_IS_ENCODED = 0x01;
+    protected static final int VALUE_IS_ENCODED = 0x02;
+
+    protected static final QueryStringIndex EMPTY = new QueryStringIndex(new byte[0], 0, 0);
+
+    protected static int _hexValue(final byte b) {
+        if ( (b >= '0') && (b <= '9') ) { return (b - '0'); }
+        if ( (b >= 'a') && (b <= 'f') ) { return (b - 'a' + 10); }
+        if ( (b >= 'A') && (b <= 'F') ) { return (b - 'A' + 10); }
+        return -1;
+    }
+
+    protected static Boolean _isAscii(final String value) {
+        for (int i = 0; i < value.length(); ++i) {
+            if (value.charAt(i) >= 0x80) { return false; }
+        }
+        return true;
+    }
+
+    protected static String _decode(final byte[] bytes, final int startIndex, final int endIndex, final Boolean isEncoded) {
+        if (! isEncoded) {
+            return new String(bytes, startIndex, (endIndex - startIndex), StandardCharsets.UTF_8);
+        }
+
+        final byte[] decodedBytes = new byte[endIndex - startIndex];
+        int decodedByteCount = 0;
+        int position = startIndex;
+        while (position < endIndex) {
+            final byte b = bytes[position];
+            if (b == '+') {
+                decodedBytes[decodedByteCount++] = ' ';
+                position += 1;
+                continue;
+            }
+
+            if ( (b == '%') && ((position + 2) < endIndex) ) {
+                final int highNibble = _hexValue(bytes[position + 1]);
+                final int lowNibble = _hexValue(bytes[position + 2]);
+                if ( (highNibble >= 0) && (lowNibble >= 0) ) {
+                    decodedBytes[decodedByteCount++] = (byte) ((highNibble << 4) | lowNibble);
+                    position += 3;
+                    continue;
+                }
+            }
+
+            decodedBytes[decodedByteCount++] = b;
+            position += 1;
+        }
+        return new String(decodedBytes, 0, decodedByteCount, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Indexes the URL-encoded bytes; a null value results in an empty index.
+     */
+    public static QueryStringIndex parse(final byte[] bytes) {
+        if (bytes == null) { return EMPTY; }
+        return new QueryStringIndex(bytes, 0, bytes.length);
+    }
+
+    public static QueryStringIndex parse(final byte[] bytes, final int offset, final int length) {
+        return new QueryStringIndex(bytes, offset, length);
+    }
+
+    /**
+     * Indexes the URL-encoded query string (excluding its leading "?"); a null value results in an empty index.
+     */
+    public static QueryStringIndex parse(final String queryString) {
+        if (queryString == null) { return EMPTY; }
+        return QueryStringIndex.parse(queryString.getBytes(StandardCharsets.UTF_8));
+    }
+
+    protected final byte[] _bytes;
+    protected int[] _offsets;
+    protected int _parameterCount = 0;
+    protected String[] _decodedKeys;
+    protected String[] _decodedValues;
+
+    protected void _addParameter(final int keyStart, final int keyEnd, final int valueStart, final int valueEnd, final int flags) {
+        if (keyStart == keyEnd) { return; } // Pairs with an empty key are ignored...
+
+        final int offsetIndex = (_parameterCount * FIELD_COUNT);
+        if ((offsetIndex + FIELD_COUNT) > _offsets.length) {
+            final int[] offsets = new int[_offsets.length * 2];
+            System.arraycopy(_offsets, 0, offsets, 0, _offsets.length);
+            _offsets = offsets;
+        }
+
+        _offsets[offsetIndex] = keyStart;
+        _offsets[offsetIndex + 1] = keyEnd;
+        _offsets[offsetIndex + 2] = valueStart;
+        _offsets[offsetIndex + 3] = valueEnd;
+        _offsets[offsetIndex + 4] = flags;
+        _parameterCount += 1;
+    }
+
+    protected QueryStringIndex(final byte[] bytes, final int offset, final int length) {
+        _bytes = bytes;
+        _offsets = new int[FIELD_COUNT * 8];
+
+        final int endIndex = (offset + length);
+        int keyStart = offset;
+        int keyEnd = -1;
+        int flags = 0;
+        for (int position = offset; position < endIndex; ++position) {
+            final byte b = bytes[position];
+            if (b == '&') {
+                if (keyEnd < 0) {
+                    _addParameter(keyStart, position, position, position, flags);
+                }
+                else {
+                    _addParameter(keyStart, keyEnd, (keyEnd + 1), position, flags);
+                }
+
+                keyStart = (position + 1);
+                keyEnd = -1;
+                flags = 0;
+            }
+            else if ( (b == '=') && (keyEnd < 0) ) {
+                keyEnd = position;
+            }
+            else if ( (b == '%') || (b == '+') ) {
+                flags |= (keyEnd < 0 ? KEY_IS_ENCODED : VALUE_IS_ENCODED);
+            }
+        }
+
+        if (keyEnd < 0) {
+            _addParameter(keyStart, endIndex, endIndex, endIndex, flags);
+        }
+        else {
+            _addParameter(keyStart, keyEnd, (keyEnd + 1), endIndex, flags);
+        }
+
+        _decodedKeys = new String[_parameterCount];
+        _decodedValues = new String[_parameterCount];
+    }
+
+    protected Boolean _keyEquals(final int index, final String key) {
+        final int offsetIndex = (index * FIELD_COUNT);
+        final int flags = _offsets[offsetIndex + 4];
+        if ((flags & KEY_IS_ENCODED) == 0) {
+            final int keyStart = _offsets[offsetIndex];
+            final int keyLength = (_offsets[offsetIndex + 1] - keyStart);
+            if (keyLength == key.length()) {
+                boolean isAscii = true;
+                for (int i = 0; i < keyLength; ++i) {
+                    final char c = key.charAt(i);
+                    if (c >= 0x80) {
+                        isAscii = false;
+                        break;
+                    }
+                    if (_bytes[keyStart + i] != (byte) c) { return false; }
+                }
+                if (isAscii) { return true; }
+            }
+            else if (_isAscii(key)) { return false; } // ASCII keys have the same length when encoded...
+        }
+
+        return key.equals(this.getKey(index));
+    }
+
+    protected int _indexOf(final String key) {
+        for (int i = 0; i < _parameterCount; ++i) {
+            if (_keyEquals(i, key)) { return i; }
+        }
+        return -1;
+    }
+
+    public Integer getParameterCount() {
+        return _parameterCount;
+    }
+
+    /**
+     * Returns the decoded key of the parameter at the index, in the order received.
+     */
+    public String getKey(final int index) {
+        final String cachedKey = _decodedKeys[index];
+        if (cachedKey != null) { return cachedKey; }
+
+        final int offsetIndex = (index * FIELD_COUNT);
+        final Boolean isEncoded = ((_offsets[offsetIndex + 4] & KEY_IS_ENCODED) != 0);
+        final String key = _decode(_bytes, _offsets[offsetIndex], _offsets[offsetIndex + 1], isEncoded);
+        _decodedKeys[index] = key;
+        return key;
+    }
+
+    /**
+     * Returns the decoded value of the parameter at the index, in the order received.
+     */
+    public String getValue(final int index) {
+        final String cachedValue = _decodedValues[index];
+        if (cachedValue != null) { return cachedValue; }
+
+        final int offsetIndex = (index * FIELD_COUNT);
+        final Boolean isEncoded = ((_offsets[offsetIndex + 4] & VALUE_IS_ENCODED) != 0);
+        final String value = _decode(_bytes, _offsets[offsetIndex + 2], _offsets[offsetIndex + 3], isEncoded);
+        _decodedValues[index] = value;
+        return value;
+    }
+
+    public Boolean containsKey(final String key) {
+        return (_indexOf(key) >= 0);
+    }
+
+    /**
+     * Returns the decoded value of the first parameter with the provided key, or null if there is no such parameter.
+     */
+    public String get(final String key) {
+        final int index = _indexOf(key);
+        if (index < 0) { return null; }
+        return this.getValue(index);
+    }
+
+    /**
+     * Returns the decoded values of all parameters with the provided key, in the order received.
+     */
+    public List<String> getValues(final String key) {
+        List<String> values = null;
+        for (int i = 0; i < _parameterCount; ++i) {
+            if (! _keyEquals(i, key)) { continue; }
+
+            if (values == null) {
+                values = new ArrayList<String>(1);
+            }
+            values.add(this.getValue(i));
+        }
+
+        if (values == null) { return Collections.emptyList(); }
+        return values;
+    }
+}
@@ -0,0 +1,33 @@
+package com.softwareverde.http.server;
+
+import com.softwareverde.http.server.engine.Exchange;
+import com.softwareverde.http.server.engine.ExchangeHandler;
+import com.softwareverde.http.server.executor.AdmissionControlledExecutorService;
+
+import java.io.IOException;
+
+/**
+ * <p>Responds with a 503 (without reading the request or invoking the servlet) when the current request was shed by the
+ * AdmissionControlledExecutorService; otherwise the request is passed to the wrapped ExchangeHandler.</p>
+ */
+class AdmissionExchangeHandler implements ExchangeHandler {
+    protected final ExchangeHandler _exchangeHandler;
+
+    public AdmissionExchangeHandler(final ExchangeHandler exchangeHandler) {
+        _exchangeHandler = exchangeHandler;
+    }
+
+    public ExchangeHandler getExchangeHandler() {
+        return _exchangeHandler;
+    }
+
+    @Override
+    public void handle(final Exchange exchange) throws IOException {
+        if (! AdmissionControlledExecutorService.isCurrentTaskShed()) {
+            _exchangeHandler.handle(exchange);
+            return;
+        }
+
+        exchange.sendResponse(CannedResponses.SERVICE_UNAVAILABLE);
+    }
+}
@@ -0,0 +1,55 @@
+package com.softwareverde.http.server;
+
+import com.softwareverde.http.server.engine.Exchange;
+import com.softwareverde.http.server.engine.ExchangeHandler;
+import com.softwareverde.http.server.executor.Bulkhead;
+import com.softwareverde.logging.Logger;
+
+import java.io.IOException;
+
+/**
+ * <p>Hands each Exchange to an Endpoint's Bulkhead, responding with a 503 when the Bulkhead is saturated.</p>
+ */
+class BulkheadExchangeHandler implements ExchangeHandler {
+    protected final ExchangeHandler _exchangeHandler;
+    protected final Bulkhead _bulkhead;
+
+    public BulkheadExchangeHandler(final ExchangeHandler exchangeHandler, final Bulkhead bulkhead) {
+        _exchangeHandler = exchangeHandler;
+        _bulkhead = bulkhead;
+    }
+
+    public ExchangeHandler getExchangeHandler() {
+        return _exchangeHandler;
+    }
+
+    public Bulkhead getBulkhead() {
+        return _bulkhead;
+    }
+
+    @Override
+    public void handle(final Exchange exchange) throws IOException {
+        final Long startTime = System.currentTimeMillis();
+        final Boolean wasAccepted = _bulkhead.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (_exchangeHandler instanceof HttpHandler) {
+                        final HttpHandler httpHandler = (HttpHandler) _exchangeHandler;
+                        httpHandler.handle(exchange, startTime); // Include the time spent queued within the request's deadline...
+                    }
+                    else {
+                        _exchangeHandler.handle(exchange);
+                    }
+                }
+                catch (final Exception exception) {
+                    Logger.warn(BulkheadExchangeHandler.class, "Error handling request: " + exchange.getRequestUri(), exception);
+                }
+            }
+        });
+
+        if (! wasAccepted) {
+            exchange.sendResponse(CannedResponses.SERVICE_UNAVAILABLE);
+        }
+    }
+}
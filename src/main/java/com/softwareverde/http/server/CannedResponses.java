@@ -0,0 +1,42 @@
+package com.softwareverde.http.server;
+
+import com.softwareverde.http.server.servlet.response.CannedResponse;
+import com.softwareverde.http.server.servlet.response.Response;
+
+/**
+ * <p>The pre-built error responses sent by the HttpServer's handlers.</p>
+ *
+ * <p>Responses that end the connection include "Connection: close", since the request they answer may not have been fully read.
+ * Responses to requests turned away due to load (e.x. by a saturated Bulkhead, or by admission control) also include
+ * "Retry-After", so that well-behaved clients back off before retrying.</p>
+ */
+class CannedResponses {
+    protected CannedResponses() { }
+
+    protected static final String RETRY_AFTER_SECONDS = "1";
+
+    protected static CannedResponse _createJsonErrorResponse(final Integer responseCode, final String errorMessage, final Boolean shouldCloseConnection) {
+        final Response response = Util.createJsonErrorResponse(responseCode, errorMessage);
+        if (shouldCloseConnection) {
+            response.setHeader(Response.Headers.CONNECTION, "close");
+        }
+        return new CannedResponse(response);
+    }
+
+    protected static CannedResponse _createServiceUnavailableResponse() {
+        final Response response = Util.createJsonErrorResponse(Response.Codes.SERVICE_UNAVAILABLE, "Service unavailable.");
+        response.setHeader(Response.Headers.RETRY_AFTER, RETRY_AFTER_SECONDS);
+        response.setHeader(Response.Headers.CONNECTION, "close");
+        return new CannedResponse(response);
+    }
+
+    public static final CannedResponse NOT_FOUND = _createJsonErrorResponse(Response.Codes.NOT_FOUND, "Not found.", false);
+    public static final CannedResponse BAD_REQUEST = _createJsonErrorResponse(Response.Codes.BAD_REQUEST, "Bad request.", false);
+    public static final CannedResponse SERVER_ERROR = _createJsonErrorResponse(Response.Codes.SERVER_ERROR, "Server error.", false);
+    public static final CannedResponse WEB_SOCKET_UPGRADE_FAILED = _createJsonErrorResponse(Response.Codes.SERVER_ERROR, "Server error.  Unable to initialize Web Socket.", false);
+
+    public static final CannedResponse SERVICE_UNAVAILABLE = _createServiceUnavailableResponse();
+    public static final CannedResponse PAYLOAD_TOO_LARGE = _createJsonErrorResponse(Response.Codes.PAYLOAD_TOO_LARGE, "Payload too large.", true);
+    public static final CannedResponse DEADLINE_EXCEEDED = _createJsonErrorResponse(Response.Codes.SERVICE_UNAVAILABLE, "Service unavailable.", true);
+    public static final CannedResponse GATEWAY_TIMEOUT = _createJsonErrorResponse(Response.Codes.GATEWAY_TIMEOUT, "Request timed out.", true);
+}
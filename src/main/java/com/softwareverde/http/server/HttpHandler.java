@@ -1,27 +1,39 @@
 package com.softwareverde.http.server;
 
-import com.softwareverde.http.cookie.Cookie;
-import com.softwareverde.http.cookie.CookieParser;
+import com.softwareverde.http.server.engine.Exchange;
+import com.softwareverde.http.server.engine.ExchangeHandler;
+import com.softwareverde.http.server.servlet.AsyncServlet;
 import com.softwareverde.http.server.servlet.Servlet;
 import com.softwareverde.http.server.servlet.request.Request;
 import com.softwareverde.http.server.servlet.request.RequestInflater;
+import com.softwareverde.http.server.servlet.request.RequestPool;
 import com.softwareverde.http.server.servlet.response.Response;
-import com.sun.net.httpserver.Headers;
-import com.sun.net.httpserver.HttpExchange;
+import com.softwareverde.http.server.servlet.response.ResponseCompressor;
+import com.softwareverde.http.server.servlet.routed.RoutedServlet;
+import com.softwareverde.logging.Logger;
 
 import java.io.IOException;
-import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 
-class HttpHandler implements com.sun.net.httpserver.HttpHandler {
+class HttpHandler implements ExchangeHandler {
     protected final Servlet _servlet;
     protected final Boolean _shouldUseStrictPathMatching;
+    protected ResponseCompressor _responseCompressor = null;
+    protected Long _requestTimeout = null;
+    protected Long _maxRequestBodyByteCount = null;
+    protected RequestDeadlineWatchdog _requestDeadlineWatchdog = null;
+    protected final AtomicLong _timedOutCount = new AtomicLong(0L);
+    protected final RequestInflater _requestInflater = new RequestInflater();
+    protected RequestPool _requestPool = null;
 
-    protected static Boolean isPathStrictlyMatched(final HttpExchange httpExchange) {
+    protected static Boolean isPathStrictlyMatched(final Exchange exchange) {
         final String uriPath;
         {
-            final String rawUriPath = httpExchange.getRequestURI().getPath();
+            final String rawUriPath = exchange.getRequestUri().getPath();
             if ( (! rawUriPath.isEmpty()) && (rawUriPath.charAt(rawUriPath.length() - 1) == '/') ) {
                 uriPath = rawUriPath.substring(0, rawUriPath.length() - 1);
             }
@@ -31,7 +43,7 @@ class HttpHandler implements com.sun.net.httpserver.HttpHandler {
         }
         final String definedPath;
         {
-            final String rawDefinedPath = httpExchange.getHttpContext().getPath();
+            final String rawDefinedPath = exchange.getContextPath();
             if ( (! rawDefinedPath.isEmpty()) && (rawDefinedPath.charAt(rawDefinedPath.length() - 1) == '/') ) {
                 definedPath = rawDefinedPath.substring(0, rawDefinedPath.length() - 1);
             }
@@ -52,68 +64,292 @@ class HttpHandler implements com.sun.net.httpserver.HttpHandler {
         return _servlet;
     }
 
-    @Override
-    public void handle(final HttpExchange httpExchange) throws IOException {
-        final Boolean pathIsStrictMatch = isPathStrictlyMatched(httpExchange);
+    /**
+     * Sets the ResponseCompressor applied to each Response before it is sent, or null to send Responses as-is.
+     */
+    public void setResponseCompressor(final ResponseCompressor responseCompressor) {
+        _responseCompressor = responseCompressor;
+    }
+
+    /**
+     * Sets the maximum duration, in milliseconds, of each request, measured from when it is handed to this HttpHandler.
+     *  Requests that outlive their deadline are only answered with a 504 if a RequestDeadlineWatchdog has been set.
+     */
+    public void setRequestTimeout(final Long requestTimeoutMs) {
+        _requestTimeout = requestTimeoutMs;
+    }
+
+    public Long getRequestTimeout() {
+        return _requestTimeout;
+    }
+
+    /**
+     * Returns true if the handled Requests may have a deadline, i.e. if the endpoint (or a route of its RoutedServlet) declares a request timeout.
+     */
+    public Boolean hasRequestTimeouts() {
+        if (_requestTimeout != null) { return true; }
+        return ( (_servlet instanceof RoutedServlet) && (((RoutedServlet<?, ?>) _servlet).hasRequestTimeouts()) );
+    }
+
+    /**
+     * Sets the maximum request body size, in bytes; requests declaring a larger Content-Length are answered with a 413.
+     */
+    public void setMaxRequestBodyByteCount(final Long maxRequestBodyByteCount) {
+        _maxRequestBodyByteCount = maxRequestBodyByteCount;
+    }
+
+    public Long getMaxRequestBodyByteCount() {
+        return _maxRequestBodyByteCount;
+    }
+
+    /**
+     * Sets the RequestDeadlineWatchdog that expires requests once their deadline has passed, or null to never expire requests.
+     */
+    public void setRequestDeadlineWatchdog(final RequestDeadlineWatchdog requestDeadlineWatchdog) {
+        _requestDeadlineWatchdog = requestDeadlineWatchdog;
+    }
+
+    /**
+     * Sets the RequestPool from which Requests are recycled, or null to create a new Request for each exchange.
+     *  Recycled Requests are released once their Response has been sent; for AsyncServlets, once the Response's future completes.
+     */
+    public void setRequestPool(final RequestPool requestPool) {
+        _requestPool = requestPool;
+    }
+
+    /**
+     * Returns the number of requests answered with a 503/504 because their deadline passed before a Response was sent.
+     */
+    public Long getTimedOutCount() {
+        return _timedOutCount.get();
+    }
+
+    protected void _sendResponse(final Exchange exchange, final Response response) throws IOException {
+        if (_responseCompressor != null) {
+            _responseCompressor.compress(response, exchange.getRequestHeaders(), exchange.getRequestMethod());
+        }
+
+        exchange.sendResponse(response);
+    }
+
+    protected static Response _createServerErrorResponse(final Exchange exchange, final Throwable exception) {
+        System.err.println("\n-- Error handling request: " + exchange.getRequestUri());
+        exception.printStackTrace();
+        System.err.println("--\n");
+        return CannedResponses.SERVER_ERROR;
+    }
+
+    /**
+     * Returns true if the request's Content-Length exceeds the max request body size.
+     *  Requests without a Content-Length (e.x. chunked requests) are not checked.
+     */
+    protected Boolean _isRequestBodyTooLarge(final Exchange exchange) {
+        final Long maxRequestBodyByteCount = _maxRequestBodyByteCount;
+        if (maxRequestBodyByteCount == null) { return false; }
+
+        final Map<String, List<String>> requestHeaders = exchange.getRequestHeaders();
+        for (final String headerName : requestHeaders.keySet()) {
+            if (! headerName.equalsIgnoreCase("Content-Length")) { continue; }
+
+            for (final String headerValue : requestHeaders.get(headerName)) {
+                final Long contentLength = Util.parseLong(headerValue.trim(), null);
+                if ( (contentLength != null) && (contentLength > maxRequestBodyByteCount) ) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Watches the Request for its deadline, answering it with a 504 upon expiration.  Requests without a deadline are only
+     *  watched once one is set (e.x. by a RoutedServlet's route), so that most Requests never reach the RequestDeadlineWatchdog.
+     *  Returns null if requests are not being watched.
+     */
+    protected RequestDeadlineWatchdog.WatchedRequest _watchRequest(final Exchange exchange, final Request request) {
+        final RequestDeadlineWatchdog requestDeadlineWatchdog = _requestDeadlineWatchdog;
+        if (requestDeadlineWatchdog == null) { return null; }
+
+        final RequestDeadlineWatchdog.WatchedRequest watchedRequest = new RequestDeadlineWatchdog.WatchedRequest(request) {
+            @Override
+            protected void _onExpired() {
+                _timedOutCount.incrementAndGet();
+                Logger.debug(HttpHandler.class, "Request exceeded its deadline: " + exchange.getRequestUri());
+
+                try {
+                    _sendResponse(exchange, CannedResponses.GATEWAY_TIMEOUT); // The abandoned request may still be consuming the connection, so it is closed...
+                }
+                catch (final IOException exception) {
+                    Logger.debug(HttpHandler.class, "Unable to send response: " + exchange.getRequestUri(), exception);
+                }
+            }
+        };
+
+        if (request.getDeadline() != null) {
+            requestDeadlineWatchdog.watch(watchedRequest);
+        }
+        else {
+            request.setDeadlineListener(new Request.DeadlineListener() {
+                @Override
+                public void onDeadlineSet(final Request request) {
+                    requestDeadlineWatchdog.watch(watchedRequest);
+                }
+            });
+        }
+        return watchedRequest;
+    }
+
+    /**
+     * Stops watching the Request; returns false if the Request has already been answered with a 504, in which case its Response must be discarded.
+     */
+    protected Boolean _completeRequest(final RequestDeadlineWatchdog.WatchedRequest watchedRequest) {
+        if (watchedRequest == null) { return true; }
+        return _requestDeadlineWatchdog.complete(watchedRequest);
+    }
+
+    /**
+     * Sends the AsyncServlet's resolved Response, or a 500 if it resolved exceptionally or to null.
+     */
+    protected void _completeAsyncRequest(final Exchange exchange, final RequestDeadlineWatchdog.WatchedRequest watchedRequest, final Response asyncResponse, final Throwable throwable) {
+        if (! _completeRequest(watchedRequest)) { return; } // The request exceeded its deadline and has already been answered...
 
         final Response response;
-        {
-            if ( (_shouldUseStrictPathMatching) && (! pathIsStrictMatch) ) {
-                response = Util.createJsonErrorResponse(Response.Codes.NOT_FOUND, "Not found.");
+        if (throwable != null) {
+            response = _createServerErrorResponse(exchange, throwable);
+        }
+        else if (asyncResponse == null) {
+            response = _createServerErrorResponse(exchange, new NullPointerException("AsyncServlet resolved a null Response."));
+        }
+        else {
+            response = asyncResponse;
+        }
+
+        try {
+            _sendResponse(exchange, response);
+        }
+        catch (final IOException exception) {
+            Logger.debug(HttpHandler.class, "Unable to send response: " + exchange.getRequestUri(), exception);
+        }
+    }
+
+    /**
+     * Completes the Exchange once the AsyncServlet's Response resolves; the calling thread is released immediately.
+     *  If requestPool is not null, the Request is released to it once the Response's future completes.
+     */
+    protected void _handleAsyncRequest(final Exchange exchange, final AsyncServlet asyncServlet, final Request request, final RequestDeadlineWatchdog.WatchedRequest watchedRequest, final RequestPool requestPool) throws IOException {
+        final CompletableFuture<Response> responseFuture;
+        try {
+            responseFuture = asyncServlet.onRequestAsync(request);
+            if (responseFuture == null) {
+                throw new NullPointerException("AsyncServlet.onRequestAsync returned null.");
             }
-            else {
-                final RequestInflater requestInflater = new RequestInflater();
-                final Request request = requestInflater.createRequest(httpExchange);
-                if (request == null) {
-                    response = Util.createJsonErrorResponse(Response.Codes.SERVER_ERROR, "Bad request.");
+        }
+        catch (final Exception exception) {
+            try {
+                if (! _completeRequest(watchedRequest)) { return; }
+
+                _sendResponse(exchange, _createServerErrorResponse(exchange, exception));
+                return;
+            }
+            finally {
+                if (requestPool != null) {
+                    requestPool.release(request);
+                }
+            }
+        }
+
+        if (watchedRequest != null) {
+            watchedRequest.release(responseFuture);
+        }
+
+        responseFuture.whenComplete(new BiConsumer<Response, Throwable>() {
+            @Override
+            public void accept(final Response asyncResponse, final Throwable throwable) {
+                try {
+                    _completeAsyncRequest(exchange, watchedRequest, asyncResponse, throwable);
+                }
+                finally {
+                    // NOTE: A cancelled future (e.x. upon expiration) does not indicate that the servlet is done with the Request, so it is not recycled.
+                    if ( (requestPool != null) && (! responseFuture.isCancelled()) ) {
+                        requestPool.release(request);
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public void handle(final Exchange exchange) throws IOException {
+        this.handle(exchange, System.currentTimeMillis());
+    }
+
+    /**
+     * Handles the Exchange, measuring the request's deadline (if any) from startTime, in milliseconds since the epoch.
+     *  Used when the Exchange was queued before being handed to this HttpHandler (e.x. by a Bulkhead).
+     */
+    public void handle(final Exchange exchange, final Long startTime) throws IOException {
+        final Boolean pathIsStrictMatch = isPathStrictlyMatched(exchange);
+
+        RequestPool requestPool = null;
+        Request recycledRequest = null;
+        try {
+            final Response response;
+            {
+                if ( (_shouldUseStrictPathMatching) && (! pathIsStrictMatch) ) {
+                    response = CannedResponses.NOT_FOUND;
+                }
+                else if (_isRequestBodyTooLarge(exchange)) {
+                    response = CannedResponses.PAYLOAD_TOO_LARGE; // The unread body is not worth receiving, so the connection is closed...
                 }
                 else {
-                    Response requestHandlerResponse;
-                    {
+                    requestPool = _requestPool;
+                    final Request request;
+                    if (requestPool != null) {
+                        request = requestPool.createRequest(exchange, _servlet.shouldStreamRequestBody());
+                        recycledRequest = request;
+                    }
+                    else {
+                        request = _requestInflater.createRequest(exchange, _servlet.shouldStreamRequestBody());
+                    }
+
+                    if (_requestTimeout != null) {
+                        request.setDeadline(startTime + _requestTimeout);
+                    }
+
+                    if (request.isDeadlineExceeded()) { // The request's deadline passed while it was queued...
+                        _timedOutCount.incrementAndGet();
+                        response = CannedResponses.DEADLINE_EXCEEDED;
+                    }
+                    else {
+                        final RequestDeadlineWatchdog.WatchedRequest watchedRequest = _watchRequest(exchange, request);
+                        if (_servlet instanceof AsyncServlet) {
+                            recycledRequest = null; // Released once the Response's future completes...
+                            _handleAsyncRequest(exchange, (AsyncServlet) _servlet, request, watchedRequest, requestPool);
+                            return;
+                        }
+
+                        Response requestHandlerResponse = null;
+                        Exception requestHandlerException = null;
                         try {
                             requestHandlerResponse = _servlet.onRequest(request);
                         }
                         catch (final Exception exception) {
-                            System.err.println("\n-- Error handling request: " + httpExchange.getRequestURI());
-                            exception.printStackTrace();
-                            System.err.println("--\n");
-                            requestHandlerResponse = Util.createJsonErrorResponse(Response.Codes.SERVER_ERROR, "Server error.");
+                            requestHandlerException = exception;
                         }
-                    }
-                    response = requestHandlerResponse;
-                }
-            }
-        }
 
-        { // Send Response Headers
-            final Headers httpExchangeHeaders = httpExchange.getResponseHeaders();
-            final Map<String, List<String>> compiledHeaders = response.getHeaders();
-            for (final String headerKey : compiledHeaders.keySet()) {
-                final List<String> headerValues = compiledHeaders.get(headerKey);
-                for (final String headerValue : headerValues) {
-                    httpExchangeHeaders.add(headerKey, headerValue);
+                        if (! _completeRequest(watchedRequest)) { return; } // The request exceeded its deadline and has already been answered...
+
+                        response = (requestHandlerException != null ? _createServerErrorResponse(exchange, requestHandlerException) : requestHandlerResponse);
+                    }
                 }
             }
 
-            final List<Cookie> cookies = response.getCookies();
-            final CookieParser cookieParser = new CookieParser();
-            final List<String> compiledCookies = cookieParser.compileCookiesIntoSetCookieHeaderValues(cookies);
-            for (final String setCookieHeader : compiledCookies) {
-                httpExchangeHeaders.add(Response.Headers.SET_COOKIE, setCookieHeader);
-            }
+            _sendResponse(exchange, response);
         }
-
-        final OutputStream outputStream = httpExchange.getResponseBody();
-
-        final byte[] responseBytes = response.getContent();
-        httpExchange.sendResponseHeaders(response.getCode(), (responseBytes == null ? -1 : responseBytes.length));
-
-        if (responseBytes != null) {
-            outputStream.write(responseBytes);
-            outputStream.flush();
+        finally {
+            if (recycledRequest != null) {
+                requestPool.release(recycledRequest);
+            }
         }
-
-        outputStream.close();
-        httpExchange.close();
     }
-}
\ No newline at end of file
+}
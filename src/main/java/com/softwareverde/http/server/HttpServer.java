@@ -1,44 +1,92 @@
 package com.softwareverde.http.server;
 
 import com.softwareverde.http.server.endpoint.Endpoint;
+import com.softwareverde.http.server.endpoint.EndpointStatistics;
 import com.softwareverde.http.server.endpoint.WebSocketEndpoint;
+import com.softwareverde.http.server.engine.ExchangeHandler;
+import com.softwareverde.http.server.engine.JdkServerEngine;
+import com.softwareverde.http.server.engine.ServerEngine;
+import com.softwareverde.http.server.engine.ServerEngineFactory;
+import com.softwareverde.http.server.engine.nio.NioServerEngine;
+import com.softwareverde.http.server.executor.AdmissionControlledExecutorService;
+import com.softwareverde.http.server.executor.AdmissionController;
+import com.softwareverde.http.server.executor.Bulkhead;
+import com.softwareverde.http.server.executor.ConcurrencyLimitedExecutorService;
+import com.softwareverde.http.server.executor.VirtualThreads;
 import com.softwareverde.http.server.servlet.EncryptionRedirectServlet;
 import com.softwareverde.http.server.servlet.NotFoundJsonServlet;
 import com.softwareverde.http.server.servlet.Servlet;
 import com.softwareverde.http.server.servlet.WebSocketServlet;
 import com.softwareverde.http.server.servlet.request.Request;
+import com.softwareverde.http.server.servlet.request.RequestInflater;
+import com.softwareverde.http.server.servlet.request.RequestPool;
 import com.softwareverde.http.server.servlet.response.Response;
+import com.softwareverde.http.server.servlet.response.ResponseCompressor;
 import com.softwareverde.http.tls.TlsCertificate;
 import com.softwareverde.http.tls.TlsFactory;
 import com.softwareverde.logging.Logger;
 import com.softwareverde.util.IoUtil;
 import com.softwareverde.util.StringUtil;
-import com.sun.net.httpserver.HttpsConfigurator;
-import com.sun.net.httpserver.HttpsParameters;
-import com.sun.net.httpserver.HttpsServer;
 
 import javax.net.ssl.SSLContext;
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 public class HttpServer {
+    public static final Integer DEFAULT_MAX_CONCURRENT_REQUEST_COUNT = 10000;
+    public static final Long DEFAULT_MAX_REQUEST_QUEUE_WAIT_MS = 10000L;
+    public static final Long DEFAULT_REQUEST_QUEUE_TARGET_DELAY_MS = 100L;
+
     public interface RequestHandler {
         Response onRequest(Request request);
         Boolean isStrictPathEnabled();
     }
 
-    protected Map<String, com.sun.net.httpserver.HttpHandler> _endpoints = new HashMap<String, com.sun.net.httpserver.HttpHandler>();
+    protected Map<String, ExchangeHandler> _endpoints = new HashMap<String, ExchangeHandler>();
+    protected Map<String, Bulkhead> _bulkheads = new HashMap<String, Bulkhead>();
+    protected Map<String, HttpHandler> _httpHandlers = new HashMap<String, HttpHandler>();
+    protected RequestDeadlineWatchdog _requestDeadlineWatchdog;
+
+    protected ServerEngineFactory _serverEngineFactory = new ServerEngineFactory() {
+        @Override
+        public ServerEngine newServerEngine() {
+            return new JdkServerEngine();
+        }
+    };
+    protected ExecutorService _executorService;
+    protected ExecutorService _webSocketExecutorService;
+    protected Boolean _useVirtualThreads = false;
+    protected Integer _maxConcurrentRequestCount = DEFAULT_MAX_CONCURRENT_REQUEST_COUNT;
+    protected Integer _maxQueuedRequestCount = null;
+    protected Long _maxRequestQueueWaitMs = DEFAULT_MAX_REQUEST_QUEUE_WAIT_MS;
+    protected Long _requestQueueTargetDelayMs = DEFAULT_REQUEST_QUEUE_TARGET_DELAY_MS;
+
+    protected Integer _acceptorCount = 1;
+    protected Boolean _isHttp2Enabled = false;
 
-    protected com.sun.net.httpserver.HttpServer _server;
+    protected Boolean _isResponseCompressionEnabled = false;
+    protected Integer _responseCompressionLevel = ResponseCompressor.DEFAULT_COMPRESSION_LEVEL;
+    protected Integer _minCompressedResponseByteCount = ResponseCompressor.DEFAULT_MIN_COMPRESSED_BYTE_COUNT;
+
+    protected Long _maxRequestBodyByteCount = null;
+
+    protected Boolean _isRequestRecyclingEnabled = false;
+    protected Boolean _shouldDetectRecycledRequestUseAfterRelease = false;
+
+    protected ServerEngine _server;
     protected Integer _port = 80;
     protected Boolean _disableHttp = false;
 
-    protected com.sun.net.httpserver.HttpServer _tlsServer;
+    protected ServerEngine _unixDomainSocketServer;
+    protected String _unixDomainSocketPath = null;
+
+    protected ServerEngine _tlsServer;
     protected Integer _tlsPort = 443;
     protected Boolean _useEncryption = false;
     protected Boolean _redirectToTls = false;
@@ -50,15 +98,55 @@ public class HttpServer {
     protected Servlet _defaultEndpoint = new NotFoundJsonServlet();
     protected EncryptionRedirectServlet _encryptionRedirectServlet = new EncryptionRedirectServlet();
 
-    protected void _applyEndpoints(final com.sun.net.httpserver.HttpServer httpServer) {
-        for (final String endpointUri : _endpoints.keySet()) {
-            final com.sun.net.httpserver.HttpHandler handler = _endpoints.get(endpointUri);
-            httpServer.createContext(endpointUri, handler);
+    /**
+     * Wraps each ExchangeHandler so that requests shed by the admission queue are answered with a 503.
+     */
+    protected Map<String, ExchangeHandler> _applyAdmissionControl(final Map<String, ExchangeHandler> exchangeHandlers) {
+        if (! (_executorService instanceof AdmissionControlledExecutorService)) { return exchangeHandlers; }
+
+        final HashMap<String, ExchangeHandler> admissionExchangeHandlers = new HashMap<String, ExchangeHandler>();
+        for (final String endpointPath : exchangeHandlers.keySet()) {
+            final ExchangeHandler exchangeHandler = exchangeHandlers.get(endpointPath);
+            admissionExchangeHandlers.put(endpointPath, new AdmissionExchangeHandler(exchangeHandler));
+        }
+        return admissionExchangeHandlers;
+    }
+
+    /**
+     * Configures the endpoints' HttpHandlers with the server-wide settings and returns the ExchangeHandler for each endpoint path.
+     *  Invoked once per HttpServer.start(); the returned ExchangeHandlers are shared by each listener.
+     */
+    protected Map<String, ExchangeHandler> _applyEndpoints() {
+        final HashMap<String, ExchangeHandler> exchangeHandlers = new HashMap<String, ExchangeHandler>(_endpoints);
+
+        if (! exchangeHandlers.containsKey("/")) {
+            exchangeHandlers.put("/", new HttpHandler(_defaultEndpoint, false));
         }
 
-        if (! _endpoints.containsKey("/")) {
-            httpServer.createContext("/", new HttpHandler(_defaultEndpoint, false));
+        final ResponseCompressor responseCompressor = (_isResponseCompressionEnabled ? new ResponseCompressor(_responseCompressionLevel, _minCompressedResponseByteCount) : null);
+        final RequestPool requestPool = (_isRequestRecyclingEnabled ? new RequestPool(new RequestInflater(), _shouldDetectRecycledRequestUseAfterRelease) : null);
+        for (final ExchangeHandler endpointExchangeHandler : exchangeHandlers.values()) {
+            final ExchangeHandler exchangeHandler = ((endpointExchangeHandler instanceof BulkheadExchangeHandler) ? ((BulkheadExchangeHandler) endpointExchangeHandler).getExchangeHandler() : endpointExchangeHandler);
+            if (exchangeHandler instanceof WebSocketHandler) {
+                final WebSocketHandler webSocketHandler = (WebSocketHandler) exchangeHandler;
+                webSocketHandler.setWebSocketExecutor(_webSocketExecutorService);
+            }
+            else if (exchangeHandler instanceof HttpHandler) {
+                final HttpHandler httpHandler = (HttpHandler) exchangeHandler;
+                httpHandler.setResponseCompressor(responseCompressor);
+                final Boolean hasRequestTimeouts = httpHandler.hasRequestTimeouts();
+                if ( (hasRequestTimeouts) && (_requestDeadlineWatchdog == null) ) {
+                    _requestDeadlineWatchdog = new RequestDeadlineWatchdog(); // Only created (along with its threads) if a deadline may be set...
+                }
+                httpHandler.setRequestDeadlineWatchdog(hasRequestTimeouts ? _requestDeadlineWatchdog : null);
+                httpHandler.setRequestPool(requestPool);
+                if (httpHandler.getMaxRequestBodyByteCount() == null) {
+                    httpHandler.setMaxRequestBodyByteCount(_maxRequestBodyByteCount);
+                }
+            }
         }
+
+        return _applyAdmissionControl(exchangeHandlers);
     }
 
     public HttpServer() {
@@ -86,7 +174,20 @@ public class HttpServer {
         final Servlet servlet = endpoint.getServlet();
         final Boolean shouldUseStrictPath = endpoint.shouldUseStrictPath();
 
-        _endpoints.put(path, new HttpHandler(servlet, shouldUseStrictPath));
+        final HttpHandler httpHandler = new HttpHandler(servlet, shouldUseStrictPath);
+        httpHandler.setRequestTimeout(endpoint.getRequestTimeout());
+        httpHandler.setMaxRequestBodyByteCount(endpoint.getMaxRequestBodyByteCount());
+        _httpHandlers.put(path, httpHandler);
+
+        if (endpoint.hasBulkhead()) {
+            final Bulkhead bulkhead = new Bulkhead(endpoint.getExecutor(), endpoint.getMaxConcurrency(), endpoint.getMaxQueueDepth());
+            _bulkheads.put(path, bulkhead);
+            _endpoints.put(path, new BulkheadExchangeHandler(httpHandler, bulkhead));
+        }
+        else {
+            _bulkheads.remove(path);
+            _endpoints.put(path, httpHandler);
+        }
     }
 
     /**
@@ -105,9 +206,179 @@ public class HttpServer {
             webSocketHandler.setWebSocketFactory(webSocketFactory);
         }
 
-        _endpoints.put(path, webSocketHandler);
+        _httpHandlers.remove(path);
+
+        if (endpoint.hasBulkhead()) {
+            final Bulkhead bulkhead = new Bulkhead(endpoint.getExecutor(), endpoint.getMaxConcurrency(), endpoint.getMaxQueueDepth());
+            _bulkheads.put(path, bulkhead);
+            _endpoints.put(path, new BulkheadExchangeHandler(webSocketHandler, bulkhead));
+        }
+        else {
+            _bulkheads.remove(path);
+            _endpoints.put(path, webSocketHandler);
+        }
     }
 
+    /**
+     * Returns the current utilization and timeout count of the Endpoint registered at the endpoint path.
+     *  The bulkhead values are null if the Endpoint was not configured with its own executor, max concurrency, or max queue depth.
+     *  Returns null if no Endpoint is registered at the endpoint path.
+     */
+    public EndpointStatistics getEndpointStatistics(final String endpointPath) {
+        final Bulkhead bulkhead = _bulkheads.get(endpointPath);
+        final HttpHandler httpHandler = _httpHandlers.get(endpointPath);
+        if ( (bulkhead == null) && (httpHandler == null) ) { return null; }
+
+        final Long requestTimeout = (httpHandler != null ? httpHandler.getRequestTimeout() : null);
+        final Long timedOutCount = (httpHandler != null ? httpHandler.getTimedOutCount() : 0L);
+        if (bulkhead == null) {
+            return new EndpointStatistics(endpointPath, null, null, null, null, null, null, null, requestTimeout, timedOutCount);
+        }
+
+        return new EndpointStatistics(endpointPath, bulkhead.getMaxConcurrency(), bulkhead.getMaxQueueDepth(), bulkhead.getActiveCount(), bulkhead.getQueuedCount(), bulkhead.getAcceptedCount(), bulkhead.getRejectedCount(), bulkhead.getCompletedCount(), requestTimeout, timedOutCount);
+    }
+
+    /**
+     * Returns the current utilization and timeout count of every registered Endpoint.
+     */
+    public List<EndpointStatistics> getEndpointStatistics() {
+        final HashSet<String> endpointPaths = new HashSet<String>(_bulkheads.keySet());
+        endpointPaths.addAll(_httpHandlers.keySet());
+
+        final List<EndpointStatistics> endpointStatistics = new ArrayList<EndpointStatistics>();
+        for (final String endpointPath : endpointPaths) {
+            endpointStatistics.add(this.getEndpointStatistics(endpointPath));
+        }
+        return endpointStatistics;
+    }
+
+    /**
+     * Sets the factory used to create the ServerEngine for each listener (HTTP and HTTPS).
+     *  The default engine is the JDK's built-in com.sun.net.httpserver implementation (JdkServerEngine).
+     *  To use the non-blocking selector-based engine, provide a factory that creates a NioServerEngine.
+     *  Setting this value after HttpServer.start() has been invoked will have no effect.
+     */
+    public void setServerEngineFactory(final ServerEngineFactory serverEngineFactory) { _serverEngineFactory = serverEngineFactory; }
+
+    /**
+     * Sets the number of listening sockets opened for each port, each accepting connections on its own thread.
+     *  When greater than one, the sockets are bound with SO_REUSEPORT so that the kernel balances new connections across them.
+     *  Endpoints are shared by all of a port's sockets.
+     *  NOTE: Multiple acceptors are only supported by the NioServerEngine; the JdkServerEngine always uses a single acceptor.
+     *  The default value is 1.
+     *  Setting this value after HttpServer.start() has been invoked will have no effect.
+     */
+    public void setAcceptorCount(final Integer acceptorCount) { _acceptorCount = acceptorCount; }
+
+    /**
+     * Enables HTTP/2 for both listeners.  The HTTPS listener negotiates HTTP/2 via ALPN, falling back to HTTP/1.1 for
+     *  clients that do not support it; the HTTP listener accepts HTTP/2 via "prior knowledge" or "Upgrade: h2c".
+     *  Each HTTP/2 stream is dispatched to the Servlets as an independent Request.
+     *  NOTE: HTTP/2 is only supported by the NioServerEngine; WebSocket upgrades require HTTP/1.1.
+     *  The default value is false.
+     *  Setting this value after HttpServer.start() has been invoked will have no effect.
+     */
+    public void enableHttp2(final Boolean isHttp2Enabled) { _isHttp2Enabled = isHttp2Enabled; }
+
+    /**
+     * Compresses Responses with gzip or deflate when accepted by the client (via Accept-Encoding).
+     *  Only Responses with a compressible Content-Type (e.x. text, JSON, JavaScript, XML) and at least
+     *  HttpServer.setMinCompressedResponseByteCount() bytes of content are compressed.
+     *  The default value is false.
+     *  Setting this value after HttpServer.start() has been invoked will have no effect.
+     */
+    public void enableResponseCompression(final Boolean isResponseCompressionEnabled) { _isResponseCompressionEnabled = isResponseCompressionEnabled; }
+
+    /**
+     * Sets the compression level used when response compression is enabled, from 1 (fastest) to 9 (smallest).
+     *  The default value is 6.
+     *  Setting this value after HttpServer.start() has been invoked will have no effect.
+     */
+    public void setResponseCompressionLevel(final Integer compressionLevel) { _responseCompressionLevel = compressionLevel; }
+
+    /**
+     * Sets the minimum content size, in bytes, for a Response to be compressed; smaller content is not worth the overhead.
+     *  The default value is 1024.
+     *  Setting this value after HttpServer.start() has been invoked will have no effect.
+     */
+    public void setMinCompressedResponseByteCount(final Integer minCompressedResponseByteCount) { _minCompressedResponseByteCount = minCompressedResponseByteCount; }
+
+    /**
+     * Sets the maximum request body size, in bytes, for Endpoints that do not set their own (see Endpoint.setMaxRequestBodyByteCount()).
+     *  Requests declaring a larger Content-Length are answered with a 413 without invoking the servlet or reading the body.
+     *  With the NioServerEngine, "100 Continue" is only sent once a servlet reads the request body, so clients sending
+     *  "Expect: 100-continue" never send the body of a request rejected by its size, path, or the servlet itself.
+     *  NOTE: The JdkServerEngine sends "100 Continue" before the request is handled.
+     *  If not set (the default), request bodies are not limited.
+     *  Setting this value after HttpServer.start() has been invoked will have no effect.
+     */
+    public void setMaxRequestBodyByteCount(final Long maxRequestBodyByteCount) { _maxRequestBodyByteCount = maxRequestBodyByteCount; }
+
+    /**
+     * Recycles Requests (including their Headers and cookies) across exchanges, rather than allocating them per exchange.
+     *  Recycled Requests are shared by all threads, so recycling is also effective with virtual threads.
+     *  A recycled Request is reset once its Response has been sent, so Servlets must not retain the Request beyond Servlet.onRequest(),
+     *  including within a streamed Response's ContentWriter.  Requests handled by AsyncServlets (e.x. AsyncApplicationServlets) are recycled
+     *  once the Response's future completes, so they must not be retained beyond it either.
+     *  The default value is false.
+     *  Setting this value after HttpServer.start() has been invoked will have no effect.
+     */
+    public void enableRequestRecycling(final Boolean isRequestRecyclingEnabled) { _isRequestRecyclingEnabled = isRequestRecyclingEnabled; }
+
+    /**
+     * When request recycling is enabled, causes any access of a Request after its release to throw an IllegalStateException.
+     *  Released Requests are then never reused, so this mode is intended for testing rather than production.
+     *  The default value is false.
+     *  Setting this value after HttpServer.start() has been invoked will have no effect.
+     */
+    public void enableRecycledRequestUseAfterReleaseDetection(final Boolean shouldDetectUseAfterRelease) { _shouldDetectRecycledRequestUseAfterRelease = shouldDetectUseAfterRelease; }
+
+    /**
+     * Runs each request on its own virtual thread instead of a fixed pool of HttpServer.maxConnectionCount platform threads.
+     *  The number of concurrently executing requests is instead bounded by HttpServer.setMaxConcurrentRequestCount().
+     *  WebSocketServlet.onNewWebSocket() is also invoked on its own virtual thread, outside of the request concurrency limit.
+     *  Virtual threads require Java 21; on earlier JVMs a warning is logged and the fixed thread pool is used.
+     *  Setting this value after HttpServer.start() has been invoked will have no effect.
+     */
+    public void enableVirtualThreads(final Boolean useVirtualThreads) { _useVirtualThreads = useVirtualThreads; }
+
+    /**
+     * Sets the maximum number of requests executing concurrently when virtual threads are enabled.
+     *  Requests beyond this limit wait for a running request to complete.
+     *  The default value is 10000.
+     *  Setting this value after HttpServer.start() has been invoked will have no effect.
+     */
+    public void setMaxConcurrentRequestCount(final Integer maxConcurrentRequestCount) { _maxConcurrentRequestCount = maxConcurrentRequestCount; }
+
+    /**
+     * Bounds the number of requests waiting for one of the HttpServer.maxConnectionCount worker threads.
+     *  Requests that arrive while the queue is full, or that wait in the queue too long, are answered with a
+     *  503 (and a Retry-After header) without invoking the servlet.
+     *  Once the queue wait remains above the target delay (see HttpServer.setRequestQueueTargetDelay()), requests are
+     *  shed at an increasing rate until the wait falls below the target.
+     *  If not set (the default), the queue is unbounded and requests are never shed.
+     *  The request queue is not used when virtual threads are enabled; a warning is logged when the HttpServer is started with both.
+     *  Setting this value after HttpServer.start() has been invoked will have no effect.
+     */
+    public void setMaxQueuedRequestCount(final Integer maxQueuedRequestCount) { _maxQueuedRequestCount = maxQueuedRequestCount; }
+
+    /**
+     * Sets the maximum duration a request may wait in the request queue before it is shed.
+     *  The default value is 10 seconds.
+     *  Only applies if HttpServer.setMaxQueuedRequestCount() has been set.
+     *  Setting this value after HttpServer.start() has been invoked will have no effect.
+     */
+    public void setMaxRequestQueueWait(final Long maxRequestQueueWaitMs) { _maxRequestQueueWaitMs = maxRequestQueueWaitMs; }
+
+    /**
+     * Sets the acceptable standing delay of the request queue.
+     *  Requests are shed once the queue wait has remained above this value for an interval of 20 times this value.
+     *  The default value is 100 milliseconds.
+     *  Only applies if HttpServer.setMaxQueuedRequestCount() has been set.
+     *  Setting this value after HttpServer.start() has been invoked will have no effect.
+     */
+    public void setRequestQueueTargetDelay(final Long requestQueueTargetDelayMs) { _requestQueueTargetDelayMs = requestQueueTargetDelayMs; }
+
     /**
      * Disables all non-encrypted (HTTP) requests.
      *  Disabling HTTP will also disable any redirection set by HttpServer.redirectToTls().
@@ -122,6 +393,19 @@ public class HttpServer {
      */
     public void setPort(final Integer port) { _port = port; }
 
+    /**
+     * Sets the path of a Unix domain socket for the server to listen on, in addition to the HTTP/HTTPS ports.
+     *  The socket serves the same endpoints as the HTTP port, unencrypted and without redirection to HTTPS; use
+     *  HttpServer.disableHttp() to listen only on the socket (e.x. behind a local reverse proxy).
+     *  Requests received via the socket report the loopback address as their remote and local host.
+     *  An existing socket file at the path (e.x. left behind by a previous process) is replaced; the file is deleted by HttpServer.stop().
+     *  If the ServerEngine created by the ServerEngineFactory does not support Unix domain sockets, a NioServerEngine is used.
+     *  NOTE: Unix domain sockets require Java 16 or later; on earlier JVMs HttpServer.start() fails.
+     *  If not set (the default), the server does not listen on a Unix domain socket.
+     *  Setting this value after HttpServer.start() has been invoked will have no effect.
+     */
+    public void setUnixDomainSocketPath(final String unixDomainSocketPath) { _unixDomainSocketPath = unixDomainSocketPath; }
+
     /**
      * Sets the HTTPS port for the server to listen on.
      *  The default value is 443.
@@ -186,14 +470,36 @@ public class HttpServer {
         tlsFactory.addTlsCertificate(StringUtil.bytesToString(certificateBytes), certificateKeyFileBytes);
     }
 
+    protected ExecutorService _createExecutorService() {
+        if (_useVirtualThreads) {
+            if (VirtualThreads.isSupported()) {
+                final ExecutorService virtualThreadExecutorService = VirtualThreads.newVirtualThreadPerTaskExecutor("HttpServer-Request-");
+                _webSocketExecutorService = VirtualThreads.newVirtualThreadPerTaskExecutor("HttpServer-WebSocket-");
+                if (_maxQueuedRequestCount != null) {
+                    Logger.warn("The max queued request count is ignored when virtual threads are enabled; requests beyond the max concurrent request count wait without being shed.");
+                }
+                return new ConcurrencyLimitedExecutorService(virtualThreadExecutorService, _maxConcurrentRequestCount);
+            }
+
+            Logger.warn("Virtual threads are not supported by this JVM; using a fixed thread pool.");
+        }
+
+        if (_maxQueuedRequestCount != null) {
+            final AdmissionController admissionController = new AdmissionController(_requestQueueTargetDelayMs, (_requestQueueTargetDelayMs * 20L), _maxRequestQueueWaitMs);
+            return new AdmissionControlledExecutorService(_maxConnectionCount, _maxQueuedRequestCount, admissionController);
+        }
+
+        return Executors.newFixedThreadPool(_maxConnectionCount);
+    }
+
     public Boolean start() {
         try {
-            final ExecutorService executor = Executors.newFixedThreadPool(_maxConnectionCount);
+            final ExecutorService executor = _createExecutorService();
+            _executorService = executor;
+            final Map<String, ExchangeHandler> endpointExchangeHandlers = _applyEndpoints();
 
             if (_useEncryption) {
                 final TlsFactory tlsFactory = new TlsFactory();
-
-                final HttpsServer httpsServer = HttpsServer.create(new InetSocketAddress(_tlsPort), _maxConnectionCount);
                 {
                     for (int i = 0 ; i < _certificateKeyFiles.size(); ++i) {
                         final String certificateFile = _certificateFiles.get(i);
@@ -206,33 +512,35 @@ public class HttpServer {
                 final TlsCertificate tlsCertificate = tlsFactory.buildCertificate();
                 final SSLContext sslContext = tlsCertificate.createContext();
 
-                httpsServer.setHttpsConfigurator(new HttpsConfigurator(sslContext) {
-                    @Override
-                    public void configure(final HttpsParameters httpsParameters) {
-                        httpsParameters.setProtocols(new String[]{ "TLSv1.1", "TLSv1.2", "TLSv1.3" });
-                        httpsParameters.setNeedClientAuth(false);
-                    }
-                });
-
-                _applyEndpoints(httpsServer);
-                httpsServer.setExecutor(executor);
-
-                _tlsServer = httpsServer;
-                _tlsServer.start();
+                _tlsServer = _serverEngineFactory.newServerEngine();
+                _tlsServer.setAcceptorCount(_acceptorCount);
+                _tlsServer.enableHttp2(_isHttp2Enabled);
+                _tlsServer.start(new InetSocketAddress(_tlsPort), _maxConnectionCount, sslContext, endpointExchangeHandlers, executor);
             }
 
             if (! _disableHttp) {
-                _server = com.sun.net.httpserver.HttpServer.create(new InetSocketAddress(_port), _maxConnectionCount);
-
+                final Map<String, ExchangeHandler> exchangeHandlers;
                 if (_redirectToTls) {
-                    _server.createContext("/", new HttpHandler(_encryptionRedirectServlet, false));
+                    final HashMap<String, ExchangeHandler> redirectExchangeHandlers = new HashMap<String, ExchangeHandler>();
+                    redirectExchangeHandlers.put("/", new HttpHandler(_encryptionRedirectServlet, false));
+                    exchangeHandlers = _applyAdmissionControl(redirectExchangeHandlers);
                 }
                 else {
-                    _applyEndpoints(_server);
+                    exchangeHandlers = endpointExchangeHandlers;
                 }
 
-                _server.setExecutor(executor);
-                _server.start();
+                _server = _serverEngineFactory.newServerEngine();
+                _server.setAcceptorCount(_acceptorCount);
+                _server.enableHttp2(_isHttp2Enabled);
+                _server.start(new InetSocketAddress(_port), _maxConnectionCount, null, exchangeHandlers, executor);
+            }
+
+            if (_unixDomainSocketPath != null) {
+                final ServerEngine serverEngine = _serverEngineFactory.newServerEngine();
+                _unixDomainSocketServer = (serverEngine.isUnixDomainSocketSupported() ? serverEngine : new NioServerEngine());
+                _unixDomainSocketServer.setAcceptorCount(_acceptorCount);
+                _unixDomainSocketServer.enableHttp2(_isHttp2Enabled);
+                _unixDomainSocketServer.startUnixDomainSocket(_unixDomainSocketPath, _maxConnectionCount, null, endpointExchangeHandlers, executor);
             }
 
             return true;
@@ -244,12 +552,33 @@ public class HttpServer {
     }
 
     public void stop() {
-        _server.stop(0);
+        if (_server != null) {
+            _server.stop();
+        }
+
         if (_tlsServer != null) {
-            _tlsServer.stop(0);
+            _tlsServer.stop();
         }
 
-        final ExecutorService executorService = ((ExecutorService) _server.getExecutor());
-        executorService.shutdown();
+        if (_unixDomainSocketServer != null) {
+            _unixDomainSocketServer.stop();
+        }
+
+        final ExecutorService executorService = _executorService;
+        if (executorService != null) {
+            executorService.shutdown();
+        }
+
+        final ExecutorService webSocketExecutorService = _webSocketExecutorService;
+        if (webSocketExecutorService != null) {
+            webSocketExecutorService.shutdown();
+            _webSocketExecutorService = null;
+        }
+
+        final RequestDeadlineWatchdog requestDeadlineWatchdog = _requestDeadlineWatchdog;
+        if (requestDeadlineWatchdog != null) {
+            requestDeadlineWatchdog.shutdown();
+            _requestDeadlineWatchdog = null;
+        }
     }
 }
@@ -0,0 +1,199 @@
+package com.softwareverde.http.server;
+
+import com.softwareverde.http.server.servlet.request.Request;
+import com.softwareverde.logging.Logger;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Periodically checks the deadline of each in-flight Request, expiring those still being processed once their deadline has passed.</p>
+ *
+ * <p>A Request's deadline is read upon each check, so a deadline shortened while the Request is being processed (e.x. by a
+ * RoutedServlet's route) is honored.  Expired Requests are answered on a separate thread so that a slow client cannot
+ * delay the expiration of other Requests.</p>
+ */
+class RequestDeadlineWatchdog {
+    public static final Long DEFAULT_CHECK_INTERVAL_MS = 25L;
+
+    /**
+     * A Request being processed; exactly one of WatchedRequest.complete() and its expiration succeeds.
+     */
+    public static abstract class WatchedRequest {
+        protected final Request _request;
+        protected Thread _thread; // The thread processing the Request, which is interrupted upon expiration; null once released.
+        protected CompletableFuture<?> _responseFuture;
+        protected Boolean _isComplete = false;
+        protected Boolean _isExpired = false;
+
+        /**
+         * Invoked once the Request has expired; the processing thread has already been interrupted (or its pending
+         *  Response cancelled), and the Response it eventually produces will be discarded.
+         */
+        protected abstract void _onExpired();
+
+        protected Boolean _expire() {
+            final CompletableFuture<?> responseFuture;
+            synchronized (this) {
+                if ( (_isComplete) || (_isExpired) ) { return false; }
+
+                _isExpired = true;
+                if (_thread != null) {
+                    _thread.interrupt();
+                }
+                responseFuture = _responseFuture;
+            }
+
+            if (responseFuture != null) {
+                responseFuture.cancel(true);
+            }
+            return true;
+        }
+
+        /**
+         * The WatchedRequest must be created by the thread processing the Request.
+         */
+        public WatchedRequest(final Request request) {
+            _request = request;
+            _thread = Thread.currentThread();
+        }
+
+        public Request getRequest() {
+            return _request;
+        }
+
+        /**
+         * Releases the processing thread once the Response is pending on the responseFuture; upon expiration, the
+         *  responseFuture is cancelled instead of the thread being interrupted.
+         */
+        public void release(final CompletableFuture<?> responseFuture) {
+            synchronized (this) {
+                if (_isExpired) {
+                    Thread.interrupted(); // Clear the interrupt delivered upon expiration...
+                    responseFuture.cancel(true);
+                    return;
+                }
+
+                _thread = null;
+                _responseFuture = responseFuture;
+            }
+        }
+
+        /**
+         * Marks the Request as complete.  Returns false if the Request has already expired, in which case its Response must not be sent.
+         */
+        public Boolean complete() {
+            synchronized (this) {
+                if (_isExpired) {
+                    if (_thread == Thread.currentThread()) {
+                        Thread.interrupted(); // Clear the interrupt delivered upon expiration...
+                    }
+                    return false;
+                }
+
+                _isComplete = true;
+                return true;
+            }
+        }
+
+        public synchronized Boolean isExpired() {
+            return _isExpired;
+        }
+    }
+
+    protected static ThreadFactory _createThreadFactory(final String threadNamePrefix) {
+        final AtomicInteger threadCount = new AtomicInteger(0);
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, threadNamePrefix + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    protected final Set<WatchedRequest> _watchedRequests = ConcurrentHashMap.newKeySet();
+    protected final ScheduledExecutorService _scheduledExecutorService;
+    protected final ExecutorService _expirationExecutorService;
+
+    protected void _checkDeadlines() {
+        final long now = System.currentTimeMillis();
+        for (final WatchedRequest watchedRequest : _watchedRequests) {
+            final Long deadline = watchedRequest.getRequest().getDeadline();
+            if ( (deadline == null) || (now < deadline) ) { continue; }
+
+            _watchedRequests.remove(watchedRequest);
+            if (! watchedRequest._expire()) { continue; }
+
+            _expirationExecutorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        watchedRequest._onExpired();
+                    }
+                    catch (final Exception exception) {
+                        Logger.debug(RequestDeadlineWatchdog.class, "Error expiring request.", exception);
+                    }
+                }
+            });
+        }
+    }
+
+    public RequestDeadlineWatchdog() {
+        this(DEFAULT_CHECK_INTERVAL_MS);
+    }
+
+    /**
+     * @param checkIntervalMs - The interval between deadline checks; Requests may outlive their deadline by up to this duration.
+     */
+    public RequestDeadlineWatchdog(final Long checkIntervalMs) {
+        _scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(_createThreadFactory("HttpServer-Watchdog-"));
+        _expirationExecutorService = Executors.newCachedThreadPool(_createThreadFactory("HttpServer-Watchdog-Expiration-"));
+
+        _scheduledExecutorService.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    _checkDeadlines();
+                }
+                catch (final Exception exception) {
+                    Logger.warn(RequestDeadlineWatchdog.class, "Error checking request deadlines.", exception);
+                }
+            }
+        }, checkIntervalMs, checkIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Watches the Request until WatchedRequest.complete() is invoked via RequestDeadlineWatchdog.complete().
+     *  Requests should only be watched once they have a deadline (see Request.setDeadlineListener()).
+     */
+    public void watch(final WatchedRequest watchedRequest) {
+        _watchedRequests.add(watchedRequest);
+    }
+
+    /**
+     * Stops watching the Request and marks it as complete.  Returns false if the Request has already expired.
+     */
+    public Boolean complete(final WatchedRequest watchedRequest) {
+        _watchedRequests.remove(watchedRequest);
+        return watchedRequest.complete();
+    }
+
+    public Integer getWatchedRequestCount() {
+        return _watchedRequests.size();
+    }
+
+    public void shutdown() {
+        _scheduledExecutorService.shutdown();
+        _expirationExecutorService.shutdown();
+        _watchedRequests.clear();
+    }
+}
@@ -1,7 +1,6 @@
 package com.softwareverde.http.server;
 
 import com.softwareverde.http.server.servlet.response.JsonResponse;
-import com.softwareverde.http.server.servlet.response.Response;
 import com.softwareverde.json.Json;
 
 class Util extends com.softwareverde.util.Util {
@@ -12,6 +11,6 @@ class Util extends com.softwareverde.util.Util {
         json.put("wasSuccess", false);
         json.put("errorCode", responseCode);
         json.put("errorMessage", errorMessage);
-        return new JsonResponse(Response.Codes.SERVER_ERROR, json);
+        return new JsonResponse(responseCode, json);
     }
 }
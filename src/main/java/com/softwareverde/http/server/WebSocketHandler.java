@@ -1,7 +1,7 @@
 package com.softwareverde.http.server;
 
-import com.softwareverde.http.cookie.Cookie;
-import com.softwareverde.http.cookie.CookieParser;
+import com.softwareverde.http.server.engine.Exchange;
+import com.softwareverde.http.server.engine.ExchangeHandler;
 import com.softwareverde.http.server.servlet.WebSocketServlet;
 import com.softwareverde.http.server.servlet.request.RequestInflater;
 import com.softwareverde.http.server.servlet.request.WebSocketRequest;
@@ -10,26 +10,19 @@ import com.softwareverde.http.server.servlet.response.WebSocketResponse;
 import com.softwareverde.http.websocket.ConnectionLayer;
 import com.softwareverde.http.websocket.WebSocket;
 import com.softwareverde.logging.Logger;
-import com.softwareverde.util.ReflectionUtil;
-import com.softwareverde.util.StringUtil;
-import com.sun.net.httpserver.Headers;
-import com.sun.net.httpserver.HttpExchange;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.Socket;
-import java.nio.channels.SocketChannel;
-import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Executor;
 
-class WebSocketHandler implements com.sun.net.httpserver.HttpHandler {
+class WebSocketHandler implements ExchangeHandler {
 
     protected final WebSocketServlet _servlet;
     protected final Boolean _shouldUseStrictPathMatching;
     protected final Integer _maxPacketByteCount;
 
     protected WebSocketFactory _webSocketFactory = new WebSocketFactory() { };
+    protected Executor _webSocketExecutor = null;
 
     public WebSocketHandler(final WebSocketServlet servlet, final Boolean shouldUseStrictPathMatching) {
         this(servlet, shouldUseStrictPathMatching, 8192);
@@ -49,9 +42,17 @@ class WebSocketHandler implements com.sun.net.httpserver.HttpHandler {
         _webSocketFactory = webSocketFactory;
     }
 
+    /**
+     * Sets the Executor used to invoke WebSocketServlet.onNewWebSocket().
+     *  If null, WebSocketServlet.onNewWebSocket() is invoked on the thread that handled the upgrade request.
+     */
+    public void setWebSocketExecutor(final Executor webSocketExecutor) {
+        _webSocketExecutor = webSocketExecutor;
+    }
+
     @Override
-    public void handle(final HttpExchange httpExchange) throws IOException {
-        final Boolean pathIsStrictMatch = HttpHandler.isPathStrictlyMatched(httpExchange);
+    public void handle(final Exchange exchange) throws IOException {
+        final Boolean pathIsStrictMatch = HttpHandler.isPathStrictlyMatched(exchange);
 
         Boolean shouldUpgradeToWebSocket = false;
         String webSocketKey = null;
@@ -59,13 +60,13 @@ class WebSocketHandler implements com.sun.net.httpserver.HttpHandler {
         Response response;
         {
             if ( (_shouldUseStrictPathMatching) && (! pathIsStrictMatch) ) {
-                response = Util.createJsonErrorResponse(Response.Codes.NOT_FOUND, "Not found.");
+                response = CannedResponses.NOT_FOUND;
             }
             else {
                 final RequestInflater requestInflater = new RequestInflater();
-                final WebSocketRequest webSocketRequest = requestInflater.createWebSocketRequest(httpExchange);
+                final WebSocketRequest webSocketRequest = requestInflater.createWebSocketRequest(exchange);
                 if (webSocketRequest == null) {
-                    response = Util.createJsonErrorResponse(Response.Codes.SERVER_ERROR, "Bad request.");
+                    response = CannedResponses.BAD_REQUEST;
                 }
                 else {
                     try {
@@ -77,129 +78,61 @@ class WebSocketHandler implements com.sun.net.httpserver.HttpHandler {
                         response = webSocketResponse;
                     }
                     catch (final Exception exception) {
-                        Logger.warn(WebSocketHandler.class, "Error handling request: " + httpExchange.getRequestURI(), exception);
+                        Logger.warn(WebSocketHandler.class, "Error handling request: " + exchange.getRequestUri(), exception);
 
                         shouldUpgradeToWebSocket = false;
                         webSocketKey = null;
                         webSocketId = null;
-                        response = Util.createJsonErrorResponse(Response.Codes.SERVER_ERROR, "Server error.");
+                        response = CannedResponses.SERVER_ERROR;
                     }
                 }
             }
         }
 
-        DelayedOutputStream delayedOutputStream = null;
-        ConnectionLayer connectionLayer = null;
-        try {
-            // HttpExchange does not behave correctly when the 101 ResponseCode is used to upgrade the connection;
-            //  the most prominent issue is that it sends a Content-Length: 0 header, which causes the client to close.
-            //  Therefore, we access the rawInputStream ("ris") and rawOutputStream ("ros") of the underlying implementation
-            //  and trick the HttpExchange into behaving correctly.
-            // HttpExchange Source: http://www.docjar.com/html/api/sun/net/httpserver/ExchangeImpl.java.html
-            final Object httpExchangeImplementation = ReflectionUtil.getValue(httpExchange, "impl");
-            final Object httpConnection = ReflectionUtil.getValue(httpExchangeImplementation, "connection");
-
-            // final SSLEngine sslEngine = ReflectionUtil.invoke(httpConnection, "getSSLEngine");
-            InputStream sslInputStream = null;
-            OutputStream sslOutputStream = null;
-            final Object sslStreams = ReflectionUtil.getValue(httpConnection, "sslStreams");
-            if (sslStreams != null) {
-                sslInputStream = ReflectionUtil.invoke(sslStreams, "getInputStream");
-                sslOutputStream = ReflectionUtil.invoke(sslStreams, "getOutputStream");
-            }
-
-            final SocketChannel socketChannel = ReflectionUtil.getValue(httpConnection, "chan");
-            final Socket rawSocket = socketChannel.socket();
-            final InputStream rawInputStream = rawSocket.getInputStream();
-            final OutputStream rawOutputStream = rawSocket.getOutputStream();
-
-            delayedOutputStream = new DelayedOutputStream(sslOutputStream != null ? sslOutputStream : rawOutputStream);
-            ReflectionUtil.setValue(httpExchangeImplementation, "ros", delayedOutputStream);
-
-            if ( (sslInputStream != null) && (sslOutputStream != null)) {
-                connectionLayer = ConnectionLayer.newSecureConnectionLayer(rawSocket, sslInputStream, sslOutputStream);
-            }
-            else {
-                connectionLayer = ConnectionLayer.newConnectionLayer(rawSocket);
-            }
-        }
-        catch (final Exception exception) {
-            Logger.error(WebSocketHandler.class, "Error initializing Web Socket.", exception);
-        }
-
-        if (connectionLayer == null) {
-            response = Util.createJsonErrorResponse(Response.Codes.SERVER_ERROR, "Server error.  Unable to initialize Web Socket.");
-            shouldUpgradeToWebSocket = false;
+        if (! shouldUpgradeToWebSocket) {
+            exchange.sendResponse(response);
+            return;
         }
 
-        if (shouldUpgradeToWebSocket) { // Update the Response for the WebSocket Upgrade...
-            // NOTE: Faking a 200 ResponseCode so that the HttpExchange behaves correctly.  The correct ResponseCode is replaced later.
-            //  Setting the ResponseCode to OK prevents a content-length header from being sent and also does not close the streams.
-            response.setCode(Response.Codes.OK);
+        { // Update the Response for the WebSocket Upgrade...
+            response.setCode(Response.Codes.SWITCHING_PROTOCOLS);
             response.setHeader(Response.Headers.UPGRADE, Response.Headers.WebSocket.Values.UPGRADE);
             response.setHeader(Response.Headers.CONNECTION, Response.Headers.WebSocket.Values.CONNECTION);
             response.setHeader(Response.Headers.WebSocket.ACCEPT, Response.Headers.WebSocket.Values.createAcceptHeader(webSocketKey));
         }
 
-        if (delayedOutputStream != null) {
-            if (shouldUpgradeToWebSocket) {
-                delayedOutputStream.delay();
-            }
-            else {
-                delayedOutputStream.resume();
-            }
-        }
-
-        { // Send Response Headers...
-            final Headers httpExchangeHeaders = httpExchange.getResponseHeaders();
-            final Map<String, List<String>> compiledHeaders = response.getHeaders();
-            for (final String headerKey : compiledHeaders.keySet()) {
-                final List<String> headerValues = compiledHeaders.get(headerKey);
-                for (final String headerValue : headerValues) {
-                    httpExchangeHeaders.add(headerKey, headerValue);
-                }
-            }
-
-            final List<Cookie> cookies = response.getCookies();
-            final CookieParser cookieParser = new CookieParser();
-            final List<String> compiledCookies = cookieParser.compileCookiesIntoSetCookieHeaderValues(cookies);
-            for (final String setCookieHeader : compiledCookies) {
-                httpExchangeHeaders.add(Response.Headers.SET_COOKIE, setCookieHeader);
-            }
+        final ConnectionLayer connectionLayer = exchange.upgradeToWebSocket(response);
+        if (connectionLayer == null) {
+            exchange.sendResponse(CannedResponses.WEB_SOCKET_UPGRADE_FAILED);
+            return;
         }
 
-        if (shouldUpgradeToWebSocket) {
-            { // Hack the HttpExchange to work around the HTTP 101 bug that closes the socket with a Content-Length header...
-                httpExchange.sendResponseHeaders(response.getCode(), 0);
-                final String payload = StringUtil.bytesToString(delayedOutputStream.getDelayedPayload());
-                final String newPayload = payload.replaceFirst("HTTP/1.1 200[^\\r\\n]*\\r\\n", "HTTP/1.1 101 Switching Protocols\r\n");
-                delayedOutputStream.clearDelayedPayload();
-                delayedOutputStream.resume();
-                delayedOutputStream.write(StringUtil.stringToBytes(newPayload));
-                delayedOutputStream.flush();
-            }
-
-            { // Configure the raw socket...
-                final Socket socket = connectionLayer.getSocket();
+        { // Configure the raw socket...
+            final Socket socket = connectionLayer.getSocket();
+            if (socket != null) {
                 socket.setKeepAlive(true);
                 socket.setTcpNoDelay(true);
             }
+        }
 
-            final WebSocket webSocket = _webSocketFactory.newWebSocket(webSocketId, WebSocket.Mode.SERVER, connectionLayer, _maxPacketByteCount);
+        final WebSocket webSocket = _webSocketFactory.newWebSocket(webSocketId, WebSocket.Mode.SERVER, connectionLayer, _maxPacketByteCount);
+
+        final Executor webSocketExecutor = _webSocketExecutor;
+        if (webSocketExecutor == null) {
             _servlet.onNewWebSocket(webSocket);
+            return;
         }
-        else {
-            final byte[] responseBytes = response.getContent();
-            httpExchange.sendResponseHeaders(response.getCode(), (responseBytes == null ? -1 : responseBytes.length));
-
-            if (responseBytes != null) {
-                final OutputStream outputStream = httpExchange.getResponseBody();
-                outputStream.write(responseBytes);
-                outputStream.flush();
-                outputStream.close();
-            }
 
-            httpExchange.close();
-        }
+        webSocketExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    _servlet.onNewWebSocket(webSocket);
+                }
+                catch (final Exception exception) {
+                    Logger.warn(WebSocketHandler.class, "Error initializing Web Socket.", exception);
+                }
+            }
+        });
     }
 }
@@ -2,10 +2,17 @@ package com.softwareverde.http.server.endpoint;
 
 import com.softwareverde.http.server.servlet.Servlet;
 
+import java.util.concurrent.Executor;
+
 public class Endpoint {
     protected final Servlet _servlet;
     protected String _path;
     protected Boolean _shouldUseStrictPath;
+    protected Executor _executor;
+    protected Integer _maxConcurrency;
+    protected Integer _maxQueueDepth;
+    protected Long _requestTimeout;
+    protected Long _maxRequestBodyByteCount;
 
     public Endpoint(final Servlet servlet) {
         _servlet = servlet;
@@ -30,4 +37,84 @@ public class Endpoint {
     public Servlet getServlet() {
         return _servlet;
     }
+
+    /**
+     * Sets the Executor used to process this Endpoint's requests, isolating them from other Endpoints.
+     *  If not set, requests are processed by the HttpServer's shared executor.
+     *  Setting this value after HttpServer.addEndpoint() has been invoked will have no effect.
+     */
+    public void setExecutor(final Executor executor) {
+        _executor = executor;
+    }
+
+    public Executor getExecutor() {
+        return _executor;
+    }
+
+    /**
+     * Sets the maximum number of this Endpoint's requests that may be processed concurrently.
+     *  Requests beyond this limit are queued, up to the max queue depth; once the queue is full, requests are rejected with a 503.
+     *  If not set, concurrency is only bounded by the executor.
+     *  Setting this value after HttpServer.addEndpoint() has been invoked will have no effect.
+     */
+    public void setMaxConcurrency(final Integer maxConcurrency) {
+        _maxConcurrency = maxConcurrency;
+    }
+
+    public Integer getMaxConcurrency() {
+        return _maxConcurrency;
+    }
+
+    /**
+     * Sets the maximum number of this Endpoint's requests that may wait for processing once the max concurrency has been reached.
+     *  A value of zero rejects requests as soon as the max concurrency has been reached.
+     *  If not set, the queue is unbounded.
+     *  Setting this value after HttpServer.addEndpoint() has been invoked will have no effect.
+     */
+    public void setMaxQueueDepth(final Integer maxQueueDepth) {
+        _maxQueueDepth = maxQueueDepth;
+    }
+
+    public Integer getMaxQueueDepth() {
+        return _maxQueueDepth;
+    }
+
+    /**
+     * Sets the maximum duration, in milliseconds, of this Endpoint's requests, measured from when the request is handed to the Endpoint.
+     *  Requests still being processed once their deadline has passed are answered with a 504; the thread processing the
+     *  request is interrupted (or its pending Response cancelled) and its eventual Response is discarded.
+     *  Requests whose deadline passes while waiting for the Endpoint's max concurrency are answered with a 503 without invoking the servlet.
+     *  The deadline is available to the servlet via Request.getDeadline().
+     *  If not set, requests have no deadline.
+     *  Setting this value after HttpServer.addEndpoint() has been invoked will have no effect.
+     */
+    public void setRequestTimeout(final Long requestTimeoutMs) {
+        _requestTimeout = requestTimeoutMs;
+    }
+
+    public Long getRequestTimeout() {
+        return _requestTimeout;
+    }
+
+    /**
+     * Sets the maximum request body size, in bytes, accepted by this Endpoint.
+     *  Requests declaring a larger Content-Length are answered with a 413 without invoking the servlet or reading the body;
+     *  clients sending "Expect: 100-continue" are rejected before sending the body.
+     *  If not set, the HttpServer's max request body size is used (see HttpServer.setMaxRequestBodyByteCount()).
+     *  Setting this value after HttpServer.addEndpoint() has been invoked will have no effect.
+     */
+    public void setMaxRequestBodyByteCount(final Long maxRequestBodyByteCount) {
+        _maxRequestBodyByteCount = maxRequestBodyByteCount;
+    }
+
+    public Long getMaxRequestBodyByteCount() {
+        return _maxRequestBodyByteCount;
+    }
+
+    /**
+     * Returns true if the Endpoint has been configured with its own executor or limits.
+     */
+    public Boolean hasBulkhead() {
+        return ( (_executor != null) || (_maxConcurrency != null) || (_maxQueueDepth != null) );
+    }
 }
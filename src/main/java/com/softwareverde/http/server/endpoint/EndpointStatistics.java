@@ -0,0 +1,74 @@
+package com.softwareverde.http.server.endpoint;
+
+/**
+ * <p>A snapshot of an Endpoint's bulkhead utilization and request timeouts.</p>
+ *
+ * <p>The bulkhead values are null if the Endpoint was not configured with its own executor, max concurrency, or max queue depth.</p>
+ */
+public class EndpointStatistics {
+    protected final String _path;
+    protected final Integer _maxConcurrency;
+    protected final Integer _maxQueueDepth;
+    protected final Integer _activeCount;
+    protected final Integer _queuedCount;
+    protected final Long _acceptedCount;
+    protected final Long _rejectedCount;
+    protected final Long _completedCount;
+    protected final Long _requestTimeout;
+    protected final Long _timedOutCount;
+
+    public EndpointStatistics(final String path, final Integer maxConcurrency, final Integer maxQueueDepth, final Integer activeCount, final Integer queuedCount, final Long acceptedCount, final Long rejectedCount, final Long completedCount) {
+        this(path, maxConcurrency, maxQueueDepth, activeCount, queuedCount, acceptedCount, rejectedCount, completedCount, null, 0L);
+    }
+
+    public EndpointStatistics(final String path, final Integer maxConcurrency, final Integer maxQueueDepth, final Integer activeCount, final Integer queuedCount, final Long acceptedCount, final Long rejectedCount, final Long completedCount, final Long requestTimeout, final Long timedOutCount) {
+        _path = path;
+        _maxConcurrency = maxConcurrency;
+        _maxQueueDepth = maxQueueDepth;
+        _activeCount = activeCount;
+        _queuedCount = queuedCount;
+        _acceptedCount = acceptedCount;
+        _rejectedCount = rejectedCount;
+        _completedCount = completedCount;
+        _requestTimeout = requestTimeout;
+        _timedOutCount = timedOutCount;
+    }
+
+    public String getPath() { return _path; }
+    public Integer getMaxConcurrency() { return _maxConcurrency; }
+    public Integer getMaxQueueDepth() { return _maxQueueDepth; }
+
+    /**
+     * Returns the number of requests being processed.
+     */
+    public Integer getActiveCount() { return _activeCount; }
+
+    /**
+     * Returns the number of requests waiting to be processed.
+     */
+    public Integer getQueuedCount() { return _queuedCount; }
+
+    public Long getAcceptedCount() { return _acceptedCount; }
+
+    /**
+     * Returns the number of requests rejected with a 503 because the Endpoint was saturated.
+     */
+    public Long getRejectedCount() { return _rejectedCount; }
+
+    public Long getCompletedCount() { return _completedCount; }
+
+    public Long getRequestTimeout() { return _requestTimeout; }
+
+    /**
+     * Returns the number of requests answered with a 503/504 because their deadline passed before a Response was sent.
+     */
+    public Long getTimedOutCount() { return _timedOutCount; }
+
+    /**
+     * Returns true if the Endpoint is at its concurrency limit.
+     */
+    public Boolean isSaturated() {
+        if ( (_activeCount == null) || (_maxConcurrency == null) ) { return false; }
+        return (_activeCount >= _maxConcurrency);
+    }
+}
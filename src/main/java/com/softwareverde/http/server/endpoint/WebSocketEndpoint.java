@@ -3,10 +3,15 @@ package com.softwareverde.http.server.endpoint;
 import com.softwareverde.http.server.WebSocketFactory;
 import com.softwareverde.http.server.servlet.WebSocketServlet;
 
+import java.util.concurrent.Executor;
+
 public class WebSocketEndpoint {
     protected final WebSocketServlet _servlet;
     protected String _path;
     protected Boolean _shouldUseStrictPath;
+    protected Executor _executor;
+    protected Integer _maxConcurrency;
+    protected Integer _maxQueueDepth;
 
     protected WebSocketFactory _webSocketFactory;
 
@@ -39,6 +44,54 @@ public class WebSocketEndpoint {
         return _servlet;
     }
 
+    /**
+     * Sets the Executor used to process this Endpoint's requests, isolating them from other Endpoints.
+     *  If not set, requests are processed by the HttpServer's shared executor.
+     *  Setting this value after HttpServer.addEndpoint() has been invoked will have no effect.
+     */
+    public void setExecutor(final Executor executor) {
+        _executor = executor;
+    }
+
+    public Executor getExecutor() {
+        return _executor;
+    }
+
+    /**
+     * Sets the maximum number of this Endpoint's requests that may be processed concurrently.
+     *  Requests beyond this limit are queued, up to the max queue depth; once the queue is full, requests are rejected with a 503.
+     *  If not set, concurrency is only bounded by the executor.
+     *  Setting this value after HttpServer.addEndpoint() has been invoked will have no effect.
+     */
+    public void setMaxConcurrency(final Integer maxConcurrency) {
+        _maxConcurrency = maxConcurrency;
+    }
+
+    public Integer getMaxConcurrency() {
+        return _maxConcurrency;
+    }
+
+    /**
+     * Sets the maximum number of this Endpoint's requests that may wait for processing once the max concurrency has been reached.
+     *  A value of zero rejects requests as soon as the max concurrency has been reached.
+     *  If not set, the queue is unbounded.
+     *  Setting this value after HttpServer.addEndpoint() has been invoked will have no effect.
+     */
+    public void setMaxQueueDepth(final Integer maxQueueDepth) {
+        _maxQueueDepth = maxQueueDepth;
+    }
+
+    public Integer getMaxQueueDepth() {
+        return _maxQueueDepth;
+    }
+
+    /**
+     * Returns true if the Endpoint has been configured with its own executor or limits.
+     */
+    public Boolean hasBulkhead() {
+        return ( (_executor != null) || (_maxConcurrency != null) || (_maxQueueDepth != null) );
+    }
+
     public WebSocketFactory getWebSocketFactory() {
         return _webSocketFactory;
     }
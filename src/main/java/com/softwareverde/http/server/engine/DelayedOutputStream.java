@@ -1,11 +1,11 @@
-package com.softwareverde.http.server;
+package com.softwareverde.http.server.engine;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.LinkedList;
 
 class DelayedOutputStream extends OutputStream {
-    private final LinkedList<Integer> _bytes = new LinkedList<Integer>();
+    private final ByteArrayOutputStream _bytes = new ByteArrayOutputStream();
     private final OutputStream _rawOutputStream;
     private Boolean _isDelayed = true;
 
@@ -16,38 +16,40 @@ class DelayedOutputStream extends OutputStream {
     @Override
     public void write(final int b) throws IOException {
         if (_isDelayed) {
-            _bytes.addLast(b);
+            _bytes.write(b);
         }
         else {
             _rawOutputStream.write(b);
         }
     }
 
+    @Override
+    public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+        if (_isDelayed) {
+            _bytes.write(bytes, offset, length);
+        }
+        else {
+            _rawOutputStream.write(bytes, offset, length);
+        }
+    }
+
     public void delay() {
         _isDelayed = true;
     }
 
     public void resume() throws IOException {
-        while (! _bytes.isEmpty()) {
-            final Integer b = _bytes.removeFirst();
-            _rawOutputStream.write(b);
-        }
+        _bytes.writeTo(_rawOutputStream);
+        _bytes.reset();
 
         _isDelayed = false;
     }
 
     public byte[] getDelayedPayload() {
-        final byte[] bytes = new byte[_bytes.size()];
-        int index = 0;
-        for (final Integer b : _bytes) {
-            bytes[index] = (byte) b.intValue();
-            index += 1;
-        }
-        return bytes;
+        return _bytes.toByteArray();
     }
 
     public void clearDelayedPayload() {
-        _bytes.clear();
+        _bytes.reset();
     }
 
     public OutputStream getRawOutputStream() {
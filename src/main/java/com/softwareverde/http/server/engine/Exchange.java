@@ -0,0 +1,46 @@
+package com.softwareverde.http.server.engine;
+
+import com.softwareverde.http.server.servlet.request.HostInformation;
+import com.softwareverde.http.server.servlet.response.Response;
+import com.softwareverde.http.websocket.ConnectionLayer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>An engine-agnostic view of a single HTTP request and its response.</p>
+ *
+ * <p>Each ServerEngine provides its own implementation, which allows the same ExchangeHandlers (and therefore the same
+ * Servlets) to be driven by any engine.</p>
+ */
+public interface Exchange {
+    String getRequestMethod();
+    URI getRequestUri();
+
+    /**
+     * Returns the path of the endpoint that was matched for this request (e.x.: "/api").
+     */
+    String getContextPath();
+
+    Map<String, List<String>> getRequestHeaders();
+
+    HostInformation getLocalHostInformation();
+    HostInformation getRemoteHostInformation();
+
+    InputStream getRequestBody();
+
+    /**
+     * Sends the status, headers, cookies, and content of the Response to the client.
+     *  The Exchange is complete once this function has been invoked.
+     */
+    void sendResponse(Response response) throws IOException;
+
+    /**
+     * Sends the Response as a "101 Switching Protocols" upgrade and returns the underlying connection for use as a WebSocket.
+     *  If the connection cannot be upgraded, null is returned and nothing is sent; the Exchange may then be completed via Exchange.sendResponse().
+     */
+    ConnectionLayer upgradeToWebSocket(Response response) throws IOException;
+}
@@ -0,0 +1,7 @@
+package com.softwareverde.http.server.engine;
+
+import java.io.IOException;
+
+public interface ExchangeHandler {
+    void handle(Exchange exchange) throws IOException;
+}
@@ -0,0 +1,240 @@
+package com.softwareverde.http.server.engine;
+
+import com.softwareverde.http.cookie.Cookie;
+import com.softwareverde.http.cookie.CookieParser;
+import com.softwareverde.http.server.servlet.request.HostInformation;
+import com.softwareverde.http.server.servlet.request.InetSocketAddressHostInformation;
+import com.softwareverde.http.server.servlet.response.ContentWriter;
+import com.softwareverde.http.server.servlet.response.Response;
+import com.softwareverde.http.websocket.ConnectionLayer;
+import com.softwareverde.logging.Logger;
+import com.softwareverde.util.ReflectionUtil;
+import com.softwareverde.util.StringUtil;
+import com.softwareverde.util.Util;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Adapts a com.sun.net.httpserver.HttpExchange to the engine-agnostic Exchange interface.</p>
+ */
+public class JdkExchange implements Exchange {
+    protected final HttpExchange _httpExchange;
+
+    protected void _sendHeaders(final Response response) {
+        final Headers httpExchangeHeaders = _httpExchange.getResponseHeaders();
+        final Map<String, List<String>> compiledHeaders = response.getHeaders();
+        for (final String headerKey : compiledHeaders.keySet()) {
+            final List<String> headerValues = compiledHeaders.get(headerKey);
+            for (final String headerValue : headerValues) {
+                httpExchangeHeaders.add(headerKey, headerValue);
+            }
+        }
+
+        final List<Cookie> cookies = response.getCookies();
+        if (cookies.isEmpty()) { return; }
+
+        final CookieParser cookieParser = new CookieParser();
+        final List<String> compiledCookies = cookieParser.compileCookiesIntoSetCookieHeaderValues(cookies);
+        for (final String setCookieHeader : compiledCookies) {
+            httpExchangeHeaders.add(Response.Headers.SET_COOKIE, setCookieHeader);
+        }
+    }
+
+    public JdkExchange(final HttpExchange httpExchange) {
+        _httpExchange = httpExchange;
+    }
+
+    public HttpExchange getHttpExchange() {
+        return _httpExchange;
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return _httpExchange.getRequestMethod();
+    }
+
+    @Override
+    public URI getRequestUri() {
+        return _httpExchange.getRequestURI();
+    }
+
+    @Override
+    public String getContextPath() {
+        return _httpExchange.getHttpContext().getPath();
+    }
+
+    @Override
+    public Map<String, List<String>> getRequestHeaders() {
+        return _httpExchange.getRequestHeaders();
+    }
+
+    @Override
+    public HostInformation getLocalHostInformation() {
+        return new InetSocketAddressHostInformation(_httpExchange.getLocalAddress());
+    }
+
+    @Override
+    public HostInformation getRemoteHostInformation() {
+        return new InetSocketAddressHostInformation(_httpExchange.getRemoteAddress());
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+        return _httpExchange.getRequestBody();
+    }
+
+    /**
+     * Sends the headers without content, for HEAD requests; the content (buffered or streamed) is never written.
+     *  NOTE: The HttpExchange only sends a Content-Length for HEAD requests if it is set as a header.
+     */
+    protected void _sendHeadResponse(final Response response) throws IOException {
+        _sendHeaders(response);
+
+        final Integer responseCode = response.getCode();
+        final Long contentByteCount = response.getContentByteCount();
+        final Boolean isBodyForbidden = ( (responseCode < 200) || (responseCode == 204) || (responseCode == 304) );
+        if ( (contentByteCount != null) && (! isBodyForbidden) ) {
+            _httpExchange.getResponseHeaders().set("Content-Length", String.valueOf(contentByteCount));
+        }
+
+        _httpExchange.sendResponseHeaders(responseCode, -1);
+        _httpExchange.close();
+    }
+
+    protected void _sendStreamedResponse(final Response response) throws IOException {
+        _sendHeaders(response);
+
+        final ContentWriter contentWriter = response.getContentWriter();
+        final Long contentByteCount = response.getContentByteCount();
+
+        if (Util.coalesce(contentByteCount, -1L) == 0L) {
+            _httpExchange.sendResponseHeaders(response.getCode(), -1);
+            _httpExchange.close();
+            return;
+        }
+
+        // NOTE: A length of zero causes the HttpExchange to use chunked transfer-encoding.
+        _httpExchange.sendResponseHeaders(response.getCode(), Util.coalesce(contentByteCount, 0L));
+
+        final OutputStream outputStream = _httpExchange.getResponseBody();
+        try {
+            contentWriter.writeContent(new FilterOutputStream(outputStream) {
+                @Override
+                public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+                    this.out.write(bytes, offset, length);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    this.out.flush(); // The HttpExchange's stream is closed once the ContentWriter has completed...
+                }
+            });
+            outputStream.flush();
+        }
+        finally {
+            outputStream.close();
+            _httpExchange.close();
+        }
+    }
+
+    @Override
+    public void sendResponse(final Response response) throws IOException {
+        if ("HEAD".equalsIgnoreCase(_httpExchange.getRequestMethod())) {
+            _sendHeadResponse(response);
+            return;
+        }
+
+        if (response.isContentStreamed()) {
+            _sendStreamedResponse(response);
+            return;
+        }
+
+        _sendHeaders(response);
+
+        final OutputStream outputStream = _httpExchange.getResponseBody();
+
+        final byte[] responseBytes = response.getContent();
+        _httpExchange.sendResponseHeaders(response.getCode(), (responseBytes == null ? -1 : responseBytes.length));
+
+        if (responseBytes != null) {
+            outputStream.write(responseBytes);
+            outputStream.flush();
+        }
+
+        outputStream.close();
+        _httpExchange.close();
+    }
+
+    @Override
+    public ConnectionLayer upgradeToWebSocket(final Response response) throws IOException {
+        final DelayedOutputStream delayedOutputStream;
+        final ConnectionLayer connectionLayer;
+        try {
+            // HttpExchange does not behave correctly when the 101 ResponseCode is used to upgrade the connection;
+            //  the most prominent issue is that it sends a Content-Length: 0 header, which causes the client to close.
+            //  Therefore, we access the rawInputStream ("ris") and rawOutputStream ("ros") of the underlying implementation
+            //  and trick the HttpExchange into behaving correctly.
+            // HttpExchange Source: http://www.docjar.com/html/api/sun/net/httpserver/ExchangeImpl.java.html
+            final Object httpExchangeImplementation = ReflectionUtil.getValue(_httpExchange, "impl");
+            final Object httpConnection = ReflectionUtil.getValue(httpExchangeImplementation, "connection");
+
+            // final SSLEngine sslEngine = ReflectionUtil.invoke(httpConnection, "getSSLEngine");
+            InputStream sslInputStream = null;
+            OutputStream sslOutputStream = null;
+            final Object sslStreams = ReflectionUtil.getValue(httpConnection, "sslStreams");
+            if (sslStreams != null) {
+                sslInputStream = ReflectionUtil.invoke(sslStreams, "getInputStream");
+                sslOutputStream = ReflectionUtil.invoke(sslStreams, "getOutputStream");
+            }
+
+            final SocketChannel socketChannel = ReflectionUtil.getValue(httpConnection, "chan");
+            final Socket rawSocket = socketChannel.socket();
+            final OutputStream rawOutputStream = rawSocket.getOutputStream();
+
+            delayedOutputStream = new DelayedOutputStream(sslOutputStream != null ? sslOutputStream : rawOutputStream);
+            ReflectionUtil.setValue(httpExchangeImplementation, "ros", delayedOutputStream);
+
+            if ( (sslInputStream != null) && (sslOutputStream != null)) {
+                connectionLayer = ConnectionLayer.newSecureConnectionLayer(rawSocket, sslInputStream, sslOutputStream);
+            }
+            else {
+                connectionLayer = ConnectionLayer.newConnectionLayer(rawSocket);
+            }
+        }
+        catch (final Exception exception) {
+            Logger.error(JdkExchange.class, "Error initializing Web Socket.", exception);
+            return null;
+        }
+
+        if (connectionLayer == null) { return null; }
+
+        // NOTE: Faking a 200 ResponseCode so that the HttpExchange behaves correctly.  The correct ResponseCode is replaced later.
+        //  Setting the ResponseCode to OK prevents a content-length header from being sent and also does not close the streams.
+        response.setCode(Response.Codes.OK);
+        delayedOutputStream.delay();
+
+        _sendHeaders(response);
+
+        { // Hack the HttpExchange to work around the HTTP 101 bug that closes the socket with a Content-Length header...
+            _httpExchange.sendResponseHeaders(response.getCode(), 0);
+            final String payload = StringUtil.bytesToString(delayedOutputStream.getDelayedPayload());
+            final String newPayload = payload.replaceFirst("HTTP/1.1 200[^\\r\\n]*\\r\\n", "HTTP/1.1 101 Switching Protocols\r\n");
+            delayedOutputStream.clearDelayedPayload();
+            delayedOutputStream.resume();
+            delayedOutputStream.write(StringUtil.stringToBytes(newPayload));
+            delayedOutputStream.flush();
+        }
+
+        return connectionLayer;
+    }
+}
@@ -0,0 +1,136 @@
+package com.softwareverde.http.server.engine;
+
+import com.softwareverde.http.server.servlet.response.CannedResponse;
+import com.softwareverde.http.server.servlet.response.Response;
+import com.softwareverde.logging.Logger;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsParameters;
+import com.sun.net.httpserver.HttpsServer;
+
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * <p>A ServerEngine backed by the JDK's built-in com.sun.net.httpserver implementation.</p>
+ *
+ * <p>This engine uses a single dispatcher thread per listener and a blocking worker for each in-flight exchange.</p>
+ */
+public class JdkServerEngine implements ServerEngine {
+    protected static final CannedResponse REJECTED_RESPONSE = _createRejectedResponse();
+    protected static final ThreadLocal<Boolean> IS_REJECTED_EXCHANGE = new ThreadLocal<Boolean>();
+
+    /**
+     * Creates the 503 sent when the executor rejects a request; the connection is closed once it has been sent.
+     */
+    protected static CannedResponse _createRejectedResponse() {
+        final Response response = new Response();
+        response.setCode(Response.Codes.SERVICE_UNAVAILABLE);
+        response.setHeader(Response.Headers.RETRY_AFTER, "1");
+        response.setHeader(Response.Headers.CONNECTION, "close");
+        return new CannedResponse(response);
+    }
+
+    /**
+     * Wraps the Executor so that exchanges it rejects are answered with a 503, rather than abandoned by the dispatcher without a response.
+     *  NOTE: A rejected exchange is run on the dispatcher thread; it is only dispatched once its request is readable, and only the small canned 503 is written.
+     */
+    protected static Executor _wrapExecutor(final Executor executor) {
+        if (executor == null) { return null; } // Exchanges are run on the dispatcher thread...
+
+        return new Executor() {
+            @Override
+            public void execute(final Runnable runnable) {
+                try {
+                    executor.execute(runnable);
+                }
+                catch (final RejectedExecutionException exception) {
+                    Logger.warn(JdkServerEngine.class, "Request rejected by executor.", exception);
+
+                    IS_REJECTED_EXCHANGE.set(true);
+                    try {
+                        runnable.run();
+                    }
+                    finally {
+                        IS_REJECTED_EXCHANGE.remove();
+                    }
+                }
+            }
+        };
+    }
+
+    protected com.sun.net.httpserver.HttpServer _server;
+
+    /**
+     * The com.sun.net.httpserver implementation always accepts on a single dispatcher thread; multiple acceptors are unsupported.
+     */
+    @Override
+    public void setAcceptorCount(final Integer acceptorCount) {
+        if (acceptorCount > 1) {
+            Logger.warn(JdkServerEngine.class, "Multiple acceptors are not supported by JdkServerEngine; using a single acceptor.");
+        }
+    }
+
+    /**
+     * The com.sun.net.httpserver implementation only supports HTTP/1.x.
+     */
+    @Override
+    public void enableHttp2(final Boolean isHttp2Enabled) {
+        if (isHttp2Enabled) {
+            Logger.warn(JdkServerEngine.class, "HTTP/2 is not supported by JdkServerEngine; using HTTP/1.1.");
+        }
+    }
+
+    @Override
+    public void start(final InetSocketAddress address, final Integer backlogCount, final SSLContext sslContext, final Map<String, ExchangeHandler> exchangeHandlers, final Executor executor) throws IOException {
+        final com.sun.net.httpserver.HttpServer server;
+        if (sslContext != null) {
+            final HttpsServer httpsServer = HttpsServer.create(address, backlogCount);
+            httpsServer.setHttpsConfigurator(new HttpsConfigurator(sslContext) {
+                @Override
+                public void configure(final HttpsParameters httpsParameters) {
+                    httpsParameters.setProtocols(new String[]{ "TLSv1.1", "TLSv1.2", "TLSv1.3" });
+                    httpsParameters.setNeedClientAuth(false);
+                }
+            });
+            server = httpsServer;
+        }
+        else {
+            server = com.sun.net.httpserver.HttpServer.create(address, backlogCount);
+        }
+
+        for (final String endpointPath : exchangeHandlers.keySet()) {
+            final ExchangeHandler exchangeHandler = exchangeHandlers.get(endpointPath);
+            server.createContext(endpointPath, new com.sun.net.httpserver.HttpHandler() {
+                @Override
+                public void handle(final HttpExchange httpExchange) throws IOException {
+                    final JdkExchange exchange = new JdkExchange(httpExchange);
+                    if (IS_REJECTED_EXCHANGE.get() != null) {
+                        exchange.sendResponse(REJECTED_RESPONSE);
+                        return;
+                    }
+
+                    exchangeHandler.handle(exchange);
+                }
+            });
+        }
+
+        server.setExecutor(_wrapExecutor(executor));
+        server.start();
+
+        _server = server;
+    }
+
+    @Override
+    public void stop() {
+        final com.sun.net.httpserver.HttpServer server = _server;
+        if (server == null) { return; }
+
+        server.stop(0);
+        _server = null;
+    }
+}
@@ -0,0 +1,63 @@
+package com.softwareverde.http.server.engine;
+
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * <p>Accepts connections for a single listening address and drives ExchangeHandlers with the requests received.</p>
+ *
+ * <p>Each request is dispatched to the handler registered under the longest path that prefixes the request's path.</p>
+ */
+public interface ServerEngine {
+    /**
+     * Binds to the address and begins serving requests.
+     * @param address           - The address to listen on.
+     * @param backlogCount      - The max number of pending connections queued by the operating system.
+     * @param sslContext        - The TLS context used to encrypt connections, or null if the listener is not encrypted.
+     * @param exchangeHandlers  - The handlers to dispatch requests to, keyed by their endpoint path.
+     * @param executor          - The executor that runs each ExchangeHandler invocation.
+     */
+    void start(InetSocketAddress address, Integer backlogCount, SSLContext sslContext, Map<String, ExchangeHandler> exchangeHandlers, Executor executor) throws IOException;
+
+    /**
+     * Binds to the Unix domain socket at the path and begins serving requests.
+     *  Engines that do not support Unix domain sockets throw an IOException (see ServerEngine.isUnixDomainSocketSupported()).
+     * @param socketPath        - The filesystem path of the socket.
+     * @param backlogCount      - The max number of pending connections queued by the operating system.
+     * @param sslContext        - The TLS context used to encrypt connections, or null if the listener is not encrypted.
+     * @param exchangeHandlers  - The handlers to dispatch requests to, keyed by their endpoint path.
+     * @param executor          - The executor that runs each ExchangeHandler invocation.
+     */
+    default void startUnixDomainSocket(final String socketPath, final Integer backlogCount, final SSLContext sslContext, final Map<String, ExchangeHandler> exchangeHandlers, final Executor executor) throws IOException {
+        throw new IOException("Unix domain sockets are not supported by " + this.getClass().getSimpleName() + ".");
+    }
+
+    /**
+     * Returns true if the engine is able to listen on a Unix domain socket within the running JVM.
+     */
+    default Boolean isUnixDomainSocketSupported() {
+        return false;
+    }
+
+    /**
+     * Sets the number of listening sockets bound to the address, each accepting connections on its own thread.
+     *  Engines that cannot bind multiple sockets to the same address ignore this value.
+     *  Must be set before ServerEngine.start() is invoked.
+     */
+    default void setAcceptorCount(final Integer acceptorCount) { }
+
+    /**
+     * Enables HTTP/2 for connections to this listener: via ALPN for encrypted listeners, and via the connection preface or
+     *  "Upgrade: h2c" for unencrypted listeners.  Engines that do not support HTTP/2 ignore this value.
+     *  Must be set before ServerEngine.start() is invoked.
+     */
+    default void enableHttp2(final Boolean isHttp2Enabled) { }
+
+    /**
+     * Stops listening for new connections and closes any open connections.
+     */
+    void stop();
+}
@@ -0,0 +1,5 @@
+package com.softwareverde.http.server.engine;
+
+public interface ServerEngineFactory {
+    ServerEngine newServerEngine();
+}
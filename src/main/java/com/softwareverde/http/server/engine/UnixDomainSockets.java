@@ -0,0 +1,38 @@
+package com.softwareverde.http.server.engine;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.ServerSocketChannel;
+
+/**
+ * <p>Provides Unix domain socket channels when running on a JVM that supports them.</p>
+ *
+ * <p>This implementation is used on JVMs prior to Java 16; the multi-release jar contains an alternate implementation
+ * (src/main/java16) that is used on Java 16 and later.</p>
+ */
+public class UnixDomainSockets {
+    protected UnixDomainSockets() { }
+
+    /**
+     * Returns true if Unix domain sockets are supported by the running JVM.
+     */
+    public static Boolean isSupported() {
+        return false;
+    }
+
+    /**
+     * Opens a ServerSocketChannel bound to the Unix domain socket at the path.
+     *  An existing socket file at the path (e.x. left behind by a previous process) is replaced; any other existing file causes an IOException.
+     */
+    public static ServerSocketChannel openServerSocketChannel(final String socketPath, final Integer backlogCount) throws IOException {
+        throw new IOException("Unix domain sockets require Java 16 or later.");
+    }
+
+    /**
+     * Returns the path of the Unix domain socket address, or null if the address is not a Unix domain socket address.
+     *  The path of an unnamed socket (e.x. a connecting client) is empty.
+     */
+    public static String getPath(final SocketAddress socketAddress) {
+        return null;
+    }
+}
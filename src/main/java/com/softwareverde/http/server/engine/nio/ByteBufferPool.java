@@ -0,0 +1,252 @@
+package com.softwareverde.http.server.engine.nio;
+
+import com.softwareverde.logging.Logger;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>A pool of direct ByteBuffers, carved from large slabs and grouped into size classes.</p>
+ *
+ * <p>Direct buffers are written to (and read from) sockets without the intermediate copy the JDK makes for heap buffers,
+ * and pooling them keeps per-request I/O from allocating.  Buffers are returned via ByteBufferPool.release() once their
+ * contents have been consumed; released buffers are cached by the releasing thread (if it has enabled a thread-local
+ * cache) and otherwise by the pool, up to a fixed number per size class.  Buffers beyond that are left to the garbage collector.</p>
+ *
+ * <p>Requests larger than the largest size class are served by unpooled heap buffers, which ByteBufferPool.release() ignores.</p>
+ *
+ *  NOTE: A released buffer must not be used again by the releasing code.  Releasing a buffer twice (or releasing a buffer
+ *  the pool did not provide) is logged and ignored, so that a buffer is never leased to two owners at once; with leak
+ *  detection enabled, outstanding buffers can also be reported along with where each was acquired.
+ */
+class ByteBufferPool {
+    public static final Integer[] SIZE_CLASS_BYTE_COUNTS = { 4096, 16384, 65536 };
+    public static final Integer SLAB_BYTE_COUNT = (1024 * 1024);
+    public static final Integer MAX_POOLED_BUFFER_COUNT = 1024; // Per size class.
+    public static final Integer MAX_THREAD_CACHED_BUFFER_COUNT = 32; // Per size class, per thread.
+
+    protected static final ByteBufferPool SHARED_INSTANCE = new ByteBufferPool();
+
+    public static ByteBufferPool getSharedInstance() {
+        return SHARED_INSTANCE;
+    }
+
+    /**
+     * Compares ByteBuffers by identity, since ByteBuffer.equals() and ByteBuffer.hashCode() depend upon their contents.
+     */
+    protected static class BufferIdentity {
+        protected final ByteBuffer _byteBuffer;
+
+        public BufferIdentity(final ByteBuffer byteBuffer) {
+            _byteBuffer = byteBuffer;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(_byteBuffer);
+        }
+
+        @Override
+        public boolean equals(final Object object) {
+            if (! (object instanceof BufferIdentity)) { return false; }
+            return (((BufferIdentity) object)._byteBuffer == _byteBuffer);
+        }
+    }
+
+    protected static class SizeClass {
+        public final Integer bufferByteCount;
+        public final ArrayBlockingQueue<ByteBuffer> freeBuffers = new ArrayBlockingQueue<ByteBuffer>(MAX_POOLED_BUFFER_COUNT);
+        public final Set<BufferIdentity> leasedBuffers = ConcurrentHashMap.newKeySet(); // Concurrent, so that acquire() and release() do not contend on a single lock.
+        protected ByteBuffer _slab = null; // Guarded by this.
+
+        public SizeClass(final Integer bufferByteCount) {
+            this.bufferByteCount = bufferByteCount;
+        }
+
+        /**
+         * Carves a new buffer from the current slab, allocating a new slab once the current slab is exhausted.
+         */
+        public synchronized ByteBuffer allocate() {
+            if ( (_slab == null) || (_slab.remaining() < this.bufferByteCount) ) {
+                _slab = ByteBuffer.allocateDirect(Math.max(SLAB_BYTE_COUNT, this.bufferByteCount));
+            }
+
+            final int position = _slab.position();
+            _slab.limit(position + this.bufferByteCount);
+            final ByteBuffer byteBuffer = _slab.slice();
+            _slab.limit(_slab.capacity());
+            _slab.position(position + this.bufferByteCount);
+            return byteBuffer;
+        }
+    }
+
+    protected final SizeClass[] _sizeClasses;
+    protected final ThreadLocal<ArrayDeque<ByteBuffer>[]> _threadCaches = new ThreadLocal<ArrayDeque<ByteBuffer>[]>();
+    protected final AtomicLong _leasedBufferCount = new AtomicLong(0L);
+    protected volatile Map<ByteBuffer, Exception> _leasedBuffers = null; // Identity-based; non-null while leak detection is enabled.
+
+    protected Integer _getSizeClassIndex(final int byteCount) {
+        for (int i = 0; i < _sizeClasses.length; ++i) {
+            if (byteCount <= _sizeClasses[i].bufferByteCount) {
+                return i;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the index of the size class the buffer was allocated from, or null if the buffer is not pooled.
+     */
+    protected Integer _getPooledSizeClassIndex(final ByteBuffer byteBuffer) {
+        if (! byteBuffer.isDirect()) { return null; }
+
+        final int capacity = byteBuffer.capacity();
+        for (int i = 0; i < _sizeClasses.length; ++i) {
+            if (capacity == _sizeClasses[i].bufferByteCount) {
+                return i;
+            }
+        }
+        return null;
+    }
+
+    public ByteBufferPool() {
+        _sizeClasses = new SizeClass[SIZE_CLASS_BYTE_COUNTS.length];
+        for (int i = 0; i < SIZE_CLASS_BYTE_COUNTS.length; ++i) {
+            _sizeClasses[i] = new SizeClass(SIZE_CLASS_BYTE_COUNTS[i]);
+        }
+    }
+
+    /**
+     * Enables a cache of released buffers for the current thread, avoiding contention with other threads.
+     *  Intended for long-lived threads that both acquire and release buffers (e.x. a SelectorLoop's thread).
+     */
+    @SuppressWarnings("unchecked")
+    public void enableThreadLocalCache() {
+        if (_threadCaches.get() != null) { return; }
+
+        final ArrayDeque<ByteBuffer>[] threadCache = new ArrayDeque[_sizeClasses.length];
+        for (int i = 0; i < threadCache.length; ++i) {
+            threadCache[i] = new ArrayDeque<ByteBuffer>();
+        }
+        _threadCaches.set(threadCache);
+    }
+
+    /**
+     * Returns a cleared buffer with a capacity of at least byteCount bytes.
+     *  The buffer should be returned via ByteBufferPool.release() once it is no longer used.
+     */
+    public ByteBuffer acquire(final int byteCount) {
+        final Integer sizeClassIndex = _getSizeClassIndex(byteCount);
+        if (sizeClassIndex == null) {
+            return ByteBuffer.allocate(byteCount);
+        }
+
+        ByteBuffer byteBuffer = null;
+        final ArrayDeque<ByteBuffer>[] threadCache = _threadCaches.get();
+        if (threadCache != null) {
+            byteBuffer = threadCache[sizeClassIndex].pollLast();
+        }
+
+        final SizeClass sizeClass = _sizeClasses[sizeClassIndex];
+        if (byteBuffer == null) {
+            byteBuffer = sizeClass.freeBuffers.poll();
+        }
+        if (byteBuffer == null) {
+            byteBuffer = sizeClass.allocate();
+        }
+        byteBuffer.clear();
+
+        sizeClass.leasedBuffers.add(new BufferIdentity(byteBuffer));
+        _leasedBufferCount.incrementAndGet();
+        final Map<ByteBuffer, Exception> leasedBuffers = _leasedBuffers;
+        if (leasedBuffers != null) {
+            synchronized (leasedBuffers) {
+                leasedBuffers.put(byteBuffer, new Exception("Buffer acquired."));
+            }
+        }
+
+        return byteBuffer;
+    }
+
+    /**
+     * Returns the buffer to the pool; buffers not provided by the pool are ignored.
+     *  Releasing a buffer that is not currently leased (e.x. releasing it twice) is logged and ignored.
+     *  The buffer must not be used after it has been released.
+     */
+    public void release(final ByteBuffer byteBuffer) {
+        if (byteBuffer == null) { return; }
+
+        final Integer sizeClassIndex = _getPooledSizeClassIndex(byteBuffer);
+        if (sizeClassIndex == null) { return; }
+
+        final SizeClass sizeClass = _sizeClasses[sizeClassIndex];
+        final boolean wasLeased = sizeClass.leasedBuffers.remove(new BufferIdentity(byteBuffer));
+        if (! wasLeased) { // Pooling the buffer again would lease it to two owners...
+            Logger.warn(ByteBufferPool.class, "Released a buffer that was not leased.", new Exception("Buffer released."));
+            return;
+        }
+
+        final Map<ByteBuffer, Exception> leasedBuffers = _leasedBuffers;
+        if (leasedBuffers != null) {
+            synchronized (leasedBuffers) {
+                leasedBuffers.remove(byteBuffer);
+            }
+        }
+        _leasedBufferCount.decrementAndGet();
+
+        final ArrayDeque<ByteBuffer>[] threadCache = _threadCaches.get();
+        if ( (threadCache != null) && (threadCache[sizeClassIndex].size() < MAX_THREAD_CACHED_BUFFER_COUNT) ) {
+            threadCache[sizeClassIndex].addLast(byteBuffer);
+            return;
+        }
+
+        sizeClass.freeBuffers.offer(byteBuffer); // Buffers beyond the pool's capacity are left to the garbage collector...
+    }
+
+    /**
+     * Records where each buffer is acquired, so that buffers that are never released can be reported.
+     *  Leak detection adds overhead to every acquisition and is intended for debugging.
+     *  NOTE: Leak detection should be enabled before any buffers are acquired; buffers acquired beforehand are not reported.
+     */
+    public void enableLeakDetection(final Boolean isLeakDetectionEnabled) {
+        _leasedBuffers = (isLeakDetectionEnabled ? new IdentityHashMap<ByteBuffer, Exception>() : null);
+    }
+
+    /**
+     * Returns the number of buffers acquired and not yet released.
+     */
+    public Long getLeasedBufferCount() {
+        return _leasedBufferCount.get();
+    }
+
+    /**
+     * Returns where each outstanding buffer was acquired, or an empty list if leak detection is not enabled.
+     */
+    public List<Exception> getLeasedBufferAcquisitions() {
+        final Map<ByteBuffer, Exception> leasedBuffers = _leasedBuffers;
+        if (leasedBuffers == null) { return new ArrayList<Exception>(0); }
+
+        synchronized (leasedBuffers) {
+            return new ArrayList<Exception>(leasedBuffers.values());
+        }
+    }
+
+    /**
+     * Logs each outstanding buffer along with where it was acquired; returns the number of outstanding buffers.
+     */
+    public Integer logLeasedBuffers() {
+        final List<Exception> acquisitions = this.getLeasedBufferAcquisitions();
+        for (final Exception acquisition : acquisitions) {
+            Logger.warn(ByteBufferPool.class, "Buffer was not released.", acquisition);
+        }
+        return acquisitions.size();
+    }
+}
@@ -0,0 +1,149 @@
+package com.softwareverde.http.server.engine.nio;
+
+import com.softwareverde.http.server.servlet.response.Response;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Pre-encoded (ISO-8859-1) forms of status lines and well-known response headers, so that serializing a response head
+ * is mostly a series of array copies.</p>
+ *
+ * <p>Status lines and well-known header lines (e.x. "Content-Type: application/json") are encoded when the class is loaded;
+ * other header names are encoded upon first use and retained, up to a fixed count.  Header values that are not well-known
+ * are encoded per response.  The Date header is regenerated at most once per second.</p>
+ */
+class EncodedHeaders {
+    public static final Integer MIN_STATUS_CODE = 100;
+    public static final Integer MAX_STATUS_CODE = 599;
+    public static final Integer MAX_HEADER_NAME_COUNT = 256;
+
+    public static final byte[] CRLF = _encode("\r\n");
+    public static final byte[] CONTENT_LENGTH_PREFIX = _encode("Content-Length: ");
+    public static final byte[] SET_COOKIE_PREFIX = _encode(Response.Headers.SET_COOKIE + ": ");
+    public static final byte[] TRANSFER_ENCODING_CHUNKED = _encode("Transfer-Encoding: chunked\r\n");
+
+    protected static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+    protected static class CachedDate {
+        public final Long epochSecond;
+        public final String value;
+        public final byte[] headerLine;
+
+        public CachedDate(final Long epochSecond) {
+            this.epochSecond = epochSecond;
+            this.value = DATE_FORMATTER.format(Instant.ofEpochSecond(epochSecond));
+            this.headerLine = _encode("Date: " + this.value + "\r\n");
+        }
+    }
+
+    protected static final byte[][] STATUS_LINES = new byte[(MAX_STATUS_CODE - MIN_STATUS_CODE) + 1][];
+    protected static final ConcurrentHashMap<String, byte[]> HEADER_NAMES = new ConcurrentHashMap<String, byte[]>(); // Each includes the ": " separator...
+    protected static final HashMap<String, Map<String, byte[]>> HEADER_LINES = new HashMap<String, Map<String, byte[]>>(); // Read-only once initialized.
+    protected static volatile CachedDate CACHED_DATE = new CachedDate(System.currentTimeMillis() / 1000L);
+
+    protected static byte[] _encode(final String string) {
+        return string.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    protected static void _addHeaderLine(final String headerName, final String headerValue) {
+        Map<String, byte[]> headerValues = HEADER_LINES.get(headerName);
+        if (headerValues == null) {
+            headerValues = new HashMap<String, byte[]>();
+            HEADER_LINES.put(headerName, headerValues);
+        }
+        headerValues.put(headerValue, _encode(headerName + ": " + headerValue + "\r\n"));
+    }
+
+    static {
+        for (int code = MIN_STATUS_CODE; code <= MAX_STATUS_CODE; ++code) {
+            STATUS_LINES[code - MIN_STATUS_CODE] = _encode("HTTP/1.1 " + code + " " + HttpResponseEncoder.getReasonPhrase(code) + "\r\n");
+        }
+
+        _addHeaderLine(Response.Headers.CONTENT_TYPE, "application/json");
+        _addHeaderLine(Response.Headers.CONTENT_TYPE, "application/json; charset=utf-8");
+        _addHeaderLine(Response.Headers.CONTENT_TYPE, "text/html");
+        _addHeaderLine(Response.Headers.CONTENT_TYPE, "text/html; charset=utf-8");
+        _addHeaderLine(Response.Headers.CONTENT_TYPE, "text/plain");
+        _addHeaderLine(Response.Headers.CONTENT_TYPE, "text/plain; charset=utf-8");
+        _addHeaderLine(Response.Headers.CONTENT_TYPE, "application/octet-stream");
+        _addHeaderLine(Response.Headers.CONTENT_ENCODING, "gzip");
+        _addHeaderLine(Response.Headers.CONTENT_ENCODING, "deflate");
+        _addHeaderLine(Response.Headers.CONNECTION, "keep-alive");
+        _addHeaderLine(Response.Headers.CONNECTION, "close");
+        _addHeaderLine(Response.Headers.CONNECTION, Response.Headers.WebSocket.Values.CONNECTION);
+        _addHeaderLine(Response.Headers.UPGRADE, Response.Headers.WebSocket.Values.UPGRADE);
+        _addHeaderLine("Vary", "Accept-Encoding");
+        _addHeaderLine("Cache-Control", "no-cache");
+        _addHeaderLine("Cache-Control", "no-store");
+
+        for (final String headerName : HEADER_LINES.keySet()) {
+            HEADER_NAMES.put(headerName, _encode(headerName + ": "));
+        }
+    }
+
+    /**
+     * Returns the encoded status line (including its CRLF), or null if the code is outside of the pre-encoded range.
+     */
+    public static byte[] getStatusLine(final Integer code) {
+        if ( (code < MIN_STATUS_CODE) || (code > MAX_STATUS_CODE) ) { return null; }
+        return STATUS_LINES[code - MIN_STATUS_CODE];
+    }
+
+    /**
+     * Returns the encoded header line (including its CRLF) if the name/value pair is well-known, otherwise null.
+     *  Header names are matched case-sensitively, since the header is emitted as provided.
+     */
+    public static byte[] getHeaderLine(final String headerName, final String headerValue) {
+        final Map<String, byte[]> headerValues = HEADER_LINES.get(headerName);
+        if (headerValues == null) { return null; }
+        return headerValues.get(headerValue);
+    }
+
+    /**
+     * Returns the encoded header name followed by ": ", encoding (and retaining) the name upon first use.
+     */
+    public static byte[] getHeaderNamePrefix(final String headerName) {
+        final byte[] cachedHeaderNamePrefix = HEADER_NAMES.get(headerName);
+        if (cachedHeaderNamePrefix != null) { return cachedHeaderNamePrefix; }
+
+        final byte[] headerNamePrefix = _encode(headerName + ": ");
+        if (HEADER_NAMES.size() < MAX_HEADER_NAME_COUNT) { // Header names are expected to be few; unusual names are encoded each time rather than retained...
+            HEADER_NAMES.putIfAbsent(headerName, headerNamePrefix);
+        }
+        return headerNamePrefix;
+    }
+
+    protected static CachedDate _getCachedDate() {
+        final long epochSecond = (System.currentTimeMillis() / 1000L);
+        final CachedDate cachedDate = CACHED_DATE;
+        if (cachedDate.epochSecond == epochSecond) { return cachedDate; }
+
+        // NOTE: Concurrent threads may each regenerate the value at the turn of a second; the results are identical.
+        final CachedDate newCachedDate = new CachedDate(epochSecond);
+        CACHED_DATE = newCachedDate;
+        return newCachedDate;
+    }
+
+    /**
+     * Returns the current time formatted as an HTTP-date (e.x. "Sun, 06 Nov 1994 08:49:37 GMT").
+     */
+    public static String getDate() {
+        return _getCachedDate().value;
+    }
+
+    /**
+     * Returns the encoded Date header line (including its CRLF) for the current time.
+     */
+    public static byte[] getDateHeaderLine() {
+        return _getCachedDate().headerLine;
+    }
+
+    protected EncodedHeaders() { }
+}
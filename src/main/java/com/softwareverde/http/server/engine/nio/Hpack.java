@@ -0,0 +1,136 @@
+package com.softwareverde.http.server.engine.nio;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>The HPACK static table and primitive representations (RFC 7541).</p>
+ */
+class Hpack {
+    public static class Header {
+        public final String name;
+        public final String value;
+
+        public Header(final String name, final String value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        /**
+         * Returns the size of the header as counted against table and header list limits (RFC 7541, Section 4.1).
+         */
+        public Integer getSize() {
+            return (this.name.length() + this.value.length() + 32);
+        }
+
+        @Override
+        public String toString() {
+            return (this.name + ": " + this.value);
+        }
+    }
+
+    public static final Header[] STATIC_TABLE = new Header[] {
+        null, // The static table is 1-indexed...
+        new Header(":authority", ""),
+        new Header(":method", "GET"),
+        new Header(":method", "POST"),
+        new Header(":path", "/"),
+        new Header(":path", "/index.html"),
+        new Header(":scheme", "http"),
+        new Header(":scheme", "https"),
+        new Header(":status", "200"),
+        new Header(":status", "204"),
+        new Header(":status", "206"),
+        new Header(":status", "304"),
+        new Header(":status", "400"),
+        new Header(":status", "404"),
+        new Header(":status", "500"),
+        new Header("accept-charset", ""),
+        new Header("accept-encoding", "gzip, deflate"),
+        new Header("accept-language", ""),
+        new Header("accept-ranges", ""),
+        new Header("accept", ""),
+        new Header("access-control-allow-origin", ""),
+        new Header("age", ""),
+        new Header("allow", ""),
+        new Header("authorization", ""),
+        new Header("cache-control", ""),
+        new Header("content-disposition", ""),
+        new Header("content-encoding", ""),
+        new Header("content-language", ""),
+        new Header("content-length", ""),
+        new Header("content-location", ""),
+        new Header("content-range", ""),
+        new Header("content-type", ""),
+        new Header("cookie", ""),
+        new Header("date", ""),
+        new Header("etag", ""),
+        new Header("expect", ""),
+        new Header("expires", ""),
+        new Header("from", ""),
+        new Header("host", ""),
+        new Header("if-match", ""),
+        new Header("if-modified-since", ""),
+        new Header("if-none-match", ""),
+        new Header("if-range", ""),
+        new Header("if-unmodified-since", ""),
+        new Header("last-modified", ""),
+        new Header("link", ""),
+        new Header("location", ""),
+        new Header("max-forwards", ""),
+        new Header("proxy-authenticate", ""),
+        new Header("proxy-authorization", ""),
+        new Header("range", ""),
+        new Header("referer", ""),
+        new Header("refresh", ""),
+        new Header("retry-after", ""),
+        new Header("server", ""),
+        new Header("set-cookie", ""),
+        new Header("strict-transport-security", ""),
+        new Header("transfer-encoding", ""),
+        new Header("user-agent", ""),
+        new Header("vary", ""),
+        new Header("via", ""),
+        new Header("www-authenticate", "")
+    };
+
+    public static final Integer STATIC_TABLE_LENGTH = (STATIC_TABLE.length - 1);
+
+    /**
+     * Writes the integer with an N-bit prefix; the unused high bits of the first byte are set to firstByteFlags.
+     */
+    public static void writeInteger(final ByteArrayOutputStream byteArrayOutputStream, final int value, final int prefixBitCount, final int firstByteFlags) {
+        final int maxPrefixValue = ((1 << prefixBitCount) - 1);
+        if (value < maxPrefixValue) {
+            byteArrayOutputStream.write(firstByteFlags | value);
+            return;
+        }
+
+        byteArrayOutputStream.write(firstByteFlags | maxPrefixValue);
+        int remainingValue = (value - maxPrefixValue);
+        while (remainingValue >= 0x80) {
+            byteArrayOutputStream.write((remainingValue & 0x7F) | 0x80);
+            remainingValue >>>= 7;
+        }
+        byteArrayOutputStream.write(remainingValue);
+    }
+
+    /**
+     * Writes the string literal, Huffman-encoded if doing so is shorter.
+     */
+    public static void writeString(final ByteArrayOutputStream byteArrayOutputStream, final String string) {
+        final byte[] bytes = string.getBytes(StandardCharsets.ISO_8859_1);
+        final int huffmanByteCount = HpackHuffman.getEncodedByteCount(bytes);
+        if (huffmanByteCount < bytes.length) {
+            Hpack.writeInteger(byteArrayOutputStream, huffmanByteCount, 7, 0x80);
+            final byte[] encodedBytes = HpackHuffman.encode(bytes);
+            byteArrayOutputStream.write(encodedBytes, 0, encodedBytes.length);
+        }
+        else {
+            Hpack.writeInteger(byteArrayOutputStream, bytes.length, 7, 0x00);
+            byteArrayOutputStream.write(bytes, 0, bytes.length);
+        }
+    }
+
+    protected Hpack() { }
+}
@@ -0,0 +1,170 @@
+package com.softwareverde.http.server.engine.nio;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Decodes HPACK header blocks (RFC 7541), maintaining the connection's dynamic table.</p>
+ *
+ * <p>Every header block received on a connection must be decoded, in order, to keep the dynamic table synchronized
+ * with the client's encoder; this includes blocks whose headers are ultimately discarded.</p>
+ */
+class HpackDecoder {
+    protected final Integer _maxTableSize;
+
+    // The dynamic table, as a ring buffer; the most recently inserted entry has the lowest index.
+    protected Hpack.Header[] _entries = new Hpack.Header[16];
+    protected int _firstEntryIndex = 0;
+    protected int _entryCount = 0;
+    protected int _tableSize = 0;
+    protected int _currentMaxTableSize;
+
+    protected void _evict(final int requiredSize) {
+        while ( (_entryCount > 0) && ((_tableSize + requiredSize) > _currentMaxTableSize) ) {
+            final int lastEntryIndex = ((_firstEntryIndex + _entryCount - 1) % _entries.length);
+            _tableSize -= _entries[lastEntryIndex].getSize();
+            _entries[lastEntryIndex] = null;
+            _entryCount -= 1;
+        }
+    }
+
+    protected void _insert(final Hpack.Header header) {
+        final int headerSize = header.getSize();
+        _evict(headerSize);
+        if (headerSize > _currentMaxTableSize) { return; } // An entry larger than the table empties the table and is not inserted...
+
+        if (_entryCount == _entries.length) {
+            final Hpack.Header[] entries = new Hpack.Header[_entries.length * 2];
+            for (int i = 0; i < _entryCount; ++i) {
+                entries[i] = _entries[(_firstEntryIndex + i) % _entries.length];
+            }
+            _entries = entries;
+            _firstEntryIndex = 0;
+        }
+
+        _firstEntryIndex = ((_firstEntryIndex - 1 + _entries.length) % _entries.length);
+        _entries[_firstEntryIndex] = header;
+        _entryCount += 1;
+        _tableSize += headerSize;
+    }
+
+    protected Hpack.Header _getHeader(final int index) throws Http2Exception {
+        if (index <= 0) { throw Http2Exception.compressionError("Invalid header index: " + index); }
+        if (index <= Hpack.STATIC_TABLE_LENGTH) { return Hpack.STATIC_TABLE[index]; }
+
+        final int dynamicIndex = (index - Hpack.STATIC_TABLE_LENGTH - 1);
+        if (dynamicIndex >= _entryCount) { throw Http2Exception.compressionError("Invalid header index: " + index); }
+        return _entries[(_firstEntryIndex + dynamicIndex) % _entries.length];
+    }
+
+    /**
+     * Parses an integer with an N-bit prefix, beginning at position[0]; position[0] is advanced past the integer.
+     */
+    protected static int _readInteger(final byte[] bytes, final int endIndex, final int[] position, final int prefixBitCount) throws Http2Exception {
+        final int maxPrefixValue = ((1 << prefixBitCount) - 1);
+        int value = (bytes[position[0]] & maxPrefixValue);
+        position[0] += 1;
+        if (value < maxPrefixValue) { return value; }
+
+        int shift = 0;
+        while (true) {
+            if (position[0] >= endIndex) { throw Http2Exception.compressionError("Truncated integer."); }
+            if (shift > 21) { throw Http2Exception.compressionError("Integer overflow."); }
+
+            final int b = (bytes[position[0]] & 0xFF);
+            position[0] += 1;
+            value += ((b & 0x7F) << shift);
+            shift += 7;
+            if ((b & 0x80) == 0) { break; }
+        }
+        if (value < 0) { throw Http2Exception.compressionError("Integer overflow."); }
+
+        return value;
+    }
+
+    protected static String _readString(final byte[] bytes, final int endIndex, final int[] position) throws Http2Exception {
+        if (position[0] >= endIndex) { throw Http2Exception.compressionError("Truncated string."); }
+
+        final boolean isHuffmanEncoded = ((bytes[position[0]] & 0x80) != 0);
+        final int byteCount = _readInteger(bytes, endIndex, position, 7);
+        if (byteCount > (endIndex - position[0])) { throw Http2Exception.compressionError("Truncated string."); }
+
+        final String string;
+        if (isHuffmanEncoded) {
+            final byte[] decodedBytes = HpackHuffman.decode(bytes, position[0], byteCount);
+            string = new String(decodedBytes, StandardCharsets.ISO_8859_1);
+        }
+        else {
+            string = new String(bytes, position[0], byteCount, StandardCharsets.ISO_8859_1);
+        }
+        position[0] += byteCount;
+        return string;
+    }
+
+    /**
+     * @param maxTableSize  - The SETTINGS_HEADER_TABLE_SIZE advertised to the client.
+     */
+    public HpackDecoder(final Integer maxTableSize) {
+        _maxTableSize = maxTableSize;
+        _currentMaxTableSize = maxTableSize;
+    }
+
+    /**
+     * Decodes the complete header block.
+     *  Returns null if the decoded headers exceed maxHeaderListSize; the block is still fully processed so that the
+     *  dynamic table remains synchronized.
+     *  Throws a connection-level Http2Exception if the block is malformed.
+     */
+    public List<Hpack.Header> decode(final byte[] headerBlock, final Integer maxHeaderListSize) throws Http2Exception {
+        final List<Hpack.Header> headers = new ArrayList<Hpack.Header>();
+        int headerListSize = 0;
+        boolean isHeaderListTooLarge = false;
+        boolean isTableSizeUpdateAllowed = true;
+
+        final int endIndex = headerBlock.length;
+        final int[] position = new int[]{ 0 };
+        while (position[0] < endIndex) {
+            final int b = (headerBlock[position[0]] & 0xFF);
+
+            final Hpack.Header header;
+            if ((b & 0x80) != 0) { // Indexed Header Field
+                header = _getHeader(_readInteger(headerBlock, endIndex, position, 7));
+            }
+            else if ((b & 0xE0) == 0x20) { // Dynamic Table Size Update
+                if (! isTableSizeUpdateAllowed) { throw Http2Exception.compressionError("Table size update must begin the header block."); }
+
+                final int maxTableSize = _readInteger(headerBlock, endIndex, position, 5);
+                if (maxTableSize > _maxTableSize) { throw Http2Exception.compressionError("Table size update exceeds limit: " + maxTableSize); }
+
+                _currentMaxTableSize = maxTableSize;
+                _evict(0);
+                continue;
+            }
+            else { // Literal Header Field
+                final boolean isIndexed = ((b & 0xC0) == 0x40);
+                final int nameIndex = _readInteger(headerBlock, endIndex, position, (isIndexed ? 6 : 4));
+                final String name = (nameIndex == 0 ? _readString(headerBlock, endIndex, position) : _getHeader(nameIndex).name);
+                final String value = _readString(headerBlock, endIndex, position);
+
+                header = new Hpack.Header(name, value);
+                if (isIndexed) {
+                    _insert(header);
+                }
+            }
+            isTableSizeUpdateAllowed = false;
+
+            headerListSize += header.getSize();
+            if (headerListSize > maxHeaderListSize) {
+                isHeaderListTooLarge = true;
+                headers.clear();
+            }
+
+            if (! isHeaderListTooLarge) {
+                headers.add(header);
+            }
+        }
+
+        return (isHeaderListTooLarge ? null : headers);
+    }
+}
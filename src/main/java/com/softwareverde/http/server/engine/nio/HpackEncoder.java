@@ -0,0 +1,70 @@
+package com.softwareverde.http.server.engine.nio;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Encodes HPACK header blocks (RFC 7541).</p>
+ *
+ * <p>Headers are encoded via the static table or as literals that are never inserted into the dynamic table, so the
+ * encoder holds no per-connection state beyond announcing, once, that its dynamic table is unused.  This avoids the
+ * cost of synchronizing a dynamic table with each client at the expense of a slightly larger encoding.</p>
+ */
+class HpackEncoder {
+    protected static final Map<String, Integer> STATIC_NAME_INDEXES = new HashMap<String, Integer>();
+    protected static final Map<String, Integer> STATIC_HEADER_INDEXES = new HashMap<String, Integer>();
+    static {
+        for (int i = Hpack.STATIC_TABLE_LENGTH; i > 0; --i) { // Iterated in reverse so the lowest index is retained...
+            final Hpack.Header header = Hpack.STATIC_TABLE[i];
+            STATIC_NAME_INDEXES.put(header.name, i);
+            if (! header.value.isEmpty()) {
+                STATIC_HEADER_INDEXES.put(header.name + "\0" + header.value, i);
+            }
+        }
+    }
+
+    protected Boolean _shouldAnnounceTableSize = true;
+
+    /**
+     * Encodes the headers; header names must already be lower-case.
+     *  NOTE: Names and values are encoded as-is; Responses are checked for CR, LF, and NUL via HttpResponseEncoder.requireValidHead().
+     */
+    public byte[] encode(final List<Hpack.Header> headers) {
+        final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(256);
+
+        if (_shouldAnnounceTableSize) {
+            Hpack.writeInteger(byteArrayOutputStream, 0, 5, 0x20); // Dynamic Table Size Update to zero...
+            _shouldAnnounceTableSize = false;
+        }
+
+        for (final Hpack.Header header : headers) {
+            final Integer headerIndex = STATIC_HEADER_INDEXES.get(header.name + "\0" + header.value);
+            if (headerIndex != null) {
+                Hpack.writeInteger(byteArrayOutputStream, headerIndex, 7, 0x80);
+                continue;
+            }
+
+            final Integer nameIndex = STATIC_NAME_INDEXES.get(header.name);
+            if (nameIndex != null) {
+                Hpack.writeInteger(byteArrayOutputStream, nameIndex, 4, 0x00); // Literal Header Field without Indexing...
+            }
+            else {
+                byteArrayOutputStream.write(0x00);
+                Hpack.writeString(byteArrayOutputStream, header.name);
+            }
+            Hpack.writeString(byteArrayOutputStream, header.value);
+        }
+
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    /**
+     * Announces that the dynamic table is unused at the beginning of the next header block.
+     *  Invoked when the client changes SETTINGS_HEADER_TABLE_SIZE.
+     */
+    public void onMaxTableSizeChanged() {
+        _shouldAnnounceTableSize = true;
+    }
+}
@@ -0,0 +1,1377 @@
+package com.softwareverde.http.server.engine.nio;
+
+import com.softwareverde.http.cookie.Cookie;
+import com.softwareverde.http.cookie.CookieParser;
+import com.softwareverde.http.server.engine.ExchangeHandler;
+import com.softwareverde.http.server.servlet.response.ContentWriter;
+import com.softwareverde.http.server.servlet.response.Response;
+import com.softwareverde.logging.Logger;
+import com.softwareverde.util.Util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * <p>The state of a single HTTP/2 client connection, owned by a SelectorLoop.</p>
+ *
+ * <p>An Http2Connection takes over the socket of a NioConnection once HTTP/2 has been negotiated (via ALPN, the
+ * connection preface, or an "Upgrade: h2c" request).  Frames are parsed on the selector thread; each stream is dispatched
+ * to a worker thread as its own Exchange as soon as its headers have been received.  Request bodies are flow-controlled
+ * per-stream by the rate at which the handler consumes them, and response DATA frames are interleaved across streams
+ * in a round-robin manner within the client's flow-control windows.</p>
+ *
+ *  NOTE: Unless stated otherwise, all functions must be invoked from the SelectorLoop's thread.
+ */
+class Http2Connection implements SelectorLoop.SelectionHandler {
+    protected static final Integer MAX_CONCURRENT_STREAMS = 100;
+    protected static final Integer MAX_RESET_STREAM_COUNT = 200; // The maximum number of streams the client may reset within RESET_STREAM_WINDOW_MS.
+    protected static final Long RESET_STREAM_WINDOW_MS = 10000L;
+    protected static final ByteBufferPool BUFFER_POOL = ByteBufferPool.getSharedInstance();
+    protected static final Integer MAX_GATHERED_BUFFER_COUNT = 16; // The maximum number of queued frames written by a single gathering write.
+    protected static final Integer CONNECTION_WINDOW_SIZE = 1048576;
+    protected static final Integer HEADER_TABLE_SIZE = 4096;
+    protected static final Long MAX_PENDING_STREAM_OUTPUT_BYTE_COUNT = 262144L;
+    protected static final Integer MAX_QUEUED_WRITE_BYTE_COUNT = 65536; // DATA frames are only produced while fewer bytes than this are waiting for the socket.
+    protected static final byte[] EMPTY_CONTENT = new byte[0];
+    protected static final Runnable NO_OP = new Runnable() {
+        @Override
+        public void run() { }
+    };
+
+    /**
+     * Returns true if the (lowercase) header is specific to an HTTP/1.1 connection, and therefore prohibited in HTTP/2.
+     */
+    protected static Boolean _isConnectionSpecificHeader(final String headerName) {
+        switch (headerName) {
+            case "connection":
+            case "keep-alive":
+            case "proxy-connection":
+            case "transfer-encoding":
+            case "upgrade": {
+                return true;
+            }
+            default: {
+                return false;
+            }
+        }
+    }
+
+    protected static Boolean _containsUppercase(final String string) {
+        for (int i = 0; i < string.length(); ++i) {
+            final char c = string.charAt(i);
+            if ( (c >= 'A') && (c <= 'Z') ) { return true; }
+        }
+        return false;
+    }
+
+    protected final SelectorLoop _selectorLoop;
+    protected final SocketChannel _socketChannel;
+    protected final TlsChannel _tlsChannel;
+    protected final SelectionKey _selectionKey;
+    protected final NioServerEngine.Router _router;
+    protected final Executor _executor;
+    protected final Integer _maxHeaderListSize;
+    protected final Long _idleTimeoutMs;
+    protected final SocketAddress _localAddress;
+    protected final SocketAddress _remoteAddress;
+
+    protected final ByteBuffer _readBuffer; // Write-mode between invocations.
+    protected final Integer _minimumReadByteCount;
+    protected final ArrayDeque<ByteBuffer> _writeQueue = new ArrayDeque<ByteBuffer>();
+    protected final ByteBuffer[] _gatheredBuffers = new ByteBuffer[MAX_GATHERED_BUFFER_COUNT];
+    protected int _queuedWriteByteCount = 0;
+
+    protected final HpackDecoder _hpackDecoder = new HpackDecoder(HEADER_TABLE_SIZE);
+    protected final HpackEncoder _hpackEncoder = new HpackEncoder();
+    protected final HashMap<Integer, Http2Stream> _streams = new HashMap<Integer, Http2Stream>();
+    protected final ArrayDeque<Http2Stream> _outputStreams = new ArrayDeque<Http2Stream>();
+
+    protected final ByteArrayOutputStream _headerBlock = new ByteArrayOutputStream();
+    protected int _headerBlockStreamId = 0; // Non-zero while awaiting CONTINUATION frames.
+    protected int _headerBlockFlags = 0;
+
+    protected int _lastStreamId = 0;
+    protected int _detachedHandlerCount = 0; // Handlers still running for streams no longer within _streams (e.x. reset by the client).
+    protected int _resetStreamCount = 0; // Client resets within the current window.
+    protected long _resetStreamWindowStartMs = 0L;
+    protected int _peerInitialWindowSize = Http2Frame.DEFAULT_WINDOW_SIZE;
+    protected int _peerMaxFrameSize = Http2Frame.DEFAULT_MAX_FRAME_SIZE;
+    protected long _connectionSendWindow = Http2Frame.DEFAULT_WINDOW_SIZE;
+    protected int _connectionReceiveWindow = Http2Frame.DEFAULT_WINDOW_SIZE;
+    protected int _connectionUnacknowledgedByteCount = 0;
+
+    protected Long _lastActivityMs;
+    protected Boolean _isPrefaceReceived = false;
+    protected Boolean _isSettingsReceived = false;
+    protected Boolean _isGoingAway = false;
+    protected Boolean _isInputShutdown = false;
+    protected Boolean _isProcessingInput = false;
+    protected Boolean _isClosed = false;
+
+    protected Boolean _shouldRead() {
+        if (_isClosed || _isInputShutdown) { return false; }
+        return (_readBuffer.remaining() >= _minimumReadByteCount);
+    }
+
+    protected Boolean _hasPendingOutput() {
+        if (! _writeQueue.isEmpty()) { return true; }
+        return ( (_tlsChannel != null) && (_tlsChannel.hasPendingOutput()) );
+    }
+
+    protected void _updateInterestOps() {
+        if (_isClosed) { return; }
+        if (! _selectionKey.isValid()) { return; }
+
+        int interestOps = 0;
+        if (_shouldRead()) {
+            interestOps |= SelectionKey.OP_READ;
+        }
+        if (_hasPendingOutput()) {
+            interestOps |= SelectionKey.OP_WRITE;
+        }
+        _selectionKey.interestOps(interestOps);
+    }
+
+    protected void _close() {
+        if (_isClosed) { return; }
+        _isClosed = true;
+
+        _selectionKey.cancel();
+
+        if (_tlsChannel != null) {
+            _tlsChannel.close();
+        }
+
+        try {
+            _socketChannel.close();
+        }
+        catch (final IOException exception) { }
+
+        for (final Http2Stream stream : _streams.values()) {
+            stream.reset();
+        }
+        _streams.clear();
+        _outputStreams.clear();
+        _writeQueue.clear();
+    }
+
+    protected void _queueWrite(final byte[] bytes) {
+        _queuedWriteByteCount += bytes.length;
+        _writeQueue.addLast(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Removes the stream from the open streams.  If its handler is still running, the stream continues to count against
+     *  MAX_CONCURRENT_STREAMS until the handler returns, so that resetting streams does not free their slots early.
+     */
+    protected Http2Stream _removeStream(final Integer streamId) {
+        final Http2Stream stream = _streams.remove(streamId);
+        if ( (stream != null) && (stream._isHandlerRunning) && (! stream._isDetachedHandlerCounted) ) {
+            stream._isDetachedHandlerCounted = true;
+            _detachedHandlerCount += 1;
+        }
+        return stream;
+    }
+
+    protected void _onHandlerReturned(final Http2Stream stream) {
+        stream._isHandlerRunning = false;
+        if (stream._isDetachedHandlerCounted) {
+            stream._isDetachedHandlerCounted = false;
+            _detachedHandlerCount -= 1;
+        }
+    }
+
+    /**
+     * Returns the number of streams counted against MAX_CONCURRENT_STREAMS: the open streams, and the closed streams whose handlers are still running.
+     */
+    protected Integer _getActiveStreamCount() {
+        return (_streams.size() + _detachedHandlerCount);
+    }
+
+    /**
+     * Counts a stream reset by the client; once the client resets too many streams within RESET_STREAM_WINDOW_MS, the
+     *  connection is ended with ENHANCE_YOUR_CALM (e.x. "rapid reset" floods, which open and cancel streams in a loop).
+     */
+    protected void _onClientReset() throws Http2Exception {
+        final long nowMs = System.currentTimeMillis();
+        if ((nowMs - _resetStreamWindowStartMs) >= RESET_STREAM_WINDOW_MS) {
+            _resetStreamWindowStartMs = nowMs;
+            _resetStreamCount = 0;
+        }
+
+        _resetStreamCount += 1;
+        if (_resetStreamCount > MAX_RESET_STREAM_COUNT) {
+            throw Http2Exception.connectionError(Http2Exception.ErrorCodes.ENHANCE_YOUR_CALM, "Too many stream resets.");
+        }
+    }
+
+    /**
+     * Sends GOAWAY; the connection is closed once the remaining streams have completed and all output has been written.
+     */
+    protected void _goAway(final Integer errorCode) {
+        if (_isGoingAway) { return; }
+        _isGoingAway = true;
+
+        _queueWrite(Http2Frame.newGoAwayFrame(_lastStreamId, errorCode));
+    }
+
+    protected void _onConnectionError(final Http2Exception exception) {
+        Logger.debug(Http2Connection.class, "HTTP/2 connection error: " + exception.getMessage());
+
+        _isInputShutdown = true;
+        _goAway(exception.getErrorCode());
+
+        for (final Http2Stream stream : _streams.values()) {
+            stream.reset();
+        }
+        _streams.clear();
+        _outputStreams.clear();
+    }
+
+    protected void _resetStream(final Integer streamId, final Integer errorCode) {
+        _queueWrite(Http2Frame.newRstStreamFrame(streamId, errorCode));
+
+        final Http2Stream stream = _removeStream(streamId);
+        if (stream != null) {
+            stream.reset();
+        }
+    }
+
+    protected void _scheduleOutput(final Http2Stream stream) {
+        if (stream._isQueuedForOutput) { return; }
+        stream._isQueuedForOutput = true;
+        _outputStreams.addLast(stream);
+    }
+
+    /**
+     * Marks the stream as closed by the server once END_STREAM has been queued.
+     *  If the client has not finished sending its request, the remainder of the request is refused.
+     */
+    protected void _onLocalClosed(final Http2Stream stream) {
+        stream._isLocalClosed = true;
+        _removeStream(stream._id);
+
+        if (! stream._isRemoteClosed) {
+            _queueWrite(Http2Frame.newRstStreamFrame(stream._id, Http2Exception.ErrorCodes.NO_ERROR));
+            stream.reset();
+        }
+    }
+
+    /**
+     * Queues DATA frames from the streams with pending content, within the flow-control windows and the write-queue limit.
+     */
+    protected void _fillWriteQueue() {
+        while ( (_queuedWriteByteCount < MAX_QUEUED_WRITE_BYTE_COUNT) && (! _outputStreams.isEmpty()) ) {
+            final Http2Stream stream = _outputStreams.pollFirst();
+            stream._isQueuedForOutput = false;
+            if (_streams.get(stream._id) != stream) { continue; } // Reset or closed...
+
+            if (! stream.hasPendingData()) {
+                if (stream._isEndStreamPending) {
+                    _queueWrite(Http2Frame.newFrame(Http2Frame.Types.DATA, Http2Frame.Flags.END_STREAM, stream._id, EMPTY_CONTENT, 0, 0));
+                    _onLocalClosed(stream);
+                }
+                continue;
+            }
+
+            if (_connectionSendWindow <= 0) {
+                // Resumed once the client sends a connection-level WINDOW_UPDATE...
+                stream._isQueuedForOutput = true;
+                _outputStreams.addFirst(stream);
+                break;
+            }
+
+            final long maxByteCount = Math.min(_peerMaxFrameSize, Math.min(_connectionSendWindow, stream._sendWindow));
+            if (maxByteCount <= 0) { continue; } // Resumed once the client sends a WINDOW_UPDATE for the stream...
+
+            final byte[] bytes = stream.takePendingData((int) maxByteCount);
+            final boolean isEndStream = ( (! stream.hasPendingData()) && (stream._isEndStreamPending) );
+            _queueWrite(Http2Frame.newFrame(Http2Frame.Types.DATA, (isEndStream ? Http2Frame.Flags.END_STREAM : 0), stream._id, bytes, 0, bytes.length));
+            _connectionSendWindow -= bytes.length;
+            stream._sendWindow -= bytes.length;
+
+            if (isEndStream) {
+                _onLocalClosed(stream);
+            }
+            else if ( (stream.hasPendingData()) || (stream._isEndStreamPending) ) {
+                _scheduleOutput(stream);
+            }
+        }
+    }
+
+    protected void _flush() {
+        if (_isClosed) { return; }
+
+        try {
+            if ( (_tlsChannel != null) && (! _tlsChannel.flush()) ) {
+                _updateInterestOps();
+                return;
+            }
+
+            boolean isSocketWritable = true;
+            while (isSocketWritable) {
+                _fillWriteQueue();
+                if (_writeQueue.isEmpty()) { break; }
+
+                while (! _writeQueue.isEmpty()) {
+                    int bufferCount = 0;
+                    for (final ByteBuffer byteBuffer : _writeQueue) { // Frames are written with a single gathering write...
+                        _gatheredBuffers[bufferCount] = byteBuffer;
+                        bufferCount += 1;
+                        if (bufferCount >= _gatheredBuffers.length) { break; }
+                    }
+
+                    final long byteCount;
+                    try {
+                        byteCount = (_tlsChannel != null ? _tlsChannel.write(_gatheredBuffers, 0, bufferCount) : _socketChannel.write(_gatheredBuffers, 0, bufferCount));
+                    }
+                    finally {
+                        Arrays.fill(_gatheredBuffers, 0, bufferCount, null);
+                    }
+
+                    if (byteCount > 0L) {
+                        _lastActivityMs = System.currentTimeMillis();
+                    }
+
+                    int writtenBufferCount = 0;
+                    while ( (! _writeQueue.isEmpty()) && (! _writeQueue.peekFirst().hasRemaining()) ) {
+                        final ByteBuffer byteBuffer = _writeQueue.removeFirst();
+                        _queuedWriteByteCount -= byteBuffer.capacity();
+                        writtenBufferCount += 1;
+                    }
+                    if (writtenBufferCount < bufferCount) {
+                        isSocketWritable = false;
+                        break;
+                    }
+                }
+            }
+        }
+        catch (final IOException exception) {
+            _close();
+            return;
+        }
+
+        if ( (_isGoingAway) && (_streams.isEmpty()) && (! _hasPendingOutput()) ) {
+            _close();
+            return;
+        }
+
+        _updateInterestOps();
+    }
+
+    /**
+     * Serializes the response headers as a HEADERS frame, followed by CONTINUATION frames if necessary.
+     *  If contentLength is null, no content-length header is sent.
+     */
+    protected void _queueHeaders(final Http2Stream stream, final Response response, final Long contentLength, final Boolean isEndStream) {
+        final Map<String, List<String>> responseHeaders = response.getHeaders();
+
+        final List<Hpack.Header> headers = new ArrayList<Hpack.Header>();
+        headers.add(new Hpack.Header(":status", String.valueOf(response.getCode())));
+        for (final String headerName : responseHeaders.keySet()) {
+            final String lowercaseHeaderName = headerName.toLowerCase(Locale.ROOT);
+            if ( (HttpResponseEncoder._isReservedHeader(lowercaseHeaderName)) || (_isConnectionSpecificHeader(lowercaseHeaderName)) ) { continue; }
+
+            for (final String headerValue : responseHeaders.get(headerName)) {
+                headers.add(new Hpack.Header(lowercaseHeaderName, headerValue));
+            }
+        }
+
+        final List<Cookie> cookies = response.getCookies();
+        if (! cookies.isEmpty()) {
+            final CookieParser cookieParser = new CookieParser();
+            for (final String setCookieHeaderValue : cookieParser.compileCookiesIntoSetCookieHeaderValues(cookies)) {
+                headers.add(new Hpack.Header("set-cookie", setCookieHeaderValue));
+            }
+        }
+
+        if (! HttpResponseEncoder._containsHeader(responseHeaders, "Date")) {
+            headers.add(new Hpack.Header("date", EncodedHeaders.getDate()));
+        }
+
+        if (contentLength != null) {
+            headers.add(new Hpack.Header("content-length", String.valueOf(contentLength)));
+        }
+
+        final byte[] headerBlock = _hpackEncoder.encode(headers);
+
+        int frameCount = 1;
+        if (headerBlock.length > _peerMaxFrameSize) {
+            frameCount = ((headerBlock.length + _peerMaxFrameSize - 1) / _peerMaxFrameSize);
+        }
+
+        final byte[] bytes = new byte[(frameCount * Http2Frame.HEADER_BYTE_COUNT) + headerBlock.length];
+        int writeIndex = 0;
+        int blockIndex = 0;
+        for (int i = 0; i < frameCount; ++i) {
+            final int byteCount = Math.min(_peerMaxFrameSize, (headerBlock.length - blockIndex));
+            final boolean isFirstFrame = (i == 0);
+            final boolean isLastFrame = (i == (frameCount - 1));
+
+            int flags = (isLastFrame ? Http2Frame.Flags.END_HEADERS : 0);
+            if ( (isFirstFrame) && (isEndStream) ) {
+                flags |= Http2Frame.Flags.END_STREAM;
+            }
+
+            Http2Frame.writeHeader(bytes, writeIndex, byteCount, (isFirstFrame ? Http2Frame.Types.HEADERS : Http2Frame.Types.CONTINUATION), flags, stream._id);
+            writeIndex += Http2Frame.HEADER_BYTE_COUNT;
+            System.arraycopy(headerBlock, blockIndex, bytes, writeIndex, byteCount);
+            writeIndex += byteCount;
+            blockIndex += byteCount;
+        }
+
+        stream._isResponseStarted = true;
+        _queueWrite(bytes);
+
+        if (isEndStream) {
+            _onLocalClosed(stream);
+        }
+    }
+
+    /**
+     * Sends a 100 (Continue) once the handler begins reading the stream's request body, unless a response has already been started.
+     */
+    protected void _sendContinue(final Integer streamId) {
+        final Http2Stream stream = _streams.get(streamId);
+        if (stream == null) { return; }
+        if ( (! stream._isAwaitingContinue) || (stream._isResponseStarted) ) { return; }
+        stream._isAwaitingContinue = false;
+
+        final List<Hpack.Header> headers = new ArrayList<Hpack.Header>(1);
+        headers.add(new Hpack.Header(":status", String.valueOf(100)));
+        final byte[] headerBlock = _hpackEncoder.encode(headers);
+
+        final byte[] bytes = new byte[Http2Frame.HEADER_BYTE_COUNT + headerBlock.length];
+        Http2Frame.writeHeader(bytes, 0, headerBlock.length, Http2Frame.Types.HEADERS, Http2Frame.Flags.END_HEADERS, stream._id);
+        System.arraycopy(headerBlock, 0, bytes, Http2Frame.HEADER_BYTE_COUNT, headerBlock.length);
+        _queueWrite(bytes);
+        _flush();
+    }
+
+    /**
+     * Queues a Response whose content (if any) is already available.
+     */
+    protected void _queueResponse(final Http2Stream stream, final Response response, final Boolean isHeadRequest) {
+        final Integer responseCode = response.getCode();
+        final boolean isBodyForbidden = HttpResponseEncoder.isBodyForbidden(responseCode);
+        final byte[] content = Util.coalesce(response.getContent(), EMPTY_CONTENT);
+        final boolean shouldSendContent = ( (! isHeadRequest) && (! isBodyForbidden) && (content.length > 0) );
+
+        _queueHeaders(stream, response, (isBodyForbidden ? null : (long) content.length), (! shouldSendContent));
+        if (shouldSendContent) {
+            stream.addPendingDataByteCount(content.length);
+            stream.addPendingData(content);
+            stream._isEndStreamPending = true;
+            _scheduleOutput(stream);
+        }
+    }
+
+    protected void _sendErrorResponse(final Http2Stream stream, final Integer responseCode) {
+        final Response response = new Response();
+        response.setCode(responseCode);
+        _queueResponse(stream, response, false);
+    }
+
+    /**
+     * Sends the headers of the Response and then streams its content via its ContentWriter.
+     *  Invoked from the worker thread; blocks while the stream's client is not keeping up.
+     */
+    protected void _sendStreamedResponse(final Http2Stream stream, final Response response) throws IOException {
+        final Integer responseCode = response.getCode();
+        final Long contentByteCount = response.getContentByteCount();
+        final boolean isHeadRequest = "HEAD".equalsIgnoreCase(stream._exchange.getRequestMethod());
+        final boolean isBodyForbidden = HttpResponseEncoder.isBodyForbidden(responseCode);
+        final boolean shouldSendContent = ( (! isHeadRequest) && (! isBodyForbidden) );
+
+        _selectorLoop.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (_streams.get(stream._id) != stream) { return; }
+
+                _queueHeaders(stream, response, (isBodyForbidden ? null : contentByteCount), (! shouldSendContent));
+                _flush();
+            }
+        });
+
+        if (! shouldSendContent) { return; }
+
+        final ResponseBodyOutputStream outputStream = new ResponseBodyOutputStream(new ResponseBodyOutputStream.ContentSink() {
+            @Override
+            public void writeStreamedContent(final ByteBuffer byteBuffer) throws IOException {
+                // NOTE: Content is copied from the pooled buffer, since it is split across DATA frames as the flow-control windows allow.
+                final byte[] bytes = new byte[byteBuffer.remaining()];
+                byteBuffer.get(bytes);
+                BUFFER_POOL.release(byteBuffer);
+
+                stream.reservePendingData(bytes.length, MAX_PENDING_STREAM_OUTPUT_BYTE_COUNT);
+
+                _selectorLoop.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (_streams.get(stream._id) != stream) { return; }
+
+                        stream.addPendingData(bytes);
+                        _scheduleOutput(stream);
+                        _flush();
+                    }
+                });
+            }
+        }, false, contentByteCount);
+
+        try {
+            final ContentWriter contentWriter = response.getContentWriter();
+            contentWriter.writeContent(outputStream);
+            outputStream.close();
+        }
+        catch (final Exception exception) {
+            outputStream.release();
+            _abortStream(stream);
+            if (exception instanceof IOException) { throw (IOException) exception; }
+            throw new IOException(exception);
+        }
+
+        if (! outputStream.isContentComplete()) {
+            _abortStream(stream);
+            return;
+        }
+
+        _selectorLoop.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (_streams.get(stream._id) != stream) { return; }
+
+                stream._isEndStreamPending = true;
+                _scheduleOutput(stream);
+                _flush();
+            }
+        });
+    }
+
+    /**
+     * Resets a stream whose response could not be completed.  May be invoked from any thread.
+     */
+    protected void _abortStream(final Http2Stream stream) {
+        _selectorLoop.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (_streams.get(stream._id) != stream) { return; }
+
+                _resetStream(stream._id, Http2Exception.ErrorCodes.INTERNAL_ERROR);
+                _flush();
+            }
+        });
+    }
+
+    /**
+     * Returns the stream's consumed request bytes to the client's flow-control window once enough have accumulated.
+     */
+    protected void _onStreamBytesConsumed(final Integer streamId, final int byteCount) {
+        final Http2Stream stream = _streams.get(streamId);
+        if ( (stream == null) || (stream._isRemoteClosed) ) { return; }
+
+        stream._unacknowledgedByteCount += byteCount;
+        if (stream._unacknowledgedByteCount >= (Http2Frame.DEFAULT_WINDOW_SIZE / 2)) {
+            _queueWrite(Http2Frame.newWindowUpdateFrame(streamId, stream._unacknowledgedByteCount));
+            stream._receiveWindow += stream._unacknowledgedByteCount;
+            stream._unacknowledgedByteCount = 0;
+            _flush();
+        }
+    }
+
+    protected Http2Stream _createStream(final Integer streamId) {
+        final RequestBodyInputStream requestBody = new RequestBodyInputStream(Http2Frame.DEFAULT_WINDOW_SIZE, NO_OP) {
+            @Override
+            protected void _onRead(final int byteCount) { // Invoked by the worker thread...
+                _selectorLoop.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        _onStreamBytesConsumed(streamId, byteCount);
+                    }
+                });
+            }
+
+            @Override
+            protected void _onFirstRead() { // Invoked by the worker thread...
+                _selectorLoop.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        _sendContinue(streamId);
+                    }
+                });
+            }
+        };
+
+        final Http2Stream stream = new Http2Stream(streamId, Http2Frame.DEFAULT_WINDOW_SIZE, _peerInitialWindowSize, requestBody);
+        _streams.put(streamId, stream);
+        return stream;
+    }
+
+    protected void _onRemoteClosed(final Http2Stream stream) throws Http2Exception {
+        if ( (stream._expectedContentLength != null) && (stream._receivedContentLength != stream._expectedContentLength) ) {
+            throw Http2Exception.streamError(stream._id, Http2Exception.ErrorCodes.PROTOCOL_ERROR, "Content-Length mismatch.");
+        }
+
+        stream._isRemoteClosed = true;
+        stream._requestBody.complete();
+    }
+
+    protected void _dispatch(final Http2Stream stream, final String method, final String target, final Map<String, List<String>> requestHeaders) {
+        final URI requestUri;
+        try {
+            requestUri = new URI(target);
+        }
+        catch (final URISyntaxException exception) {
+            _sendErrorResponse(stream, Response.Codes.BAD_REQUEST);
+            return;
+        }
+
+        final String path = requestUri.getPath();
+        final String contextPath = _router.findContextPath(path != null ? path : "/");
+        if (contextPath == null) {
+            _sendErrorResponse(stream, Response.Codes.NOT_FOUND);
+            return;
+        }
+        final ExchangeHandler exchangeHandler = _router.getExchangeHandler(contextPath);
+
+        final Http2Exchange exchange = new Http2Exchange(this, stream, method, requestUri, contextPath, requestHeaders, _localAddress, _remoteAddress);
+        stream._exchange = exchange;
+
+        // NOTE: The 100 (Continue) is deferred until the handler reads the request body, so that rejected requests are answered before the client sends the body.
+        final List<String> expectValues = requestHeaders.get("expect");
+        if ( (! stream._isRemoteClosed) && (expectValues != null) ) {
+            for (final String expectValue : expectValues) {
+                if ("100-continue".equalsIgnoreCase(expectValue.trim())) {
+                    stream._isAwaitingContinue = true;
+                }
+            }
+        }
+
+        stream._isHandlerRunning = true;
+        try {
+            _executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        exchangeHandler.handle(exchange);
+                    }
+                    catch (final Exception exception) {
+                        Logger.warn(Http2Connection.class, "Uncaught exception within request handler.", exception);
+
+                        // NOTE: A handler that returns normally may complete the Exchange later from another thread.
+                        if (! exchange.isComplete()) {
+                            final Response response = new Response();
+                            response.setCode(Response.Codes.SERVER_ERROR);
+                            try {
+                                exchange.sendResponse(response);
+                            }
+                            catch (final IOException sendException) { }
+                        }
+                    }
+                    finally {
+                        _selectorLoop.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                _onHandlerReturned(stream);
+                            }
+                        });
+                    }
+                }
+            });
+        }
+        catch (final RejectedExecutionException exception) {
+            Logger.warn(Http2Connection.class, "Request rejected by executor.", exception);
+            stream._isHandlerRunning = false;
+            _resetStream(stream._id, Http2Exception.ErrorCodes.REFUSED_STREAM);
+        }
+    }
+
+    /**
+     * Validates the decoded request headers and dispatches the stream.
+     */
+    protected void _dispatch(final Http2Stream stream, final List<Hpack.Header> headers) throws Http2Exception {
+        final Integer streamId = stream._id;
+
+        String method = null;
+        String scheme = null;
+        String target = null;
+        String authority = null;
+        boolean isRegularHeaderReceived = false;
+        final StringBuilder cookieBuilder = new StringBuilder();
+        final Map<String, List<String>> requestHeaders = new LinkedHashMap<String, List<String>>();
+
+        for (final Hpack.Header header : headers) {
+            final String name = header.name;
+            final String value = header.value;
+
+            if (name.startsWith(":")) {
+                if (isRegularHeaderReceived) {
+                    throw Http2Exception.streamError(streamId, Http2Exception.ErrorCodes.PROTOCOL_ERROR, "Pseudo-header after regular header.");
+                }
+
+                final boolean isDuplicate;
+                switch (name) {
+                    case ":method": { isDuplicate = (method != null); method = value; } break;
+                    case ":scheme": { isDuplicate = (scheme != null); scheme = value; } break;
+                    case ":path": { isDuplicate = (target != null); target = value; } break;
+                    case ":authority": { isDuplicate = (authority != null); authority = value; } break;
+                    default: {
+                        throw Http2Exception.streamError(streamId, Http2Exception.ErrorCodes.PROTOCOL_ERROR, "Unknown pseudo-header: " + name);
+                    }
+                }
+                if (isDuplicate) {
+                    throw Http2Exception.streamError(streamId, Http2Exception.ErrorCodes.PROTOCOL_ERROR, "Duplicate pseudo-header: " + name);
+                }
+                continue;
+            }
+
+            isRegularHeaderReceived = true;
+            if ( (_containsUppercase(name)) || (_isConnectionSpecificHeader(name)) ) {
+                throw Http2Exception.streamError(streamId, Http2Exception.ErrorCodes.PROTOCOL_ERROR, "Malformed header: " + name);
+            }
+            if ( (name.equals("te")) && (! value.equals("trailers")) ) {
+                throw Http2Exception.streamError(streamId, Http2Exception.ErrorCodes.PROTOCOL_ERROR, "Malformed header: " + name);
+            }
+
+            if (name.equals("cookie")) { // Cookies may be split across multiple headers, which must be rejoined for HTTP/1.1 semantics...
+                if (cookieBuilder.length() > 0) {
+                    cookieBuilder.append("; ");
+                }
+                cookieBuilder.append(value);
+                continue;
+            }
+
+            if (name.equals("content-length")) {
+                try {
+                    final Long contentLength = Long.parseLong(value);
+                    if ( (contentLength < 0) || ( (stream._expectedContentLength != null) && (! stream._expectedContentLength.equals(contentLength)) ) ) {
+                        throw new NumberFormatException();
+                    }
+                    stream._expectedContentLength = contentLength;
+                }
+                catch (final NumberFormatException exception) {
+                    throw Http2Exception.streamError(streamId, Http2Exception.ErrorCodes.PROTOCOL_ERROR, "Invalid content-length.");
+                }
+            }
+
+            if (! requestHeaders.containsKey(name)) {
+                requestHeaders.put(name, new ArrayList<String>(1));
+            }
+            requestHeaders.get(name).add(value);
+        }
+
+        if ( (method == null) || (scheme == null) || (target == null) || (target.isEmpty()) ) {
+            throw Http2Exception.streamError(streamId, Http2Exception.ErrorCodes.PROTOCOL_ERROR, "Missing pseudo-header.");
+        }
+
+        if ( (authority != null) && (! requestHeaders.containsKey("host")) ) {
+            final List<String> hostValues = new ArrayList<String>(1);
+            hostValues.add(authority);
+            requestHeaders.put("host", hostValues);
+        }
+
+        if (cookieBuilder.length() > 0) {
+            final List<String> cookieValues = new ArrayList<String>(1);
+            cookieValues.add(cookieBuilder.toString());
+            requestHeaders.put("cookie", cookieValues);
+        }
+
+        if ( (stream._isRemoteClosed) && (stream._expectedContentLength != null) && (stream._expectedContentLength != 0L) ) {
+            throw Http2Exception.streamError(streamId, Http2Exception.ErrorCodes.PROTOCOL_ERROR, "Content-Length mismatch.");
+        }
+
+        _dispatch(stream, method, target, requestHeaders);
+    }
+
+    protected void _onHeaderBlock(final int streamId, final int flags, final byte[] headerBlock) throws Http2Exception {
+        // NOTE: The block is always decoded, even if the stream is refused, to keep the HPACK state synchronized.
+        final List<Hpack.Header> headers = _hpackDecoder.decode(headerBlock, _maxHeaderListSize);
+        final boolean isEndStream = ((flags & Http2Frame.Flags.END_STREAM) != 0);
+
+        final Http2Stream existingStream = _streams.get(streamId);
+        if (existingStream != null) { // Trailers...
+            if (existingStream._isRemoteClosed) {
+                throw Http2Exception.streamError(streamId, Http2Exception.ErrorCodes.STREAM_CLOSED, "HEADERS received on a half-closed stream.");
+            }
+            if (! isEndStream) {
+                throw Http2Exception.streamError(streamId, Http2Exception.ErrorCodes.PROTOCOL_ERROR, "Trailers must end the stream.");
+            }
+            _onRemoteClosed(existingStream);
+            return;
+        }
+
+        if ((streamId % 2) == 0) {
+            throw Http2Exception.connectionError(Http2Exception.ErrorCodes.PROTOCOL_ERROR, "Invalid stream id: " + streamId);
+        }
+        if (streamId <= _lastStreamId) { return; } // The stream was recently reset or completed...
+        _lastStreamId = streamId;
+
+        if (_isGoingAway) { return; }
+        if (_getActiveStreamCount() >= MAX_CONCURRENT_STREAMS) {
+            throw Http2Exception.streamError(streamId, Http2Exception.ErrorCodes.REFUSED_STREAM, "Too many concurrent streams.");
+        }
+
+        final Http2Stream stream = _createStream(streamId);
+        if (isEndStream) {
+            stream._isRemoteClosed = true;
+            stream._requestBody.complete();
+        }
+
+        if (headers == null) {
+            _sendErrorResponse(stream, 431);
+            return;
+        }
+
+        _dispatch(stream, headers);
+    }
+
+    protected void _onHeadersFrame(final int streamId, final int flags, final byte[] payload, final int offset, final int length) throws Http2Exception {
+        if (streamId == 0) {
+            throw Http2Exception.connectionError(Http2Exception.ErrorCodes.PROTOCOL_ERROR, "HEADERS received on stream 0.");
+        }
+
+        int index = offset;
+        int endIndex = (offset + length);
+        if ((flags & Http2Frame.Flags.PADDED) != 0) {
+            if (length < 1) {
+                throw Http2Exception.connectionError(Http2Exception.ErrorCodes.FRAME_SIZE_ERROR, "Invalid HEADERS frame.");
+            }
+            final int paddingByteCount = (payload[index] & 0xFF);
+            index += 1;
+            endIndex -= paddingByteCount;
+        }
+        if ((flags & Http2Frame.Flags.PRIORITY) != 0) {
+            index += 5; // Stream priority is not supported...
+        }
+        if (endIndex < index) {
+            throw Http2Exception.connectionError(Http2Exception.ErrorCodes.PROTOCOL_ERROR, "Invalid HEADERS padding.");
+        }
+
+        _headerBlock.reset();
+        _headerBlock.write(payload, index, (endIndex - index));
+
+        if ((flags & Http2Frame.Flags.END_HEADERS) != 0) {
+            _onHeaderBlock(streamId, flags, _headerBlock.toByteArray());
+        }
+        else {
+            _headerBlockStreamId = streamId;
+            _headerBlockFlags = flags;
+        }
+    }
+
+    protected void _onContinuationFrame(final int streamId, final int flags, final byte[] payload, final int offset, final int length) throws Http2Exception {
+        if ( (_headerBlockStreamId == 0) || (streamId != _headerBlockStreamId) ) {
+            throw Http2Exception.connectionError(Http2Exception.ErrorCodes.PROTOCOL_ERROR, "Unexpected CONTINUATION frame.");
+        }
+
+        _headerBlock.write(payload, offset, length);
+        if (_headerBlock.size() > (_maxHeaderListSize + Http2Frame.DEFAULT_MAX_FRAME_SIZE)) {
+            throw Http2Exception.connectionError(Http2Exception.ErrorCodes.ENHANCE_YOUR_CALM, "Header block too large.");
+        }
+
+        if ((flags & Http2Frame.Flags.END_HEADERS) != 0) {
+            _headerBlockStreamId = 0;
+            _onHeaderBlock(streamId, _headerBlockFlags, _headerBlock.toByteArray());
+        }
+    }
+
+    protected void _onDataFrame(final int streamId, final int flags, final byte[] payload, final int offset, final int length) throws Http2Exception {
+        if (streamId == 0) {
+            throw Http2Exception.connectionError(Http2Exception.ErrorCodes.PROTOCOL_ERROR, "DATA received on stream 0.");
+        }
+
+        int index = offset;
+        int endIndex = (offset + length);
+        if ((flags & Http2Frame.Flags.PADDED) != 0) {
+            if (length < 1) {
+                throw Http2Exception.connectionError(Http2Exception.ErrorCodes.FRAME_SIZE_ERROR, "Invalid DATA frame.");
+            }
+            final int paddingByteCount = (payload[index] & 0xFF);
+            index += 1;
+            endIndex -= paddingByteCount;
+            if (endIndex < index) {
+                throw Http2Exception.connectionError(Http2Exception.ErrorCodes.PROTOCOL_ERROR, "Invalid DATA padding.");
+            }
+        }
+        final int dataByteCount = (endIndex - index);
+
+        // NOTE: The entire frame counts against the connection window, even if the stream has since been closed.
+        _connectionReceiveWindow -= length;
+        if (_connectionReceiveWindow < 0) {
+            throw Http2Exception.connectionError(Http2Exception.ErrorCodes.FLOW_CONTROL_ERROR, "Connection flow-control window exceeded.");
+        }
+        _connectionUnacknowledgedByteCount += length;
+
+        final Http2Stream stream = _streams.get(streamId);
+        if (stream == null) {
+            if (streamId > _lastStreamId) {
+                throw Http2Exception.connectionError(Http2Exception.ErrorCodes.PROTOCOL_ERROR, "DATA received on an idle stream.");
+            }
+            return; // The stream was recently reset or completed...
+        }
+
+        if (stream._isRemoteClosed) {
+            throw Http2Exception.streamError(streamId, Http2Exception.ErrorCodes.STREAM_CLOSED, "DATA received on a half-closed stream.");
+        }
+
+        stream._receiveWindow -= length;
+        if (stream._receiveWindow < 0) {
+            throw Http2Exception.streamError(streamId, Http2Exception.ErrorCodes.FLOW_CONTROL_ERROR, "Stream flow-control window exceeded.");
+        }
+
+        stream._receivedContentLength += dataByteCount;
+        if ( (stream._expectedContentLength != null) && (stream._receivedContentLength > stream._expectedContentLength) ) {
+            throw Http2Exception.streamError(streamId, Http2Exception.ErrorCodes.PROTOCOL_ERROR, "Content-Length exceeded.");
+        }
+
+        if (dataByteCount > 0) {
+            stream._requestBody.write(ByteBuffer.wrap(payload, index, dataByteCount), dataByteCount);
+        }
+
+        if ((flags & Http2Frame.Flags.END_STREAM) != 0) {
+            _onRemoteClosed(stream);
+        }
+        else if (length > dataByteCount) {
+            _onStreamBytesConsumed(streamId, (length - dataByteCount)); // Padding is never read by the handler...
+        }
+    }
+
+    protected void _applySettings(final byte[] payload, final int offset, final int length) throws Http2Exception {
+        for (int index = offset; index < (offset + length); index += 6) {
+            final int identifier = (((payload[index] & 0xFF) << 8) | (payload[index + 1] & 0xFF));
+            final int value = Http2Frame.readInteger(payload, index + 2);
+
+            switch (identifier) {
+                case Http2Frame.Settings.HEADER_TABLE_SIZE: {
+                    _hpackEncoder.onMaxTableSizeChanged();
+                } break;
+
+                case Http2Frame.Settings.ENABLE_PUSH: {
+                    if ( (value != 0) && (value != 1) ) {
+                        throw Http2Exception.connectionError(Http2Exception.ErrorCodes.PROTOCOL_ERROR, "Invalid SETTINGS_ENABLE_PUSH.");
+                    }
+                } break;
+
+                case Http2Frame.Settings.INITIAL_WINDOW_SIZE: {
+                    if (value < 0) {
+                        throw Http2Exception.connectionError(Http2Exception.ErrorCodes.FLOW_CONTROL_ERROR, "Invalid SETTINGS_INITIAL_WINDOW_SIZE.");
+                    }
+
+                    final int delta = (value - _peerInitialWindowSize);
+                    _peerInitialWindowSize = value;
+                    for (final Http2Stream stream : _streams.values()) {
+                        stream._sendWindow += delta;
+                        if (stream._sendWindow > Http2Frame.MAX_WINDOW_SIZE) {
+                            throw Http2Exception.connectionError(Http2Exception.ErrorCodes.FLOW_CONTROL_ERROR, "Stream flow-control window overflow.");
+                        }
+                        if ( (delta > 0) && (stream.hasPendingData()) ) {
+                            _scheduleOutput(stream);
+                        }
+                    }
+                } break;
+
+                case Http2Frame.Settings.MAX_FRAME_SIZE: {
+                    if ( (value < Http2Frame.DEFAULT_MAX_FRAME_SIZE) || (value > Http2Frame.MAX_MAX_FRAME_SIZE) ) {
+                        throw Http2Exception.connectionError(Http2Exception.ErrorCodes.PROTOCOL_ERROR, "Invalid SETTINGS_MAX_FRAME_SIZE.");
+                    }
+                    _peerMaxFrameSize = value;
+                } break;
+
+                default: { } // Unsupported and unknown settings are ignored...
+            }
+        }
+    }
+
+    protected void _onSettingsFrame(final int streamId, final int flags, final byte[] payload, final int offset, final int length) throws Http2Exception {
+        if (streamId != 0) {
+            throw Http2Exception.connectionError(Http2Exception.ErrorCodes.PROTOCOL_ERROR, "SETTINGS received on a stream.");
+        }
+
+        if ((flags & Http2Frame.Flags.ACK) != 0) {
+            if (length != 0) {
+                throw Http2Exception.connectionError(Http2Exception.ErrorCodes.FRAME_SIZE_ERROR, "Invalid SETTINGS acknowledgement.");
+            }
+            return;
+        }
+
+        if ((length % 6) != 0) {
+            throw Http2Exception.connectionError(Http2Exception.ErrorCodes.FRAME_SIZE_ERROR, "Invalid SETTINGS frame.");
+        }
+
+        _applySettings(payload, offset, length);
+        _isSettingsReceived = true;
+        _queueWrite(Http2Frame.newSettingsAckFrame());
+    }
+
+    protected void _onWindowUpdateFrame(final int streamId, final byte[] payload, final int offset, final int length) throws Http2Exception {
+        if (length != 4) {
+            throw Http2Exception.connectionError(Http2Exception.ErrorCodes.FRAME_SIZE_ERROR, "Invalid WINDOW_UPDATE frame.");
+        }
+
+        final int increment = (Http2Frame.readInteger(payload, offset) & 0x7FFFFFFF);
+        if (streamId == 0) {
+            if (increment == 0) {
+                throw Http2Exception.connectionError(Http2Exception.ErrorCodes.PROTOCOL_ERROR, "Invalid WINDOW_UPDATE increment.");
+            }
+
+            _connectionSendWindow += increment;
+            if (_connectionSendWindow > Http2Frame.MAX_WINDOW_SIZE) {
+                throw Http2Exception.connectionError(Http2Exception.ErrorCodes.FLOW_CONTROL_ERROR, "Connection flow-control window overflow.");
+            }
+            return;
+        }
+
+        final Http2Stream stream = _streams.get(streamId);
+        if (stream == null) {
+            if (streamId > _lastStreamId) {
+                throw Http2Exception.connectionError(Http2Exception.ErrorCodes.PROTOCOL_ERROR, "WINDOW_UPDATE received on an idle stream.");
+            }
+            return;
+        }
+
+        if (increment == 0) {
+            throw Http2Exception.streamError(streamId, Http2Exception.ErrorCodes.PROTOCOL_ERROR, "Invalid WINDOW_UPDATE increment.");
+        }
+
+        stream._sendWindow += increment;
+        if (stream._sendWindow > Http2Frame.MAX_WINDOW_SIZE) {
+            throw Http2Exception.streamError(streamId, Http2Exception.ErrorCodes.FLOW_CONTROL_ERROR, "Stream flow-control window overflow.");
+        }
+
+        if (stream.hasPendingData()) {
+            _scheduleOutput(stream);
+        }
+    }
+
+    protected void _onFrame(final int type, final int flags, final int streamId, final byte[] payload, final int offset, final int length) throws Http2Exception {
+        if ( (_headerBlockStreamId != 0) && (type != Http2Frame.Types.CONTINUATION) ) {
+            throw Http2Exception.connectionError(Http2Exception.ErrorCodes.PROTOCOL_ERROR, "Expected CONTINUATION frame.");
+        }
+        if ( (! _isSettingsReceived) && (type != Http2Frame.Types.SETTINGS) ) {
+            throw Http2Exception.connectionError(Http2Exception.ErrorCodes.PROTOCOL_ERROR, "Expected SETTINGS frame.");
+        }
+
+        switch (type) {
+            case Http2Frame.Types.DATA: {
+                _onDataFrame(streamId, flags, payload, offset, length);
+            } break;
+
+            case Http2Frame.Types.HEADERS: {
+                _onHeadersFrame(streamId, flags, payload, offset, length);
+            } break;
+
+            case Http2Frame.Types.CONTINUATION: {
+                _onContinuationFrame(streamId, flags, payload, offset, length);
+            } break;
+
+            case Http2Frame.Types.PRIORITY: {
+                if (streamId == 0) {
+                    throw Http2Exception.connectionError(Http2Exception.ErrorCodes.PROTOCOL_ERROR, "PRIORITY received on stream 0.");
+                }
+                if (length != 5) {
+                    throw Http2Exception.streamError(streamId, Http2Exception.ErrorCodes.FRAME_SIZE_ERROR, "Invalid PRIORITY frame.");
+                }
+            } break;
+
+            case Http2Frame.Types.RST_STREAM: {
+                if (streamId == 0) {
+                    throw Http2Exception.connectionError(Http2Exception.ErrorCodes.PROTOCOL_ERROR, "RST_STREAM received on stream 0.");
+                }
+                if (length != 4) {
+                    throw Http2Exception.connectionError(Http2Exception.ErrorCodes.FRAME_SIZE_ERROR, "Invalid RST_STREAM frame.");
+                }
+                if (streamId > _lastStreamId) {
+                    throw Http2Exception.connectionError(Http2Exception.ErrorCodes.PROTOCOL_ERROR, "RST_STREAM received on an idle stream.");
+                }
+
+                final Http2Stream stream = _removeStream(streamId);
+                if (stream != null) {
+                    stream.reset();
+                }
+                _onClientReset();
+            } break;
+
+            case Http2Frame.Types.SETTINGS: {
+                _onSettingsFrame(streamId, flags, payload, offset, length);
+            } break;
+
+            case Http2Frame.Types.PING: {
+                if (streamId != 0) {
+                    throw Http2Exception.connectionError(Http2Exception.ErrorCodes.PROTOCOL_ERROR, "PING received on a stream.");
+                }
+                if (length != 8) {
+                    throw Http2Exception.connectionError(Http2Exception.ErrorCodes.FRAME_SIZE_ERROR, "Invalid PING frame.");
+                }
+                if ((flags & Http2Frame.Flags.ACK) == 0) {
+                    _queueWrite(Http2Frame.newPingAckFrame(payload, offset));
+                }
+            } break;
+
+            case Http2Frame.Types.GOAWAY: {
+                if (streamId != 0) {
+                    throw Http2Exception.connectionError(Http2Exception.ErrorCodes.PROTOCOL_ERROR, "GOAWAY received on a stream.");
+                }
+                _goAway(Http2Exception.ErrorCodes.NO_ERROR); // Existing streams are completed before closing...
+            } break;
+
+            case Http2Frame.Types.WINDOW_UPDATE: {
+                _onWindowUpdateFrame(streamId, payload, offset, length);
+            } break;
+
+            case Http2Frame.Types.PUSH_PROMISE: {
+                throw Http2Exception.connectionError(Http2Exception.ErrorCodes.PROTOCOL_ERROR, "PUSH_PROMISE received from client.");
+            }
+
+            default: { } // Unknown frame types are ignored...
+        }
+    }
+
+    /**
+     * Parses and handles any complete frames within the read buffer.
+     */
+    protected void _processInput() {
+        if (_isClosed) { return; }
+        if (_isProcessingInput) { return; }
+
+        _isProcessingInput = true;
+        _readBuffer.flip();
+        try {
+            if (! _isPrefaceReceived) {
+                final byte[] preface = Http2Frame.CONNECTION_PREFACE;
+                if (_readBuffer.remaining() < preface.length) { return; }
+
+                for (int i = 0; i < preface.length; ++i) {
+                    if (_readBuffer.get() != preface[i]) {
+                        _close();
+                        return;
+                    }
+                }
+                _isPrefaceReceived = true;
+            }
+
+            final byte[] bytes = _readBuffer.array();
+            while ( (! _isClosed) && (! _isInputShutdown) ) {
+                final int position = _readBuffer.position();
+                if (_readBuffer.remaining() < Http2Frame.HEADER_BYTE_COUNT) { break; }
+
+                final int frameOffset = (_readBuffer.arrayOffset() + position);
+                final int length = (((bytes[frameOffset] & 0xFF) << 16) | ((bytes[frameOffset + 1] & 0xFF) << 8) | (bytes[frameOffset + 2] & 0xFF));
+                final int type = (bytes[frameOffset + 3] & 0xFF);
+                final int flags = (bytes[frameOffset + 4] & 0xFF);
+                final int streamId = (Http2Frame.readInteger(bytes, frameOffset + 5) & 0x7FFFFFFF);
+
+                if (length > Http2Frame.DEFAULT_MAX_FRAME_SIZE) {
+                    throw Http2Exception.connectionError(Http2Exception.ErrorCodes.FRAME_SIZE_ERROR, "Frame exceeds SETTINGS_MAX_FRAME_SIZE.");
+                }
+                if (_readBuffer.remaining() < (Http2Frame.HEADER_BYTE_COUNT + length)) { break; }
+                _readBuffer.position(position + Http2Frame.HEADER_BYTE_COUNT + length);
+
+                try {
+                    _onFrame(type, flags, streamId, bytes, (frameOffset + Http2Frame.HEADER_BYTE_COUNT), length);
+                }
+                catch (final Http2Exception exception) {
+                    if (exception.isConnectionError()) { throw exception; }
+                    _resetStream(exception.getStreamId(), exception.getErrorCode());
+                }
+            }
+
+            if (_connectionUnacknowledgedByteCount >= (CONNECTION_WINDOW_SIZE / 2)) {
+                _queueWrite(Http2Frame.newWindowUpdateFrame(0, _connectionUnacknowledgedByteCount));
+                _connectionReceiveWindow += _connectionUnacknowledgedByteCount;
+                _connectionUnacknowledgedByteCount = 0;
+            }
+        }
+        catch (final Http2Exception exception) {
+            _onConnectionError(exception);
+        }
+        finally {
+            _readBuffer.compact();
+            _isProcessingInput = false;
+        }
+
+        _flush();
+    }
+
+    protected void _onReadable() {
+        while (_shouldRead()) {
+            final int byteCount;
+            try {
+                byteCount = (_tlsChannel != null ? _tlsChannel.read(_readBuffer) : _socketChannel.read(_readBuffer));
+            }
+            catch (final IOException exception) {
+                _close();
+                return;
+            }
+
+            if (byteCount < 0) {
+                _close();
+                return;
+            }
+
+            if (byteCount == 0) { break; }
+
+            _lastActivityMs = System.currentTimeMillis();
+            _processInput();
+        }
+
+        _updateInterestOps();
+    }
+
+    /**
+     * Creates an Http2Connection for a socket previously serviced by a NioConnection.
+     *  initialBytes (in read-mode) are the bytes already received from the client; pendingWrites are the bytes not yet written to it.
+     */
+    public Http2Connection(final SelectorLoop selectorLoop, final SocketChannel socketChannel, final TlsChannel tlsChannel, final SelectionKey selectionKey, final NioServerEngine.Router router, final Executor executor, final Integer maxHeaderListSize, final Long idleTimeoutMs, final SocketAddress localAddress, final SocketAddress remoteAddress, final ByteBuffer initialBytes, final ArrayDeque<ByteBuffer> pendingWrites) {
+        _selectorLoop = selectorLoop;
+        _socketChannel = socketChannel;
+        _tlsChannel = tlsChannel;
+        _selectionKey = selectionKey;
+        _router = router;
+        _executor = executor;
+        _maxHeaderListSize = maxHeaderListSize;
+        _idleTimeoutMs = idleTimeoutMs;
+        _localAddress = localAddress;
+        _remoteAddress = remoteAddress;
+
+        // NOTE: The read buffer must fit a partial frame in addition to the minimum read size.
+        final int maxFrameByteCount = (Http2Frame.HEADER_BYTE_COUNT + Http2Frame.DEFAULT_MAX_FRAME_SIZE);
+        _minimumReadByteCount = (tlsChannel != null ? tlsChannel.getApplicationBufferSize() : 1);
+        _readBuffer = ByteBuffer.allocate(Math.max(_minimumReadByteCount + maxFrameByteCount, initialBytes.remaining() + maxFrameByteCount));
+        _readBuffer.put(initialBytes);
+
+        for (final ByteBuffer pendingWrite : pendingWrites) {
+            final byte[] bytes = new byte[pendingWrite.remaining()];
+            pendingWrite.get(bytes);
+            BUFFER_POOL.release(pendingWrite);
+
+            _queuedWriteByteCount += bytes.length;
+            _writeQueue.addLast(ByteBuffer.wrap(bytes));
+        }
+
+        _lastActivityMs = System.currentTimeMillis();
+    }
+
+    /**
+     * Sends the server's connection preface and processes any bytes already received.
+     *  If upgradeRequestHead is not null, the connection was upgraded from HTTP/1.1 via "Upgrade: h2c", and the request
+     *  becomes stream 1.
+     */
+    public void start(final HttpRequestParser.RequestHead upgradeRequestHead) {
+        _queueWrite(Http2Frame.newSettingsFrame(
+            Http2Frame.Settings.MAX_CONCURRENT_STREAMS, MAX_CONCURRENT_STREAMS,
+            Http2Frame.Settings.MAX_HEADER_LIST_SIZE, _maxHeaderListSize
+        ));
+        _queueWrite(Http2Frame.newWindowUpdateFrame(0, (CONNECTION_WINDOW_SIZE - Http2Frame.DEFAULT_WINDOW_SIZE)));
+        _connectionReceiveWindow = CONNECTION_WINDOW_SIZE;
+
+        if (upgradeRequestHead != null) {
+            try {
+                final String settingsHeaderValue = upgradeRequestHead.getHeader("HTTP2-Settings");
+                final byte[] settings = Base64.getUrlDecoder().decode(settingsHeaderValue.trim());
+                if ((settings.length % 6) != 0) {
+                    throw Http2Exception.connectionError(Http2Exception.ErrorCodes.PROTOCOL_ERROR, "Invalid HTTP2-Settings.");
+                }
+                _applySettings(settings, 0, settings.length);
+            }
+            catch (final IllegalArgumentException exception) {
+                _onConnectionError(Http2Exception.connectionError(Http2Exception.ErrorCodes.PROTOCOL_ERROR, "Invalid HTTP2-Settings."));
+            }
+            catch (final Http2Exception exception) {
+                _onConnectionError(exception);
+            }
+
+            if (! _isGoingAway) {
+                final Map<String, List<String>> upgradeHeaders = upgradeRequestHead.getHeaders();
+                final Map<String, List<String>> requestHeaders = new LinkedHashMap<String, List<String>>();
+                for (final String headerName : upgradeHeaders.keySet()) {
+                    final String lowercaseHeaderName = headerName.toLowerCase(Locale.ROOT);
+                    if ( (_isConnectionSpecificHeader(lowercaseHeaderName)) || (lowercaseHeaderName.equals("http2-settings")) ) { continue; }
+
+                    if (! requestHeaders.containsKey(lowercaseHeaderName)) {
+                        requestHeaders.put(lowercaseHeaderName, new ArrayList<String>(1));
+                    }
+                    requestHeaders.get(lowercaseHeaderName).addAll(upgradeHeaders.get(headerName));
+                }
+
+                _lastStreamId = 1;
+                final Http2Stream stream = _createStream(1);
+                stream._isRemoteClosed = true;
+                stream._requestBody.complete();
+                _dispatch(stream, upgradeRequestHead.getMethod(), upgradeRequestHead.getTarget(), requestHeaders);
+            }
+        }
+
+        _processInput();
+        _onReadable();
+    }
+
+    /**
+     * Queues the response for writing.  May be invoked from any thread.
+     */
+    public void sendResponse(final Http2Stream stream, final Response response) throws IOException {
+        if (response.isContentStreamed()) {
+            _sendStreamedResponse(stream, response);
+            return;
+        }
+
+        _selectorLoop.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (_streams.get(stream._id) != stream) { return; }
+
+                final boolean isHeadRequest = "HEAD".equalsIgnoreCase(stream._exchange.getRequestMethod());
+                _queueResponse(stream, response, isHeadRequest);
+                _flush();
+            }
+        });
+    }
+
+    @Override
+    public void onSelected(final SelectionKey selectionKey) {
+        if (selectionKey.isWritable()) {
+            _flush();
+            if (_isClosed) { return; } // The flush may have closed the connection, cancelling its key...
+        }
+
+        if ( (selectionKey.isReadable()) || ( (_tlsChannel != null) && (selectionKey.isWritable()) ) ) {
+            _onReadable();
+        }
+    }
+
+    @Override
+    public void onTick(final Long nowMs) {
+        if (_isClosed) { return; }
+        if ((nowMs - _lastActivityMs) < _idleTimeoutMs) { return; }
+
+        if ( (_hasPendingOutput()) || (_isGoingAway) || (! _isPrefaceReceived) ) {
+            _close(); // The client is not keeping up, or did not complete the connection preface...
+            return;
+        }
+
+        if (_streams.isEmpty()) {
+            _goAway(Http2Exception.ErrorCodes.NO_ERROR);
+            _flush();
+        }
+    }
+
+    @Override
+    public void onShutdown() {
+        _close();
+    }
+}
@@ -0,0 +1,59 @@
+package com.softwareverde.http.server.engine.nio;
+
+/**
+ * <p>An HTTP/2 protocol violation.</p>
+ *
+ * <p>A connection error (stream id 0) terminates the entire connection via GOAWAY; a stream error only resets the
+ * offending stream via RST_STREAM.</p>
+ */
+class Http2Exception extends Exception {
+    public static class ErrorCodes {
+        public static final Integer NO_ERROR = 0x0;
+        public static final Integer PROTOCOL_ERROR = 0x1;
+        public static final Integer INTERNAL_ERROR = 0x2;
+        public static final Integer FLOW_CONTROL_ERROR = 0x3;
+        public static final Integer SETTINGS_TIMEOUT = 0x4;
+        public static final Integer STREAM_CLOSED = 0x5;
+        public static final Integer FRAME_SIZE_ERROR = 0x6;
+        public static final Integer REFUSED_STREAM = 0x7;
+        public static final Integer CANCEL = 0x8;
+        public static final Integer COMPRESSION_ERROR = 0x9;
+        public static final Integer ENHANCE_YOUR_CALM = 0xB;
+    }
+
+    public static Http2Exception connectionError(final Integer errorCode, final String message) {
+        return new Http2Exception(0, errorCode, message);
+    }
+
+    public static Http2Exception streamError(final Integer streamId, final Integer errorCode, final String message) {
+        return new Http2Exception(streamId, errorCode, message);
+    }
+
+    public static Http2Exception compressionError(final String message) {
+        return new Http2Exception(0, ErrorCodes.COMPRESSION_ERROR, message);
+    }
+
+    protected final Integer _streamId;
+    protected final Integer _errorCode;
+
+    protected Http2Exception(final Integer streamId, final Integer errorCode, final String message) {
+        super(message);
+        _streamId = streamId;
+        _errorCode = errorCode;
+    }
+
+    /**
+     * Returns the id of the stream to reset, or 0 if the error applies to the connection.
+     */
+    public Integer getStreamId() {
+        return _streamId;
+    }
+
+    public Integer getErrorCode() {
+        return _errorCode;
+    }
+
+    public Boolean isConnectionError() {
+        return (_streamId == 0);
+    }
+}
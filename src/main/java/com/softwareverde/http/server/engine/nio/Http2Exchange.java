@@ -0,0 +1,96 @@
+package com.softwareverde.http.server.engine.nio;
+
+import com.softwareverde.http.server.engine.Exchange;
+import com.softwareverde.http.server.servlet.request.HostInformation;
+import com.softwareverde.http.server.servlet.response.Response;
+import com.softwareverde.http.websocket.ConnectionLayer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>An Exchange for a single HTTP/2 stream.</p>
+ *
+ * <p>WebSocket upgrades are not supported over HTTP/2; Http2Exchange.upgradeToWebSocket() always returns null.</p>
+ */
+class Http2Exchange implements Exchange {
+    protected final Http2Connection _connection;
+    protected final Http2Stream _stream;
+    protected final String _requestMethod;
+    protected final URI _requestUri;
+    protected final String _contextPath;
+    protected final Map<String, List<String>> _requestHeaders;
+    protected final SocketAddress _localAddress;
+    protected final SocketAddress _remoteAddress;
+
+    protected volatile Boolean _isComplete = false;
+
+    public Http2Exchange(final Http2Connection connection, final Http2Stream stream, final String requestMethod, final URI requestUri, final String contextPath, final Map<String, List<String>> requestHeaders, final SocketAddress localAddress, final SocketAddress remoteAddress) {
+        _connection = connection;
+        _stream = stream;
+        _requestMethod = requestMethod;
+        _requestUri = requestUri;
+        _contextPath = contextPath;
+        _requestHeaders = requestHeaders;
+        _localAddress = localAddress;
+        _remoteAddress = remoteAddress;
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return _requestMethod;
+    }
+
+    @Override
+    public URI getRequestUri() {
+        return _requestUri;
+    }
+
+    @Override
+    public String getContextPath() {
+        return _contextPath;
+    }
+
+    @Override
+    public Map<String, List<String>> getRequestHeaders() {
+        return _requestHeaders;
+    }
+
+    @Override
+    public HostInformation getLocalHostInformation() {
+        return NioExchange.createHostInformation(_localAddress);
+    }
+
+    @Override
+    public HostInformation getRemoteHostInformation() {
+        return NioExchange.createHostInformation(_remoteAddress);
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+        return _stream._requestBody;
+    }
+
+    @Override
+    public void sendResponse(final Response response) throws IOException {
+        synchronized (this) {
+            if (_isComplete) { throw new IOException("Response already sent."); }
+            _isComplete = true;
+        }
+
+        _connection.sendResponse(_stream, HttpResponseEncoder.requireValidHead(response)); // HPACK encodes a CR or LF as-is, which an HTTP/1.1 intermediary would forward...
+    }
+
+    @Override
+    public ConnectionLayer upgradeToWebSocket(final Response response) {
+        return null;
+    }
+
+    public Boolean isComplete() {
+        return _isComplete;
+    }
+}
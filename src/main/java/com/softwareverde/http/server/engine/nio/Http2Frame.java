@@ -0,0 +1,124 @@
+package com.softwareverde.http.server.engine.nio;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>HTTP/2 frame constants and serialization (RFC 7540, Section 4 and 6).</p>
+ */
+class Http2Frame {
+    public static final Integer HEADER_BYTE_COUNT = 9;
+    public static final Integer DEFAULT_MAX_FRAME_SIZE = 16384;
+    public static final Integer MAX_MAX_FRAME_SIZE = 16777215;
+    public static final Integer DEFAULT_WINDOW_SIZE = 65535;
+    public static final Integer MAX_WINDOW_SIZE = Integer.MAX_VALUE;
+    public static final byte[] CONNECTION_PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+    public static class Types {
+        public static final int DATA = 0x0;
+        public static final int HEADERS = 0x1;
+        public static final int PRIORITY = 0x2;
+        public static final int RST_STREAM = 0x3;
+        public static final int SETTINGS = 0x4;
+        public static final int PUSH_PROMISE = 0x5;
+        public static final int PING = 0x6;
+        public static final int GOAWAY = 0x7;
+        public static final int WINDOW_UPDATE = 0x8;
+        public static final int CONTINUATION = 0x9;
+    }
+
+    public static class Flags {
+        public static final int END_STREAM = 0x1;
+        public static final int ACK = 0x1;
+        public static final int END_HEADERS = 0x4;
+        public static final int PADDED = 0x8;
+        public static final int PRIORITY = 0x20;
+    }
+
+    public static class Settings {
+        public static final int HEADER_TABLE_SIZE = 0x1;
+        public static final int ENABLE_PUSH = 0x2;
+        public static final int MAX_CONCURRENT_STREAMS = 0x3;
+        public static final int INITIAL_WINDOW_SIZE = 0x4;
+        public static final int MAX_FRAME_SIZE = 0x5;
+        public static final int MAX_HEADER_LIST_SIZE = 0x6;
+    }
+
+    public static void writeHeader(final byte[] bytes, final int offset, final int length, final int type, final int flags, final int streamId) {
+        bytes[offset] = (byte) (length >>> 16);
+        bytes[offset + 1] = (byte) (length >>> 8);
+        bytes[offset + 2] = (byte) length;
+        bytes[offset + 3] = (byte) type;
+        bytes[offset + 4] = (byte) flags;
+        Http2Frame.writeInteger(bytes, offset + 5, (streamId & 0x7FFFFFFF));
+    }
+
+    public static void writeInteger(final byte[] bytes, final int offset, final int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    public static int readInteger(final byte[] bytes, final int offset) {
+        return ( ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16) | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF) );
+    }
+
+    public static byte[] newFrame(final int type, final int flags, final int streamId, final byte[] payload, final int payloadOffset, final int payloadByteCount) {
+        final byte[] bytes = new byte[HEADER_BYTE_COUNT + payloadByteCount];
+        Http2Frame.writeHeader(bytes, 0, payloadByteCount, type, flags, streamId);
+        System.arraycopy(payload, payloadOffset, bytes, HEADER_BYTE_COUNT, payloadByteCount);
+        return bytes;
+    }
+
+    /**
+     * Serializes a SETTINGS frame; settings is a flattened list of identifier/value pairs.
+     */
+    public static byte[] newSettingsFrame(final int... settings) {
+        final int payloadByteCount = ((settings.length / 2) * 6);
+        final byte[] bytes = new byte[HEADER_BYTE_COUNT + payloadByteCount];
+        Http2Frame.writeHeader(bytes, 0, payloadByteCount, Types.SETTINGS, 0, 0);
+
+        int offset = HEADER_BYTE_COUNT;
+        for (int i = 0; (i + 1) < settings.length; i += 2) {
+            bytes[offset] = (byte) (settings[i] >>> 8);
+            bytes[offset + 1] = (byte) settings[i];
+            Http2Frame.writeInteger(bytes, offset + 2, settings[i + 1]);
+            offset += 6;
+        }
+        return bytes;
+    }
+
+    public static byte[] newSettingsAckFrame() {
+        final byte[] bytes = new byte[HEADER_BYTE_COUNT];
+        Http2Frame.writeHeader(bytes, 0, 0, Types.SETTINGS, Flags.ACK, 0);
+        return bytes;
+    }
+
+    public static byte[] newWindowUpdateFrame(final int streamId, final int increment) {
+        final byte[] bytes = new byte[HEADER_BYTE_COUNT + 4];
+        Http2Frame.writeHeader(bytes, 0, 4, Types.WINDOW_UPDATE, 0, streamId);
+        Http2Frame.writeInteger(bytes, HEADER_BYTE_COUNT, increment);
+        return bytes;
+    }
+
+    public static byte[] newRstStreamFrame(final int streamId, final int errorCode) {
+        final byte[] bytes = new byte[HEADER_BYTE_COUNT + 4];
+        Http2Frame.writeHeader(bytes, 0, 4, Types.RST_STREAM, 0, streamId);
+        Http2Frame.writeInteger(bytes, HEADER_BYTE_COUNT, errorCode);
+        return bytes;
+    }
+
+    public static byte[] newGoAwayFrame(final int lastStreamId, final int errorCode) {
+        final byte[] bytes = new byte[HEADER_BYTE_COUNT + 8];
+        Http2Frame.writeHeader(bytes, 0, 8, Types.GOAWAY, 0, 0);
+        Http2Frame.writeInteger(bytes, HEADER_BYTE_COUNT, lastStreamId);
+        Http2Frame.writeInteger(bytes, HEADER_BYTE_COUNT + 4, errorCode);
+        return bytes;
+    }
+
+    public static byte[] newPingAckFrame(final byte[] payload, final int payloadOffset) {
+        return Http2Frame.newFrame(Types.PING, Flags.ACK, 0, payload, payloadOffset, 8);
+    }
+
+    protected Http2Frame() { }
+}
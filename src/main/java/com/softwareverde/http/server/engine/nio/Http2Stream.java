@@ -0,0 +1,135 @@
+package com.softwareverde.http.server.engine.nio;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+
+/**
+ * <p>The state of a single HTTP/2 stream, owned by an Http2Connection.</p>
+ *
+ *  NOTE: Unless stated otherwise, fields are only accessed from the connection's SelectorLoop thread.
+ */
+class Http2Stream {
+    protected final Integer _id;
+    protected final RequestBodyInputStream _requestBody;
+
+    protected Http2Exchange _exchange;
+    protected Long _expectedContentLength = null;
+    protected long _receivedContentLength = 0L;
+
+    protected int _receiveWindow;
+    protected int _unacknowledgedByteCount = 0; // Bytes consumed by the handler that have not yet been returned to the client's window.
+    protected long _sendWindow;
+
+    protected boolean _isRemoteClosed = false; // END_STREAM has been received.
+    protected boolean _isLocalClosed = false; // END_STREAM has been sent.
+    protected boolean _isResponseStarted = false;
+    protected boolean _isAwaitingContinue = false; // True while the client awaits a 100 (Continue) before sending the request body.
+    protected boolean _isEndStreamPending = false;
+    protected boolean _isQueuedForOutput = false;
+    protected boolean _isHandlerRunning = false; // True from dispatch until the handler has returned.
+    protected boolean _isDetachedHandlerCounted = false; // True while the stream is counted by Http2Connection._detachedHandlerCount.
+
+    protected final ArrayDeque<byte[]> _pendingData = new ArrayDeque<byte[]>();
+    protected int _pendingDataReadIndex = 0;
+
+    protected final Object _outputMonitor = new Object();
+    protected long _pendingDataByteCount = 0L; // Guarded by _outputMonitor.
+    protected boolean _isReset = false; // Guarded by _outputMonitor.
+
+    public Http2Stream(final Integer id, final Integer receiveWindow, final Integer sendWindow, final RequestBodyInputStream requestBody) {
+        _id = id;
+        _receiveWindow = receiveWindow;
+        _sendWindow = sendWindow;
+        _requestBody = requestBody;
+    }
+
+    public Integer getId() {
+        return _id;
+    }
+
+    public Boolean hasPendingData() {
+        return (! _pendingData.isEmpty());
+    }
+
+    public void addPendingData(final byte[] bytes) {
+        _pendingData.addLast(bytes);
+    }
+
+    /**
+     * Removes up to maxByteCount bytes from the front of the pending data.
+     */
+    public byte[] takePendingData(final int maxByteCount) {
+        final byte[] chunk = _pendingData.peekFirst();
+        final int byteCount = Math.min(maxByteCount, (chunk.length - _pendingDataReadIndex));
+
+        final byte[] bytes;
+        if ( (_pendingDataReadIndex == 0) && (byteCount == chunk.length) ) {
+            bytes = chunk;
+        }
+        else {
+            bytes = new byte[byteCount];
+            System.arraycopy(chunk, _pendingDataReadIndex, bytes, 0, byteCount);
+        }
+
+        _pendingDataReadIndex += byteCount;
+        if (_pendingDataReadIndex >= chunk.length) {
+            _pendingData.removeFirst();
+            _pendingDataReadIndex = 0;
+        }
+
+        synchronized (_outputMonitor) {
+            _pendingDataByteCount -= byteCount;
+            _outputMonitor.notifyAll();
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Reserves space for streamed content, blocking while maxPendingByteCount bytes are already waiting to be sent.
+     *  Invoked by the worker thread; throws an IOException if the stream has been reset.
+     */
+    public void reservePendingData(final int byteCount, final long maxPendingByteCount) throws IOException {
+        synchronized (_outputMonitor) {
+            while ( (_pendingDataByteCount >= maxPendingByteCount) && (! _isReset) ) {
+                try {
+                    _outputMonitor.wait();
+                }
+                catch (final InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while writing response.", exception);
+                }
+            }
+            if (_isReset) { throw new IOException("Stream reset."); }
+
+            _pendingDataByteCount += byteCount;
+        }
+    }
+
+    /**
+     * Accounts for content queued without a reservation (i.e. a non-streamed Response).
+     */
+    public void addPendingDataByteCount(final int byteCount) {
+        synchronized (_outputMonitor) {
+            _pendingDataByteCount += byteCount;
+        }
+    }
+
+    /**
+     * Discards any pending output and fails any current or future reads and writes.  May be invoked from any thread.
+     */
+    public void reset() {
+        synchronized (_outputMonitor) {
+            _isReset = true;
+            _pendingDataByteCount = 0L;
+            _outputMonitor.notifyAll();
+        }
+        _requestBody.fail(new IOException("Stream reset."));
+    }
+
+    public Boolean isReset() {
+        synchronized (_outputMonitor) {
+            return _isReset;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.softwareverde.http.server.engine.nio;
+
+public class HttpParseException extends Exception {
+    protected final Integer _responseCode;
+
+    public HttpParseException(final Integer responseCode, final String message) {
+        super(message);
+        _responseCode = responseCode;
+    }
+
+    /**
+     * Returns the HTTP status code that should be sent to the client in response to the malformed request.
+     */
+    public Integer getResponseCode() {
+        return _responseCode;
+    }
+}
@@ -0,0 +1,476 @@
+package com.softwareverde.http.server.engine.nio;
+
+import com.softwareverde.http.server.servlet.response.Response;
+import com.softwareverde.http.util.HeaderValueTokenizer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>An incremental HTTP/1.1 request parser.</p>
+ *
+ * <p>Bytes may be provided in arbitrarily sized fragments as they arrive from the network; the parser retains any partial
+ * line between invocations.  The request head (request line and headers) is parsed via HttpRequestParser.parseHead(),
+ * after which the body (fixed-length or chunked) is decoded into a BodySink via HttpRequestParser.parseBody().</p>
+ */
+public class HttpRequestParser {
+    public static final Integer DEFAULT_MAX_HEAD_BYTE_COUNT = 16384;
+    protected static final Integer MAX_CHUNK_LINE_BYTE_COUNT = 1024;
+
+    public interface BodySink {
+        /**
+         * Returns the number of body bytes the sink is currently able to accept.
+         */
+        int getAvailableByteCount();
+
+        /**
+         * Consumes byteCount bytes from the byteBuffer, starting at its current position.
+         */
+        void write(ByteBuffer byteBuffer, int byteCount);
+    }
+
+    public static class RequestHead {
+        protected final String _method;
+        protected final String _target;
+        protected final String _version;
+        protected final Map<String, List<String>> _headers;
+
+        protected RequestHead(final String method, final String target, final String version, final Map<String, List<String>> headers) {
+            _method = method;
+            _target = target;
+            _version = version;
+            _headers = headers;
+        }
+
+        public String getMethod() { return _method; }
+        public String getTarget() { return _target; }
+        public String getVersion() { return _version; }
+
+        /**
+         * Returns the request headers, keyed by the header names as they were received.
+         */
+        public Map<String, List<String>> getHeaders() { return _headers; }
+
+        /**
+         * Returns the first value of the header, matched case-insensitively, or null if the header was not provided.
+         */
+        public String getHeader(final String headerName) {
+            for (final String key : _headers.keySet()) {
+                if (key.equalsIgnoreCase(headerName)) {
+                    final List<String> values = _headers.get(key);
+                    return (values.isEmpty() ? null : values.get(0));
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Returns true if any value of the comma-separated header contains the token, matched case-insensitively.
+         */
+        public Boolean headerContainsToken(final String headerName, final String token) {
+            for (final String key : _headers.keySet()) {
+                if (! key.equalsIgnoreCase(headerName)) { continue; }
+
+                final HeaderValueTokenizer headerValueTokenizer = new HeaderValueTokenizer();
+                for (final String value : _headers.get(key)) {
+                    headerValueTokenizer.reset(value);
+                    while (headerValueTokenizer.nextElement()) {
+                        if (headerValueTokenizer.elementEquals(token)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns true if the connection should remain open after this request's response has been sent.
+         */
+        public Boolean isKeepAlive() {
+            if (headerContainsToken("connection", "close")) { return false; }
+            if ("HTTP/1.0".equals(_version)) {
+                return headerContainsToken("connection", "keep-alive");
+            }
+            return true;
+        }
+    }
+
+    protected enum State {
+        REQUEST_LINE, HEADERS, BODY, CHUNK_SIZE, CHUNK_DATA, CHUNK_DATA_END, TRAILERS, COMPLETE
+    }
+
+    protected final Integer _maxHeadByteCount;
+    protected final byte[] _lineBuffer;
+    protected int _lineByteCount = 0;
+    protected int _headByteCount = 0;
+
+    protected State _state = State.REQUEST_LINE;
+    protected String _method;
+    protected String _target;
+    protected String _version;
+    protected Map<String, List<String>> _headers;
+    protected String _previousHeaderName;
+    protected RequestHead _requestHead;
+
+    protected Boolean _isChunked = false;
+    protected Long _contentLength = 0L;
+    protected long _remainingByteCount = 0L;
+
+    protected static Boolean isTokenCharacter(final char c) {
+        if ( (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') ) { return true; }
+        return ("!#$%&'*+-.^_`|~".indexOf(c) >= 0);
+    }
+
+    /**
+     * Parses the value as an unsigned number consisting solely of digits of the radix (i.e. DIGIT or HEXDIG; RFC 9112),
+     *  or returns null if the value is empty, contains any other character (e.x. a sign), or overflows.
+     *  NOTE: Lengths must be parsed strictly, since an intermediary that parses them leniently would disagree on where the body ends.
+     */
+    protected static Long _parseUnsignedNumber(final String value, final int radix) {
+        if (value.isEmpty()) { return null; }
+
+        for (int i = 0; i < value.length(); ++i) {
+            final char c = value.charAt(i);
+            if ( (c >= 0x80) || (Character.digit(c, radix) < 0) ) { return null; } // Character.digit() alone would accept non-ASCII digits...
+        }
+
+        try {
+            return Long.parseLong(value, radix);
+        }
+        catch (final NumberFormatException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads bytes from the buffer until a LF is found, and returns the line without its CR/LF terminator.
+     *  Returns null if the buffer was exhausted before the end of the line; the partial line is retained.
+     */
+    protected String _readLine(final ByteBuffer buffer, final int maxByteCount, final Integer overflowResponseCode) throws HttpParseException {
+        while (buffer.hasRemaining()) {
+            final byte b = buffer.get();
+            if (b == '\n') {
+                int byteCount = _lineByteCount;
+                if ( (byteCount > 0) && (_lineBuffer[byteCount - 1] == '\r') ) {
+                    byteCount -= 1;
+                }
+
+                final String line = new String(_lineBuffer, 0, byteCount, StandardCharsets.ISO_8859_1);
+                _lineByteCount = 0;
+                return line;
+            }
+
+            if ( (_lineByteCount >= maxByteCount) || (_lineByteCount >= _lineBuffer.length) ) {
+                throw new HttpParseException(overflowResponseCode, "Line exceeds maximum length.");
+            }
+
+            _lineBuffer[_lineByteCount] = b;
+            _lineByteCount += 1;
+        }
+
+        return null;
+    }
+
+    protected void _parseRequestLine(final String line) throws HttpParseException {
+        final int firstSpaceIndex = line.indexOf(' ');
+        final int lastSpaceIndex = line.lastIndexOf(' ');
+        if ( (firstSpaceIndex <= 0) || (lastSpaceIndex <= firstSpaceIndex + 1) ) {
+            throw new HttpParseException(Response.Codes.BAD_REQUEST, "Malformed request line.");
+        }
+
+        final String method = line.substring(0, firstSpaceIndex);
+        final String target = line.substring(firstSpaceIndex + 1, lastSpaceIndex);
+        final String version = line.substring(lastSpaceIndex + 1);
+
+        for (int i = 0; i < method.length(); ++i) {
+            if (! HttpRequestParser.isTokenCharacter(method.charAt(i))) {
+                throw new HttpParseException(Response.Codes.BAD_REQUEST, "Malformed request method.");
+            }
+        }
+
+        if ( (! version.equals("HTTP/1.1")) && (! version.equals("HTTP/1.0")) ) {
+            throw new HttpParseException(505, "Unsupported HTTP version.");
+        }
+
+        _method = method;
+        _target = target;
+        _version = version;
+    }
+
+    protected void _parseHeaderLine(final String line) throws HttpParseException {
+        final char firstCharacter = line.charAt(0);
+        if ( (firstCharacter == ' ') || (firstCharacter == '\t') ) { // Obsolete line folding; the line is a continuation of the previous header value...
+            if (_previousHeaderName == null) {
+                throw new HttpParseException(Response.Codes.BAD_REQUEST, "Malformed header.");
+            }
+
+            final List<String> values = _headers.get(_previousHeaderName);
+            final int lastIndex = (values.size() - 1);
+            values.set(lastIndex, values.get(lastIndex) + " " + line.trim());
+            return;
+        }
+
+        final int colonIndex = line.indexOf(':');
+        if (colonIndex <= 0) {
+            throw new HttpParseException(Response.Codes.BAD_REQUEST, "Malformed header.");
+        }
+
+        final String headerName = line.substring(0, colonIndex);
+        for (int i = 0; i < headerName.length(); ++i) {
+            if (! HttpRequestParser.isTokenCharacter(headerName.charAt(i))) {
+                throw new HttpParseException(Response.Codes.BAD_REQUEST, "Malformed header name.");
+            }
+        }
+
+        final String headerValue = line.substring(colonIndex + 1).trim();
+
+        List<String> values = _headers.get(headerName);
+        if (values == null) {
+            values = new ArrayList<String>(1);
+            _headers.put(headerName, values);
+        }
+        values.add(headerValue);
+
+        _previousHeaderName = headerName;
+    }
+
+    protected void _determineBodyLength(final RequestHead requestHead) throws HttpParseException {
+        _isChunked = false;
+        _contentLength = 0L;
+
+        List<String> transferEncodings = null;
+        Long contentLength = null;
+        for (final String headerName : _headers.keySet()) {
+            if (headerName.equalsIgnoreCase("transfer-encoding")) {
+                if (transferEncodings == null) {
+                    transferEncodings = new ArrayList<String>(1);
+                }
+                transferEncodings.addAll(_headers.get(headerName)); // Multiple header lines form a single list of codings...
+            }
+            else if (headerName.equalsIgnoreCase("content-length")) {
+                for (final String value : _headers.get(headerName)) {
+                    final Long parsedLength = _parseUnsignedNumber(value.trim(), 10);
+                    if ( (parsedLength == null) || ( (contentLength != null) && (! contentLength.equals(parsedLength)) ) ) {
+                        throw new HttpParseException(Response.Codes.BAD_REQUEST, "Invalid Content-Length.");
+                    }
+                    contentLength = parsedLength;
+                }
+            }
+        }
+
+        if (transferEncodings != null) {
+            // NOTE: A request with both a Transfer-Encoding and a Content-Length is rejected rather than trusted (RFC 9112 6.1),
+            //  since an intermediary that honored the Content-Length would disagree on where the body ends (i.e. request smuggling).
+            if (contentLength != null) {
+                throw new HttpParseException(Response.Codes.BAD_REQUEST, "Transfer-Encoding with Content-Length.");
+            }
+
+            final HeaderValueTokenizer headerValueTokenizer = new HeaderValueTokenizer();
+            Boolean isFinalCodingChunked = false;
+            for (final String transferEncoding : transferEncodings) {
+                headerValueTokenizer.reset(transferEncoding);
+                while (headerValueTokenizer.nextElement()) {
+                    isFinalCodingChunked = headerValueTokenizer.elementEquals("chunked");
+                }
+            }
+            if (! isFinalCodingChunked) {
+                throw new HttpParseException(Response.Codes.BAD_REQUEST, "Unsupported Transfer-Encoding.");
+            }
+
+            _isChunked = true;
+            _contentLength = null;
+            _state = State.CHUNK_SIZE;
+            return;
+        }
+
+        if ( (contentLength != null) && (contentLength > 0L) ) {
+            _contentLength = contentLength;
+            _remainingByteCount = contentLength;
+            _state = State.BODY;
+            return;
+        }
+
+        _state = State.COMPLETE;
+    }
+
+    protected void _readBodyBytes(final ByteBuffer buffer, final BodySink bodySink) {
+        final long byteCount = Math.min(_remainingByteCount, Math.min(buffer.remaining(), bodySink.getAvailableByteCount()));
+        if (byteCount <= 0L) { return; }
+
+        bodySink.write(buffer, (int) byteCount);
+        _remainingByteCount -= byteCount;
+    }
+
+    public HttpRequestParser() {
+        this(DEFAULT_MAX_HEAD_BYTE_COUNT);
+    }
+
+    public HttpRequestParser(final Integer maxHeadByteCount) {
+        _maxHeadByteCount = maxHeadByteCount;
+        _lineBuffer = new byte[maxHeadByteCount];
+    }
+
+    /**
+     * Parses the request line and headers from the buffer.
+     *  Returns true once the complete request head has been parsed, at which point HttpRequestParser.getRequestHead()
+     *  is available and the buffer's position is at the first byte of the body.
+     *  Returns false if more bytes are required.
+     */
+    public Boolean parseHead(final ByteBuffer buffer) throws HttpParseException {
+        while ( (_state == State.REQUEST_LINE) || (_state == State.HEADERS) ) {
+            final int startPosition = buffer.position();
+            final int remainingHeadByteCount = (_maxHeadByteCount - _headByteCount);
+            final Integer overflowResponseCode = (_state == State.REQUEST_LINE ? 414 : 431);
+            final String line = _readLine(buffer, remainingHeadByteCount, overflowResponseCode);
+            _headByteCount += (buffer.position() - startPosition);
+            if (line == null) { return false; }
+
+            if (_state == State.REQUEST_LINE) {
+                if (line.isEmpty()) { continue; } // Tolerate empty lines preceding the request line...
+
+                _parseRequestLine(line);
+                _headers = new LinkedHashMap<String, List<String>>();
+                _state = State.HEADERS;
+            }
+            else if (line.isEmpty()) {
+                _requestHead = new RequestHead(_method, _target, _version, _headers);
+                _determineBodyLength(_requestHead);
+            }
+            else {
+                _parseHeaderLine(line);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Decodes body bytes from the buffer into the bodySink.
+     *  Decoding stops when the buffer is exhausted, the bodySink is full, or the body is complete.
+     */
+    public void parseBody(final ByteBuffer buffer, final BodySink bodySink) throws HttpParseException {
+        while (buffer.hasRemaining()) {
+            switch (_state) {
+                case BODY: {
+                    _readBodyBytes(buffer, bodySink);
+                    if (_remainingByteCount == 0L) {
+                        _state = State.COMPLETE;
+                    }
+                    else { return; }
+                } break;
+
+                case CHUNK_SIZE: {
+                    final String line = _readLine(buffer, MAX_CHUNK_LINE_BYTE_COUNT, Response.Codes.BAD_REQUEST);
+                    if (line == null) { return; }
+
+                    final int extensionIndex = line.indexOf(';');
+                    final String chunkSizeString = (extensionIndex < 0 ? line : line.substring(0, extensionIndex)).trim();
+                    final Long chunkSize = _parseUnsignedNumber(chunkSizeString, 16);
+                    if (chunkSize == null) {
+                        throw new HttpParseException(Response.Codes.BAD_REQUEST, "Invalid chunk size.");
+                    }
+
+                    _remainingByteCount = chunkSize;
+                    _state = (chunkSize == 0L ? State.TRAILERS : State.CHUNK_DATA);
+                } break;
+
+                case CHUNK_DATA: {
+                    _readBodyBytes(buffer, bodySink);
+                    if (_remainingByteCount == 0L) {
+                        _state = State.CHUNK_DATA_END;
+                    }
+                    else { return; }
+                } break;
+
+                case CHUNK_DATA_END: {
+                    final String line = _readLine(buffer, MAX_CHUNK_LINE_BYTE_COUNT, Response.Codes.BAD_REQUEST);
+                    if (line == null) { return; }
+                    if (! line.isEmpty()) {
+                        throw new HttpParseException(Response.Codes.BAD_REQUEST, "Malformed chunk.");
+                    }
+                    _state = State.CHUNK_SIZE;
+                } break;
+
+                case TRAILERS: { // Trailers are discarded...
+                    final String line = _readLine(buffer, MAX_CHUNK_LINE_BYTE_COUNT, Response.Codes.BAD_REQUEST);
+                    if (line == null) { return; }
+                    if (line.isEmpty()) {
+                        _state = State.COMPLETE;
+                    }
+                } break;
+
+                default: {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns true once the request head has been parsed.
+     */
+    public Boolean isHeadComplete() {
+        return (_requestHead != null);
+    }
+
+    /**
+     * Returns true once both the request head and body have been parsed.
+     */
+    public Boolean isComplete() {
+        return (_state == State.COMPLETE);
+    }
+
+    /**
+     * Returns true if no bytes of the next request have been consumed.
+     */
+    public Boolean isIdle() {
+        return ( (_state == State.REQUEST_LINE) && (_lineByteCount == 0) );
+    }
+
+    public RequestHead getRequestHead() {
+        return _requestHead;
+    }
+
+    /**
+     * Returns the declared length of the request body, or null if the body is chunked.
+     */
+    public Long getContentLength() {
+        return _contentLength;
+    }
+
+    public Boolean isChunked() {
+        return _isChunked;
+    }
+
+    /**
+     * Returns the number of bytes remaining for a fixed-length body, or null if the body is chunked.
+     */
+    public Long getRemainingBodyByteCount() {
+        if (_isChunked) { return null; }
+        if (_state != State.BODY) { return 0L; }
+        return _remainingByteCount;
+    }
+
+    /**
+     * Prepares the parser for the next request on the connection.
+     */
+    public void reset() {
+        _state = State.REQUEST_LINE;
+        _lineByteCount = 0;
+        _headByteCount = 0;
+        _method = null;
+        _target = null;
+        _version = null;
+        _headers = null;
+        _previousHeaderName = null;
+        _requestHead = null;
+        _isChunked = false;
+        _contentLength = 0L;
+        _remainingByteCount = 0L;
+    }
+}
@@ -0,0 +1,342 @@
+package com.softwareverde.http.server.engine.nio;
+
+import com.softwareverde.http.cookie.Cookie;
+import com.softwareverde.http.cookie.CookieParser;
+import com.softwareverde.http.server.servlet.response.CannedResponse;
+import com.softwareverde.http.server.servlet.response.Response;
+import com.softwareverde.logging.Logger;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Serializes the status line and headers of an HTTP/1.1 response.</p>
+ *
+ * <p>Heads are assembled as bytes from the pre-encoded forms provided by EncodedHeaders; only header values that are not
+ * well-known are encoded per response.</p>
+ */
+class HttpResponseEncoder {
+    protected static final String CRLF = "\r\n";
+    protected static final Integer MAX_CANNED_HEAD_COUNT = 1024;
+    protected static final ConcurrentHashMap<CannedResponse, byte[]> CANNED_HEADS = new ConcurrentHashMap<CannedResponse, byte[]>(); // Keyed by identity...
+
+    /**
+     * Returns true if the response header is determined by the engine and should not be copied from the Response.
+     */
+    protected static Boolean _isReservedHeader(final String headerName) {
+        return ( (headerName.equalsIgnoreCase("Content-Length")) || (headerName.equalsIgnoreCase("Transfer-Encoding")) || (headerName.equalsIgnoreCase("Connection")) );
+    }
+
+    protected static Boolean _containsHeader(final Map<String, List<String>> headers, final String headerName) {
+        for (final String key : headers.keySet()) {
+            if (key.equalsIgnoreCase(headerName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the value contains a CR, LF, or NUL, which would allow it to terminate its header line and inject
+     *  additional headers (or an entire response) into the connection.
+     */
+    protected static Boolean _containsLineBreak(final String value) {
+        final int length = value.length();
+        for (int i = 0; i < length; ++i) {
+            final char c = value.charAt(i);
+            if ( (c == '\r') || (c == '\n') || (c == '\0') ) { return true; }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the name of the first response header whose name or value contains a CR, LF, or NUL, or null if the
+     *  Response's head may be safely encoded.  Set-Cookie headers are checked as compiled from the Response's Cookies.
+     */
+    public static String findInvalidHeader(final Response response) {
+        final Map<String, List<String>> headers = response.getHeaders();
+        for (final String headerName : headers.keySet()) {
+            if (_containsLineBreak(headerName)) { return headerName; }
+
+            for (final String headerValue : headers.get(headerName)) {
+                if (_containsLineBreak(headerValue)) { return headerName; }
+            }
+        }
+
+        final List<Cookie> cookies = response.getCookies();
+        if (! cookies.isEmpty()) {
+            final CookieParser cookieParser = new CookieParser();
+            for (final String setCookieHeaderValue : cookieParser.compileCookiesIntoSetCookieHeaderValues(cookies)) {
+                if (_containsLineBreak(setCookieHeaderValue)) { return Response.Headers.SET_COOKIE; }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the Response if its head may be safely encoded; otherwise the offending header is logged and an empty 500
+     *  is returned in its place.  Invoked before a Response is handed to the connection, since encoding happens later on
+     *  the selector thread.
+     */
+    public static Response requireValidHead(final Response response) {
+        final String invalidHeaderName = HttpResponseEncoder.findInvalidHeader(response);
+        if (invalidHeaderName == null) { return response; }
+
+        Logger.warn(HttpResponseEncoder.class, "Response header contains a CR, LF, or NUL; sending 500 instead: " + invalidHeaderName.replaceAll("[\\r\\n\\x00]", "?"));
+        final Response serverErrorResponse = new Response();
+        serverErrorResponse.setCode(Response.Codes.SERVER_ERROR);
+        return serverErrorResponse;
+    }
+
+    public static String getReasonPhrase(final Integer code) {
+        switch (code) {
+            case 100: return "Continue";
+            case 101: return "Switching Protocols";
+            case 200: return "OK";
+            case 201: return "Created";
+            case 202: return "Accepted";
+            case 204: return "No Content";
+            case 205: return "Reset Content";
+            case 206: return "Partial Content";
+            case 301: return "Moved Permanently";
+            case 302: return "Found";
+            case 303: return "See Other";
+            case 304: return "Not Modified";
+            case 307: return "Temporary Redirect";
+            case 308: return "Permanent Redirect";
+            case 400: return "Bad Request";
+            case 401: return "Unauthorized";
+            case 403: return "Forbidden";
+            case 404: return "Not Found";
+            case 405: return "Method Not Allowed";
+            case 408: return "Request Timeout";
+            case 411: return "Length Required";
+            case 413: return "Payload Too Large";
+            case 414: return "URI Too Long";
+            case 417: return "Expectation Failed";
+            case 429: return "Too Many Requests";
+            case 431: return "Request Header Fields Too Large";
+            case 500: return "Internal Server Error";
+            case 501: return "Not Implemented";
+            case 502: return "Bad Gateway";
+            case 503: return "Service Unavailable";
+            case 504: return "Gateway Timeout";
+            case 505: return "HTTP Version Not Supported";
+            default: return "Unknown";
+        }
+    }
+
+    /**
+     * Returns true if a response with the provided status code never contains a body.
+     */
+    public static Boolean isBodyForbidden(final Integer code) {
+        return ( (code < 200) || (code == 204) || (code == 304) );
+    }
+
+    /**
+     * Formats the timestamp as an HTTP-date (e.x. "Sun, 06 Nov 1994 08:49:37 GMT").
+     *  NOTE: EncodedHeaders.getDate() should be preferred for the current time, since its value is cached.
+     */
+    public static String formatDate(final Long timestampMs) {
+        return EncodedHeaders.DATE_FORMATTER.format(Instant.ofEpochMilli(timestampMs));
+    }
+
+    /**
+     * A growable byte array to which a response head is serialized.
+     */
+    protected static class HeadBuilder {
+        protected byte[] _bytes;
+        protected int _byteCount = 0;
+
+        protected void _ensureCapacity(final int additionalByteCount) {
+            final int requiredByteCount = (_byteCount + additionalByteCount);
+            if (requiredByteCount <= _bytes.length) { return; }
+
+            _bytes = Arrays.copyOf(_bytes, Math.max(requiredByteCount, (_bytes.length * 2)));
+        }
+
+        public HeadBuilder(final int initialCapacity) {
+            _bytes = new byte[initialCapacity];
+        }
+
+        public void append(final byte[] bytes) {
+            _ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, _bytes, _byteCount, bytes.length);
+            _byteCount += bytes.length;
+        }
+
+        /**
+         * Appends the string as ISO-8859-1; characters outside of ISO-8859-1 are replaced with '?'.
+         */
+        public void append(final String string) {
+            final int length = string.length();
+            _ensureCapacity(length);
+            for (int i = 0; i < length; ++i) {
+                final char c = string.charAt(i);
+                _bytes[_byteCount + i] = (byte) (c <= 0xFF ? c : '?');
+            }
+            _byteCount += length;
+        }
+
+        public void append(final long value) {
+            if (value < 0L) {
+                this.append(Long.toString(value));
+                return;
+            }
+
+            int digitCount = 1;
+            for (long remainingValue = (value / 10L); remainingValue > 0L; remainingValue /= 10L) {
+                digitCount += 1;
+            }
+
+            _ensureCapacity(digitCount);
+            long remainingValue = value;
+            for (int i = (digitCount - 1); i >= 0; --i) {
+                _bytes[_byteCount + i] = (byte) ('0' + (remainingValue % 10L));
+                remainingValue /= 10L;
+            }
+            _byteCount += digitCount;
+        }
+
+        public byte[] toByteArray() {
+            return (_byteCount == _bytes.length ? _bytes : Arrays.copyOf(_bytes, _byteCount));
+        }
+    }
+
+    protected static void _appendHeader(final HeadBuilder headBuilder, final String headerName, final String headerValue) {
+        final byte[] headerLine = EncodedHeaders.getHeaderLine(headerName, headerValue);
+        if (headerLine != null) {
+            headBuilder.append(headerLine);
+            return;
+        }
+
+        headBuilder.append(EncodedHeaders.getHeaderNamePrefix(headerName));
+        headBuilder.append(headerValue);
+        headBuilder.append(EncodedHeaders.CRLF);
+    }
+
+    protected static void _appendStatusLineAndHeaders(final HeadBuilder headBuilder, final Response response) {
+        final Integer code = response.getCode();
+        final Map<String, List<String>> headers = response.getHeaders();
+
+        final byte[] statusLine = EncodedHeaders.getStatusLine(code);
+        if (statusLine != null) {
+            headBuilder.append(statusLine);
+        }
+        else {
+            headBuilder.append("HTTP/1.1 " + code + " " + HttpResponseEncoder.getReasonPhrase(code));
+            headBuilder.append(EncodedHeaders.CRLF);
+        }
+
+        for (final String headerName : headers.keySet()) {
+            if (_isReservedHeader(headerName)) { continue; }
+
+            for (final String headerValue : headers.get(headerName)) {
+                _appendHeader(headBuilder, headerName, headerValue);
+            }
+        }
+
+        final List<Cookie> cookies = response.getCookies();
+        if (! cookies.isEmpty()) {
+            final CookieParser cookieParser = new CookieParser();
+            for (final String setCookieHeaderValue : cookieParser.compileCookiesIntoSetCookieHeaderValues(cookies)) {
+                headBuilder.append(EncodedHeaders.SET_COOKIE_PREFIX);
+                headBuilder.append(setCookieHeaderValue);
+                headBuilder.append(EncodedHeaders.CRLF);
+            }
+        }
+    }
+
+    protected static void _appendDateHeader(final HeadBuilder headBuilder) {
+        headBuilder.append(EncodedHeaders.getDateHeaderLine());
+    }
+
+    protected static void _appendConnectionHeader(final HeadBuilder headBuilder, final String connectionHeaderValue) {
+        if (connectionHeaderValue != null) {
+            _appendHeader(headBuilder, Response.Headers.CONNECTION, connectionHeaderValue);
+        }
+    }
+
+    protected static void _appendContentLengthHeader(final HeadBuilder headBuilder, final long contentLength) {
+        headBuilder.append(EncodedHeaders.CONTENT_LENGTH_PREFIX);
+        headBuilder.append(contentLength);
+        headBuilder.append(EncodedHeaders.CRLF);
+    }
+
+    /**
+     * Serializes the response head.
+     *  If contentLength is null, no Content-Length header is sent (e.x. for upgrades, chunked content, or responses that forbid a body).
+     *  If isChunked is true, "Transfer-Encoding: chunked" is sent.
+     *  If connectionHeaderValue is null, no Connection header is sent.
+     */
+    public static byte[] encodeHead(final Response response, final Long contentLength, final Boolean isChunked, final String connectionHeaderValue) {
+        final HeadBuilder headBuilder = new HeadBuilder(256);
+        _appendStatusLineAndHeaders(headBuilder, response);
+
+        if (! _containsHeader(response.getHeaders(), "Date")) {
+            _appendDateHeader(headBuilder);
+        }
+
+        if (contentLength != null) {
+            _appendContentLengthHeader(headBuilder, contentLength);
+        }
+
+        if (isChunked) {
+            headBuilder.append(EncodedHeaders.TRANSFER_ENCODING_CHUNKED);
+        }
+
+        _appendConnectionHeader(headBuilder, connectionHeaderValue);
+
+        headBuilder.append(EncodedHeaders.CRLF);
+        return headBuilder.toByteArray();
+    }
+
+    /**
+     * Returns the CannedResponse's status line, headers, and Content-Length, serialized once and shared across requests.
+     *  The returned array must not be modified; the head is completed by HttpResponseEncoder.encodeCannedHeadTrailer().
+     */
+    public static byte[] encodeCannedHead(final CannedResponse cannedResponse) {
+        final byte[] cachedHead = CANNED_HEADS.get(cannedResponse);
+        if (cachedHead != null) { return cachedHead; }
+
+        final HeadBuilder headBuilder = new HeadBuilder(256);
+        _appendStatusLineAndHeaders(headBuilder, cannedResponse);
+        if (! HttpResponseEncoder.isBodyForbidden(cannedResponse.getCode())) {
+            _appendContentLengthHeader(headBuilder, cannedResponse.getContent().length);
+        }
+        final byte[] head = headBuilder.toByteArray();
+
+        if (CANNED_HEADS.size() < MAX_CANNED_HEAD_COUNT) { // CannedResponses created per request are encoded each time rather than retained...
+            CANNED_HEADS.putIfAbsent(cannedResponse, head);
+        }
+        return head;
+    }
+
+    /**
+     * Serializes the per-request remainder of a CannedResponse's head: its Date and Connection headers and the terminating CRLF.
+     */
+    public static byte[] encodeCannedHeadTrailer(final CannedResponse cannedResponse, final String connectionHeaderValue) {
+        final HeadBuilder headBuilder = new HeadBuilder(64);
+        if (! _containsHeader(cannedResponse.getHeaders(), "Date")) {
+            _appendDateHeader(headBuilder);
+        }
+        _appendConnectionHeader(headBuilder, connectionHeaderValue);
+        headBuilder.append(EncodedHeaders.CRLF);
+        return headBuilder.toByteArray();
+    }
+
+    /**
+     * Serializes a complete response without a body, for errors detected before a request could be dispatched.
+     */
+    public static byte[] encodeErrorResponse(final Integer code) {
+        final String response = ("HTTP/1.1 " + code + " " + HttpResponseEncoder.getReasonPhrase(code) + CRLF + "Content-Length: 0" + CRLF + "Connection: close" + CRLF + CRLF);
+        return response.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    protected HttpResponseEncoder() { }
+}
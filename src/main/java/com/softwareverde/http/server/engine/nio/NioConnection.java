@@ -0,0 +1,1045 @@
+package com.softwareverde.http.server.engine.nio;
+
+import com.softwareverde.http.server.engine.ExchangeHandler;
+import com.softwareverde.http.server.servlet.response.CannedResponse;
+import com.softwareverde.http.server.servlet.response.ContentWriter;
+import com.softwareverde.http.server.servlet.response.Response;
+import com.softwareverde.http.websocket.ConnectionLayer;
+import com.softwareverde.logging.Logger;
+import com.softwareverde.util.Util;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * <p>The state of a single client connection, owned by a SelectorLoop.</p>
+ *
+ * <p>Request heads are parsed on the selector thread; once a head is complete, the request is dispatched to a worker
+ * thread while the body continues to be read (with backpressure) into the Exchange's body stream.</p>
+ *
+ * <p>Pipelined requests are supported: once the current request has been fully received, subsequent requests are read
+ * ahead while its response is pending.  Pipelined GET, HEAD, and OPTIONS requests without a body are dispatched
+ * immediately (up to NioConnection.MAX_PIPELINED_REQUEST_COUNT at a time); other requests wait until every preceding
+ * response has been written.  Responses are always written in the order the requests were received.</p>
+ *
+ *  NOTE: Unless stated otherwise, all functions must be invoked from the SelectorLoop's thread.
+ */
+class NioConnection implements SelectorLoop.SelectionHandler, ResponseBodyOutputStream.ContentSink {
+    protected static final Integer READ_BUFFER_BYTE_COUNT = 16384;
+    protected static final Integer MAX_BUFFERED_BODY_BYTE_COUNT = 65536;
+    protected static final Long MAX_DISCARDED_BODY_BYTE_COUNT = 65536L;
+    protected static final Long MAX_PENDING_OUTPUT_BYTE_COUNT = 262144L;
+    protected static final Integer MAX_PIPELINED_REQUEST_COUNT = 16;
+    protected static final Integer MAX_GATHERED_BUFFER_COUNT = 16; // The maximum number of queued buffers written by a single gathering write.
+    protected static final byte[] EMPTY_CONTENT = new byte[0];
+    protected static final ByteBufferPool BUFFER_POOL = ByteBufferPool.getSharedInstance();
+    protected static final byte[] CONTINUE_RESPONSE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+    protected static final byte[] H2C_UPGRADE_RESPONSE = "HTTP/1.1 101 Switching Protocols\r\nConnection: Upgrade\r\nUpgrade: h2c\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+    protected static final CannedResponse REJECTED_RESPONSE = _createRejectedResponse();
+
+    /**
+     * Creates the 503 sent when the executor rejects a request; the request may not have been fully read, so the connection is closed.
+     */
+    protected static CannedResponse _createRejectedResponse() {
+        final Response response = new Response();
+        response.setCode(Response.Codes.SERVICE_UNAVAILABLE);
+        response.setHeader(Response.Headers.RETRY_AFTER, "1");
+        response.setHeader(Response.Headers.CONNECTION, "close");
+        return new CannedResponse(response);
+    }
+
+    protected final SelectorLoop _selectorLoop;
+    protected final SocketChannel _socketChannel;
+    protected final TlsChannel _tlsChannel;
+    protected final NioServerEngine.Router _router;
+    protected final Executor _executor;
+    protected final Integer _maxHeadByteCount;
+    protected final Boolean _isHttp2Enabled;
+    protected final Long _idleTimeoutMs;
+    protected final SocketAddress _localAddress;
+    protected final SocketAddress _remoteAddress;
+
+    protected final HttpRequestParser _requestParser;
+    protected final ByteBuffer _readBuffer; // Write-mode between invocations; pooled.
+    protected final Integer _minimumReadByteCount;
+    protected final ArrayDeque<ByteBuffer> _writeQueue = new ArrayDeque<ByteBuffer>(); // Buffers are released to the ByteBufferPool once written.
+    protected final ByteBuffer[] _gatheredBuffers = new ByteBuffer[MAX_GATHERED_BUFFER_COUNT];
+    protected Boolean _isReadBufferReleased = false;
+
+    protected final Object _outputMonitor = new Object();
+    protected long _pendingOutputByteCount = 0L; // The number of queued bytes not yet written; guarded by _outputMonitor.
+    protected boolean _isOutputClosed = false; // Guarded by _outputMonitor.
+
+    protected SelectionKey _selectionKey;
+    protected Long _lastActivityMs;
+    protected Boolean _isClosed = false;
+
+    protected NioExchange _exchange; // The Exchange whose response is being written next.
+    protected RequestBodyInputStream _requestBody; // The body of the request being parsed.
+    protected final ArrayDeque<NioExchange> _pipelinedExchanges = new ArrayDeque<NioExchange>(); // Dispatched Exchanges queued behind _exchange, in order.
+    protected Boolean _isReadingAhead = false; // True once the parser has moved on from the current Exchange's request.
+    protected Boolean _isHeadPending = false; // True if a parsed request head awaits dispatch until the pipeline has drained.
+    protected Integer _pipelineErrorResponseCode = null; // The error sent once the pipeline has drained, if a pipelined request was malformed.
+    protected Boolean _isResponseQueued = false;
+    protected Boolean _isResponseWritten = false;
+    protected Boolean _shouldCloseAfterResponse = false;
+    protected Boolean _isAwaitingContinue = false; // True while the client awaits "100 Continue" before sending the request body.
+    protected Boolean _isInputShutdown = false;
+    protected Boolean _isProcessingInput = false;
+    protected Runnable _onResponseWrittenCallback = null;
+    protected Boolean _isAwaitingHttp2Preface; // True until the first bytes have been received, if HTTP/2 is enabled.
+
+    /**
+     * Returns true if the request received after the provided Exchange may be read before the Exchange's response has been written.
+     */
+    protected Boolean _isPipeliningAllowed(final NioExchange tailExchange) {
+        if (_pipelinedExchanges.size() >= MAX_PIPELINED_REQUEST_COUNT) { return false; }
+        if (_shouldCloseAfterResponse) { return false; }
+
+        final HttpRequestParser.RequestHead requestHead = tailExchange.getRequestHead();
+        if (! requestHead.isKeepAlive()) { return false; }
+        return (requestHead.getHeader(Response.Headers.UPGRADE) == null); // Bytes following an upgrade do not belong to HTTP/1.1...
+    }
+
+    /**
+     * Returns true if the pipelined request may be dispatched before the preceding responses have been written.
+     *  Requests with a body and requests with side effects are processed one at a time.
+     */
+    protected static Boolean _isEagerlyDispatchable(final HttpRequestParser.RequestHead requestHead) {
+        final String method = requestHead.getMethod();
+        if ( (! "GET".equals(method)) && (! "HEAD".equals(method)) && (! "OPTIONS".equals(method)) ) { return false; }
+        if (requestHead.getHeader(Response.Headers.UPGRADE) != null) { return false; }
+        return (requestHead.getHeader("Expect") == null);
+    }
+
+    protected Boolean _canReadAhead() {
+        if ( (_isInputShutdown) || (_isHeadPending) ) { return false; }
+
+        final NioExchange tailExchange = Util.coalesce(_pipelinedExchanges.peekLast(), _exchange);
+        return _isPipeliningAllowed(tailExchange);
+    }
+
+    /**
+     * Returns true if the current request has been received and its response has not yet been written.
+     */
+    protected Boolean _isAwaitingResponse() {
+        if (_exchange == null) { return false; }
+        return ( (_isReadingAhead) || (_requestParser.isComplete()) );
+    }
+
+    protected Boolean _shouldRead() {
+        if (_isClosed || _isInputShutdown) { return false; }
+        if ( (_isAwaitingResponse()) && (! _canReadAhead()) ) { return false; }
+        return (_readBuffer.remaining() >= _minimumReadByteCount);
+    }
+
+    protected Boolean _hasPendingOutput() {
+        if (! _writeQueue.isEmpty()) { return true; }
+        return ( (_tlsChannel != null) && (_tlsChannel.hasPendingOutput()) );
+    }
+
+    protected void _updateInterestOps() {
+        if (_isClosed) { return; }
+        if ( (_selectionKey == null) || (! _selectionKey.isValid()) ) { return; }
+
+        int interestOps = 0;
+        if (_shouldRead()) {
+            interestOps |= SelectionKey.OP_READ;
+        }
+        if (_hasPendingOutput()) {
+            interestOps |= SelectionKey.OP_WRITE;
+        }
+        _selectionKey.interestOps(interestOps);
+    }
+
+    protected void _close() {
+        if (_isClosed) { return; }
+        _isClosed = true;
+
+        if (_selectionKey != null) {
+            _selectionKey.cancel();
+        }
+
+        if (_tlsChannel != null) {
+            _tlsChannel.close();
+        }
+
+        try {
+            _socketChannel.close();
+        }
+        catch (final IOException exception) { }
+
+        if (_requestBody != null) {
+            _requestBody.fail(new IOException("Connection closed."));
+        }
+
+        _releaseWriteQueue();
+        if (! _isProcessingInput) { // Otherwise, the read buffer is released once the input loop has finished with it...
+            _releaseReadBuffer();
+        }
+
+        for (final NioExchange pipelinedExchange : _pipelinedExchanges) {
+            pipelinedExchange.markTurn(); // Release any workers awaiting their turn; their responses are discarded...
+        }
+        _pipelinedExchanges.clear();
+
+        synchronized (_outputMonitor) {
+            _isOutputClosed = true;
+            _pendingOutputByteCount = 0L;
+            _outputMonitor.notifyAll();
+        }
+    }
+
+    protected void _releaseReadBuffer() {
+        if (_isReadBufferReleased) { return; }
+        _isReadBufferReleased = true;
+        BUFFER_POOL.release(_readBuffer);
+    }
+
+    protected void _releaseWriteQueue() {
+        for (final ByteBuffer byteBuffer : _writeQueue) {
+            BUFFER_POOL.release(byteBuffer);
+        }
+        _writeQueue.clear();
+    }
+
+    protected void _queueWrite(final byte[] bytes) {
+        synchronized (_outputMonitor) {
+            _pendingOutputByteCount += bytes.length;
+        }
+        _writeQueue.addLast(ByteBuffer.wrap(bytes));
+    }
+
+    protected void _onBytesWritten(final long byteCount) {
+        synchronized (_outputMonitor) {
+            _pendingOutputByteCount -= byteCount;
+            _outputMonitor.notifyAll();
+        }
+    }
+
+    protected void _flush() {
+        if (_isClosed) { return; }
+
+        try {
+            if ( (_tlsChannel != null) && (! _tlsChannel.flush()) ) {
+                _updateInterestOps();
+                return;
+            }
+
+            while (! _writeQueue.isEmpty()) {
+                // NOTE: The queued buffers (e.x. a response's head and body) are written with a single gathering write,
+                //  so that small responses are sent within one syscall and, typically, one packet.
+                int bufferCount = 0;
+                for (final ByteBuffer byteBuffer : _writeQueue) {
+                    _gatheredBuffers[bufferCount] = byteBuffer;
+                    bufferCount += 1;
+                    if (bufferCount >= _gatheredBuffers.length) { break; }
+                }
+
+                final long byteCount;
+                try {
+                    byteCount = (_tlsChannel != null ? _tlsChannel.write(_gatheredBuffers, 0, bufferCount) : _socketChannel.write(_gatheredBuffers, 0, bufferCount));
+                }
+                finally {
+                    Arrays.fill(_gatheredBuffers, 0, bufferCount, null);
+                }
+
+                if (byteCount > 0L) {
+                    _lastActivityMs = System.currentTimeMillis();
+                    _onBytesWritten(byteCount);
+                }
+
+                int writtenBufferCount = 0;
+                while ( (! _writeQueue.isEmpty()) && (! _writeQueue.peekFirst().hasRemaining()) ) {
+                    BUFFER_POOL.release(_writeQueue.removeFirst());
+                    writtenBufferCount += 1;
+                }
+                if (writtenBufferCount < bufferCount) { break; } // The socket is not accepting more bytes...
+            }
+        }
+        catch (final IOException exception) {
+            _close();
+            return;
+        }
+
+        if ( (_isResponseQueued) && (! _isResponseWritten) && (! _hasPendingOutput()) ) {
+            _onResponseWritten();
+            if (_isClosed) { return; }
+        }
+
+        _updateInterestOps();
+    }
+
+    protected void _onResponseWritten() {
+        _isResponseWritten = true;
+
+        if (_onResponseWrittenCallback != null) {
+            final Runnable callback = _onResponseWrittenCallback;
+            _onResponseWrittenCallback = null;
+            callback.run();
+            return;
+        }
+
+        if (_shouldCloseAfterResponse) {
+            _close();
+            return;
+        }
+
+        if (_isProcessingInput) { return; } // A pipelined response was written from within the input loop, which continues on its own...
+
+        _onReadable(); // Continue with any bytes of the next request that have already been received...
+    }
+
+    /**
+     * Returns true if the Response included a "Connection: close" header.
+     */
+    protected static Boolean _responseRequestsClose(final Response response) {
+        final Map<String, List<String>> headers = response.getHeaders();
+        for (final String headerName : headers.keySet()) {
+            if (! headerName.equalsIgnoreCase(Response.Headers.CONNECTION)) { continue; }
+
+            for (final String headerValue : headers.get(headerName)) {
+                if ("close".equalsIgnoreCase(headerValue.trim())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    protected void _sendErrorAndClose(final Integer responseCode) {
+        _isInputShutdown = true;
+
+        if ( (_exchange != null) && (! _isResponseQueued) ) {
+            // The request has already been dispatched; the response cannot be replaced, so the connection is closed once it is sent.
+            _shouldCloseAfterResponse = true;
+            if (_requestBody != null) {
+                _requestBody.fail(new IOException("Malformed request body."));
+            }
+            _updateInterestOps();
+            return;
+        }
+
+        if (_exchange != null) {
+            _close();
+            return;
+        }
+
+        _shouldCloseAfterResponse = true;
+        _isResponseQueued = true;
+        _isResponseWritten = false;
+        _queueWrite(HttpResponseEncoder.encodeErrorResponse(responseCode));
+        _flush();
+    }
+
+    /**
+     * Applies the connection-level consequences of sending the Response and returns the Connection header value, if any.
+     *  If isCloseDelimited is true, the response's content is terminated by closing the connection.
+     */
+    protected String _prepareResponse(final NioExchange exchange, final Response response, final Boolean isCloseDelimited) {
+        if ( (! _isReadingAhead) && (! _requestParser.isComplete()) ) {
+            // The handler did not consume the entire request body; the remainder must be discarded before the
+            //  next request can be read.  Large and chunked remainders are not worth reading, so the connection is closed instead.
+            //  A client still awaiting "100 Continue" may never send the body, so its remainder cannot be discarded either.
+            final Long remainingByteCount = _requestParser.getRemainingBodyByteCount();
+            if ( (! _isAwaitingContinue) && (remainingByteCount != null) && (remainingByteCount <= MAX_DISCARDED_BODY_BYTE_COUNT) ) {
+                _requestBody.discard();
+            }
+            else {
+                _shouldCloseAfterResponse = true;
+                _isInputShutdown = true;
+            }
+        }
+
+        _isAwaitingContinue = false;
+
+        if ( (isCloseDelimited) || (_responseRequestsClose(response)) ) {
+            _shouldCloseAfterResponse = true;
+        }
+
+        if (_shouldCloseAfterResponse) {
+            return "close";
+        }
+        else if ("HTTP/1.0".equals(exchange.getRequestHead().getVersion())) {
+            return "keep-alive";
+        }
+        return null;
+    }
+
+    /**
+     * Sends the head of the Response and then streams its content via its ContentWriter.
+     *  Invoked from the worker thread; blocks until all content has been queued for writing.
+     */
+    protected void _sendStreamedResponse(final NioExchange exchange, final Response response) throws IOException {
+        final Integer responseCode = response.getCode();
+        final Long contentByteCount = response.getContentByteCount();
+        final boolean isHeadRequest = "HEAD".equalsIgnoreCase(exchange.getRequestMethod());
+        final boolean isBodyForbidden = HttpResponseEncoder.isBodyForbidden(responseCode);
+        final boolean isHttp10 = "HTTP/1.0".equals(exchange.getRequestHead().getVersion());
+
+        final boolean shouldSendContent = ( (! isHeadRequest) && (! isBodyForbidden) );
+        final boolean isChunked = ( (contentByteCount == null) && (! isHttp10) && (! isBodyForbidden) );
+        final boolean isCloseDelimited = ( (contentByteCount == null) && (isHttp10) && (shouldSendContent) ); // HTTP/1.0 clients do not support chunked encoding...
+
+        _selectorLoop.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (_isClosed) { return; }
+                if (exchange != _exchange) { return; }
+
+                final String connectionHeaderValue = _prepareResponse(exchange, response, isCloseDelimited);
+                _queueWrite(HttpResponseEncoder.encodeHead(response, (isBodyForbidden ? null : contentByteCount), isChunked, connectionHeaderValue));
+                _flush();
+            }
+        });
+
+        if (! shouldSendContent) {
+            this.completeStreamedResponse(true);
+            return;
+        }
+
+        final ResponseBodyOutputStream outputStream = new ResponseBodyOutputStream(this, isChunked, contentByteCount);
+        try {
+            final ContentWriter contentWriter = response.getContentWriter();
+            contentWriter.writeContent(outputStream);
+            outputStream.close();
+        }
+        catch (final Exception exception) {
+            outputStream.release();
+            this.abortStreamedResponse();
+            if (exception instanceof IOException) { throw (IOException) exception; }
+            throw new IOException(exception);
+        }
+
+        this.completeStreamedResponse(outputStream.isContentComplete());
+    }
+
+    /**
+     * Sends "100 Continue" once the handler begins reading the body of the current request, unless a response has already been sent.
+     */
+    protected void _sendContinue(final RequestBodyInputStream requestBody) {
+        if (_isClosed) { return; }
+        if (requestBody != _requestBody) { return; }
+        if (! _isAwaitingContinue) { return; }
+
+        _isAwaitingContinue = false;
+        _queueWrite(CONTINUE_RESPONSE);
+        _flush();
+    }
+
+    /**
+     * Returns true if the client has negotiated HTTP/2 via ALPN or has sent the HTTP/2 connection preface (i.e. "prior knowledge"),
+     *  false if the connection is HTTP/1.x, or null if not enough bytes have been received to decide.
+     *  The read buffer must be in read-mode.
+     */
+    protected Boolean _isHttp2Preface() {
+        if (_tlsChannel != null) {
+            return "h2".equals(_tlsChannel.getSslEngine().getApplicationProtocol());
+        }
+
+        final byte[] preface = Http2Frame.CONNECTION_PREFACE;
+        final int position = _readBuffer.position();
+        final int byteCount = Math.min(_readBuffer.remaining(), preface.length);
+        for (int i = 0; i < byteCount; ++i) {
+            if (_readBuffer.get(position + i) != preface[i]) { return false; }
+        }
+        return (byteCount == preface.length ? true : null);
+    }
+
+    /**
+     * Returns true if the request asks to upgrade the cleartext connection to HTTP/2 (i.e. "Upgrade: h2c").
+     *  Requests with a body are not upgraded.
+     */
+    protected Boolean _isHttp2Upgrade(final HttpRequestParser.RequestHead requestHead) {
+        if (_tlsChannel != null) { return false; }
+        if (! "HTTP/1.1".equals(requestHead.getVersion())) { return false; }
+        if (! _requestParser.isComplete()) { return false; }
+        if (requestHead.getHeader("HTTP2-Settings") == null) { return false; }
+        return requestHead.headerContainsToken(Response.Headers.UPGRADE, "h2c");
+    }
+
+    /**
+     * Hands the socket to an Http2Connection, which replaces this connection as the SelectionKey's handler.
+     *  The read buffer must be in read-mode.
+     */
+    protected void _upgradeToHttp2(final HttpRequestParser.RequestHead upgradeRequestHead) {
+        final Http2Connection http2Connection = new Http2Connection(_selectorLoop, _socketChannel, _tlsChannel, _selectionKey, _router, _executor, _maxHeadByteCount, _idleTimeoutMs, _localAddress, _remoteAddress, _readBuffer, _writeQueue);
+        _writeQueue.clear();
+        _isClosed = true; // The socket is now owned by the Http2Connection...
+
+        _selectionKey.attach(http2Connection);
+        http2Connection.start(upgradeRequestHead);
+    }
+
+    /**
+     * Rejects the parsed request; a pipelined request is rejected once the preceding responses have been written.
+     */
+    protected void _rejectRequest(final Integer responseCode) {
+        if (_exchange == null) {
+            _sendErrorAndClose(responseCode);
+            return;
+        }
+
+        _isInputShutdown = true;
+        _pipelineErrorResponseCode = responseCode;
+    }
+
+    /**
+     * Dispatches the parsed request to a worker thread.
+     *  If a response is pending, the request is pipelined and its response is written once the preceding responses have been written.
+     */
+    protected void _dispatch() {
+        final HttpRequestParser.RequestHead requestHead = _requestParser.getRequestHead();
+        final boolean isPipelined = (_exchange != null);
+
+        if ( (! isPipelined) && (_isHttp2Enabled) && (_isHttp2Upgrade(requestHead)) ) {
+            _queueWrite(H2C_UPGRADE_RESPONSE);
+            _upgradeToHttp2(requestHead);
+            return;
+        }
+
+        final URI requestUri;
+        try {
+            requestUri = new URI(requestHead.getTarget());
+        }
+        catch (final URISyntaxException exception) {
+            _rejectRequest(Response.Codes.BAD_REQUEST);
+            return;
+        }
+
+        final String path = requestUri.getPath();
+        final String contextPath = _router.findContextPath(path != null ? path : "/");
+        if (contextPath == null) {
+            _rejectRequest(Response.Codes.NOT_FOUND);
+            return;
+        }
+        final ExchangeHandler exchangeHandler = _router.getExchangeHandler(contextPath);
+
+        final RequestBodyInputStream requestBody = new RequestBodyInputStream(MAX_BUFFERED_BODY_BYTE_COUNT, new Runnable() {
+            @Override
+            public void run() { // Invoked by the worker thread...
+                _selectorLoop.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        _onReadable();
+                    }
+                });
+            }
+        }) {
+            @Override
+            protected void _onFirstRead() { // Invoked by the worker thread...
+                final RequestBodyInputStream requestBody = this;
+                _selectorLoop.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        _sendContinue(requestBody);
+                    }
+                });
+            }
+        };
+        if (_requestParser.isComplete()) {
+            requestBody.complete();
+        }
+
+        final NioExchange exchange = new NioExchange(this, requestHead, requestUri, contextPath, requestBody, _localAddress, _remoteAddress);
+        _requestBody = requestBody;
+
+        if (isPipelined) {
+            _pipelinedExchanges.addLast(exchange);
+        }
+        else {
+            _exchange = exchange;
+            _isResponseQueued = false;
+            _isResponseWritten = false;
+            _shouldCloseAfterResponse = (! requestHead.isKeepAlive());
+
+            // NOTE: "100 Continue" is deferred until the handler reads the request body, so that requests rejected by the handler
+            //  (e.x. by path, authentication, or size) are answered before the client sends the body.
+            _isAwaitingContinue = ( (! _requestParser.isComplete()) && ("HTTP/1.1".equals(requestHead.getVersion())) && ("100-continue".equalsIgnoreCase(requestHead.getHeader("Expect"))) );
+            exchange.markTurn();
+        }
+
+        try {
+            _executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        exchangeHandler.handle(exchange);
+                    }
+                    catch (final Exception exception) {
+                        Logger.warn(NioConnection.class, "Uncaught exception within request handler.", exception);
+
+                        // NOTE: A handler that returns normally may complete the Exchange later from another thread.
+                        if (! exchange.isComplete()) {
+                            final Response response = new Response();
+                            response.setCode(Response.Codes.SERVER_ERROR);
+                            try {
+                                exchange.sendResponse(response);
+                            }
+                            catch (final IOException sendException) { }
+                        }
+                    }
+                }
+            });
+        }
+        catch (final RejectedExecutionException exception) {
+            Logger.warn(NioConnection.class, "Request rejected by executor.", exception);
+            try {
+                exchange.sendResponse(REJECTED_RESPONSE); // Written in turn, after any preceding pipelined responses, and then the connection is closed...
+            }
+            catch (final IOException sendException) {
+                _close();
+            }
+        }
+    }
+
+    /**
+     * Parses the next pipelined request while the current response is pending, dispatching it if it does not need to wait.
+     *  Returns true if another request may be read ahead.
+     */
+    protected Boolean _readAhead() throws HttpParseException {
+        if (! _canReadAhead()) { return false; }
+        if (! _readBuffer.hasRemaining()) { return false; }
+
+        if (! _isReadingAhead) {
+            _requestParser.reset();
+            _isReadingAhead = true;
+        }
+
+        if (! _requestParser.parseHead(_readBuffer)) { return false; }
+
+        final HttpRequestParser.RequestHead requestHead = _requestParser.getRequestHead();
+        if ( (! _requestParser.isComplete()) || (! _isEagerlyDispatchable(requestHead)) ) {
+            _isHeadPending = true; // Dispatched once the preceding responses have been written...
+            return false;
+        }
+
+        _dispatch();
+        _requestParser.reset();
+        return (! _isClosed);
+    }
+
+    /**
+     * Moves to the next pipelined Exchange once the current response has been written, writing its response if it is ready.
+     */
+    protected void _advancePipeline() {
+        _isResponseQueued = false;
+        _isResponseWritten = false;
+        _isAwaitingContinue = false;
+
+        final NioExchange nextExchange = _pipelinedExchanges.pollFirst();
+        if (nextExchange == null) {
+            _exchange = null;
+            if (! _isReadingAhead) {
+                _requestBody = null;
+                _requestParser.reset();
+            }
+
+            if (_pipelineErrorResponseCode != null) {
+                final Integer responseCode = _pipelineErrorResponseCode;
+                _pipelineErrorResponseCode = null;
+                _sendErrorAndClose(responseCode);
+            }
+            return;
+        }
+
+        _exchange = nextExchange;
+        _shouldCloseAfterResponse = (! nextExchange.getRequestHead().isKeepAlive());
+        nextExchange.markTurn();
+
+        final Runnable deferredResponseWriter = nextExchange._deferredResponseWriter;
+        if (deferredResponseWriter != null) {
+            nextExchange._deferredResponseWriter = null;
+            deferredResponseWriter.run();
+        }
+    }
+
+    /**
+     * Parses and dispatches any buffered bytes, in accordance with the current request's state.
+     */
+    protected void _processInput() {
+        if (_isClosed) { return; }
+        if (_isProcessingInput) { return; } // Writes may complete synchronously and attempt to resume reading...
+
+        _isProcessingInput = true;
+        _readBuffer.flip();
+        try {
+            while (! _isClosed) {
+                if (_exchange == null) {
+                    if (! _isHeadPending) {
+                        if (_isInputShutdown) { break; }
+                        if (! _readBuffer.hasRemaining()) { break; }
+
+                        if (_isAwaitingHttp2Preface) {
+                            final Boolean isHttp2 = _isHttp2Preface();
+                            if (isHttp2 == null) { break; }
+                            if (isHttp2) {
+                                _upgradeToHttp2(null);
+                                break;
+                            }
+                            _isAwaitingHttp2Preface = false;
+                        }
+                        if (! _requestParser.parseHead(_readBuffer)) { break; }
+                    }
+
+                    _isHeadPending = false;
+                    _isReadingAhead = false;
+                    _dispatch();
+                    if ( (_exchange == null) || (_isClosed) ) { break; }
+                }
+
+                if (! _isReadingAhead) {
+                    if (! _requestParser.isComplete()) {
+                        _requestParser.parseBody(_readBuffer, _requestBody);
+                        if (! _requestParser.isComplete()) { break; }
+                    }
+                    _requestBody.complete();
+                }
+
+                if (_isResponseWritten) {
+                    _exchange._requestBody.discard(); // Returns any unread body bytes to the pool...
+
+                    if (_shouldCloseAfterResponse) {
+                        _close();
+                        break;
+                    }
+
+                    _advancePipeline();
+                    continue;
+                }
+
+                if (! _readAhead()) { break; }
+            }
+        }
+        catch (final HttpParseException exception) {
+            if (_isReadingAhead) {
+                _rejectRequest(exception.getResponseCode());
+            }
+            else {
+                _sendErrorAndClose(exception.getResponseCode());
+            }
+        }
+        finally {
+            _readBuffer.compact();
+            _isProcessingInput = false;
+
+            if (_isClosed) {
+                _releaseReadBuffer();
+            }
+        }
+
+        _updateInterestOps();
+    }
+
+    protected void _onReadable() {
+        while (_shouldRead()) {
+            final int byteCount;
+            try {
+                byteCount = (_tlsChannel != null ? _tlsChannel.read(_readBuffer) : _socketChannel.read(_readBuffer));
+            }
+            catch (final IOException exception) {
+                _close();
+                return;
+            }
+
+            if (byteCount < 0) {
+                _close();
+                return;
+            }
+
+            if (byteCount == 0) { break; }
+
+            _lastActivityMs = System.currentTimeMillis();
+            _processInput();
+        }
+
+        _processInput();
+    }
+
+    public NioConnection(final SelectorLoop selectorLoop, final SocketChannel socketChannel, final TlsChannel tlsChannel, final NioServerEngine.Router router, final Executor executor, final Integer maxHeadByteCount, final Long idleTimeoutMs, final Boolean isHttp2Enabled) throws IOException {
+        _selectorLoop = selectorLoop;
+        _socketChannel = socketChannel;
+        _tlsChannel = tlsChannel;
+        _router = router;
+        _executor = executor;
+        _maxHeadByteCount = maxHeadByteCount;
+        _idleTimeoutMs = idleTimeoutMs;
+        _isHttp2Enabled = isHttp2Enabled;
+        _isAwaitingHttp2Preface = isHttp2Enabled;
+        _localAddress = socketChannel.getLocalAddress();
+        _remoteAddress = socketChannel.getRemoteAddress();
+
+        _requestParser = new HttpRequestParser(maxHeadByteCount);
+        if (tlsChannel != null) {
+            // TlsChannel.read() requires space for an entire TLS record...
+            _minimumReadByteCount = tlsChannel.getApplicationBufferSize();
+            _readBuffer = BUFFER_POOL.acquire(_minimumReadByteCount * 2);
+        }
+        else {
+            _minimumReadByteCount = 1;
+            _readBuffer = BUFFER_POOL.acquire(READ_BUFFER_BYTE_COUNT);
+        }
+
+        _lastActivityMs = System.currentTimeMillis();
+    }
+
+    /**
+     * Registers the connection with its SelectorLoop and begins reading.
+     */
+    public void register() throws IOException {
+        _selectionKey = _selectorLoop.register(_socketChannel, SelectionKey.OP_READ, this);
+
+        if (_tlsChannel != null) {
+            _tlsChannel.getSslEngine().beginHandshake();
+        }
+    }
+
+    /**
+     * Queues the response for writing.  May be invoked from any thread.
+     */
+    public void sendResponse(final NioExchange exchange, final Response response) throws IOException {
+        if (response.isContentStreamed()) {
+            exchange.awaitTurn(); // Streamed content is written as it is produced, so it must wait for the preceding responses...
+            _sendStreamedResponse(exchange, response);
+            return;
+        }
+
+        _selectorLoop.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (_isClosed) { return; }
+                if (exchange != _exchange) {
+                    if (_pipelinedExchanges.contains(exchange)) {
+                        exchange._deferredResponseWriter = this; // Written once the preceding responses have been written...
+                    }
+                    return;
+                }
+
+                final Integer responseCode = response.getCode();
+                final boolean isHeadRequest = "HEAD".equalsIgnoreCase(exchange.getRequestMethod());
+                final boolean isBodyForbidden = HttpResponseEncoder.isBodyForbidden(responseCode);
+                final byte[] content = Util.coalesce(response.getContent(), EMPTY_CONTENT);
+
+                final String connectionHeaderValue = _prepareResponse(exchange, response, false);
+                if (response instanceof CannedResponse) { // The status line and headers were serialized when the CannedResponse was first sent...
+                    final CannedResponse cannedResponse = (CannedResponse) response;
+                    _queueWrite(HttpResponseEncoder.encodeCannedHead(cannedResponse));
+                    _queueWrite(HttpResponseEncoder.encodeCannedHeadTrailer(cannedResponse, connectionHeaderValue));
+                }
+                else {
+                    final Long contentLength = (isBodyForbidden ? null : (long) content.length);
+                    _queueWrite(HttpResponseEncoder.encodeHead(response, contentLength, false, connectionHeaderValue));
+                }
+                if ( (! isHeadRequest) && (! isBodyForbidden) && (content.length > 0) ) {
+                    _queueWrite(content);
+                }
+
+                _isResponseQueued = true;
+                _flush();
+            }
+        });
+    }
+
+    /**
+     * Queues a portion of a streamed response's content, blocking while too many bytes are waiting to be written.
+     *  Must not be invoked from the SelectorLoop's thread.
+     */
+    @Override
+    public void writeStreamedContent(final ByteBuffer byteBuffer) throws IOException {
+        synchronized (_outputMonitor) {
+            while ( (_pendingOutputByteCount >= MAX_PENDING_OUTPUT_BYTE_COUNT) && (! _isOutputClosed) ) {
+                try {
+                    _outputMonitor.wait();
+                }
+                catch (final InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while writing response.", exception);
+                }
+            }
+            if (_isOutputClosed) {
+                BUFFER_POOL.release(byteBuffer);
+                throw new IOException("Connection closed.");
+            }
+
+            _pendingOutputByteCount += byteBuffer.remaining();
+        }
+
+        _selectorLoop.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (_isClosed) {
+                    BUFFER_POOL.release(byteBuffer);
+                    return;
+                }
+
+                _writeQueue.addLast(byteBuffer); // The bytes were already counted as pending...
+                _flush();
+            }
+        });
+    }
+
+    /**
+     * Marks the streamed response as complete; if the content did not match its declared length, the connection is closed once written.
+     *  May be invoked from any thread.
+     */
+    public void completeStreamedResponse(final Boolean wasContentComplete) {
+        _selectorLoop.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (_isClosed) { return; }
+
+                if (! wasContentComplete) {
+                    _shouldCloseAfterResponse = true;
+                }
+
+                _isResponseQueued = true;
+                _flush();
+            }
+        });
+    }
+
+    /**
+     * Closes the connection after a failure while streaming a response whose headers were already sent.
+     *  May be invoked from any thread.
+     */
+    public void abortStreamedResponse() {
+        _selectorLoop.execute(new Runnable() {
+            @Override
+            public void run() {
+                _close();
+            }
+        });
+    }
+
+    /**
+     * Sends the upgrade response and detaches the connection from the SelectorLoop.
+     *  Blocks until the response has been written; returns null if the connection was closed beforehand.
+     *  Must not be invoked from the SelectorLoop's thread.
+     *  NOTE: A ConnectionLayer requires a TCP Socket, so upgrades are refused (without sending anything) on Unix domain sockets.
+     */
+    public ConnectionLayer upgradeToWebSocket(final NioExchange exchange, final Response response) throws IOException {
+        if (! (_localAddress instanceof InetSocketAddress)) { return null; }
+
+        final Object mutex = new Object();
+        final ConnectionLayer[] connectionLayerContainer = new ConnectionLayer[1];
+        final boolean[] isCompleteContainer = new boolean[1];
+
+        final Runnable onComplete = new Runnable() {
+            @Override
+            public void run() {
+                synchronized (mutex) {
+                    isCompleteContainer[0] = true;
+                    mutex.notifyAll();
+                }
+            }
+        };
+
+        _selectorLoop.execute(new Runnable() {
+            @Override
+            public void run() {
+                if ( (_isClosed) || (exchange != _exchange) || (! _requestParser.isComplete()) ) {
+                    onComplete.run();
+                    return;
+                }
+
+                _isInputShutdown = true;
+                _onResponseWrittenCallback = new Runnable() {
+                    @Override
+                    public void run() {
+                        _selectorLoop.deregister(_selectionKey, new Runnable() {
+                            @Override
+                            public void run() {
+                                try {
+                                    _socketChannel.configureBlocking(true);
+                                    final Socket socket = _socketChannel.socket();
+                                    if (_tlsChannel != null) {
+                                        connectionLayerContainer[0] = ConnectionLayer.newSecureConnectionLayer(socket, _tlsChannel.newBlockingInputStream(), _tlsChannel.newBlockingOutputStream());
+                                    }
+                                    else {
+                                        connectionLayerContainer[0] = ConnectionLayer.newConnectionLayer(socket);
+                                    }
+
+                                    _isClosed = true; // The socket is now owned by the ConnectionLayer...
+                                    _releaseReadBuffer();
+                                }
+                                catch (final Exception exception) {
+                                    Logger.warn(NioConnection.class, "Unable to upgrade connection.", exception);
+                                    _close();
+                                }
+                                finally {
+                                    onComplete.run(); // The upgrading worker is always woken, even if the upgrade failed...
+                                }
+                            }
+                        });
+                    }
+                };
+
+                _queueWrite(HttpResponseEncoder.encodeHead(response, null, false, Response.Headers.WebSocket.Values.CONNECTION));
+                _isResponseQueued = true;
+                _flush();
+
+                if (_isClosed) {
+                    onComplete.run();
+                }
+            }
+        });
+
+        synchronized (mutex) {
+            while (! isCompleteContainer[0]) {
+                try {
+                    mutex.wait();
+                }
+                catch (final InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while upgrading connection.", exception);
+                }
+            }
+        }
+
+        return connectionLayerContainer[0];
+    }
+
+    @Override
+    public void onSelected(final SelectionKey selectionKey) {
+        if (selectionKey.isWritable()) {
+            _flush();
+            if (_isClosed) { return; } // The flush may have closed the connection, cancelling its key...
+        }
+
+        if ( (selectionKey.isReadable()) || ( (_tlsChannel != null) && (selectionKey.isWritable()) ) ) {
+            // TLS handshakes may be blocked on writes, so reads are retried once the socket becomes writable.
+            _onReadable();
+        }
+    }
+
+    @Override
+    public void onTick(final Long nowMs) {
+        if (_isClosed) { return; }
+
+        final boolean isWaitingOnClient = ( ( (_shouldRead()) && (! _isAwaitingResponse()) ) || (_hasPendingOutput()) );
+        if (! isWaitingOnClient) { return; }
+
+        if ((nowMs - _lastActivityMs) >= _idleTimeoutMs) {
+            _close();
+        }
+    }
+
+    @Override
+    public void onShutdown() {
+        _close();
+    }
+}
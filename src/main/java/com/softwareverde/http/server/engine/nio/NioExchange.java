@@ -0,0 +1,152 @@
+package com.softwareverde.http.server.engine.nio;
+
+import com.softwareverde.http.server.engine.Exchange;
+import com.softwareverde.http.server.servlet.request.HostInformation;
+import com.softwareverde.http.server.engine.UnixDomainSockets;
+import com.softwareverde.http.server.servlet.request.InetSocketAddressHostInformation;
+import com.softwareverde.http.server.servlet.request.UnixDomainSocketHostInformation;
+import com.softwareverde.http.server.servlet.response.Response;
+import com.softwareverde.http.websocket.ConnectionLayer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * <p>An Exchange for a single request received by a NioConnection.</p>
+ *
+ * <p>The Exchange is used by a worker thread; writes are handed off to the connection's selector thread, so
+ * NioExchange.sendResponse() returns without waiting for the response to be written to the socket.  Streamed content is
+ * produced on the calling thread, which blocks while the socket falls behind.</p>
+ */
+class NioExchange implements Exchange {
+    protected final NioConnection _connection;
+    protected final HttpRequestParser.RequestHead _requestHead;
+    protected final URI _requestUri;
+    protected final String _contextPath;
+    protected final RequestBodyInputStream _requestBody;
+    protected final SocketAddress _localAddress;
+    protected final SocketAddress _remoteAddress;
+
+    protected volatile Boolean _isComplete = false;
+
+    protected final CountDownLatch _turnLatch = new CountDownLatch(1); // Released once the preceding pipelined responses have been written.
+    protected Runnable _deferredResponseWriter = null; // Accessed by the connection's selector thread only.
+
+    /**
+     * Returns the HostInformation of the connection's address, which is either an InetSocketAddress or a Unix domain socket address.
+     */
+    static HostInformation createHostInformation(final SocketAddress socketAddress) {
+        if (socketAddress instanceof InetSocketAddress) {
+            return new InetSocketAddressHostInformation((InetSocketAddress) socketAddress);
+        }
+
+        final String socketPath = UnixDomainSockets.getPath(socketAddress);
+        return new UnixDomainSocketHostInformation(socketPath != null ? socketPath : "");
+    }
+
+    public NioExchange(final NioConnection connection, final HttpRequestParser.RequestHead requestHead, final URI requestUri, final String contextPath, final RequestBodyInputStream requestBody, final SocketAddress localAddress, final SocketAddress remoteAddress) {
+        _connection = connection;
+        _requestHead = requestHead;
+        _requestUri = requestUri;
+        _contextPath = contextPath;
+        _requestBody = requestBody;
+        _localAddress = localAddress;
+        _remoteAddress = remoteAddress;
+    }
+
+    public HttpRequestParser.RequestHead getRequestHead() {
+        return _requestHead;
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return _requestHead.getMethod();
+    }
+
+    @Override
+    public URI getRequestUri() {
+        return _requestUri;
+    }
+
+    @Override
+    public String getContextPath() {
+        return _contextPath;
+    }
+
+    @Override
+    public Map<String, List<String>> getRequestHeaders() {
+        return _requestHead.getHeaders();
+    }
+
+    @Override
+    public HostInformation getLocalHostInformation() {
+        return NioExchange.createHostInformation(_localAddress);
+    }
+
+    @Override
+    public HostInformation getRemoteHostInformation() {
+        return NioExchange.createHostInformation(_remoteAddress);
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+        return _requestBody;
+    }
+
+    @Override
+    public void sendResponse(final Response response) throws IOException {
+        synchronized (this) {
+            if (_isComplete) { throw new IOException("Response already sent."); }
+            _isComplete = true;
+        }
+
+        _connection.sendResponse(this, HttpResponseEncoder.requireValidHead(response));
+    }
+
+    @Override
+    public ConnectionLayer upgradeToWebSocket(final Response response) throws IOException {
+        if (HttpResponseEncoder.findInvalidHeader(response) != null) { return null; } // Nothing is sent; the Exchange may still be completed via NioExchange.sendResponse()...
+
+        synchronized (this) {
+            if (_isComplete) { throw new IOException("Response already sent."); }
+            _isComplete = true;
+        }
+
+        final ConnectionLayer connectionLayer = _connection.upgradeToWebSocket(this, response);
+        if (connectionLayer == null) {
+            _isComplete = false; // Nothing was sent; the Exchange may still be completed via NioExchange.sendResponse()...
+        }
+        return connectionLayer;
+    }
+
+    public Boolean isComplete() {
+        return _isComplete;
+    }
+
+    /**
+     * Marks the Exchange as the connection's current Exchange; its response may now be written.
+     *  Invoked from the selector thread.
+     */
+    public void markTurn() {
+        _turnLatch.countDown();
+    }
+
+    /**
+     * Blocks until the responses of the requests pipelined before this Exchange have been written (or the connection has closed).
+     */
+    public void awaitTurn() throws IOException {
+        try {
+            _turnLatch.await();
+        }
+        catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while awaiting pipelined responses.", exception);
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package com.softwareverde.http.server.engine.nio;
+
+import com.softwareverde.http.server.engine.ExchangeHandler;
+import com.softwareverde.http.server.engine.ServerEngine;
+import com.softwareverde.http.server.engine.UnixDomainSockets;
+import com.softwareverde.logging.Logger;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.Executor;
+
+/**
+ * <p>A ServerEngine that multiplexes connections across a small number of selector threads via non-blocking NIO.</p>
+ *
+ * <p>Idle keep-alive connections and connections with partially received requests consume no worker threads; a worker
+ * thread from the provided Executor is only used once a request head has been completely received.  TLS is performed
+ * via an SSLEngine on the selector threads.</p>
+ */
+public class NioServerEngine implements ServerEngine {
+    public static final Long DEFAULT_IDLE_TIMEOUT_MS = 30000L;
+
+    /**
+     * Matches request paths to endpoints by the longest matching prefix, in the same manner as com.sun.net.httpserver.
+     */
+    static class Router {
+        protected final Map<String, ExchangeHandler> _exchangeHandlers;
+        protected final List<String> _contextPaths;
+
+        public Router(final Map<String, ExchangeHandler> exchangeHandlers) {
+            _exchangeHandlers = new HashMap<String, ExchangeHandler>(exchangeHandlers);
+            _contextPaths = new ArrayList<String>(exchangeHandlers.keySet());
+        }
+
+        /**
+         * Returns the longest registered context path that prefixes the path, or null if none match.
+         */
+        public String findContextPath(final String path) {
+            String bestContextPath = null;
+            for (final String contextPath : _contextPaths) {
+                if (! path.startsWith(contextPath)) { continue; }
+                if ( (bestContextPath == null) || (contextPath.length() > bestContextPath.length()) ) {
+                    bestContextPath = contextPath;
+                }
+            }
+            return bestContextPath;
+        }
+
+        public ExchangeHandler getExchangeHandler(final String contextPath) {
+            return _exchangeHandlers.get(contextPath);
+        }
+    }
+
+    protected final Integer _selectorThreadCount;
+    protected Integer _maxHeadByteCount = HttpRequestParser.DEFAULT_MAX_HEAD_BYTE_COUNT;
+    protected Long _idleTimeoutMs = DEFAULT_IDLE_TIMEOUT_MS;
+
+    protected Integer _acceptorCount = 1;
+    protected Boolean _isHttp2Enabled = false;
+    protected Boolean _isBufferLeakDetectionEnabled = false;
+
+    protected final List<SelectorLoop> _selectorLoops = new ArrayList<SelectorLoop>();
+    protected final List<ServerSocketChannel> _serverSocketChannels = new ArrayList<ServerSocketChannel>();
+    protected final List<Thread> _acceptorThreads = new ArrayList<Thread>();
+    protected String _unixDomainSocketPath = null;
+    protected volatile Boolean _isRunning = false;
+
+    protected SSLEngine _createSslEngine(final SSLContext sslContext) {
+        final SSLEngine sslEngine = sslContext.createSSLEngine();
+        sslEngine.setUseClientMode(false);
+        sslEngine.setEnabledProtocols(new String[]{ "TLSv1.1", "TLSv1.2", "TLSv1.3" });
+        sslEngine.setNeedClientAuth(false);
+
+        if (_isHttp2Enabled) {
+            final SSLParameters sslParameters = sslEngine.getSSLParameters();
+            sslParameters.setApplicationProtocols(new String[]{ "h2", "http/1.1" });
+            sslEngine.setSSLParameters(sslParameters);
+        }
+
+        return sslEngine;
+    }
+
+    protected ServerSocketChannel _openServerSocketChannel(final InetSocketAddress address, final Integer backlogCount, final Boolean shouldReusePort) throws IOException {
+        final ServerSocketChannel serverSocketChannel = ServerSocketChannel.open();
+        try {
+            serverSocketChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            if (shouldReusePort) {
+                serverSocketChannel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            }
+            serverSocketChannel.bind(address, backlogCount);
+        }
+        catch (final IOException exception) {
+            serverSocketChannel.close();
+            throw exception;
+        }
+        return serverSocketChannel;
+    }
+
+    protected void _accept(final ServerSocketChannel serverSocketChannel, final SSLContext sslContext, final Router router, final Executor executor, final Integer acceptorIndex) {
+        int nextSelectorLoopIndex = (acceptorIndex % _selectorLoops.size()); // Offset each acceptor so concurrent bursts are spread across the selectors...
+        final boolean isUnixDomainSocket = (_unixDomainSocketPath != null); // Unix domain sockets do not support TCP_NODELAY...
+
+        while (_isRunning) {
+            final SocketChannel socketChannel;
+            try {
+                socketChannel = serverSocketChannel.accept();
+            }
+            catch (final ClosedChannelException exception) {
+                break;
+            }
+            catch (final IOException exception) {
+                if (_isRunning) {
+                    Logger.warn(NioServerEngine.class, "Unable to accept connection.", exception);
+                }
+                continue;
+            }
+
+            final SelectorLoop selectorLoop = _selectorLoops.get(nextSelectorLoopIndex);
+            nextSelectorLoopIndex = ((nextSelectorLoopIndex + 1) % _selectorLoops.size());
+
+            try {
+                socketChannel.configureBlocking(false);
+                if (! isUnixDomainSocket) {
+                    socketChannel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                }
+
+                final TlsChannel tlsChannel = (sslContext != null ? new TlsChannel(socketChannel, _createSslEngine(sslContext)) : null);
+                final NioConnection nioConnection = new NioConnection(selectorLoop, socketChannel, tlsChannel, router, executor, _maxHeadByteCount, _idleTimeoutMs, _isHttp2Enabled);
+                selectorLoop.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            nioConnection.register();
+                        }
+                        catch (final Exception exception) {
+                            Logger.debug(NioServerEngine.class, "Unable to register connection.", exception);
+                            nioConnection.onShutdown();
+                        }
+                    }
+                });
+            }
+            catch (final Exception exception) {
+                Logger.debug(NioServerEngine.class, "Unable to initialize connection.", exception);
+                try {
+                    socketChannel.close();
+                }
+                catch (final IOException closeException) { }
+            }
+        }
+    }
+
+    public NioServerEngine() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public NioServerEngine(final Integer selectorThreadCount) {
+        _selectorThreadCount = Math.max(1, selectorThreadCount);
+    }
+
+    /**
+     * Sets the maximum size of a request's request-line and headers; larger requests are rejected with a 414 or 431.
+     *  Must be set before ServerEngine.start() is invoked.
+     */
+    public void setMaxHeadByteCount(final Integer maxHeadByteCount) {
+        _maxHeadByteCount = maxHeadByteCount;
+    }
+
+    /**
+     * Sets the number of listening sockets bound to the address, each accepting connections on its own thread.
+     *  When greater than one, each socket is bound with SO_REUSEPORT so that the kernel balances new connections across them;
+     *  if SO_REUSEPORT is unsupported by the platform, the acceptor threads instead share a single listening socket.
+     *  NOTE: On Linux, SO_REUSEPORT permits other processes of the same user to bind to the same port.
+     *  Must be set before ServerEngine.start() is invoked.
+     */
+    @Override
+    public void setAcceptorCount(final Integer acceptorCount) {
+        _acceptorCount = Math.max(1, acceptorCount);
+    }
+
+    /**
+     * Enables HTTP/2 for connections to this listener.
+     *  Encrypted connections negotiate HTTP/2 via ALPN; unencrypted connections may begin with the HTTP/2 connection
+     *  preface (i.e. "prior knowledge") or upgrade their first request via "Upgrade: h2c".
+     *  The maximum head size (NioServerEngine.setMaxHeadByteCount()) is advertised as SETTINGS_MAX_HEADER_LIST_SIZE.
+     *  Must be set before ServerEngine.start() is invoked.
+     */
+    @Override
+    public void enableHttp2(final Boolean isHttp2Enabled) {
+        _isHttp2Enabled = isHttp2Enabled;
+    }
+
+    /**
+     * Sets the duration a connection may remain idle (or stalled mid-request) before it is closed.
+     *  Must be set before ServerEngine.start() is invoked.
+     */
+    public void setIdleTimeout(final Long idleTimeoutMs) {
+        _idleTimeoutMs = idleTimeoutMs;
+    }
+
+    /**
+     * Records where each pooled I/O buffer is acquired, and logs the buffers that have not been released once the engine is stopped.
+     *  Leak detection adds overhead to every request and is intended for debugging.
+     *  NOTE: The buffer pool is shared by all NioServerEngines within the process.
+     *  Must be set before ServerEngine.start() is invoked.
+     */
+    public void enableBufferLeakDetection(final Boolean isBufferLeakDetectionEnabled) {
+        _isBufferLeakDetectionEnabled = isBufferLeakDetectionEnabled;
+    }
+
+    @Override
+    public void start(final InetSocketAddress address, final Integer backlogCount, final SSLContext sslContext, final Map<String, ExchangeHandler> exchangeHandlers, final Executor executor) throws IOException {
+        final Router router = new Router(exchangeHandlers);
+
+        if (_isBufferLeakDetectionEnabled) {
+            ByteBufferPool.getSharedInstance().enableLeakDetection(true);
+        }
+
+        final List<ServerSocketChannel> acceptorServerSocketChannels = new ArrayList<ServerSocketChannel>(_acceptorCount);
+        try {
+            final ServerSocketChannel serverSocketChannel = ServerSocketChannel.open();
+            final boolean isReusePortSupported = serverSocketChannel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+            serverSocketChannel.close();
+
+            final boolean shouldReusePort = ( (_acceptorCount > 1) && isReusePortSupported );
+            if ( (_acceptorCount > 1) && (! isReusePortSupported) ) {
+                Logger.warn(NioServerEngine.class, "SO_REUSEPORT is not supported; acceptors will share a single listening socket.");
+            }
+
+            final ServerSocketChannel firstServerSocketChannel = _openServerSocketChannel(address, backlogCount, shouldReusePort);
+            _serverSocketChannels.add(firstServerSocketChannel);
+            acceptorServerSocketChannels.add(firstServerSocketChannel);
+
+            // NOTE: The bound address is used for the remaining sockets in case the provided address requested an ephemeral port.
+            final InetSocketAddress boundAddress = (InetSocketAddress) firstServerSocketChannel.getLocalAddress();
+            for (int i = 1; i < _acceptorCount; ++i) {
+                if (shouldReusePort) {
+                    final ServerSocketChannel acceptorServerSocketChannel = _openServerSocketChannel(boundAddress, backlogCount, true);
+                    _serverSocketChannels.add(acceptorServerSocketChannel);
+                    acceptorServerSocketChannels.add(acceptorServerSocketChannel);
+                }
+                else {
+                    acceptorServerSocketChannels.add(firstServerSocketChannel);
+                }
+            }
+        }
+        catch (final IOException exception) {
+            for (final ServerSocketChannel serverSocketChannel : _serverSocketChannels) {
+                try {
+                    serverSocketChannel.close();
+                }
+                catch (final IOException closeException) { }
+            }
+            _serverSocketChannels.clear();
+            throw exception;
+        }
+
+        _start(acceptorServerSocketChannels, ("NioServerEngine-" + address.getPort()), sslContext, router, executor);
+    }
+
+    /**
+     * Binds to the Unix domain socket at the path and begins serving requests; the socket file is deleted once the engine is stopped.
+     *  An existing socket file at the path (e.x. left behind by a previous process) is replaced.
+     *  All acceptors share the single listening socket.
+     *  NOTE: Unix domain sockets require Java 16 or later; on earlier JVMs an IOException is thrown.
+     */
+    @Override
+    public void startUnixDomainSocket(final String socketPath, final Integer backlogCount, final SSLContext sslContext, final Map<String, ExchangeHandler> exchangeHandlers, final Executor executor) throws IOException {
+        final Router router = new Router(exchangeHandlers);
+
+        final ServerSocketChannel serverSocketChannel = UnixDomainSockets.openServerSocketChannel(socketPath, backlogCount);
+        _serverSocketChannels.add(serverSocketChannel);
+        _unixDomainSocketPath = socketPath;
+
+        final List<ServerSocketChannel> acceptorServerSocketChannels = new ArrayList<ServerSocketChannel>(_acceptorCount);
+        for (int i = 0; i < _acceptorCount; ++i) {
+            acceptorServerSocketChannels.add(serverSocketChannel);
+        }
+
+        final String socketFileName = String.valueOf(Paths.get(socketPath).getFileName());
+        _start(acceptorServerSocketChannels, ("NioServerEngine-" + socketFileName), sslContext, router, executor);
+    }
+
+    @Override
+    public Boolean isUnixDomainSocketSupported() {
+        return UnixDomainSockets.isSupported();
+    }
+
+    protected void _start(final List<ServerSocketChannel> acceptorServerSocketChannels, final String threadNamePrefix, final SSLContext sslContext, final Router router, final Executor executor) throws IOException {
+        for (int i = 0; i < _selectorThreadCount; ++i) {
+            final SelectorLoop selectorLoop = new SelectorLoop(threadNamePrefix + "-Selector-" + i);
+            _selectorLoops.add(selectorLoop);
+        }
+
+        _isRunning = true;
+        for (final SelectorLoop selectorLoop : _selectorLoops) {
+            selectorLoop.start();
+        }
+
+        for (int i = 0; i < acceptorServerSocketChannels.size(); ++i) {
+            final ServerSocketChannel serverSocketChannel = acceptorServerSocketChannels.get(i);
+            final Integer acceptorIndex = i;
+
+            final Thread acceptorThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    _accept(serverSocketChannel, sslContext, router, executor, acceptorIndex);
+                }
+            });
+            acceptorThread.setName(threadNamePrefix + "-Acceptor" + (_acceptorCount > 1 ? ("-" + i) : ""));
+            acceptorThread.start();
+            _acceptorThreads.add(acceptorThread);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (! _isRunning) { return; }
+        _isRunning = false;
+
+        for (final ServerSocketChannel serverSocketChannel : _serverSocketChannels) {
+            try {
+                serverSocketChannel.close();
+            }
+            catch (final IOException exception) { }
+        }
+
+        for (final Thread acceptorThread : _acceptorThreads) {
+            try {
+                acceptorThread.join(5000L);
+            }
+            catch (final InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        for (final SelectorLoop selectorLoop : _selectorLoops) {
+            selectorLoop.stop();
+        }
+        _selectorLoops.clear();
+
+        _serverSocketChannels.clear();
+        _acceptorThreads.clear();
+
+        final String unixDomainSocketPath = _unixDomainSocketPath;
+        if (unixDomainSocketPath != null) {
+            try {
+                Files.deleteIfExists(Paths.get(unixDomainSocketPath));
+            }
+            catch (final IOException exception) {
+                Logger.debug(NioServerEngine.class, "Unable to delete socket file: " + unixDomainSocketPath, exception);
+            }
+            _unixDomainSocketPath = null;
+        }
+
+        if (_isBufferLeakDetectionEnabled) {
+            ByteBufferPool.getSharedInstance().logLeasedBuffers();
+        }
+    }
+}
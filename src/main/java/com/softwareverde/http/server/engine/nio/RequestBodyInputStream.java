@@ -0,0 +1,213 @@
+package com.softwareverde.http.server.engine.nio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * <p>A blocking InputStream of request body bytes, written by a selector thread and read by a worker thread.</p>
+ *
+ * <p>At most maxBufferedByteCount bytes are buffered; once full, the selector stops reading from the socket until the
+ * worker has consumed enough bytes to invoke the drainedCallback.</p>
+ *
+ * <p>Buffered bytes are held within pooled ByteBuffers, which are returned to the ByteBufferPool once consumed, discarded,
+ * or failed.</p>
+ */
+class RequestBodyInputStream extends InputStream implements HttpRequestParser.BodySink {
+    protected final Object _mutex = new Object();
+    protected final ByteBufferPool _byteBufferPool = ByteBufferPool.getSharedInstance();
+    protected final ArrayDeque<ByteBuffer> _chunks = new ArrayDeque<ByteBuffer>(); // Each chunk is in read-mode.
+    protected final Integer _maxBufferedByteCount;
+    protected final Runnable _drainedCallback;
+
+    protected int _bufferedByteCount = 0;
+    protected boolean _isComplete = false;
+    protected boolean _isDiscarding = false;
+    protected boolean _wasFull = false;
+    protected boolean _isReadRequested = false;
+    protected IOException _failure = null;
+
+    /**
+     * Returns the buffered chunks to the pool.  Must be invoked while holding the stream's lock.
+     */
+    protected void _releaseChunks() {
+        while (! _chunks.isEmpty()) {
+            _byteBufferPool.release(_chunks.removeFirst());
+        }
+        _bufferedByteCount = 0;
+    }
+
+    /**
+     * Invoked by the reading thread after each read, outside of the stream's lock.
+     */
+    protected void _onRead(final int byteCount) { }
+
+    /**
+     * Invoked by the reading thread upon its first read, before waiting for any bytes, outside of the stream's lock.
+     *  Used to request the body from a client awaiting "100 Continue".
+     */
+    protected void _onFirstRead() { }
+
+    public RequestBodyInputStream(final Integer maxBufferedByteCount, final Runnable drainedCallback) {
+        _maxBufferedByteCount = maxBufferedByteCount;
+        _drainedCallback = drainedCallback;
+    }
+
+    @Override
+    public int getAvailableByteCount() {
+        synchronized (_mutex) {
+            if (_isDiscarding) { return Integer.MAX_VALUE; }
+
+            final int availableByteCount = (_maxBufferedByteCount - _bufferedByteCount);
+            if (availableByteCount <= 0) {
+                _wasFull = true;
+                return 0;
+            }
+            return availableByteCount;
+        }
+    }
+
+    @Override
+    public void write(final ByteBuffer byteBuffer, final int byteCount) {
+        synchronized (_mutex) {
+            if (_isDiscarding) {
+                byteBuffer.position(byteBuffer.position() + byteCount);
+                return;
+            }
+
+            final int limit = byteBuffer.limit();
+            byteBuffer.limit(byteBuffer.position() + byteCount);
+
+            final ByteBuffer tailChunk = _chunks.peekLast();
+            if ( (tailChunk != null) && ((tailChunk.capacity() - tailChunk.limit()) >= byteCount) ) {
+                // Append to the previous chunk, so that a slowly-sent body does not consume a pooled buffer per read...
+                final int readPosition = tailChunk.position();
+                tailChunk.position(tailChunk.limit());
+                tailChunk.limit(tailChunk.capacity());
+                tailChunk.put(byteBuffer);
+                tailChunk.limit(tailChunk.position());
+                tailChunk.position(readPosition);
+            }
+            else {
+                final ByteBuffer chunk = _byteBufferPool.acquire(byteCount);
+                chunk.put(byteBuffer);
+                chunk.flip();
+                _chunks.addLast(chunk);
+            }
+
+            byteBuffer.limit(limit);
+            _bufferedByteCount += byteCount;
+            _mutex.notifyAll();
+        }
+    }
+
+    /**
+     * Marks the end of the body; readers will receive end-of-stream once the buffered bytes have been consumed.
+     */
+    public void complete() {
+        synchronized (_mutex) {
+            _isComplete = true;
+            _mutex.notifyAll();
+        }
+    }
+
+    /**
+     * Fails any current and future reads with the provided exception (e.x. when the connection is closed mid-body).
+     */
+    public void fail(final IOException exception) {
+        synchronized (_mutex) {
+            if (_isComplete) { return; }
+
+            _failure = exception;
+            _releaseChunks();
+            _mutex.notifyAll();
+        }
+    }
+
+    /**
+     * Drops any buffered bytes and causes all future bytes to be discarded as they are received.
+     *  Used once the response has been sent without the handler having consumed the entire body, and to return the
+     *  buffered bytes to the pool once the exchange has completed.
+     */
+    public void discard() {
+        synchronized (_mutex) {
+            _isDiscarding = true;
+            _releaseChunks();
+            _mutex.notifyAll();
+        }
+    }
+
+    public Boolean isComplete() {
+        synchronized (_mutex) {
+            return _isComplete;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        final byte[] buffer = new byte[1];
+        final int byteCount = this.read(buffer, 0, 1);
+        if (byteCount <= 0) { return -1; }
+        return (buffer[0] & 0xFF);
+    }
+
+    @Override
+    public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+        if (length == 0) { return 0; }
+
+        final boolean isFirstRead;
+        synchronized (_mutex) {
+            isFirstRead = (! _isReadRequested);
+            _isReadRequested = true;
+        }
+        if (isFirstRead) {
+            _onFirstRead();
+        }
+
+        final boolean shouldNotifyDrained;
+        final int byteCount;
+        synchronized (_mutex) {
+            while (_chunks.isEmpty()) {
+                if (_failure != null) { throw _failure; }
+                if ( (_isComplete) || (_isDiscarding) ) { return -1; }
+
+                try {
+                    _mutex.wait();
+                }
+                catch (final InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while reading request body.", exception);
+                }
+            }
+
+            final ByteBuffer chunk = _chunks.peekFirst();
+            byteCount = Math.min(length, chunk.remaining());
+            chunk.get(buffer, offset, byteCount);
+            if (! chunk.hasRemaining()) {
+                _chunks.removeFirst();
+                _byteBufferPool.release(chunk);
+            }
+            _bufferedByteCount -= byteCount;
+
+            shouldNotifyDrained = ( (_wasFull) && (_bufferedByteCount <= (_maxBufferedByteCount / 2)) );
+            if (shouldNotifyDrained) {
+                _wasFull = false;
+            }
+        }
+
+        if (shouldNotifyDrained) {
+            _drainedCallback.run();
+        }
+        _onRead(byteCount);
+
+        return byteCount;
+    }
+
+    @Override
+    public int available() {
+        synchronized (_mutex) {
+            return _bufferedByteCount;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.softwareverde.http.server.engine.nio;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>The OutputStream provided to a ContentWriter by the NioServerEngine.</p>
+ *
+ * <p>Bytes are buffered within a pooled ByteBuffer and handed to the ContentSink (the NioConnection, or an HTTP/2 stream)
+ * in chunks; if chunked, each chunk is framed with chunked transfer-encoding in place, within space reserved around the
+ * content.  Writes block while the client is not keeping up.</p>
+ */
+class ResponseBodyOutputStream extends OutputStream {
+    /**
+     * Receives each buffered portion of the content; may block while the client is not keeping up.
+     *  NOTE: Ownership of the ByteBuffer is transferred to the ContentSink, which must return it to the ByteBufferPool
+     *  once written (or if it cannot be written).
+     */
+    public interface ContentSink {
+        void writeStreamedContent(ByteBuffer byteBuffer) throws IOException;
+    }
+
+    protected static final Integer BUFFER_BYTE_COUNT = 16384;
+    protected static final byte[] CRLF = new byte[]{ '\r', '\n' };
+    protected static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+    protected static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.ISO_8859_1);
+    protected static final Integer CHUNK_HEADER_BYTE_COUNT = 10; // Up to 8 hexadecimal digits, followed by CRLF.
+
+    protected final ByteBufferPool _byteBufferPool = ByteBufferPool.getSharedInstance();
+    protected final ContentSink _contentSink;
+    protected final Boolean _isChunked;
+    protected final Long _contentByteCount;
+
+    protected ByteBuffer _buffer = null; // Acquired upon the first write after each flush.
+    protected long _writtenByteCount = 0L;
+    protected boolean _isClosed = false;
+
+    /**
+     * Acquires a buffer whose position and limit exclude the space reserved for chunk framing.
+     */
+    protected ByteBuffer _acquireBuffer() {
+        final ByteBuffer byteBuffer = _byteBufferPool.acquire(BUFFER_BYTE_COUNT);
+        if (_isChunked) {
+            byteBuffer.position(CHUNK_HEADER_BYTE_COUNT);
+            byteBuffer.limit(byteBuffer.capacity() - CRLF.length);
+        }
+        return byteBuffer;
+    }
+
+    protected void _flushBuffer() throws IOException {
+        final ByteBuffer byteBuffer = _buffer;
+        if (byteBuffer == null) { return; }
+
+        final int contentStartIndex = (_isChunked ? CHUNK_HEADER_BYTE_COUNT : 0);
+        final int byteCount = (byteBuffer.position() - contentStartIndex);
+        if (byteCount == 0) { return; }
+
+        if (_isChunked) {
+            byteBuffer.limit(byteBuffer.capacity());
+            byteBuffer.put(CRLF);
+            final int endIndex = byteBuffer.position();
+
+            int startIndex = (CHUNK_HEADER_BYTE_COUNT - CRLF.length);
+            byteBuffer.put(startIndex, CRLF[0]);
+            byteBuffer.put(startIndex + 1, CRLF[1]);
+
+            int remainingValue = byteCount;
+            do { // Write the chunk size's hexadecimal digits backwards, ending immediately before the CRLF...
+                startIndex -= 1;
+                byteBuffer.put(startIndex, HEX_DIGITS[remainingValue & 0x0F]);
+                remainingValue >>>= 4;
+            } while (remainingValue != 0);
+
+            byteBuffer.limit(endIndex);
+            byteBuffer.position(startIndex);
+        }
+        else {
+            byteBuffer.flip();
+        }
+
+        _buffer = null;
+        _contentSink.writeStreamedContent(byteBuffer);
+    }
+
+    public ResponseBodyOutputStream(final ContentSink contentSink, final Boolean isChunked, final Long contentByteCount) {
+        _contentSink = contentSink;
+        _isChunked = isChunked;
+        _contentByteCount = contentByteCount;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        this.write(new byte[]{ (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+        if (_isClosed) { throw new IOException("Stream closed."); }
+        if ( (_contentByteCount != null) && ((_writtenByteCount + length) > _contentByteCount) ) {
+            throw new IOException("Content exceeds declared length: " + _contentByteCount);
+        }
+
+        int index = 0;
+        while (index < length) {
+            if (_buffer == null) {
+                _buffer = _acquireBuffer();
+            }
+
+            final int byteCount = Math.min(length - index, _buffer.remaining());
+            _buffer.put(bytes, offset + index, byteCount);
+            index += byteCount;
+
+            if (! _buffer.hasRemaining()) {
+                _flushBuffer();
+            }
+        }
+
+        _writtenByteCount += length;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (_isClosed) { return; }
+        _flushBuffer();
+    }
+
+    /**
+     * Writes any buffered content and, if chunked, the terminating chunk.  Does not close the connection.
+     */
+    @Override
+    public void close() throws IOException {
+        if (_isClosed) { return; }
+
+        _flushBuffer();
+        if (_isChunked) {
+            _contentSink.writeStreamedContent(ByteBuffer.wrap(LAST_CHUNK));
+        }
+        _isClosed = true;
+        this.release();
+    }
+
+    /**
+     * Returns the stream's buffer to the ByteBufferPool without writing its contents.
+     *  Invoked once the content has been written, or once the content can no longer be written.
+     */
+    public void release() {
+        final ByteBuffer byteBuffer = _buffer;
+        _buffer = null;
+        _byteBufferPool.release(byteBuffer);
+    }
+
+    /**
+     * Returns true if the content length was unknown, or if exactly the declared number of bytes were written.
+     */
+    public Boolean isContentComplete() {
+        if (_contentByteCount == null) { return true; }
+        return (_writtenByteCount == _contentByteCount);
+    }
+}
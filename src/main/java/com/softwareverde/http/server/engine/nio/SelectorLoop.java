@@ -0,0 +1,202 @@
+package com.softwareverde.http.server.engine.nio;
+
+import com.softwareverde.logging.Logger;
+
+import java.io.IOException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * <p>A single thread that multiplexes many non-blocking connections via a Selector.</p>
+ *
+ * <p>All interaction with the Selector and its registered channels is performed on the loop's thread; other threads
+ * submit work via SelectorLoop.execute().</p>
+ */
+class SelectorLoop {
+    public interface SelectionHandler {
+        void onSelected(SelectionKey selectionKey);
+
+        /**
+         * Invoked approximately once per second with the current time, in milliseconds.
+         */
+        void onTick(Long nowMs);
+
+        /**
+         * Invoked when the loop is shut down while the handler is still registered.
+         */
+        void onShutdown();
+    }
+
+    protected static final Long TICK_INTERVAL_MS = 1000L;
+
+    protected final Selector _selector;
+    protected final ConcurrentLinkedQueue<Runnable> _tasks = new ConcurrentLinkedQueue<Runnable>();
+    protected final List<Runnable> _pendingDeregistrationCallbacks = new ArrayList<Runnable>();
+    protected final Thread _thread;
+    protected volatile Boolean _isRunning = false;
+
+    protected void _runTasks() {
+        Runnable task;
+        while ((task = _tasks.poll()) != null) {
+            try {
+                task.run();
+            }
+            catch (final Exception exception) {
+                Logger.warn(SelectorLoop.class, "Uncaught exception within selector task.", exception);
+            }
+        }
+    }
+
+    protected void _processSelectedKeys() {
+        final Set<SelectionKey> selectedKeys = _selector.selectedKeys();
+        final Iterator<SelectionKey> iterator = selectedKeys.iterator();
+        while (iterator.hasNext()) {
+            final SelectionKey selectionKey = iterator.next();
+            iterator.remove();
+
+            if (! selectionKey.isValid()) { continue; }
+
+            final SelectionHandler selectionHandler = (SelectionHandler) selectionKey.attachment();
+            try {
+                selectionHandler.onSelected(selectionKey);
+            }
+            catch (final Exception exception) {
+                Logger.warn(SelectorLoop.class, "Uncaught exception within selection handler.", exception);
+            }
+        }
+    }
+
+    protected void _tick(final Long nowMs) {
+        for (final SelectionKey selectionKey : new ArrayList<SelectionKey>(_selector.keys())) {
+            if (! selectionKey.isValid()) { continue; }
+
+            final SelectionHandler selectionHandler = (SelectionHandler) selectionKey.attachment();
+            try {
+                selectionHandler.onTick(nowMs);
+            }
+            catch (final Exception exception) {
+                Logger.warn(SelectorLoop.class, "Uncaught exception within selection handler.", exception);
+            }
+        }
+    }
+
+    protected void _run() {
+        ByteBufferPool.getSharedInstance().enableThreadLocalCache(); // Connections acquire and release their buffers on the loop's thread...
+        long lastTickMs = System.currentTimeMillis();
+
+        while (_isRunning) {
+            _runTasks();
+
+            try {
+                _selector.select(TICK_INTERVAL_MS);
+            }
+            catch (final IOException exception) {
+                Logger.warn(SelectorLoop.class, "Selector failure.", exception);
+                break;
+            }
+
+            if (! _pendingDeregistrationCallbacks.isEmpty()) {
+                // Cancelled keys are deregistered during the select operation; their channels may now be made blocking.
+                final List<Runnable> callbacks = new ArrayList<Runnable>(_pendingDeregistrationCallbacks);
+                _pendingDeregistrationCallbacks.clear();
+                for (final Runnable callback : callbacks) {
+                    try {
+                        callback.run();
+                    }
+                    catch (final Exception exception) {
+                        Logger.warn(SelectorLoop.class, "Uncaught exception within deregistration callback.", exception);
+                    }
+                }
+            }
+
+            _processSelectedKeys();
+
+            final long nowMs = System.currentTimeMillis();
+            if ((nowMs - lastTickMs) >= TICK_INTERVAL_MS) {
+                lastTickMs = nowMs;
+                _tick(nowMs);
+            }
+        }
+
+        for (final SelectionKey selectionKey : new ArrayList<SelectionKey>(_selector.keys())) {
+            final SelectionHandler selectionHandler = (SelectionHandler) selectionKey.attachment();
+            try {
+                selectionHandler.onShutdown();
+            }
+            catch (final Exception exception) { }
+        }
+
+        try {
+            _selector.close();
+        }
+        catch (final IOException exception) { }
+    }
+
+    public SelectorLoop(final String threadName) throws IOException {
+        _selector = Selector.open();
+        _thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                _run();
+            }
+        });
+        _thread.setName(threadName);
+        _thread.setDaemon(false);
+    }
+
+    public void start() {
+        _isRunning = true;
+        _thread.start();
+    }
+
+    public void stop() {
+        _isRunning = false;
+        _selector.wakeup();
+
+        if (Thread.currentThread() != _thread) {
+            try {
+                _thread.join(5000L);
+            }
+            catch (final InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Runs the task on the loop's thread.  If invoked from the loop's thread, the task is run on the next iteration.
+     */
+    public void execute(final Runnable task) {
+        _tasks.add(task);
+        if (Thread.currentThread() != _thread) {
+            _selector.wakeup();
+        }
+    }
+
+    public Boolean isLoopThread() {
+        return (Thread.currentThread() == _thread);
+    }
+
+    /**
+     * Registers the channel with the loop's Selector.  Must be invoked from the loop's thread.
+     */
+    public SelectionKey register(final SelectableChannel channel, final int interestOps, final SelectionHandler selectionHandler) throws IOException {
+        return channel.register(_selector, interestOps, selectionHandler);
+    }
+
+    /**
+     * Cancels the selectionKey and invokes the callback, on the loop's thread, once the channel is no longer registered.
+     *  Must be invoked from the loop's thread.
+     */
+    public void deregister(final SelectionKey selectionKey, final Runnable callback) {
+        selectionKey.cancel();
+        _pendingDeregistrationCallbacks.add(callback);
+        _selector.wakeup();
+    }
+}
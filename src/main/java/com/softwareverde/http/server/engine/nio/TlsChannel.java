@@ -0,0 +1,348 @@
+package com.softwareverde.http.server.engine.nio;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * <p>Encrypts and decrypts application bytes for a SocketChannel via an SSLEngine.</p>
+ *
+ * <p>The channel may be in non-blocking mode, in which case TlsChannel.read() and TlsChannel.write() return early when the
+ * socket is not ready; the handshake is driven implicitly by both operations.  If TlsChannel.hasPendingOutput() returns
+ * true, the caller should wait for the socket to become writable and then invoke TlsChannel.flush().</p>
+ */
+class TlsChannel {
+    protected static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
+
+    protected final SocketChannel _socketChannel;
+    protected final SSLEngine _sslEngine;
+
+    protected ByteBuffer _networkInputBuffer;     // Write-mode; bytes received from the socket that have not been unwrapped.
+    protected ByteBuffer _networkOutputBuffer;    // Read-mode; wrapped bytes that have not been written to the socket.
+    protected boolean _isInboundClosed = false;
+
+    protected void _runDelegatedTasks() {
+        Runnable task;
+        while ((task = _sslEngine.getDelegatedTask()) != null) {
+            task.run();
+        }
+    }
+
+    /**
+     * Returns true if another wrap may make progress after one that consumed no application bytes.
+     *  Mid-handshake, wrap() only produces handshake bytes; once the handshake awaits the peer (e.x. NEED_UNWRAP), it produces nothing
+     *  until more bytes are read, so writing must stop (and resume once the socket is readable or writable).
+     */
+    protected Boolean _canContinueWrapping(final SSLEngineResult result) {
+        if (result.bytesConsumed() > 0) { return true; }
+        if (result.bytesProduced() <= 0) { return false; }
+        return (_sslEngine.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_WRAP);
+    }
+
+    protected static ByteBuffer _enlarge(final ByteBuffer byteBuffer, final int minimumCapacity) {
+        final ByteBuffer newBuffer = ByteBuffer.allocate(Math.max(minimumCapacity, byteBuffer.capacity() * 2));
+        byteBuffer.flip();
+        newBuffer.put(byteBuffer);
+        return newBuffer;
+    }
+
+    /**
+     * Wraps the application bytes (or handshake data, if src is empty) into the network output buffer.
+     *  The network output buffer must be fully flushed before invoking this function.
+     */
+    protected SSLEngineResult _wrap(final ByteBuffer src) throws SSLException {
+        return _wrap(new ByteBuffer[]{ src }, 0, 1);
+    }
+
+    /**
+     * Wraps the application bytes of consecutive buffers into the network output buffer, combining them within the same TLS record.
+     *  The network output buffer must be fully flushed before invoking this function.
+     */
+    protected SSLEngineResult _wrap(final ByteBuffer[] srcs, final int offset, final int length) throws SSLException {
+        while (true) {
+            _networkOutputBuffer.compact();
+            final SSLEngineResult result;
+            try {
+                result = _sslEngine.wrap(srcs, offset, length, _networkOutputBuffer);
+            }
+            finally {
+                _networkOutputBuffer.flip();
+            }
+
+            if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                final SSLSession sslSession = _sslEngine.getSession();
+                _networkOutputBuffer.compact();
+                _networkOutputBuffer = _enlarge(_networkOutputBuffer, sslSession.getPacketBufferSize());
+                _networkOutputBuffer.flip();
+                continue;
+            }
+
+            if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+                _runDelegatedTasks();
+            }
+
+            return result;
+        }
+    }
+
+    public TlsChannel(final SocketChannel socketChannel, final SSLEngine sslEngine) {
+        _socketChannel = socketChannel;
+        _sslEngine = sslEngine;
+
+        final SSLSession sslSession = sslEngine.getSession();
+        _networkInputBuffer = ByteBuffer.allocate(sslSession.getPacketBufferSize());
+        _networkOutputBuffer = ByteBuffer.allocate(sslSession.getPacketBufferSize());
+        _networkOutputBuffer.flip();
+    }
+
+    public SSLEngine getSslEngine() {
+        return _sslEngine;
+    }
+
+    /**
+     * Returns the minimum size of a buffer provided to TlsChannel.read().
+     */
+    public int getApplicationBufferSize() {
+        return _sslEngine.getSession().getApplicationBufferSize();
+    }
+
+    /**
+     * Writes any pending network bytes to the socket.  Returns true if all pending bytes were written.
+     */
+    public Boolean flush() throws IOException {
+        while (_networkOutputBuffer.hasRemaining()) {
+            final int byteCount = _socketChannel.write(_networkOutputBuffer);
+            if (byteCount <= 0) { return false; }
+        }
+        return true;
+    }
+
+    public Boolean hasPendingOutput() {
+        return _networkOutputBuffer.hasRemaining();
+    }
+
+    /**
+     * Reads and decrypts as many application bytes into dst as are available without blocking (when non-blocking).
+     *  Returns the number of application bytes read, or -1 if the peer has closed the connection.
+     */
+    public int read(final ByteBuffer dst) throws IOException {
+        final int startPosition = dst.position();
+        boolean needsNetworkBytes = (_networkInputBuffer.position() == 0);
+
+        while (true) {
+            final SSLEngineResult.HandshakeStatus handshakeStatus = _sslEngine.getHandshakeStatus();
+            if (handshakeStatus == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+                _runDelegatedTasks();
+                continue;
+            }
+
+            if (handshakeStatus == SSLEngineResult.HandshakeStatus.NEED_WRAP) {
+                if (! flush()) { break; } // The socket is not writable; wait for the caller to flush...
+                final SSLEngineResult result = _wrap(EMPTY_BUFFER);
+                if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                    flush();
+                    if (dst.position() == startPosition) { return -1; }
+                    break;
+                }
+                continue;
+            }
+
+            if (_isInboundClosed) {
+                if (dst.position() == startPosition) { return -1; }
+                break;
+            }
+
+            if (needsNetworkBytes) {
+                if (! _networkInputBuffer.hasRemaining()) {
+                    _networkInputBuffer = _enlarge(_networkInputBuffer, _sslEngine.getSession().getPacketBufferSize());
+                }
+
+                final int byteCount = _socketChannel.read(_networkInputBuffer);
+                if (byteCount < 0) {
+                    _isInboundClosed = true;
+                    try {
+                        _sslEngine.closeInbound();
+                    }
+                    catch (final SSLException exception) { } // Truncation without a close_notify is common and ignored...
+                    if (dst.position() == startPosition) { return -1; }
+                    break;
+                }
+                if (byteCount == 0) { break; }
+                needsNetworkBytes = false;
+            }
+
+            _networkInputBuffer.flip();
+            final SSLEngineResult result;
+            try {
+                result = _sslEngine.unwrap(_networkInputBuffer, dst);
+            }
+            finally {
+                _networkInputBuffer.compact();
+            }
+
+            final SSLEngineResult.Status status = result.getStatus();
+            if (status == SSLEngineResult.Status.BUFFER_UNDERFLOW) {
+                needsNetworkBytes = true;
+                continue;
+            }
+
+            if (status == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                if (dst.position() == startPosition) {
+                    throw new IOException("TLS application buffer too small.");
+                }
+                break; // The caller must consume dst before more bytes can be unwrapped...
+            }
+
+            if (status == SSLEngineResult.Status.CLOSED) {
+                _isInboundClosed = true;
+                continue; // A close_notify response may need to be wrapped...
+            }
+
+            if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+                _runDelegatedTasks();
+            }
+
+            if (_networkInputBuffer.position() == 0) {
+                needsNetworkBytes = true;
+                if ( (dst.position() > startPosition) && (_sslEngine.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING) ) {
+                    break; // Return the application bytes without attempting another (likely empty) socket read...
+                }
+            }
+        }
+
+        return (dst.position() - startPosition);
+    }
+
+    /**
+     * Encrypts and writes as many bytes from src as possible without blocking (when non-blocking).
+     *  Returns the number of application bytes consumed from src, which may be fewer than are remaining (or none) while handshaking.
+     */
+    public int write(final ByteBuffer src) throws IOException {
+        final int startPosition = src.position();
+
+        while (src.hasRemaining()) {
+            if (! flush()) { break; }
+
+            final SSLEngineResult result = _wrap(src);
+            if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                throw new IOException("TLS connection closed.");
+            }
+            if (! _canContinueWrapping(result)) { break; }
+        }
+
+        flush();
+        return (src.position() - startPosition);
+    }
+
+    /**
+     * Encrypts and writes as many bytes from the buffers as possible without blocking (when non-blocking).
+     *  Bytes from consecutive buffers share TLS records, so small buffers (e.x. a response's head and body) are sent together.
+     *  Returns the number of application bytes consumed from the buffers, which may be fewer than are remaining (or none) while handshaking.
+     */
+    public long write(final ByteBuffer[] srcs, final int offset, final int length) throws IOException {
+        long byteCount = 0L;
+        int index = offset;
+        while (index < (offset + length)) {
+            if (! srcs[index].hasRemaining()) {
+                index += 1;
+                continue;
+            }
+
+            if (! flush()) { break; }
+
+            final SSLEngineResult result = _wrap(srcs, index, (offset + length) - index);
+            if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                throw new IOException("TLS connection closed.");
+            }
+            byteCount += result.bytesConsumed();
+            if (! _canContinueWrapping(result)) { break; }
+        }
+
+        flush();
+        return byteCount;
+    }
+
+    /**
+     * Sends a close_notify to the peer, if possible without blocking.
+     */
+    public void close() {
+        try {
+            _sslEngine.closeOutbound();
+            while ( (flush()) && (! _sslEngine.isOutboundDone()) ) {
+                final SSLEngineResult result = _wrap(EMPTY_BUFFER);
+                if (result.bytesProduced() <= 0) { break; }
+            }
+        }
+        catch (final Exception exception) { }
+    }
+
+    /**
+     * Returns an InputStream that reads application bytes; the channel must be in blocking mode.
+     */
+    public InputStream newBlockingInputStream() {
+        return new InputStream() {
+            protected final ByteBuffer _buffer = (ByteBuffer) ByteBuffer.allocate(TlsChannel.this.getApplicationBufferSize()).flip();
+
+            @Override
+            public int read() throws IOException {
+                final byte[] bytes = new byte[1];
+                final int byteCount = this.read(bytes, 0, 1);
+                if (byteCount <= 0) { return -1; }
+                return (bytes[0] & 0xFF);
+            }
+
+            @Override
+            public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+                if (length == 0) { return 0; }
+
+                while (! _buffer.hasRemaining()) {
+                    _buffer.clear();
+                    final int byteCount = TlsChannel.this.read(_buffer);
+                    _buffer.flip();
+                    if (byteCount < 0) { return -1; }
+                }
+
+                final int byteCount = Math.min(length, _buffer.remaining());
+                _buffer.get(bytes, offset, byteCount);
+                return byteCount;
+            }
+
+            @Override
+            public void close() throws IOException {
+                _socketChannel.close();
+            }
+        };
+    }
+
+    /**
+     * Returns an OutputStream that writes application bytes; the channel must be in blocking mode.
+     */
+    public OutputStream newBlockingOutputStream() {
+        return new OutputStream() {
+            @Override
+            public void write(final int b) throws IOException {
+                this.write(new byte[]{ (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+                final ByteBuffer byteBuffer = ByteBuffer.wrap(bytes, offset, length);
+                while (byteBuffer.hasRemaining()) {
+                    TlsChannel.this.write(byteBuffer);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                TlsChannel.this.close();
+                _socketChannel.close();
+            }
+        };
+    }
+}
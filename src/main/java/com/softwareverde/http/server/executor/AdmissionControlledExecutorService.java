@@ -0,0 +1,147 @@
+package com.softwareverde.http.server.executor;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>A fixed-size thread pool with a bounded queue whose tasks may be shed instead of run.</p>
+ *
+ * <p>A task is shed if the queue is full when it is submitted, or if the AdmissionController decides it waited too long
+ * once it reaches a worker.  Shed tasks are still run (so that the engine's connection handling completes), but
+ * AdmissionControlledExecutorService.isCurrentTaskShed() returns true while they run, allowing the request handler to
+ * respond cheaply instead of invoking the servlet.  Tasks shed due to a full queue are run on a small pool of dedicated
+ * threads (at least two, so that one slow client cannot stall every shed response); if that pool is also backlogged, the
+ * task is rejected.  Idle shed threads are not kept alive.</p>
+ */
+public class AdmissionControlledExecutorService extends AbstractExecutorService {
+    protected static final ThreadLocal<Boolean> IS_CURRENT_TASK_SHED = new ThreadLocal<Boolean>();
+    protected static final Integer MIN_SHED_THREAD_COUNT = 2;
+    protected static final Long SHED_THREAD_KEEP_ALIVE_MS = 30000L;
+
+    /**
+     * Returns true if the task running on the current thread was shed by an AdmissionControlledExecutorService.
+     */
+    public static Boolean isCurrentTaskShed() {
+        final Boolean isCurrentTaskShed = IS_CURRENT_TASK_SHED.get();
+        return ( (isCurrentTaskShed != null) && isCurrentTaskShed );
+    }
+
+    protected static void _run(final Runnable runnable, final Boolean isShed) {
+        IS_CURRENT_TASK_SHED.set(isShed);
+        try {
+            runnable.run();
+        }
+        finally {
+            IS_CURRENT_TASK_SHED.remove();
+        }
+    }
+
+    protected class AdmissionTask implements Runnable {
+        protected final Runnable _runnable;
+        protected final Long _enqueuedNs;
+
+        public AdmissionTask(final Runnable runnable) {
+            _runnable = runnable;
+            _enqueuedNs = System.nanoTime();
+        }
+
+        @Override
+        public void run() {
+            final long waitNs = (System.nanoTime() - _enqueuedNs);
+            final Boolean shouldShed = _admissionController.shouldShed(waitNs, _threadPoolExecutor.getQueue().size());
+            if (shouldShed) {
+                _shedCount.incrementAndGet();
+            }
+
+            _run(_runnable, shouldShed);
+        }
+    }
+
+    protected final AdmissionController _admissionController;
+    protected final ThreadPoolExecutor _threadPoolExecutor;
+    protected final ThreadPoolExecutor _shedThreadPoolExecutor;
+    protected final AtomicLong _shedCount = new AtomicLong(0L);
+
+    /**
+     * @param threadCount           - The number of worker threads.
+     * @param maxQueuedTaskCount    - The maximum number of tasks waiting for a worker thread.
+     * @param admissionController   - Decides whether queued tasks are run or shed.
+     */
+    public AdmissionControlledExecutorService(final Integer threadCount, final Integer maxQueuedTaskCount, final AdmissionController admissionController) {
+        _admissionController = admissionController;
+
+        final Integer shedThreadCount = Math.max(MIN_SHED_THREAD_COUNT, (threadCount / 4));
+        _shedThreadPoolExecutor = new ThreadPoolExecutor(shedThreadCount, shedThreadCount, SHED_THREAD_KEEP_ALIVE_MS, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(maxQueuedTaskCount), new ThreadPoolExecutor.AbortPolicy());
+        _shedThreadPoolExecutor.allowCoreThreadTimeOut(true);
+
+        _threadPoolExecutor = new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(maxQueuedTaskCount), new RejectedExecutionHandler() {
+            @Override
+            public void rejectedExecution(final Runnable runnable, final ThreadPoolExecutor threadPoolExecutor) {
+                if (threadPoolExecutor.isShutdown()) {
+                    throw new RejectedExecutionException("Executor has been shut down.");
+                }
+
+                final AdmissionTask admissionTask = (AdmissionTask) runnable;
+                _shedCount.incrementAndGet();
+                _shedThreadPoolExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        _run(admissionTask._runnable, true);
+                    }
+                });
+            }
+        });
+    }
+
+    @Override
+    public void execute(final Runnable runnable) {
+        _threadPoolExecutor.execute(new AdmissionTask(runnable));
+    }
+
+    /**
+     * Returns the total number of tasks that have been shed.
+     */
+    public Long getShedCount() {
+        return _shedCount.get();
+    }
+
+    public Integer getQueuedCount() {
+        return _threadPoolExecutor.getQueue().size();
+    }
+
+    @Override
+    public void shutdown() {
+        _threadPoolExecutor.shutdown();
+        _shedThreadPoolExecutor.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        final List<Runnable> runnables = _threadPoolExecutor.shutdownNow();
+        runnables.addAll(_shedThreadPoolExecutor.shutdownNow());
+        return runnables;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return _threadPoolExecutor.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return ( _threadPoolExecutor.isTerminated() && _shedThreadPoolExecutor.isTerminated() );
+    }
+
+    @Override
+    public boolean awaitTermination(final long timeout, final TimeUnit timeUnit) throws InterruptedException {
+        final long deadlineNs = (System.nanoTime() + timeUnit.toNanos(timeout));
+        if (! _threadPoolExecutor.awaitTermination(timeout, timeUnit)) { return false; }
+        return _shedThreadPoolExecutor.awaitTermination(Math.max(0L, deadlineNs - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,105 @@
+package com.softwareverde.http.server.executor;
+
+/**
+ * <p>Decides whether a queued task should still be run, based upon how long it waited in the queue.</p>
+ *
+ * <p>Tasks that waited longer than the max wait are always shed.  Otherwise, a CoDel (Controlled Delay) policy is used:
+ * once the queue wait has remained above the target delay for an entire interval (i.e. the queue is persistently full
+ * rather than momentarily bursting), tasks are shed at an increasing rate until the queue wait drops below the target.</p>
+ *
+ *  NOTE: See "Controlling Queue Delay" (Nichols, Jacobson; ACM Queue, 2012).
+ */
+public class AdmissionController {
+    protected final Long _targetDelayNs;
+    protected final Long _intervalNs;
+    protected final Long _maxWaitNs;
+
+    protected long _firstAboveTargetNs = 0L;
+    protected long _nextShedNs = 0L;
+    protected int _shedCount = 0;
+    protected boolean _isShedding = false;
+
+    protected long _getNextShedTime(final long nowNs, final int shedCount) {
+        return (nowNs + (long) (_intervalNs / Math.sqrt(shedCount)));
+    }
+
+    /**
+     * Returns true if the queue wait has been above the target delay for at least an interval.
+     */
+    protected boolean _isPersistentlyAboveTarget(final long waitNs, final long nowNs, final int queuedCount) {
+        if ( (waitNs < _targetDelayNs) || (queuedCount == 0) ) {
+            _firstAboveTargetNs = 0L;
+            return false;
+        }
+
+        if (_firstAboveTargetNs == 0L) {
+            _firstAboveTargetNs = (nowNs + _intervalNs);
+            return false;
+        }
+
+        return (nowNs >= _firstAboveTargetNs);
+    }
+
+    /**
+     * @param targetDelayMs - The acceptable standing queue delay.
+     * @param intervalMs    - The duration the queue delay must remain above the target before tasks are shed; typically 10-20 times the target.
+     * @param maxWaitMs     - The queue delay beyond which a task is always shed.
+     */
+    public AdmissionController(final Long targetDelayMs, final Long intervalMs, final Long maxWaitMs) {
+        _targetDelayNs = (targetDelayMs * 1000000L);
+        _intervalNs = (intervalMs * 1000000L);
+        _maxWaitNs = (maxWaitMs * 1000000L);
+    }
+
+    /**
+     * Returns true if the task, having waited waitNs in the queue, should be shed instead of run.
+     *  queuedCount is the number of tasks remaining in the queue after the task was removed.
+     */
+    public synchronized Boolean shouldShed(final Long waitNs, final Integer queuedCount) {
+        final long nowNs = System.nanoTime();
+        final boolean isAboveTarget = _isPersistentlyAboveTarget(waitNs, nowNs, queuedCount);
+
+        if (waitNs > _maxWaitNs) {
+            return true;
+        }
+
+        if (_isShedding) {
+            if (! isAboveTarget) {
+                _isShedding = false;
+                return false;
+            }
+
+            if (nowNs >= _nextShedNs) {
+                _shedCount += 1;
+                _nextShedNs = _getNextShedTime(_nextShedNs, _shedCount);
+                return true;
+            }
+
+            return false;
+        }
+
+        if (isAboveTarget) {
+            _isShedding = true;
+
+            // Resume near the previous shedding rate if shedding stopped only recently...
+            final boolean wasRecentlyShedding = ((nowNs - _nextShedNs) < (8L * _intervalNs));
+            _shedCount = ( ((_shedCount > 2) && wasRecentlyShedding) ? (_shedCount - 2) : 1 );
+            _nextShedNs = _getNextShedTime(nowNs, _shedCount);
+            return true;
+        }
+
+        return false;
+    }
+
+    public Long getTargetDelayMs() {
+        return (_targetDelayNs / 1000000L);
+    }
+
+    public Long getIntervalMs() {
+        return (_intervalNs / 1000000L);
+    }
+
+    public Long getMaxWaitMs() {
+        return (_maxWaitNs / 1000000L);
+    }
+}
@@ -0,0 +1,191 @@
+package com.softwareverde.http.server.executor;
+
+import com.softwareverde.logging.Logger;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Isolates a group of tasks by bounding how many may run concurrently and how many may wait to run.</p>
+ *
+ * <p>Tasks are run on the Bulkhead's Executor, or on the submitting thread if no Executor is provided.  Once the
+ * concurrency limit is reached, tasks are queued (up to the max queue depth) and are run by the thread of the next task
+ * to complete; beyond that, tasks are rejected immediately so that callers may fail fast.</p>
+ */
+public class Bulkhead {
+    protected final Executor _executor;
+    protected final Integer _maxConcurrency;
+    protected final Integer _maxQueueDepth;
+
+    protected final Object _mutex = new Object();
+    protected final ArrayDeque<Runnable> _queue = new ArrayDeque<Runnable>();
+    protected int _activeCount = 0;
+
+    protected final AtomicLong _acceptedCount = new AtomicLong(0L);
+    protected final AtomicLong _rejectedCount = new AtomicLong(0L);
+    protected final AtomicLong _completedCount = new AtomicLong(0L);
+
+    protected void _runTask(final Runnable task) {
+        try {
+            task.run();
+        }
+        catch (final Exception exception) {
+            Logger.warn(Bulkhead.class, "Uncaught exception within bulkhead task.", exception);
+        }
+        finally {
+            _completedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Runs the task, and then any queued tasks, until the queue is empty; the active count is held throughout.
+     *  If a task throws an Error, the Error propagates, and the active count is passed to the next queued task (or released).
+     */
+    protected void _runTasks(final Runnable initialTask) {
+        Runnable task = initialTask;
+        while (task != null) {
+            boolean wasTaskCompleted = false;
+            try {
+                _runTask(task);
+                wasTaskCompleted = true;
+            }
+            finally {
+                final Runnable nextTask;
+                synchronized (_mutex) {
+                    nextTask = _queue.pollFirst();
+                    if (nextTask == null) {
+                        _activeCount -= 1;
+                    }
+                }
+
+                task = nextTask;
+                if ( (! wasTaskCompleted) && (nextTask != null) ) {
+                    _redispatch(nextTask); // This thread's run ends with the Error...
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the queued task (and any that follow) on another thread, retaining the active count held for it.
+     *  If there is no Executor (or it rejects the task), the task is returned to the queue and the active count is released,
+     *  so that the queue is resumed by the next task to be executed.
+     */
+    protected void _redispatch(final Runnable task) {
+        if (_executor != null) {
+            try {
+                _executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        _runTasks(task);
+                    }
+                });
+                return;
+            }
+            catch (final RejectedExecutionException exception) { }
+        }
+
+        synchronized (_mutex) {
+            _queue.addFirst(task);
+            _activeCount -= 1;
+        }
+    }
+
+    /**
+     * @param executor          - The Executor used to run tasks; if null, tasks are run on the submitting thread.
+     * @param maxConcurrency    - The maximum number of tasks that may run concurrently; if null, concurrency is unbounded.
+     * @param maxQueueDepth     - The maximum number of tasks waiting to run; if null, the queue is unbounded.
+     */
+    public Bulkhead(final Executor executor, final Integer maxConcurrency, final Integer maxQueueDepth) {
+        _executor = executor;
+        _maxConcurrency = (maxConcurrency != null ? maxConcurrency : Integer.MAX_VALUE);
+        _maxQueueDepth = (maxQueueDepth != null ? maxQueueDepth : Integer.MAX_VALUE);
+    }
+
+    /**
+     * Runs or queues the task.  Returns false, without running the task, if the Bulkhead is saturated.
+     *  If the Bulkhead has no Executor, the task (and possibly other queued tasks) are run before this function returns.
+     */
+    public Boolean execute(final Runnable task) {
+        synchronized (_mutex) {
+            if (_activeCount >= _maxConcurrency) {
+                if (_queue.size() >= _maxQueueDepth) {
+                    _rejectedCount.incrementAndGet();
+                    return false;
+                }
+
+                _queue.addLast(task);
+                _acceptedCount.incrementAndGet();
+                return true;
+            }
+
+            _activeCount += 1;
+        }
+
+        _acceptedCount.incrementAndGet();
+
+        if (_executor == null) {
+            _runTasks(task);
+            return true;
+        }
+
+        try {
+            _executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    _runTasks(task);
+                }
+            });
+        }
+        catch (final RejectedExecutionException exception) {
+            synchronized (_mutex) {
+                _activeCount -= 1;
+            }
+            _acceptedCount.decrementAndGet();
+            _rejectedCount.incrementAndGet();
+            return false;
+        }
+
+        return true;
+    }
+
+    public Integer getMaxConcurrency() {
+        return _maxConcurrency;
+    }
+
+    public Integer getMaxQueueDepth() {
+        return _maxQueueDepth;
+    }
+
+    public Integer getActiveCount() {
+        synchronized (_mutex) {
+            return _activeCount;
+        }
+    }
+
+    public Integer getQueuedCount() {
+        synchronized (_mutex) {
+            return _queue.size();
+        }
+    }
+
+    /**
+     * Returns the total number of tasks that have been run or queued.
+     */
+    public Long getAcceptedCount() {
+        return _acceptedCount.get();
+    }
+
+    /**
+     * Returns the total number of tasks that were rejected because the Bulkhead was saturated.
+     */
+    public Long getRejectedCount() {
+        return _rejectedCount.get();
+    }
+
+    public Long getCompletedCount() {
+        return _completedCount.get();
+    }
+}
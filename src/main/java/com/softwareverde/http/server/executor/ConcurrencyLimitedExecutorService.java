@@ -0,0 +1,91 @@
+package com.softwareverde.http.server.executor;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Bounds the number of tasks running concurrently within an ExecutorService that does not bound itself, such as an
+ * ExecutorService that creates a new virtual thread per task.</p>
+ *
+ * <p>Submitting a task never blocks; tasks beyond the limit wait (on their own thread) for a permit before running.</p>
+ */
+public class ConcurrencyLimitedExecutorService extends AbstractExecutorService {
+    protected final ExecutorService _executorService;
+    protected final Semaphore _semaphore;
+    protected final Integer _maxConcurrency;
+
+    public ConcurrencyLimitedExecutorService(final ExecutorService executorService, final Integer maxConcurrency) {
+        _executorService = executorService;
+        _maxConcurrency = maxConcurrency;
+        _semaphore = new Semaphore(maxConcurrency, true);
+    }
+
+    public Integer getMaxConcurrency() {
+        return _maxConcurrency;
+    }
+
+    /**
+     * Returns the number of tasks currently running (i.e. holding a permit).
+     */
+    public Integer getActiveCount() {
+        return (_maxConcurrency - _semaphore.availablePermits());
+    }
+
+    /**
+     * Returns an estimate of the number of tasks waiting for a permit.
+     */
+    public Integer getQueuedCount() {
+        return _semaphore.getQueueLength();
+    }
+
+    @Override
+    public void execute(final Runnable runnable) {
+        _executorService.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    _semaphore.acquire();
+                }
+                catch (final InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                try {
+                    runnable.run();
+                }
+                finally {
+                    _semaphore.release();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void shutdown() {
+        _executorService.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return _executorService.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return _executorService.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return _executorService.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(final long timeout, final TimeUnit timeUnit) throws InterruptedException {
+        return _executorService.awaitTermination(timeout, timeUnit);
+    }
+}
@@ -0,0 +1,27 @@
+package com.softwareverde.http.server.executor;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * <p>Provides virtual threads when running on a JVM that supports them.</p>
+ *
+ * <p>This implementation is used on JVMs prior to Java 21; the multi-release jar contains an alternate implementation
+ * (src/main/java21) that is used on Java 21 and later.</p>
+ */
+public class VirtualThreads {
+    protected VirtualThreads() { }
+
+    /**
+     * Returns true if virtual threads are supported by the running JVM.
+     */
+    public static Boolean isSupported() {
+        return false;
+    }
+
+    /**
+     * Returns an ExecutorService that runs each task on a new virtual thread, or null if virtual threads are not supported.
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor(final String threadNamePrefix) {
+        return null;
+    }
+}
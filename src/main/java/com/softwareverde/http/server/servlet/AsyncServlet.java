@@ -0,0 +1,30 @@
+package com.softwareverde.http.server.servlet;
+
+import com.softwareverde.http.server.servlet.request.Request;
+import com.softwareverde.http.server.servlet.response.Response;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <p>A Servlet whose Response may be completed after AsyncServlet.onRequestAsync() returns.</p>
+ *
+ * <p>The request's thread is released once the CompletableFuture is returned; the exchange is completed on the thread that
+ * resolves the CompletableFuture.  Handlers waiting on I/O should therefore return a pending CompletableFuture rather than
+ * blocking, so that a small pool of request threads may serve many concurrently waiting requests.</p>
+ */
+public interface AsyncServlet extends Servlet {
+    /**
+     * Returns a CompletableFuture that resolves to the Response for the Request.
+     *  If the CompletableFuture completes exceptionally, a server error is sent.
+     *  NOTE: If the request body has not been read by the time this method returns, it must be read before the CompletableFuture is resolved.
+     */
+    CompletableFuture<Response> onRequestAsync(Request request);
+
+    /**
+     * Blocks until the Response is available; only used by callers unaware of AsyncServlet.
+     */
+    @Override
+    default Response onRequest(final Request request) {
+        return this.onRequestAsync(request).join();
+    }
+}
@@ -1,15 +1,29 @@
 package com.softwareverde.http.server.servlet;
 
+import com.softwareverde.http.HttpMethod;
 import com.softwareverde.http.server.servlet.content.ContentTypeResolver;
+import com.softwareverde.http.server.servlet.request.Headers;
 import com.softwareverde.http.server.servlet.request.Request;
+import com.softwareverde.http.server.servlet.response.ContentWriter;
 import com.softwareverde.http.server.servlet.response.Response;
+import com.softwareverde.http.util.HeaderValueTokenizer;
 import com.softwareverde.util.IoUtil;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 public class DirectoryServlet implements Servlet {
@@ -17,27 +31,124 @@ public class DirectoryServlet implements Servlet {
         Response onFileNotFound(Request request);
     }
 
+    protected static final DateTimeFormatter HTTP_DATE_FORMATTER = DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
     public static void setCacheControl(final Response response, final Long maxCacheAge) {
         response.setHeader("cache-control", "private, max-age=" + maxCacheAge);
     }
 
-    protected Response _serveRawFile(final File file) {
-        final Response response = new Response();
+    /**
+     * Returns a strong entity-tag derived from the file's size and modification time.
+     */
+    protected static String _createEntityTag(final File file) {
+        return ("\"" + Long.toHexString(file.length()) + "-" + Long.toHexString(file.lastModified()) + "\"");
+    }
+
+    /**
+     * Returns true if the request's If-None-Match (or, in its absence, If-Modified-Since) header indicates that the
+     *  client's cached copy of the file is current.  Only GET and HEAD requests are evaluated.
+     */
+    protected static Boolean _isNotModified(final Request request, final String entityTag, final Long lastModifiedMs) {
+        final HttpMethod method = request.getMethod();
+        if ( (method != HttpMethod.GET) && (method != HttpMethod.HEAD) ) { return false; }
+
+        final Headers headers = request.getHeaders();
+
+        final List<String> ifNoneMatchValues = headers.getHeader("If-None-Match");
+        if (ifNoneMatchValues != null) {
+            final HeaderValueTokenizer headerValueTokenizer = new HeaderValueTokenizer();
+            for (final String ifNoneMatchValue : ifNoneMatchValues) {
+                headerValueTokenizer.reset(ifNoneMatchValue); // Entity-tags are quoted, and may contain commas...
+                while (headerValueTokenizer.nextElement()) {
+                    if (headerValueTokenizer.elementEquals("*")) { return true; }
+
+                    String requestedEntityTag = headerValueTokenizer.getElement(); // Entity-tags are compared case-sensitively...
+                    if (requestedEntityTag.startsWith("W/")) { // Weak comparison is used for If-None-Match...
+                        requestedEntityTag = requestedEntityTag.substring(2);
+                    }
+
+                    if (requestedEntityTag.equals(entityTag)) {
+                        return true;
+                    }
+                }
+            }
+            return false; // If-Modified-Since is ignored when If-None-Match is present...
+        }
+
+        final String ifModifiedSinceValue = headers.getFirst("If-Modified-Since");
+        if (ifModifiedSinceValue == null) { return false; }
+
+        try {
+            final ZonedDateTime ifModifiedSince = ZonedDateTime.parse(ifModifiedSinceValue.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            return ((lastModifiedMs / 1000L) <= ifModifiedSince.toEpochSecond());
+        }
+        catch (final DateTimeParseException exception) {
+            return false;
+        }
+    }
+
+    protected static void _setValidators(final Response response, final String entityTag, final Long lastModifiedMs) {
+        response.setHeader(Response.Headers.ETAG, entityTag);
+        response.setHeader(Response.Headers.LAST_MODIFIED, HTTP_DATE_FORMATTER.format(Instant.ofEpochMilli(lastModifiedMs)));
+    }
 
+    protected void _setContentHeaders(final Response response, final File file) {
         final String extension = _parseExtension(file.getName());
         if (_contentTypeResolver.isKnownExtension(extension)) {
             final String contentType = _contentTypeResolver.getContentType(extension);
             response.addHeader(Response.Headers.CONTENT_TYPE, contentType);
         }
 
-        response.setCode(Response.Codes.OK);
-        response.setContent(IoUtil.getFileContents(file));
-
         final Long maxCacheAge = _maxCacheAgeInSeconds;
         if (maxCacheAge != null) {
             DirectoryServlet.setCacheControl(response, maxCacheAge);
         }
+    }
+
+    protected Response _serveRawFile(final File file) {
+        final Response response = new Response();
+        _setContentHeaders(response, file);
+        response.setCode(Response.Codes.OK);
+        response.setContent(IoUtil.getFileContents(file));
+        return response;
+    }
+
+    /**
+     * Serves the file with its validators (ETag and Last-Modified), answering conditional requests with 304 Not Modified.
+     *  HEAD requests are answered with the file's metadata only; the declared Content-Length is the file's size, and
+     *  the file is not read.
+     */
+    protected Response _serveRawFile(final File file, final Request request) {
+        if (request == null) { return _serveRawFile(file); }
+
+        final Long lastModifiedMs = file.lastModified();
+        final String entityTag = _createEntityTag(file);
+
+        final Response response;
+        if (_isNotModified(request, entityTag, lastModifiedMs)) {
+            response = new Response();
+            response.setCode(Response.Codes.NOT_MODIFIED);
+            final Long maxCacheAge = _maxCacheAgeInSeconds;
+            if (maxCacheAge != null) {
+                DirectoryServlet.setCacheControl(response, maxCacheAge);
+            }
+        }
+        else if (request.getMethod() == HttpMethod.HEAD) {
+            response = new Response();
+            _setContentHeaders(response, file);
+            response.setCode(Response.Codes.OK);
+            response.setContentWriter(new ContentWriter() { // Not invoked for HEAD requests; the file is only read if the Response is sent for another method...
+                @Override
+                public void writeContent(final OutputStream outputStream) throws IOException {
+                    Files.copy(file.toPath(), outputStream);
+                }
+            }, file.length());
+        }
+        else {
+            response = _serveRawFile(file);
+        }
 
+        _setValidators(response, entityTag, lastModifiedMs);
         return response;
     }
 
@@ -72,7 +183,7 @@ public class DirectoryServlet implements Servlet {
         if (_servedFiles.containsKey(fileName)) {
             final File servedFile = _servedFiles.get(fileName);
             if (servedFile.isFile()) {
-                return _serveRawFile(servedFile);
+                return _serveRawFile(servedFile, request);
             }
         }
 
@@ -169,7 +280,7 @@ public class DirectoryServlet implements Servlet {
 
     public Response serveFile(final File file, final Request request) {
         if (file.isFile() && file.canRead()) {
-            return _serveRawFile(file);
+            return _serveRawFile(file, request);
         }
 
         final ErrorHandler errorHandler = _errorHandler;
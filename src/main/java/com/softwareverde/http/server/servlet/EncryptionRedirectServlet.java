@@ -5,8 +5,6 @@ import com.softwareverde.http.server.servlet.request.Request;
 import com.softwareverde.http.server.servlet.response.Response;
 import com.softwareverde.util.Util;
 
-import java.util.List;
-
 public class EncryptionRedirectServlet implements Servlet {
     public static final Integer standardHttpsPort = 443;
 
@@ -16,12 +14,9 @@ public class EncryptionRedirectServlet implements Servlet {
 
     protected String _getServerHostnameWithPort(final Request request) {
         final Headers headers = request.getHeaders();
-        if (headers.containsHeader("host")) {
-            final List<String> headerValues = headers.getHeader("host");
-            final String hostHeaderValue = Util.coalesce(headerValues.get(0));
-            if (! hostHeaderValue.isEmpty()) {
-                return hostHeaderValue;
-            }
+        final String hostHeaderValue = Util.coalesce(headers.getFirst("host"));
+        if (! hostHeaderValue.isEmpty()) {
+            return hostHeaderValue;
         }
 
         return request.getLocalHostInformation().resolveHostName();
@@ -50,8 +50,9 @@ public class ProxyServlet implements WebSocketServlet {
         final String serverHostname;
         {
             final Headers headers = request.getHeaders();
-            if (headers.containsHeader("host")) {
-                serverHostname = Util.coalesce(headers.getHeader("host").get(0));
+            final String hostHeaderValue = headers.getFirst("host");
+            if (hostHeaderValue != null) {
+                serverHostname = hostHeaderValue;
             }
             else {
                 serverHostname = request.getLocalHostInformation().resolveHostName();
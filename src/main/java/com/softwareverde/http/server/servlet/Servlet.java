@@ -5,4 +5,13 @@ import com.softwareverde.http.server.servlet.response.Response;
 
 public interface Servlet {
     Response onRequest(Request request);
+
+    /**
+     * Returns true if the request body should be provided as a stream via Request.getRequestBody() instead of being read
+     *  into memory before Servlet.onRequest() is invoked.
+     *  NOTE: When streamed, Request.getRawPostData(), Request.getPostParameters(), and Request.getMultiPartFormData() are null.
+     */
+    default Boolean shouldStreamRequestBody() {
+        return false;
+    }
 }
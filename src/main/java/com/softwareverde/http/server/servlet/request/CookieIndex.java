@@ -0,0 +1,147 @@
+package com.softwareverde.http.server.servlet.request;
+
+import com.softwareverde.http.cookie.Cookie;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * <p>Case-insensitive index of a Request's cookies, built once upon the first access of the Request's cookies.</p>
+ *
+ * <p>Cookies are hashed by their lower-case name, and additionally by their name as sent, so lookups using the name as sent
+ * (the common case) do not allocate.  Multiple cookies with the same name are retained in the order received.  Along with
+ * the parsed Cookies, the index retains each cookie's raw value as it appeared in the Cookie header, before any
+ * sanitization performed by Cookie.setValue().</p>
+ */
+public class CookieIndex {
+    protected static class Entry {
+        public final ArrayList<Cookie> cookies = new ArrayList<Cookie>(1);
+        public final ArrayList<String> rawValues = new ArrayList<String>(1);
+        public final List<Cookie> unmodifiableCookies = Collections.unmodifiableList(this.cookies);
+        public final List<String> unmodifiableRawValues = Collections.unmodifiableList(this.rawValues);
+    }
+
+    protected final HashMap<String, Entry> _entries = new HashMap<String, Entry>();
+    protected final ArrayList<Cookie> _cookies = new ArrayList<Cookie>();
+    protected final List<Cookie> _unmodifiableCookies = Collections.unmodifiableList(_cookies);
+
+    protected Entry _getEntry(final String cookieName) {
+        if (cookieName == null) { return null; }
+
+        final Entry entry = _entries.get(cookieName);
+        if (entry != null) { return entry; }
+
+        return _entries.get(cookieName.toLowerCase(Locale.ROOT));
+    }
+
+    protected Entry _getOrCreateEntry(final String cookieName) {
+        final Entry existingEntry = _entries.get(cookieName);
+        if (existingEntry != null) { return existingEntry; }
+
+        final String lowerCaseCookieName = cookieName.toLowerCase(Locale.ROOT);
+        Entry entry = _entries.get(lowerCaseCookieName);
+        if (entry == null) {
+            entry = new Entry();
+            _entries.put(lowerCaseCookieName, entry);
+        }
+
+        if (! lowerCaseCookieName.equals(cookieName)) {
+            _entries.put(cookieName, entry); // Aliased so that subsequent lookups by the name as sent do not lower-case it...
+        }
+
+        return entry;
+    }
+
+    /**
+     * Indexes the Cookie along with its raw value, so that the Cookie and its raw value are always found at the same position.
+     */
+    public void addCookie(final Cookie cookie, final String rawValue) {
+        final String cookieName = cookie.getKey();
+        if (cookieName == null) { return; }
+
+        final Entry entry = _getOrCreateEntry(cookieName);
+        entry.cookies.add(cookie);
+        entry.rawValues.add(rawValue);
+        _cookies.add(cookie);
+    }
+
+    /**
+     * Indexes the cookies within the Cookie header value (e.x. "key1=value1; key2=value2").
+     *  Each cookie is parsed once; its Cookie is created from, and indexed with, its raw value as sent.
+     *  Pairs without a name or without a "=" are ignored.
+     */
+    public void addCookieHeader(final String cookieHeaderValue) {
+        final int length = cookieHeaderValue.length();
+        int startIndex = 0;
+        while (startIndex < length) {
+            int endIndex = cookieHeaderValue.indexOf(';', startIndex);
+            if (endIndex < 0) { endIndex = length; }
+
+            final int separatorIndex = cookieHeaderValue.indexOf('=', startIndex);
+            if ( (separatorIndex >= 0) && (separatorIndex < endIndex) ) {
+                final String cookieName = cookieHeaderValue.substring(startIndex, separatorIndex).trim();
+                if (! cookieName.isEmpty()) {
+                    final String rawValue = cookieHeaderValue.substring(separatorIndex + 1, endIndex).trim();
+
+                    final Cookie cookie = new Cookie();
+                    cookie.setKey(cookieName);
+                    cookie.setValue(rawValue);
+                    this.addCookie(cookie, rawValue);
+                }
+            }
+
+            startIndex = (endIndex + 1);
+        }
+    }
+
+    /**
+     * Returns the first cookie with the provided name, or null if there is no such cookie.
+     */
+    public Cookie getCookie(final String cookieName) {
+        final Entry entry = _getEntry(cookieName);
+        if ( (entry == null) || (entry.cookies.isEmpty()) ) { return null; }
+        return entry.cookies.get(0);
+    }
+
+    /**
+     * Returns all cookies with the provided name, in the order received.  The returned list is unmodifiable.
+     */
+    public List<Cookie> getCookies(final String cookieName) {
+        final Entry entry = _getEntry(cookieName);
+        if (entry == null) { return Collections.emptyList(); }
+        return entry.unmodifiableCookies;
+    }
+
+    /**
+     * Returns all cookies, in the order received.  The returned list is unmodifiable.
+     */
+    public List<Cookie> getCookies() {
+        return _unmodifiableCookies;
+    }
+
+    /**
+     * Returns the raw value of the first cookie with the provided name, or null if there is no such cookie.
+     */
+    public String getRawValue(final String cookieName) {
+        final Entry entry = _getEntry(cookieName);
+        if ( (entry == null) || (entry.rawValues.isEmpty()) ) { return null; }
+        return entry.rawValues.get(0);
+    }
+
+    /**
+     * Returns the raw values of all cookies with the provided name, in the order received.  The returned list is unmodifiable.
+     */
+    public List<String> getRawValues(final String cookieName) {
+        final Entry entry = _getEntry(cookieName);
+        if (entry == null) { return Collections.emptyList(); }
+        return entry.unmodifiableRawValues;
+    }
+
+    public void clear() {
+        _entries.clear();
+        _cookies.clear();
+    }
+}
@@ -2,9 +2,12 @@ package com.softwareverde.http.server.servlet.request;
 
 import com.softwareverde.util.Util;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * <p>Container for HTTP headers.  The header names are stored in lower-case to allow for case-insensitive matching.</p>
@@ -12,57 +15,159 @@ import java.util.Set;
  * <p>Particularly because Tomcat automatically converts header to lower-case, the original form of header names cannot
  * be guaranteed.  To combat this, and take a consistent approach in all settings, this class forces the header names to
  * be lower-case regardless of whether or not Tomcat is used.</p>
+ *
+ * <p>Lookups are case-insensitive and do not allocate; the lists returned by Headers.getHeader() are unmodifiable and
+ * shared rather than copied.  Well-known header names are stored as shared, interned instances.  Request.getHeaders()
+ * provides a read-only view, which throws an UnsupportedOperationException upon modification.</p>
  */
 public class Headers {
-    private final HashMap<String, List<String>> _headers;
+    protected static final TreeMap<String, String> WELL_KNOWN_HEADER_NAMES = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+    static {
+        final String[] wellKnownHeaderNames = {
+            "accept", "accept-encoding", "accept-language", "authorization", "cache-control", "connection", "content-length",
+            "content-type", "cookie", "expect", "host", "if-modified-since", "if-none-match", "origin", "pragma", "range",
+            "referer", "sec-websocket-extensions", "sec-websocket-key", "sec-websocket-protocol", "sec-websocket-version",
+            "transfer-encoding", "upgrade", "user-agent", "x-forwarded-for", "x-forwarded-proto", "x-requested-with"
+        };
+        for (final String headerName : wellKnownHeaderNames) {
+            WELL_KNOWN_HEADER_NAMES.put(headerName, headerName);
+        }
+    }
+
+    /**
+     * Returns the lower-case form of the header name, reusing the shared instance for well-known header names.
+     */
+    protected static String _toHeaderName(final String header) {
+        final String wellKnownHeaderName = WELL_KNOWN_HEADER_NAMES.get(header);
+        if (wellKnownHeaderName != null) { return wellKnownHeaderName; }
+        return header.toLowerCase(Locale.ROOT);
+    }
+
+    private final TreeMap<String, List<String>> _headers; // Case-insensitive; each value is unmodifiable (or null).
+    private final Set<String> _headerNames;
+    private final Boolean _isReadOnly;
+    private Headers _readOnlyView = null;
+
+    protected Headers(final TreeMap<String, List<String>> headers, final Boolean isReadOnly) {
+        _headers = headers;
+        _headerNames = Collections.unmodifiableSet(headers.keySet());
+        _isReadOnly = isReadOnly;
+    }
+
+    protected void _requireModifiable() {
+        if (_isReadOnly) {
+            throw new UnsupportedOperationException("Headers are read-only.");
+        }
+    }
 
     public Headers() {
-        _headers = new HashMap<String, List<String>>();
+        this(new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER), false);
     }
 
+    /**
+     * Creates a modifiable copy of the provided Headers.
+     */
     public Headers(final Headers headers) {
         this();
         _headers.putAll(headers._headers);
     }
 
+    /**
+     * Returns a read-only view of these Headers; the view reflects any subsequent changes, without copying.
+     */
+    public Headers getReadOnlyView() {
+        if (_isReadOnly) { return this; }
+
+        final Headers readOnlyView = _readOnlyView;
+        if (readOnlyView != null) { return readOnlyView; }
+
+        final Headers newReadOnlyView = new Headers(_headers, true);
+        _readOnlyView = newReadOnlyView;
+        return newReadOnlyView;
+    }
+
     public Set<String> getHeaderNames() {
-        return _headers.keySet();
+        return _headerNames;
     }
 
     public boolean containsHeader(final String header) {
         if (header == null) {
             return false;
         }
-        final String lowerCaseHeader = header.toLowerCase();
-        return _headers.containsKey(lowerCaseHeader);
+        return _headers.containsKey(header);
     }
 
+    /**
+     * Returns the header's values, or null if the header is not present.  The returned list is unmodifiable.
+     */
     public List<String> getHeader(final String header) {
         if (header == null) {
             return null;
         }
-        final String lowerCaseHeader = header.toLowerCase();
-        final List<String> values = _headers.get(lowerCaseHeader);
-        if (values == null) {
-            return null;
-        }
-        else {
-            return Util.copyList(values);
-        }
+        return _headers.get(header);
+    }
+
+    /**
+     * Returns the header's first value, or null if the header is not present.
+     */
+    public String getFirst(final String header) {
+        final List<String> values = this.getHeader(header);
+        if ( (values == null) || (values.isEmpty()) ) { return null; }
+        return values.get(0);
+    }
+
+    /**
+     * Returns the header's first value as an Integer, or null if the header is not present or is not an integer.
+     */
+    public Integer getInt(final String header) {
+        final String value = this.getFirst(header);
+        if (value == null) { return null; }
+        return Util.parseInt(value.trim(), null);
+    }
+
+    /**
+     * Returns the header's first value as a Long, or null if the header is not present or is not an integer.
+     */
+    public Long getLong(final String header) {
+        final String value = this.getFirst(header);
+        if (value == null) { return null; }
+        return Util.parseLong(value.trim(), null);
     }
 
     public void setHeader(final String header, final List<String> values) {
-        final String lowerCaseHeader = header.toLowerCase();
+        _requireModifiable();
+
+        final String headerName = _toHeaderName(header);
+        _headers.remove(headerName); // Ensures the stored name is the lower-case form...
         if (values == null) {
-            _headers.put(lowerCaseHeader, null);
+            _headers.put(headerName, null);
         }
         else {
-            final List<String> headerValues = Util.copyList(values);
-            _headers.put(lowerCaseHeader, headerValues);
+            final List<String> headerValues = Collections.unmodifiableList(new ArrayList<String>(values));
+            _headers.put(headerName, headerValues);
+        }
+    }
+
+    /**
+     * Appends the values to the header's existing values, if any.
+     */
+    public void addHeaderValues(final String header, final List<String> values) {
+        _requireModifiable();
+
+        final List<String> existingValues = _headers.get(header);
+        if (existingValues == null) {
+            this.setHeader(header, values);
+            return;
         }
+
+        final ArrayList<String> headerValues = new ArrayList<String>(existingValues.size() + values.size());
+        headerValues.addAll(existingValues);
+        headerValues.addAll(values);
+        _headers.put(header, Collections.unmodifiableList(headerValues)); // Replaces the value, retaining the stored name...
     }
 
     public void clear() {
+        _requireModifiable();
         _headers.clear();
     }
 }
@@ -5,12 +5,25 @@ import com.softwareverde.http.cookie.Cookie;
 import com.softwareverde.http.form.MultiPartFormData;
 import com.softwareverde.http.querystring.GetParameters;
 import com.softwareverde.http.querystring.PostParameters;
+import com.softwareverde.http.querystring.QueryStringIndex;
+import com.softwareverde.http.server.engine.Exchange;
 import com.softwareverde.util.Util;
 
-import java.util.ArrayList;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class Request {
+    /**
+     * Notified when a deadline is first set on a Request (e.x. so that the Request may be watched for its expiration).
+     */
+    public interface DeadlineListener {
+        void onDeadlineSet(Request request);
+    }
+
     /**
      * Returns true if the header is a WebSocket initialization header (aka: "Upgrade WebSocket").
      */
@@ -24,45 +37,373 @@ public class Request {
     protected HttpMethod _method;
 
     protected final Headers _headers = new Headers();
-    protected final List<Cookie> _cookies = new ArrayList<Cookie>();
+    protected final CookieIndex _cookieIndex = new CookieIndex();
 
     protected GetParameters _getParameters;
     protected PostParameters _postParameters;
+    protected QueryStringIndex _getParameterIndex;
+    protected QueryStringIndex _postParameterIndex;
     protected MultiPartFormData _multiPartFormData;
 
     protected String _rawQueryString; // (e.x. "?key=value")
     protected byte[] _rawPostData;
 
-    public HostInformation getRemoteHostInformation() { return _remoteHost; }
-    public HostInformation getLocalHostInformation() { return _localHost; }
+    protected InputStream _requestBody; // Only set if the request body is streamed.
+    protected Boolean _isRequestBodyConsumed = false;
+
+    protected static final long NO_DEADLINE = Long.MAX_VALUE;
+    protected final AtomicLong _deadline = new AtomicLong(NO_DEADLINE); // The deadline, in milliseconds since the epoch.
+    protected volatile DeadlineListener _deadlineListener = null;
+
+    // Properties are inflated from the Exchange upon their first access, via the RequestInflater that created this Request.
+    //  Requests created without an Exchange (e.x. TomcatRequest) are populated upon creation and are considered already inflated.
+    protected RequestInflater _requestInflater;
+    protected Exchange _exchange;
+    protected Boolean _areHeadersInflated = true;
+    protected Boolean _areCookiesInflated = true;
+    protected Boolean _areGetParametersInflated = true;
+    protected Boolean _isRawPostDataInflated = true;
+    protected Boolean _arePostParametersInflated = true;
+
+    // The parameter indexes are built from the raw query string and POST data, and so are built upon first access for all Requests.
+    protected Boolean _isGetParameterIndexInflated = false;
+    protected Boolean _isPostParameterIndexInflated = false;
+
+    protected volatile Boolean _isReleased = false; // True once the Request has been returned to its RequestPool.
+
+    // NOTE: Inflation may block while reading the request body, so it is guarded by a ReentrantLock rather than by synchronized,
+    //  which would pin a virtual thread to its carrier thread for the duration of the read.
+    protected final ReentrantLock _inflationLock = new ReentrantLock();
+
+    protected void _requireNotReleased() {
+        if (_isReleased) {
+            throw new IllegalStateException("Request accessed after its release.");
+        }
+    }
+
+    /**
+     * Clears the Request so that it may be reused for another exchange.  Its Headers and CookieIndex are cleared and retained.
+     */
+    protected void _reset() {
+        _inflationLock.lock();
+        try {
+            _remoteHost = null;
+            _localHost = null;
+            _filePath = null;
+            _method = null;
+
+            _headers.clear();
+            _cookieIndex.clear();
+
+            _getParameters = null;
+            _postParameters = null;
+            _getParameterIndex = null;
+            _postParameterIndex = null;
+            _multiPartFormData = null;
+
+            _rawQueryString = null;
+            _rawPostData = null;
+
+            _requestBody = null;
+            _isRequestBodyConsumed = false;
+            _deadline.set(NO_DEADLINE);
+            _deadlineListener = null;
+
+            _requestInflater = null;
+            _exchange = null;
+            _areHeadersInflated = true;
+            _areCookiesInflated = true;
+            _areGetParametersInflated = true;
+            _isRawPostDataInflated = true;
+            _arePostParametersInflated = true;
+            _isGetParameterIndexInflated = false;
+            _isPostParameterIndexInflated = false;
+        }
+        finally {
+            _inflationLock.unlock();
+        }
+    }
+
+    protected void _inflateHeaders() {
+        _inflationLock.lock();
+        try {
+            _requireNotReleased();
+            if (_areHeadersInflated) { return; }
+            _requestInflater._inflateHeaders(this, _exchange);
+            _areHeadersInflated = true;
+        }
+        finally {
+            _inflationLock.unlock();
+        }
+    }
+
+    protected void _inflateCookies() {
+        _inflationLock.lock();
+        try {
+            _requireNotReleased();
+            if (_areCookiesInflated) { return; }
+            _inflateHeaders();
+            _requestInflater._inflateCookies(this);
+            _areCookiesInflated = true;
+        }
+        finally {
+            _inflationLock.unlock();
+        }
+    }
+
+    protected void _inflateGetParameters() {
+        _inflationLock.lock();
+        try {
+            _requireNotReleased();
+            if (_areGetParametersInflated) { return; }
+            _requestInflater._inflateGetParameters(this);
+            _areGetParametersInflated = true;
+        }
+        finally {
+            _inflationLock.unlock();
+        }
+    }
+
+    /**
+     * Reads the request body, if it has not yet been read.
+     *  NOTE: If the read fails, the POST data remains uninflated, so that a later access may retry it.
+     */
+    protected void _inflateRawPostData() {
+        _inflationLock.lock();
+        try {
+            _requireNotReleased();
+            if (_isRawPostDataInflated) { return; }
+            _isRawPostDataInflated = _requestInflater._inflateRawPostData(this, _exchange);
+        }
+        finally {
+            _inflationLock.unlock();
+        }
+    }
+
+    protected void _inflatePostParameters() {
+        _inflationLock.lock();
+        try {
+            _requireNotReleased();
+            if (_arePostParametersInflated) { return; }
+            _inflateHeaders();
+            _inflateRawPostData();
+            if (! _isRawPostDataInflated) { return; }
+            _requestInflater._inflatePostParameters(this);
+            _arePostParametersInflated = true;
+        }
+        finally {
+            _inflationLock.unlock();
+        }
+    }
+
+    protected void _inflateGetParameterIndex() {
+        _inflationLock.lock();
+        try {
+            _requireNotReleased();
+            if (_isGetParameterIndexInflated) { return; }
+            RequestInflater._inflateGetParameterIndex(this);
+            _isGetParameterIndexInflated = true;
+        }
+        finally {
+            _inflationLock.unlock();
+        }
+    }
+
+    protected void _inflatePostParameterIndex() {
+        _inflationLock.lock();
+        try {
+            _requireNotReleased();
+            if (_isPostParameterIndexInflated) { return; }
+            _inflateHeaders();
+            _inflateRawPostData();
+            if (! _isRawPostDataInflated) { return; }
+            RequestInflater._inflatePostParameterIndex(this);
+            _isPostParameterIndexInflated = true;
+        }
+        finally {
+            _inflationLock.unlock();
+        }
+    }
+
+    public HostInformation getRemoteHostInformation() { _requireNotReleased(); return _remoteHost; }
+    public HostInformation getLocalHostInformation() { _requireNotReleased(); return _localHost; }
 
     @Deprecated
-    public String resolveHostname() { return _localHost.resolveHostName(); }
+    public String resolveHostname() { _requireNotReleased(); return _localHost.resolveHostName(); }
     @Deprecated
-    public String getHostname() { return _localHost.getHostInfo(); }
+    public String getHostname() { _requireNotReleased(); return _localHost.getHostInfo(); }
+
+    public String getFilePath() { _requireNotReleased(); return _filePath; }
+    public HttpMethod getMethod() { _requireNotReleased(); return _method; }
+
+    public GetParameters getGetParameters() {
+        _inflateGetParameters();
+        return _getParameters;
+    }
+
+    public PostParameters getPostParameters() {
+        _inflatePostParameters();
+        return _postParameters;
+    }
 
-    public String getFilePath() { return _filePath; }
-    public HttpMethod getMethod() { return _method; }
+    /**
+     * Returns an index of the query string's parameters, whose values are decoded upon their first access.
+     *  Unlike Request.getGetParameters(), the query string is indexed in a single pass without decoding each parameter.
+     */
+    public QueryStringIndex getGetParameterIndex() {
+        _inflateGetParameterIndex();
+        return _getParameterIndex;
+    }
 
-    public GetParameters getGetParameters() { return _getParameters; }
-    public PostParameters getPostParameters() { return _postParameters; }
+    /**
+     * Returns an index of the URL-encoded POST data's parameters, whose values are decoded upon their first access.
+     *  Unlike Request.getPostParameters(), the POST data is indexed in place, without first being copied into a String.
+     *  NOTE: Returns null if the request body is streamed or is multipart form data.
+     */
+    public QueryStringIndex getPostParameterIndex() {
+        _inflatePostParameterIndex();
+        return _postParameterIndex;
+    }
 
     public Headers getHeaders() {
-        return new Headers(_headers);
+        _inflateHeaders();
+        return _headers.getReadOnlyView();
+    }
+
+    /**
+     * Returns all of the Request's cookies, in the order received.  The returned list is unmodifiable.
+     */
+    public List<Cookie> getCookies() {
+        _inflateCookies();
+        return _cookieIndex.getCookies();
+    }
+
+    /**
+     * Returns all cookies with the provided name (case-insensitive), in the order received.  The returned list is unmodifiable.
+     */
+    public List<Cookie> getCookies(final String cookieName) {
+        _inflateCookies();
+        return _cookieIndex.getCookies(cookieName);
     }
 
-    public List<Cookie> getCookies() { return Util.copyList(_cookies); }
+    /**
+     * Returns the first cookie with the provided name (case-insensitive), or null if there is no such cookie.
+     */
     public Cookie getCookie(final String cookieName) {
-        for (final Cookie cookie : _cookies) {
-            final String cookieKey = cookie.getKey();
-            if (Util.areEqual(cookieName.toLowerCase(), cookieKey.toLowerCase())) {
-                return cookie;
+        _inflateCookies();
+        return _cookieIndex.getCookie(cookieName);
+    }
+
+    /**
+     * Returns the value of the first cookie with the provided name (case-insensitive) as it was sent by the client,
+     *  without the sanitization applied by Cookie.setValue(), or null if there is no such cookie.
+     */
+    public String getRawCookieValue(final String cookieName) {
+        _inflateCookies();
+        return _cookieIndex.getRawValue(cookieName);
+    }
+
+    /**
+     * Returns the request body, which is read upon the first access of the Request's POST data.
+     *  NOTE: The POST data must first be accessed before the Response is sent, otherwise the request body is discarded.
+     */
+    public byte[] getRawPostData() {
+        _inflateRawPostData();
+        return _rawPostData;
+    }
+
+    public String getQueryString() { _requireNotReleased(); return _rawQueryString; }
+
+    public MultiPartFormData getMultiPartFormData() {
+        _inflatePostParameters();
+        return _multiPartFormData;
+    }
+
+    /**
+     * Returns true if the request body was not read into memory and is instead available via Request.getRequestBody().
+     */
+    public Boolean isRequestBodyStreamed() { _requireNotReleased(); return (_requestBody != null); }
+
+    /**
+     * Returns the unread request body, or null if the request body was read into memory.
+     *  The stream may only be obtained once; subsequent invocations throw an IllegalStateException.
+     *  The stream must be consumed before Servlet.onRequest() returns.
+     */
+    public synchronized InputStream getRequestBody() {
+        _requireNotReleased();
+        if (_requestBody == null) { return null; }
+        if (_isRequestBodyConsumed) { throw new IllegalStateException("Request body already consumed."); }
+
+        _isRequestBodyConsumed = true;
+        return _requestBody;
+    }
+
+    /**
+     * Returns the unread request body as a channel, or null if the request body was read into memory.
+     *  Shares the single-use restriction of Request.getRequestBody().
+     */
+    public ReadableByteChannel getRequestBodyChannel() {
+        final InputStream inputStream = this.getRequestBody();
+        if (inputStream == null) { return null; }
+
+        return Channels.newChannel(inputStream);
+    }
+
+    /**
+     * Returns the time (in milliseconds since the epoch) by which the Response must be sent, or null if the Request has no deadline.
+     *  Requests still being processed once their deadline has passed are answered with a 504 by the HttpServer, provided
+     *  that the Request's Endpoint (or a route of its RoutedServlet) declares a request timeout.
+     */
+    public Long getDeadline() {
+        // NOTE: Not checked for use after release, since the RequestDeadlineWatchdog may read the deadline as the Request completes.
+        final long deadline = _deadline.get();
+        if (deadline == NO_DEADLINE) { return null; }
+        return deadline;
+    }
+
+    /**
+     * Returns the number of milliseconds until the Request's deadline (zero once it has passed), or null if the Request has no deadline.
+     *  Handlers may use this value to bound the timeouts of their own downstream calls.
+     */
+    public Long getRemainingTime() {
+        _requireNotReleased();
+        final long deadline = _deadline.get();
+        if (deadline == NO_DEADLINE) { return null; }
+        return Math.max(0L, (deadline - System.currentTimeMillis()));
+    }
+
+    public Boolean isDeadlineExceeded() {
+        _requireNotReleased();
+        final long deadline = _deadline.get();
+        if (deadline == NO_DEADLINE) { return false; }
+        return (System.currentTimeMillis() >= deadline);
+    }
+
+    /**
+     * Sets the time (in milliseconds since the epoch) by which the Response must be sent.
+     *  A Request's deadline may only be shortened; a deadline later than the current deadline is ignored.
+     */
+    public void setDeadline(final Long deadline) {
+        _requireNotReleased();
+        while (true) {
+            final long currentDeadline = _deadline.get();
+            if (deadline >= currentDeadline) { return; }
+            if (_deadline.compareAndSet(currentDeadline, deadline)) {
+                final DeadlineListener deadlineListener = _deadlineListener;
+                if ( (currentDeadline == NO_DEADLINE) && (deadlineListener != null) ) {
+                    deadlineListener.onDeadlineSet(this);
+                }
+                return;
             }
         }
-        return null;
     }
 
-    public byte[] getRawPostData() { return _rawPostData; }
-    public String getQueryString() { return _rawQueryString; }
-    public MultiPartFormData getMultiPartFormData() { return _multiPartFormData; }
+    /**
+     * Sets the DeadlineListener notified when the Request's deadline is first set; it is not notified if a deadline is already set.
+     *  Set by the HttpServer before the Request is handled.
+     */
+    public void setDeadlineListener(final DeadlineListener deadlineListener) {
+        _requireNotReleased();
+        _deadlineListener = deadlineListener;
+    }
 }
@@ -1,47 +1,40 @@
 package com.softwareverde.http.server.servlet.request;
 
 import com.softwareverde.http.HttpMethod;
-import com.softwareverde.http.cookie.Cookie;
-import com.softwareverde.http.cookie.CookieParser;
 import com.softwareverde.http.form.MultiPartFormData;
 import com.softwareverde.http.querystring.GetParameters;
 import com.softwareverde.http.querystring.PostParameters;
+import com.softwareverde.http.querystring.QueryStringIndex;
 import com.softwareverde.http.querystring.QueryStringParser;
+import com.softwareverde.http.server.engine.Exchange;
+import com.softwareverde.http.server.engine.JdkExchange;
+import com.softwareverde.http.util.HeaderValueTokenizer;
 import com.softwareverde.logging.Logger;
 import com.softwareverde.util.IoUtil;
 import com.softwareverde.util.StringUtil;
 import com.sun.net.httpserver.HttpExchange;
 
 import java.net.URI;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 public class RequestInflater {
-    protected static Boolean headerContainsValue(final List<String> headerValues, final String value) {
-        final String lowerCaseValue = value.toLowerCase();
-        for (final String headerValue : headerValues) {
-            final String lowerCaseHeaderValue = headerValue.toLowerCase();
-            if (lowerCaseHeaderValue.contains(lowerCaseValue)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     /**
-     * Returns the value of a "; extraKey=value" extra within a header, or null if the key is not found.
-     *  If the key is found, only the value is returned--excluding the extraKey and equal sign.
+     * Returns the boundary of a multipart/form-data Content-Type, an empty string if the Content-Type is multipart/form-data
+     *  without a boundary, or null if the Content-Type is not multipart/form-data.
      */
-    protected static String getHeaderExtra(final List<String> headerValues, final String extraKey) {
-        final String lowerCaseExtraKey = extraKey.toLowerCase();
-        for (final String headerValue : headerValues) {
-            for (final String headerExtraValue : headerValue.split(";")) {
-                final String trimmedExtraValue = StringUtil.pregMatch("^[\\s]*(.*)$", headerExtraValue).get(0);
-                final String lowerCaseHeaderValue = trimmedExtraValue.toLowerCase();
-                if (lowerCaseHeaderValue.startsWith(lowerCaseExtraKey + "=")) {
-                    return trimmedExtraValue.substring(extraKey.length() + 1);
-                }
-            }
+    protected static String getMultiPartBoundary(final Headers headers) {
+        final List<String> contentTypeHeaderValues = headers.getHeader("content-type");
+        if (contentTypeHeaderValues == null) { return null; }
+
+        final HeaderValueTokenizer headerValueTokenizer = new HeaderValueTokenizer();
+        for (final String contentTypeHeaderValue : contentTypeHeaderValues) {
+            headerValueTokenizer.reset(contentTypeHeaderValue);
+            if (! headerValueTokenizer.nextElement()) { continue; }
+            if (! headerValueTokenizer.elementEquals("multipart/form-data")) { continue; }
+
+            final String boundary = headerValueTokenizer.getParameter("boundary");
+            return (boundary != null ? boundary : "");
         }
         return null;
     }
@@ -60,84 +53,132 @@ public class RequestInflater {
         }
     });
 
-    protected void _buildRequestBody(final Request request, final HttpExchange httpExchange) {
-        try {
-            final byte[] postBytes = IoUtil.readStream(httpExchange.getRequestBody());
+    /**
+     * Copies the Exchange's headers into the Request.  Invoked upon the first access of the Request's headers.
+     */
+    protected void _inflateHeaders(final Request request, final Exchange exchange) {
+        final Map<String, List<String>> exchangeHeaders = exchange.getRequestHeaders();
 
-            request._rawPostData = postBytes;
+        for (final String headerKey : exchangeHeaders.keySet()) {
+            request._headers.addHeaderValues(headerKey, exchangeHeaders.get(headerKey));
+        }
+    }
 
-            boolean isTraditionalPost = true;
-            final Headers headers = request.getHeaders();
-            if (headers.containsHeader("content-type")) {
-                final List<String> contentTypeHeaderValues = headers.getHeader("content-type");
-                if (RequestInflater.headerContainsValue(contentTypeHeaderValues, "multipart/form-data")) {
-                    isTraditionalPost = false;
+    /**
+     * Parses and indexes the Request's cookies from its inflated headers.  Invoked upon the first access of the Request's cookies.
+     */
+    protected void _inflateCookies(final Request request) {
+        final List<String> cookieHeaderValues = request._headers.getHeader("cookie");
+        if (cookieHeaderValues == null) { return; }
 
-                    final String boundary = RequestInflater.getHeaderExtra(contentTypeHeaderValues, "boundary");
-                    if ( (boundary != null) && (! boundary.isEmpty()) ) {
-                        request._multiPartFormData = MultiPartFormData.parseFromRequest(boundary, postBytes);
-                    }
-                }
-            }
+        for (final String cookieHeaderValue : cookieHeaderValues) {
+            request._cookieIndex.addCookieHeader(cookieHeaderValue);
+        }
+    }
 
-            if (isTraditionalPost) {
-                request._postParameters = POST_PARAMETERS_PARSER.parse(StringUtil.bytesToString(postBytes));
-            }
+    /**
+     * Parses the Request's query string.  Invoked upon the first access of the Request's GET parameters.
+     */
+    protected void _inflateGetParameters(final Request request) {
+        try {
+            request._getParameters = GET_PARAMETERS_PARSER.parse(request._rawQueryString);
         }
         catch (final Exception exception) {
-            Logger.warn(RequestInflater.class, "Unable to parse POST parameters.");
-            Logger.warn(exception);
+            Logger.warn(RequestInflater.class, "Unable to parse GET parameters.", exception);
         }
     }
 
-    protected void _buildCoreRequest(final Request request, final HttpExchange httpExchange) {
-        final URI requestUri = httpExchange.getRequestURI();
-        final String filePath = requestUri.getPath();
-
-        request._remoteHost = new InetSocketAddressHostInformation(httpExchange.getRemoteAddress());
-        request._localHost = new InetSocketAddressHostInformation(httpExchange.getLocalAddress());
+    /**
+     * Indexes the Request's query string.  Invoked upon the first access of the Request's GET parameter index.
+     */
+    protected static void _inflateGetParameterIndex(final Request request) {
+        request._getParameterIndex = QueryStringIndex.parse(request._rawQueryString);
+    }
 
-        request._filePath = filePath;
-        request._method = HttpMethod.fromString(httpExchange.getRequestMethod());
+    /**
+     * Reads the request body from the Exchange.  Invoked upon the first access of the Request's POST data.
+     *  Returns false if the request body could not be read.
+     */
+    protected Boolean _inflateRawPostData(final Request request, final Exchange exchange) {
+        try {
+            final byte[] rawPostData = IoUtil.readStream(exchange.getRequestBody());
+            if (rawPostData == null) { return false; } // IoUtil.readStream() returns null if the read failed...
 
-        { // Headers
-            final com.sun.net.httpserver.Headers httpExchangeHeaders = httpExchange.getRequestHeaders();
+            request._rawPostData = rawPostData;
+            return true;
+        }
+        catch (final Exception exception) {
+            Logger.warn(RequestInflater.class, "Unable to read request body.", exception);
+            return false;
+        }
+    }
 
-            for (final String headerKey : httpExchangeHeaders.keySet()) {
-                if (! request._headers.containsHeader(headerKey)) {
-                    request._headers.setHeader(headerKey, new ArrayList<String>());
-                }
+    /**
+     * Indexes the Request's URL-encoded POST data, without copying it.  Invoked upon the first access of the Request's POST parameter index.
+     *  Multipart form data is not indexed.
+     */
+    protected static void _inflatePostParameterIndex(final Request request) {
+        final byte[] postBytes = request._rawPostData;
+        if (postBytes == null) { return; }
+        if (RequestInflater.getMultiPartBoundary(request._headers) != null) { return; }
 
-                final List<String> headerValues = request._headers.getHeader(headerKey);
-                headerValues.addAll(httpExchangeHeaders.get(headerKey));
-                request._headers.setHeader(headerKey, headerValues);
-            }
-        }
+        request._postParameterIndex = QueryStringIndex.parse(postBytes);
+    }
 
-        { // Cookies
-            final CookieParser cookieParser = new CookieParser();
-            for (final String headerKey : request._headers.getHeaderNames()) {
-                if (! headerKey.equalsIgnoreCase("cookie")) { continue; }
+    /**
+     * Parses the Request's POST parameters or multipart form data from its inflated POST data.
+     *  Invoked upon the first access of either property.
+     */
+    protected void _inflatePostParameters(final Request request) {
+        final byte[] postBytes = request._rawPostData;
+        if (postBytes == null) { return; }
 
-                final List<String> cookieHeaderValues = request._headers.getHeader(headerKey);
-                for (final String cookieHeaderValue : cookieHeaderValues) {
-                    final List<Cookie> parsedCookies = cookieParser.parseFromCookieHeader(cookieHeaderValue);
-                    request._cookies.addAll(parsedCookies);
+        try {
+            final String boundary = RequestInflater.getMultiPartBoundary(request._headers);
+            if (boundary != null) {
+                if (! boundary.isEmpty()) {
+                    request._multiPartFormData = MultiPartFormData.parseFromRequest(boundary, postBytes);
                 }
-                break;
             }
-        }
-
-        try {
-            final String rawQueryString = httpExchange.getRequestURI().getRawQuery();
-            request._getParameters = GET_PARAMETERS_PARSER.parse(rawQueryString);
-            request._rawQueryString = rawQueryString;
+            else {
+                request._postParameters = POST_PARAMETERS_PARSER.parse(StringUtil.bytesToString(postBytes));
+            }
         }
         catch (final Exception exception) {
-            Logger.warn(RequestInflater.class, "Unable to parse GET parameters.", exception);
+            Logger.warn(RequestInflater.class, "Unable to parse POST parameters.");
+            Logger.warn(exception);
         }
     }
 
+    /**
+     * Defers reading and parsing the request body until the Request's POST data is first accessed.
+     */
+    protected void _buildRequestBody(final Request request, final Exchange exchange) {
+        request._isRawPostDataInflated = false;
+        request._arePostParametersInflated = false;
+    }
+
+    /**
+     * Populates the properties of the Request that are cheap to obtain; the remaining properties are inflated upon their first access.
+     */
+    protected void _buildCoreRequest(final Request request, final Exchange exchange) {
+        final URI requestUri = exchange.getRequestUri();
+        final String filePath = requestUri.getPath();
+
+        request._remoteHost = exchange.getRemoteHostInformation();
+        request._localHost = exchange.getLocalHostInformation();
+
+        request._filePath = filePath;
+        request._method = HttpMethod.fromString(exchange.getRequestMethod());
+        request._rawQueryString = requestUri.getRawQuery();
+
+        request._requestInflater = this;
+        request._exchange = exchange;
+        request._areHeadersInflated = false;
+        request._areCookiesInflated = false;
+        request._areGetParametersInflated = false;
+    }
+
     public GetParameters parseGetParameters(final String queryString) {
         return GET_PARAMETERS_PARSER.parse(queryString);
     }
@@ -146,19 +187,46 @@ public class RequestInflater {
         return POST_PARAMETERS_PARSER.parse(postBody);
     }
 
-    public Request createRequest(final HttpExchange httpExchange) {
-        final Request request = new Request();
-        _buildCoreRequest(request, httpExchange);
-        _buildRequestBody(request, httpExchange);
+    public Request createRequest(final Exchange exchange) {
+        return this.createRequest(exchange, false);
+    }
+
+    /**
+     * Creates the Request from the Exchange.
+     *  If shouldStreamRequestBody is true, the request body is not read; it is instead provided via Request.getRequestBody().
+     */
+    public Request createRequest(final Exchange exchange, final Boolean shouldStreamRequestBody) {
+        return _initializeRequest(new Request(), exchange, shouldStreamRequestBody);
+    }
+
+    /**
+     * Initializes the new (or reset) Request from the Exchange.
+     */
+    protected Request _initializeRequest(final Request request, final Exchange exchange, final Boolean shouldStreamRequestBody) {
+        _buildCoreRequest(request, exchange);
+        if (shouldStreamRequestBody) {
+            request._requestBody = exchange.getRequestBody();
+        }
+        else {
+            _buildRequestBody(request, exchange);
+        }
         return request;
     }
 
-    public WebSocketRequest createWebSocketRequest(final HttpExchange httpExchange) {
+    public Request createRequest(final HttpExchange httpExchange) {
+        return this.createRequest(new JdkExchange(httpExchange));
+    }
+
+    public WebSocketRequest createWebSocketRequest(final Exchange exchange) {
         final WebSocketRequest webSocketRequest = new WebSocketRequest();
-        _buildCoreRequest(webSocketRequest, httpExchange);
-        if (! webSocketRequest.isWebSocketRequest()) { // Consume the InputStream if the request is not intended to be a WebSocket...
-            _buildRequestBody(webSocketRequest, httpExchange);
+        _buildCoreRequest(webSocketRequest, exchange);
+        if (! webSocketRequest.isWebSocketRequest()) { // The InputStream belongs to the WebSocket if the request is intended to be a WebSocket...
+            _buildRequestBody(webSocketRequest, exchange);
         }
         return webSocketRequest;
     }
+
+    public WebSocketRequest createWebSocketRequest(final HttpExchange httpExchange) {
+        return this.createWebSocketRequest(new JdkExchange(httpExchange));
+    }
 }
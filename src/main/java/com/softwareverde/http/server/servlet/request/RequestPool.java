@@ -0,0 +1,72 @@
+package com.softwareverde.http.server.servlet.request;
+
+import com.softwareverde.http.server.engine.Exchange;
+import com.softwareverde.logging.Logger;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * <p>Recycles Requests, along with their Headers and CookieIndex, so that handling an exchange does not allocate them.</p>
+ *
+ * <p>Requests are created via RequestPool.createRequest() and returned via RequestPool.release() once the exchange's Response
+ * has been sent.  Released Requests are reset and cached in a small pool shared by all threads, rather than per-thread, since
+ * virtual threads (and the threads completing AsyncServlets' Responses) would rarely reuse their own; Requests beyond the
+ * pool's capacity are left to the garbage collector.</p>
+ *
+ *  NOTE: A Request must not be referenced once it is released (e.x. by a streamed Response's ContentWriter, or by another thread).
+ *  Accessing a released Request throws an IllegalStateException; however, once the Request is reused, stale references
+ *  observe the new exchange instead.  With use-after-release detection enabled, released Requests are never reused, so that
+ *  every such access is detected, at the cost of the allocations recycling would otherwise avoid.
+ */
+public class RequestPool {
+    public static final Integer MAX_POOLED_REQUEST_COUNT = Math.max(16, Runtime.getRuntime().availableProcessors() * 4);
+
+    protected final RequestInflater _requestInflater;
+    protected final Boolean _shouldDetectUseAfterRelease;
+    protected final ArrayBlockingQueue<Request> _requests = new ArrayBlockingQueue<Request>(MAX_POOLED_REQUEST_COUNT);
+
+    public RequestPool(final RequestInflater requestInflater) {
+        this(requestInflater, false);
+    }
+
+    public RequestPool(final RequestInflater requestInflater, final Boolean shouldDetectUseAfterRelease) {
+        _requestInflater = requestInflater;
+        _shouldDetectUseAfterRelease = shouldDetectUseAfterRelease;
+    }
+
+    /**
+     * Creates the Request from the Exchange, reusing a released Request if one is available.
+     *  See RequestInflater.createRequest().
+     */
+    public Request createRequest(final Exchange exchange, final Boolean shouldStreamRequestBody) {
+        Request request = _requests.poll();
+        if (request == null) {
+            request = new Request();
+        }
+        request._isReleased = false;
+
+        return _requestInflater._initializeRequest(request, exchange, shouldStreamRequestBody);
+    }
+
+    /**
+     * Resets the Request and returns it to the pool for reuse.
+     *  Releasing a Request more than once, or releasing a Request not created by a RequestPool, is logged and ignored.
+     */
+    public void release(final Request request) {
+        if ( (request._isReleased) || (request.getClass() != Request.class) ) {
+            Logger.warn(RequestPool.class, "Ignoring release of Request not leased from the pool.", new Exception());
+            return;
+        }
+
+        request._reset();
+        request._isReleased = true;
+
+        if (_shouldDetectUseAfterRelease) { return; } // Released Requests are never reused, so later accesses are always detected...
+
+        _requests.offer(request); // Requests beyond the pool's capacity are left to the garbage collector...
+    }
+
+    public Boolean isUseAfterReleaseDetectionEnabled() {
+        return _shouldDetectUseAfterRelease;
+    }
+}
@@ -0,0 +1,53 @@
+package com.softwareverde.http.server.servlet.request;
+
+/**
+ * <p>The HostInformation of either end of a Unix domain socket connection.</p>
+ *
+ * <p>Both ends of a Unix domain socket are on the local machine, so the host is reported as the loopback address; the
+ * socket's path (which is empty for a connecting client) is available via UnixDomainSocketHostInformation.getSocketPath().</p>
+ */
+public class UnixDomainSocketHostInformation implements HostInformation {
+    public static final String HOST_NAME = "localhost";
+    public static final String IP_ADDRESS = "127.0.0.1";
+
+    protected final String _socketPath;
+
+    public UnixDomainSocketHostInformation(final String socketPath) {
+        _socketPath = socketPath;
+    }
+
+    @Override
+    public String resolveHostName() {
+        return HOST_NAME;
+    }
+
+    @Override
+    public boolean isHostNameResolved() {
+        return true;
+    }
+
+    @Override
+    public String getHostInfo() {
+        return ("unix:" + _socketPath);
+    }
+
+    @Override
+    public String getIpAddress() {
+        return IP_ADDRESS;
+    }
+
+    /**
+     * Returns zero, since Unix domain sockets do not have ports.
+     */
+    @Override
+    public int getPort() {
+        return 0;
+    }
+
+    /**
+     * Returns the path of the socket, or an empty string if the socket is unnamed.
+     */
+    public String getSocketPath() {
+        return _socketPath;
+    }
+}
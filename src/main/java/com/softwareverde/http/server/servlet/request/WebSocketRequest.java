@@ -6,6 +6,8 @@ import java.util.List;
 
 public class WebSocketRequest extends Request {
     public String getWebSocketKey() {
+        _inflateHeaders();
+
         if (! _headers.containsHeader(Response.Headers.WebSocket.KEY)) { return null; }
 
         final List<String> headerValues = _headers.getHeader(Response.Headers.WebSocket.KEY);
@@ -19,6 +21,8 @@ public class WebSocketRequest extends Request {
     }
 
     public Boolean isWebSocketRequest() {
+        _inflateHeaders();
+
         for (final String headerKey : _headers.getHeaderNames()) {
             for (final String headerValue : _headers.getHeader(headerKey)) {
                 if (Request.isWebSocketHeader(headerKey, headerValue)) { return true; }
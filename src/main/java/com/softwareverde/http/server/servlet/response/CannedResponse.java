@@ -0,0 +1,109 @@
+package com.softwareverde.http.server.servlet.response;
+
+import com.softwareverde.http.cookie.Cookie;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>An immutable Response whose status, headers, and content are fixed when it is created, so that a single instance may
+ * be sent to any number of requests concurrently.</p>
+ *
+ * <p>CannedResponses are intended for high-volume, invariant responses (e.x. "404 Not Found" or "503 Service Unavailable").
+ * Engines may serialize a CannedResponse once and reuse the encoded bytes for each request, so CannedResponses should be
+ * created once (e.x. as constants) rather than per request.  Attempting to modify a CannedResponse throws an
+ * UnsupportedOperationException, and CannedResponses are never compressed.</p>
+ */
+public class CannedResponse extends Response {
+    protected final Map<String, List<String>> _unmodifiableHeaders;
+    protected final List<Cookie> _unmodifiableCookies;
+
+    protected static UnsupportedOperationException _createImmutableException() {
+        return new UnsupportedOperationException("CannedResponses cannot be modified.");
+    }
+
+    /**
+     * Creates a CannedResponse with the status, headers, cookies, and content of the provided Response.
+     *  The Response's content must not be streamed.
+     */
+    public CannedResponse(final Response response) {
+        if (response.isContentStreamed()) {
+            throw new IllegalArgumentException("CannedResponses cannot stream their content.");
+        }
+
+        _code = response.getCode();
+
+        final byte[] content = response.getContent();
+        _content = (content != null ? content.clone() : new byte[0]);
+
+        final Map<String, List<String>> headers = response.getHeaders();
+        final HashMap<String, List<String>> unmodifiableHeaders = new HashMap<String, List<String>>(headers.size());
+        for (final String headerName : headers.keySet()) {
+            final List<String> headerValues = headers.get(headerName);
+            if (headerValues.isEmpty()) { continue; }
+
+            unmodifiableHeaders.put(headerName, Collections.unmodifiableList(new ArrayList<String>(headerValues)));
+        }
+        _unmodifiableHeaders = Collections.unmodifiableMap(unmodifiableHeaders);
+        _unmodifiableCookies = Collections.unmodifiableList(response.getCookies());
+    }
+
+    public CannedResponse(final Integer code, final String contentType, final String content) {
+        this(_createResponse(code, contentType, content));
+    }
+
+    protected static Response _createResponse(final Integer code, final String contentType, final String content) {
+        final Response response = new Response();
+        response.setCode(code);
+        if (contentType != null) {
+            response.setHeader(Headers.CONTENT_TYPE, contentType);
+        }
+        response.setContent(content);
+        return response;
+    }
+
+    /**
+     * Returns the CannedResponse's content; the returned array is shared and must not be modified.
+     */
+    @Override
+    public byte[] getContent() { return _content; }
+
+    @Override
+    public Map<String, List<String>> getHeaders() { return _unmodifiableHeaders; }
+
+    @Override
+    public List<Cookie> getCookies() { return _unmodifiableCookies; }
+
+    @Override
+    public void setCode(final Integer code) { throw _createImmutableException(); }
+
+    @Override
+    public void setContent(final byte[] content) { throw _createImmutableException(); }
+
+    @Override
+    public void setContent(final String content) { throw _createImmutableException(); }
+
+    @Override
+    public void setContentWriter(final ContentWriter contentWriter, final Long contentByteCount) { throw _createImmutableException(); }
+
+    @Override
+    public void clearHeaders() { throw _createImmutableException(); }
+
+    @Override
+    public void clearHeader(final String key) { throw _createImmutableException(); }
+
+    @Override
+    public void addHeader(final String key, final String value) { throw _createImmutableException(); }
+
+    @Override
+    public void setHeader(final String key, final String value) { throw _createImmutableException(); }
+
+    @Override
+    public void clearCookies() { throw _createImmutableException(); }
+
+    @Override
+    public void addCookie(final Cookie cookie) { throw _createImmutableException(); }
+}
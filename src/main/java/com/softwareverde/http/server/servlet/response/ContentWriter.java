@@ -0,0 +1,15 @@
+package com.softwareverde.http.server.servlet.response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * <p>Produces a Response's content directly to the client, allowing large content to be sent without first being
+ * buffered in memory.</p>
+ *
+ * <p>ContentWriter.writeContent() is invoked once the status and headers have been sent.  The OutputStream should not
+ * be closed by the ContentWriter.</p>
+ */
+public interface ContentWriter {
+    void writeContent(OutputStream outputStream) throws IOException;
+}
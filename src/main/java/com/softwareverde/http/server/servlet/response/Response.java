@@ -7,6 +7,13 @@ import com.softwareverde.util.Base64Util;
 import com.softwareverde.util.StringUtil;
 import com.softwareverde.util.Util;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -20,10 +27,14 @@ public class Response {
         public static final Integer OK = 200;
         public static final Integer MOVED_PERMANENTLY = 301;
         public static final Integer MOVED_TEMPORARILY = 302;
+        public static final Integer NOT_MODIFIED = 304;
         public static final Integer BAD_REQUEST = 400;
         public static final Integer NOT_AUTHORIZED = 401;
         public static final Integer NOT_FOUND = 404;
+        public static final Integer PAYLOAD_TOO_LARGE = 413;
         public static final Integer SERVER_ERROR = 500;
+        public static final Integer SERVICE_UNAVAILABLE = 503;
+        public static final Integer GATEWAY_TIMEOUT = 504;
     }
 
     public static class Headers {
@@ -36,6 +47,9 @@ public class Response {
         public static final String AUTHORIZATION = "Authorization";
         public static final String CONNECTION = "Connection";
         public static final String UPGRADE = "Upgrade";
+        public static final String RETRY_AFTER = "Retry-After";
+        public static final String LAST_MODIFIED = "Last-Modified";
+        public static final String ETAG = "ETag";
 
         public static class WebSocket {
             private WebSocket() { }
@@ -65,25 +79,118 @@ public class Response {
 
     protected Integer _code = Codes.OK;
     protected byte[] _content = (new byte[0]);
+    protected ContentWriter _contentWriter = null;
+    protected Long _contentWriterByteCount = null;
 
     public Response() { }
 
     public void setContent(final byte[] content) {
         _content = content;
+        _contentWriter = null;
+        _contentWriterByteCount = null;
     }
 
     public void setContent(final String content) {
         try {
             _content = (content != null ? StringUtil.stringToBytes(content) : null);
+            _contentWriter = null;
+            _contentWriterByteCount = null;
         }
         catch (final Exception exception) { }
     }
 
+    /**
+     * Streams the content to the client via the ContentWriter once the headers have been sent.
+     *  If contentByteCount is null, the content is sent with chunked transfer-encoding; otherwise, the ContentWriter must
+     *  write exactly contentByteCount bytes.
+     *  Response.getContent() returns null for streamed content.
+     */
+    public void setContentWriter(final ContentWriter contentWriter, final Long contentByteCount) {
+        _content = null;
+        _contentWriter = contentWriter;
+        _contentWriterByteCount = contentByteCount;
+    }
+
+    public void setContentWriter(final ContentWriter contentWriter) {
+        this.setContentWriter(contentWriter, null);
+    }
+
+    /**
+     * Streams the content from the InputStream to the client; the InputStream is closed once it has been consumed.
+     *  If contentByteCount is null, the content is sent with chunked transfer-encoding.
+     */
+    public void setContentStream(final InputStream inputStream, final Long contentByteCount) {
+        this.setContentWriter(new ContentWriter() {
+            @Override
+            public void writeContent(final OutputStream outputStream) throws IOException {
+                try {
+                    final byte[] buffer = new byte[16384];
+                    int byteCount;
+                    while ((byteCount = inputStream.read(buffer)) >= 0) {
+                        outputStream.write(buffer, 0, byteCount);
+                    }
+                }
+                finally {
+                    inputStream.close();
+                }
+            }
+        }, contentByteCount);
+    }
+
+    public void setContentStream(final InputStream inputStream) {
+        this.setContentStream(inputStream, null);
+    }
+
+    /**
+     * Streams the content from the ReadableByteChannel to the client; the channel is closed once it has been consumed.
+     *  If contentByteCount is null, the content is sent with chunked transfer-encoding.
+     */
+    public void setContentChannel(final ReadableByteChannel readableByteChannel, final Long contentByteCount) {
+        this.setContentWriter(new ContentWriter() {
+            @Override
+            public void writeContent(final OutputStream outputStream) throws IOException {
+                try {
+                    final WritableByteChannel writableByteChannel = Channels.newChannel(outputStream);
+                    final ByteBuffer buffer = ByteBuffer.allocate(16384);
+                    while (readableByteChannel.read(buffer) >= 0) {
+                        buffer.flip();
+                        while (buffer.hasRemaining()) {
+                            writableByteChannel.write(buffer);
+                        }
+                        buffer.clear();
+                    }
+                }
+                finally {
+                    readableByteChannel.close();
+                }
+            }
+        }, contentByteCount);
+    }
+
+    public void setContentChannel(final ReadableByteChannel readableByteChannel) {
+        this.setContentChannel(readableByteChannel, null);
+    }
+
     public void setCode(final Integer code) { _code = code; }
 
     public Integer getCode() { return _code; }
     public byte[] getContent() { return _content; }
 
+    /**
+     * Returns the ContentWriter if the content is streamed, otherwise null.
+     */
+    public ContentWriter getContentWriter() { return _contentWriter; }
+
+    public Boolean isContentStreamed() { return (_contentWriter != null); }
+
+    /**
+     * Returns the number of bytes of content, or null if the content is streamed and its length is unknown.
+     */
+    public Long getContentByteCount() {
+        if (_contentWriter != null) { return _contentWriterByteCount; }
+        return (_content != null ? (long) _content.length : 0L);
+    }
+
     public void clearHeaders() {
         _headers.clear();
     }
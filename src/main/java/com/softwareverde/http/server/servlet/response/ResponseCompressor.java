@@ -0,0 +1,369 @@
+package com.softwareverde.http.server.servlet.response;
+
+import com.softwareverde.http.util.HeaderValueTokenizer;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * <p>Compresses Responses with gzip or deflate, as negotiated via the request's Accept-Encoding header.</p>
+ *
+ * <p>Only Responses with a compressible Content-Type (e.x. text, JSON, JavaScript, XML) and at least
+ * ResponseCompressor.getMinCompressedByteCount() bytes of content are compressed; Responses that already declare a
+ * Content-Encoding are left unchanged.  "Vary: Accept-Encoding" is added to every Response with a compressible
+ * Content-Type, whether or not it was compressed, so that caches do not serve the wrong encoding.</p>
+ *
+ * <p>Deflaters for buffered content are reused via a small pool shared by all threads, rather than per-thread, since
+ * per-thread Deflaters are never ended and virtual threads would each allocate their own.</p>
+ *
+ * <p>Streamed content is compressed as it is written, with its own Deflater, and is sent without a known length.</p>
+ */
+public class ResponseCompressor {
+    public static final Integer DEFAULT_COMPRESSION_LEVEL = 6;
+    public static final Integer DEFAULT_MIN_COMPRESSED_BYTE_COUNT = 1024;
+
+    public static class Encodings {
+        protected Encodings() { }
+
+        public static final String GZIP = "gzip";
+        public static final String DEFLATE = "deflate";
+        public static final String IDENTITY = "identity";
+    }
+
+    protected static final String ACCEPT_ENCODING = "Accept-Encoding";
+    protected static final String VARY = "Vary";
+    protected static final String ETAG = "ETag";
+    protected static final Integer STREAM_BUFFER_BYTE_COUNT = 8192;
+    protected static final byte[] GZIP_HEADER = new byte[]{ 0x1F, (byte) 0x8B, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xFF };
+    protected static final Integer GZIP_TRAILER_BYTE_COUNT = 8;
+    protected static final Integer MAX_POOLED_DEFLATER_COUNT = Math.max(4, Runtime.getRuntime().availableProcessors()); // Per encoding.
+
+    protected static String _getHeader(final Map<String, List<String>> headers, final String headerName) {
+        for (final String key : headers.keySet()) {
+            if (! key.equalsIgnoreCase(headerName)) { continue; }
+
+            final List<String> values = headers.get(key);
+            if ( (values == null) || (values.isEmpty()) ) { continue; }
+
+            final StringBuilder stringBuilder = new StringBuilder();
+            for (final String value : values) {
+                if (stringBuilder.length() > 0) {
+                    stringBuilder.append(',');
+                }
+                stringBuilder.append(value);
+            }
+            return stringBuilder.toString();
+        }
+        return null;
+    }
+
+    protected static void _writeIntegerLittleEndian(final byte[] bytes, final int offset, final int value) {
+        bytes[offset] = (byte) value;
+        bytes[offset + 1] = (byte) (value >>> 8);
+        bytes[offset + 2] = (byte) (value >>> 16);
+        bytes[offset + 3] = (byte) (value >>> 24);
+    }
+
+    /**
+     * Returns the preferred supported encoding accepted by the Accept-Encoding header value, or null if neither gzip nor deflate is acceptable.
+     *  gzip is preferred over deflate when both are equally acceptable.
+     */
+    public static String selectEncoding(final String acceptEncodingHeaderValue) {
+        if (acceptEncodingHeaderValue == null) { return null; }
+
+        Integer gzipQuality = null;
+        Integer deflateQuality = null;
+        Integer wildcardQuality = null;
+        final HeaderValueTokenizer headerValueTokenizer = new HeaderValueTokenizer(acceptEncodingHeaderValue);
+        while (headerValueTokenizer.nextElement()) {
+            final Integer quality = headerValueTokenizer.getQuality(); // In thousandths...
+
+            if (headerValueTokenizer.elementEquals(Encodings.GZIP) || headerValueTokenizer.elementEquals("x-gzip")) {
+                gzipQuality = quality;
+            }
+            else if (headerValueTokenizer.elementEquals(Encodings.DEFLATE)) {
+                deflateQuality = quality;
+            }
+            else if (headerValueTokenizer.elementEquals("*")) {
+                wildcardQuality = quality;
+            }
+        }
+
+        if (gzipQuality == null) { gzipQuality = wildcardQuality; }
+        if (deflateQuality == null) { deflateQuality = wildcardQuality; }
+
+        final int gzip = (gzipQuality != null ? gzipQuality : 0);
+        final int deflate = (deflateQuality != null ? deflateQuality : 0);
+        if ( (gzip <= 0) && (deflate <= 0) ) { return null; }
+        return (gzip >= deflate ? Encodings.GZIP : Encodings.DEFLATE);
+    }
+
+    protected final Integer _compressionLevel;
+    protected final Integer _minCompressedByteCount;
+    protected final List<String> _compressibleContentTypes = new ArrayList<String>();
+
+    protected final ArrayBlockingQueue<Deflater> _gzipDeflaters = new ArrayBlockingQueue<Deflater>(MAX_POOLED_DEFLATER_COUNT);
+    protected final ArrayBlockingQueue<Deflater> _zlibDeflaters = new ArrayBlockingQueue<Deflater>(MAX_POOLED_DEFLATER_COUNT);
+
+    protected Deflater _acquireDeflater(final Boolean isGzip) {
+        final ArrayBlockingQueue<Deflater> deflaters = (isGzip ? _gzipDeflaters : _zlibDeflaters);
+
+        final Deflater deflater = deflaters.poll();
+        if (deflater == null) {
+            return new Deflater(_compressionLevel, isGzip); // gzip frames raw deflate data; "deflate" is the zlib format...
+        }
+        return deflater;
+    }
+
+    /**
+     * Resets the Deflater and returns it to the pool; Deflaters beyond the pool's capacity are ended, releasing their native memory.
+     */
+    protected void _releaseDeflater(final Deflater deflater, final Boolean isGzip) {
+        final ArrayBlockingQueue<Deflater> deflaters = (isGzip ? _gzipDeflaters : _zlibDeflaters);
+
+        deflater.reset();
+        if (! deflaters.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Compresses the content with a pooled Deflater, leaving room for the header and trailer.
+     */
+    protected byte[] _compress(final byte[] content, final Boolean isGzip) {
+        final int headerByteCount = (isGzip ? GZIP_HEADER.length : 0);
+        final int trailerByteCount = (isGzip ? GZIP_TRAILER_BYTE_COUNT : 0);
+
+        byte[] buffer = new byte[headerByteCount + (content.length / 2) + 64 + trailerByteCount];
+        int byteCount = headerByteCount;
+
+        final Deflater deflater = _acquireDeflater(isGzip);
+        try {
+            deflater.setInput(content);
+            deflater.finish();
+
+            while (! deflater.finished()) {
+                if ((buffer.length - trailerByteCount) <= byteCount) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                byteCount += deflater.deflate(buffer, byteCount, (buffer.length - trailerByteCount - byteCount));
+            }
+        }
+        finally {
+            _releaseDeflater(deflater, isGzip);
+        }
+
+        final byte[] compressedContent = Arrays.copyOf(buffer, byteCount + trailerByteCount);
+        if (isGzip) {
+            System.arraycopy(GZIP_HEADER, 0, compressedContent, 0, GZIP_HEADER.length);
+
+            final CRC32 crc32 = new CRC32();
+            crc32.update(content);
+            _writeIntegerLittleEndian(compressedContent, byteCount, (int) crc32.getValue());
+            _writeIntegerLittleEndian(compressedContent, byteCount + 4, content.length);
+        }
+        return compressedContent;
+    }
+
+    protected ContentWriter _compressContentWriter(final ContentWriter contentWriter, final Boolean isGzip) {
+        final Integer compressionLevel = _compressionLevel;
+
+        return new ContentWriter() {
+            @Override
+            public void writeContent(final OutputStream outputStream) throws IOException {
+                final OutputStream unclosableOutputStream = new FilterOutputStream(outputStream) {
+                    @Override
+                    public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+                        this.out.write(bytes, offset, length);
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        this.out.flush(); // The engine's stream is closed once the ContentWriter has completed...
+                    }
+                };
+
+                if (isGzip) {
+                    final GZIPOutputStream gzipOutputStream = new GZIPOutputStream(unclosableOutputStream, STREAM_BUFFER_BYTE_COUNT) {
+                        {
+                            this.def.setLevel(compressionLevel);
+                        }
+                    };
+                    try {
+                        contentWriter.writeContent(gzipOutputStream);
+                    }
+                    finally {
+                        gzipOutputStream.close(); // Releases the Deflater...
+                    }
+                }
+                else {
+                    final Deflater deflater = new Deflater(compressionLevel);
+                    try {
+                        final DeflaterOutputStream deflaterOutputStream = new DeflaterOutputStream(unclosableOutputStream, deflater, STREAM_BUFFER_BYTE_COUNT);
+                        contentWriter.writeContent(deflaterOutputStream);
+                        deflaterOutputStream.finish();
+                        deflaterOutputStream.flush();
+                    }
+                    finally {
+                        deflater.end();
+                    }
+                }
+            }
+        };
+    }
+
+    protected Boolean _isCompressibleContentType(final String contentType) {
+        if (contentType == null) { return false; }
+
+        final HeaderValueTokenizer headerValueTokenizer = new HeaderValueTokenizer(contentType);
+        if (! headerValueTokenizer.nextElement()) { return false; }
+
+        if ( (headerValueTokenizer.elementEndsWith("+json")) || (headerValueTokenizer.elementEndsWith("+xml")) ) { return true; }
+        for (final String compressibleContentType : _compressibleContentTypes) {
+            if (headerValueTokenizer.elementStartsWith(compressibleContentType)) { return true; }
+        }
+        return false;
+    }
+
+    protected void _addVaryHeader(final Response response) {
+        final String varyHeaderValue = _getHeader(response.getHeaders(), VARY);
+        if (varyHeaderValue != null) {
+            final HeaderValueTokenizer headerValueTokenizer = new HeaderValueTokenizer(varyHeaderValue);
+            while (headerValueTokenizer.nextElement()) {
+                if ( (headerValueTokenizer.elementEquals("*")) || (headerValueTokenizer.elementEquals(ACCEPT_ENCODING)) ) { return; }
+            }
+        }
+
+        response.addHeader(VARY, ACCEPT_ENCODING);
+    }
+
+    /**
+     * Weakens a strong ETag, since the compressed representation is not byte-for-byte identical to the original.
+     */
+    protected void _weakenETag(final Response response) {
+        final Map<String, List<String>> headers = response.getHeaders();
+        for (final String key : headers.keySet()) {
+            if (! key.equalsIgnoreCase(ETAG)) { continue; }
+
+            final List<String> values = headers.get(key);
+            for (int i = 0; i < values.size(); ++i) {
+                final String value = values.get(i);
+                if (! value.startsWith("W/")) {
+                    values.set(i, "W/" + value);
+                }
+            }
+        }
+    }
+
+    public ResponseCompressor() {
+        this(DEFAULT_COMPRESSION_LEVEL, DEFAULT_MIN_COMPRESSED_BYTE_COUNT);
+    }
+
+    /**
+     * @param compressionLevel          - The Deflater compression level, from 1 (fastest) to 9 (smallest).
+     * @param minCompressedByteCount    - The minimum content size to compress; smaller content is sent uncompressed.
+     */
+    public ResponseCompressor(final Integer compressionLevel, final Integer minCompressedByteCount) {
+        _compressionLevel = Math.max(Deflater.BEST_SPEED, Math.min(Deflater.BEST_COMPRESSION, compressionLevel));
+        _minCompressedByteCount = minCompressedByteCount;
+
+        _compressibleContentTypes.add("text/");
+        _compressibleContentTypes.add("application/json");
+        _compressibleContentTypes.add("application/javascript");
+        _compressibleContentTypes.add("application/xml");
+        _compressibleContentTypes.add("image/svg+xml");
+    }
+
+    /**
+     * Adds a Content-Type (or prefix, e.x. "text/") that is eligible for compression.
+     *  Must be invoked before the ResponseCompressor is used.
+     */
+    public void addCompressibleContentType(final String contentTypePrefix) {
+        _compressibleContentTypes.add(contentTypePrefix.toLowerCase());
+    }
+
+    public Integer getCompressionLevel() {
+        return _compressionLevel;
+    }
+
+    public Integer getMinCompressedByteCount() {
+        return _minCompressedByteCount;
+    }
+
+    /**
+     * Compresses the Response's content, in place, with the encoding negotiated by the request's Accept-Encoding header.
+     *  Returns the content-encoding applied, or null if the Response was not compressed.
+     *  CannedResponses are immutable and are never compressed.
+     */
+    public String compress(final Response response, final String acceptEncodingHeaderValue) {
+        return this.compress(response, acceptEncodingHeaderValue, null);
+    }
+
+    /**
+     * Compresses the Response's content, in place, with the encoding negotiated by the request's Accept-Encoding header.
+     *  Returns the content-encoding applied, or null if the Response was not compressed.
+     *  Responses to HEAD requests are never compressed, since their content is not sent; compressing would only discard
+     *  the declared Content-Length of a metadata-only Response.
+     */
+    public String compress(final Response response, final String acceptEncodingHeaderValue, final String requestMethod) {
+        if (response instanceof CannedResponse) { return null; }
+
+        final Integer responseCode = response.getCode();
+        if ( (responseCode == null) || (responseCode < 200) || (responseCode == 204) || (responseCode == 304) ) { return null; }
+
+        final Map<String, List<String>> headers = response.getHeaders();
+        if (! _isCompressibleContentType(_getHeader(headers, Response.Headers.CONTENT_TYPE))) { return null; }
+
+        _addVaryHeader(response);
+        if ("HEAD".equalsIgnoreCase(requestMethod)) { return null; }
+
+        final String existingContentEncoding = _getHeader(headers, Response.Headers.CONTENT_ENCODING);
+        if ( (existingContentEncoding != null) && (! Encodings.IDENTITY.equalsIgnoreCase(existingContentEncoding.trim())) ) { return null; }
+
+        final Long contentByteCount = response.getContentByteCount();
+        if ( (contentByteCount != null) && (contentByteCount < _minCompressedByteCount) ) { return null; }
+
+        final String encoding = ResponseCompressor.selectEncoding(acceptEncodingHeaderValue);
+        if (encoding == null) { return null; }
+        final boolean isGzip = Encodings.GZIP.equals(encoding);
+
+        if (response.isContentStreamed()) {
+            response.setContentWriter(_compressContentWriter(response.getContentWriter(), isGzip));
+        }
+        else {
+            final byte[] content = response.getContent();
+            if (content == null) { return null; }
+
+            final byte[] compressedContent = _compress(content, isGzip);
+            if (compressedContent.length >= content.length) { return null; } // Incompressible content is sent as-is...
+
+            response.setContent(compressedContent);
+        }
+
+        response.setHeader(Response.Headers.CONTENT_ENCODING, encoding);
+        _weakenETag(response);
+        return encoding;
+    }
+
+    /**
+     * Compresses the Response's content, in place, as negotiated by the Accept-Encoding header within the request headers.
+     *  Returns the content-encoding applied, or null if the Response was not compressed.
+     */
+    public String compress(final Response response, final Map<String, List<String>> requestHeaders) {
+        return this.compress(response, _getHeader(requestHeaders, ACCEPT_ENCODING), null);
+    }
+
+    public String compress(final Response response, final Map<String, List<String>> requestHeaders, final String requestMethod) {
+        return this.compress(response, _getHeader(requestHeaders, ACCEPT_ENCODING), requestMethod);
+    }
+}
@@ -4,11 +4,15 @@ import com.softwareverde.http.server.servlet.request.Request;
 import com.softwareverde.http.server.servlet.response.Response;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * <p>Manages an endpoint, or collection of endpoints, by allowing for the routing of requests by path and method to a
  * configured request handler.</p>
  *
+ * <p>Request handlers implementing {@link AsyncRequestHandler} are awaited on the request's thread; see {@link AsyncApplicationServlet}
+ * to release the thread while their Response is pending.</p>
+ *
  * @param <E> An environment object that will be passed to all requests.  This can be used as a container for database objects,
  *           configuration, and other objects that need to be accessible to requests are available to them.
  */
@@ -29,4 +33,14 @@ public abstract class ApplicationServlet<E extends Environment> extends RoutedSe
     protected Response _handleRequest(final E environment, final Request request, final RequestHandler<E> requestHandler, final Map<String, String> routeParameters) throws Exception {
         return requestHandler.handleRequest(request, environment, routeParameters);
     }
+
+    @Override
+    protected CompletableFuture<Response> _handleRequestAsync(final E environment, final Request request, final RequestHandler<E> requestHandler, final Map<String, String> routeParameters) throws Exception {
+        if (requestHandler instanceof AsyncRequestHandler) {
+            final AsyncRequestHandler<E> asyncRequestHandler = (AsyncRequestHandler<E>) requestHandler;
+            return asyncRequestHandler.handleRequestAsync(request, environment, routeParameters);
+        }
+
+        return super._handleRequestAsync(environment, request, requestHandler, routeParameters);
+    }
 }
@@ -0,0 +1,25 @@
+package com.softwareverde.http.server.servlet.routed;
+
+import com.softwareverde.http.server.servlet.AsyncServlet;
+
+/**
+ * <p>An ApplicationServlet that releases the request's thread while the Response of an {@link AsyncRequestHandler} is pending.</p>
+ *
+ * <p>Servers invoke RoutedServlet.onRequestAsync() for AsyncServlets, so overrides of RoutedServlet.onRequest() are not
+ * invoked by subclasses of AsyncApplicationServlet.</p>
+ *
+ * @param <E> An environment object that will be passed to all requests.
+ */
+public abstract class AsyncApplicationServlet<E extends Environment> extends ApplicationServlet<E> implements AsyncServlet {
+    public AsyncApplicationServlet(final E environment) {
+        this(environment, "/", null);
+    }
+
+    public AsyncApplicationServlet(final E environment, final String apiBaseUrl) {
+        this(environment, apiBaseUrl, null);
+    }
+
+    public AsyncApplicationServlet(final E environment, final String apiBaseUrl, final RequestHandler<E> errorApiRoute) {
+        super(environment, apiBaseUrl, errorApiRoute);
+    }
+}
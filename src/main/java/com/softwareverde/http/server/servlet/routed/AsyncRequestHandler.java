@@ -0,0 +1,22 @@
+package com.softwareverde.http.server.servlet.routed;
+
+import com.softwareverde.http.server.servlet.request.Request;
+import com.softwareverde.http.server.servlet.response.Response;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <p>A RequestHandler whose Response may be completed after AsyncRequestHandler.handleRequestAsync() returns.</p>
+ *
+ * <p>When routed by an AsyncApplicationServlet, the request's thread is released while the CompletableFuture is pending;
+ * other ApplicationServlets wait for the Response on the request's thread.</p>
+ */
+public interface AsyncRequestHandler<E extends Environment> extends RequestHandler<E> {
+    CompletableFuture<Response> handleRequestAsync(final Request request, final E environment, final Map<String, String> parameters) throws Exception;
+
+    @Override
+    default Response handleRequest(final Request request, final E environment, final Map<String, String> parameters) throws Exception {
+        return this.handleRequestAsync(request, environment, parameters).join();
+    }
+}
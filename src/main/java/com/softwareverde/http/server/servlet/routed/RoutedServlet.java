@@ -11,7 +11,16 @@ import com.softwareverde.logging.LoggerInstance;
 
 import javax.servlet.http.HttpServletResponse;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
 
+/**
+ * <p>Routes requests by path and method to a configured request handler.</p>
+ *
+ * <p>RoutedServlets are synchronous: RoutedServlet.onRequest() blocks until the Response is available.  Subclasses opt in
+ * to asynchronous handling by also implementing AsyncServlet (e.x. AsyncApplicationServlet), in which case servers invoke
+ * RoutedServlet.onRequestAsync() instead, and overrides of RoutedServlet.onRequest() are no longer invoked.</p>
+ */
 public abstract class RoutedServlet<E extends Environment, RequestHandler> implements Servlet {
     private final LoggerInstance _logger = Logger.getInstance(this.getClass());
 
@@ -40,14 +49,54 @@ public abstract class RoutedServlet<E extends Environment, RequestHandler> imple
         _apiUrlRouter.defineEndpoint(endpointPattern, httpMethod, requestHandler);
     }
 
+    /**
+     * Defines the endpoint with a maximum request duration, in milliseconds.
+     *  Requests to the endpoint have their deadline (see Request.getDeadline()) shortened to the timeout, measured from when
+     *  the request is routed; when served by the HttpServer, requests still being processed after their deadline are answered with a 504.
+     */
+    protected void _defineEndpoint(final String endpointPattern, final HttpMethod httpMethod, final RequestHandler requestHandler, final Long requestTimeout) {
+        _apiUrlRouter.defineEndpoint(endpointPattern, httpMethod, requestHandler, requestTimeout);
+    }
+
+    /**
+     * Returns true if any endpoint has been defined with a request timeout.
+     *  NOTE: The HttpServer only enforces deadlines if the RoutedServlet (or its Endpoint) has a request timeout when HttpServer.start() is invoked.
+     */
+    public Boolean hasRequestTimeouts() {
+        return _apiUrlRouter.hasRequestTimeouts();
+    }
+
+    /**
+     * Routes the Request, shortening its deadline to the route's request timeout, if any.
+     */
+    protected ApiRoute<RequestHandler> _route(final Request request, final Long startTime) throws Exception {
+        final ApiRoute<RequestHandler> route = _apiUrlRouter.route(request);
+
+        final Long requestTimeout = route.getRequestTimeout();
+        if (requestTimeout != null) {
+            request.setDeadline(startTime + requestTimeout);
+        }
+
+        return route;
+    }
+
     protected abstract Response _handleRequest(final E environment, final Request request, final RequestHandler requestHandler, final Map<String, String> routeParameters) throws Exception;
 
+    /**
+     * Returns the Response of the RequestHandler; the default implementation completes immediately via RoutedServlet._handleRequest().
+     *  Subclasses supporting asynchronous RequestHandlers may return a pending CompletableFuture instead.
+     */
+    protected CompletableFuture<Response> _handleRequestAsync(final E environment, final Request request, final RequestHandler requestHandler, final Map<String, String> routeParameters) throws Exception {
+        final Response response = _handleRequest(environment, request, requestHandler, routeParameters);
+        return CompletableFuture.completedFuture(response);
+    }
+
     @Override
     public Response onRequest(final Request request) {
         final long startTime = System.currentTimeMillis();
 
         try {
-            final ApiRoute<RequestHandler> route = _apiUrlRouter.route(request);
+            final ApiRoute<RequestHandler> route = _route(request, startTime);
             final RequestHandler requestHandler = route.getRequestHandler();
             if (requestHandler == null) {
                 _logger.warn("Null request handler for " + request.getFilePath());
@@ -66,6 +115,48 @@ public abstract class RoutedServlet<E extends Environment, RequestHandler> imple
         }
     }
 
+    /**
+     * Routes the Request without waiting for the RequestHandler's Response.
+     *  Only invoked by servers if the subclass implements AsyncServlet; see AsyncApplicationServlet.
+     */
+    public CompletableFuture<Response> onRequestAsync(final Request request) {
+        final long startTime = System.currentTimeMillis();
+
+        CompletableFuture<Response> responseFuture;
+        try {
+            final ApiRoute<RequestHandler> route = _route(request, startTime);
+            final RequestHandler requestHandler = route.getRequestHandler();
+            if (requestHandler == null) {
+                _logger.warn("Null request handler for " + request.getFilePath());
+                responseFuture = CompletableFuture.completedFuture(_getBadRequestResponse());
+            }
+            else {
+                responseFuture = _handleRequestAsync(_environment, request, requestHandler, route.getParameters());
+            }
+        }
+        catch (final Exception exception) {
+            responseFuture = new CompletableFuture<Response>();
+            responseFuture.completeExceptionally(exception);
+        }
+
+        return responseFuture.handle(new BiFunction<Response, Throwable, Response>() {
+            @Override
+            public Response apply(final Response response, final Throwable throwable) {
+                try {
+                    if (throwable != null) {
+                        _logger.error("Unable to handle request.", throwable);
+                        return _getServerErrorResponse();
+                    }
+                    return response;
+                }
+                finally {
+                    final long requestTime = System.currentTimeMillis() - startTime;
+                    _logger.info("Processed request to " + request.getFilePath() + " in " + requestTime + "ms.");
+                }
+            }
+        });
+    }
+
     protected Response _getBadRequestResponse() {
         final Response response = new Response();
         response.setCode(HttpServletResponse.SC_BAD_REQUEST);
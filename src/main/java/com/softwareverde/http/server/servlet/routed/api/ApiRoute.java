@@ -5,10 +5,16 @@ import java.util.Map;
 public class ApiRoute<T> {
     private Map<String, String> _parameters;
     private T _requestHandler;
+    private Long _requestTimeout;
 
     protected ApiRoute(final T requestHandler, final Map<String, String> parameters) {
+        this(requestHandler, parameters, null);
+    }
+
+    protected ApiRoute(final T requestHandler, final Map<String, String> parameters, final Long requestTimeout) {
         this._requestHandler = requestHandler;
         this._parameters = parameters;
+        this._requestTimeout = requestTimeout;
     }
 
     public Map<String, String> getParameters() {
@@ -26,4 +32,11 @@ public class ApiRoute<T> {
     public void setRequestHandler(final T requestHandler) {
         this._requestHandler = requestHandler;
     }
+
+    /**
+     * Returns the maximum duration, in milliseconds, of requests to this route, or null if the route has no timeout.
+     */
+    public Long getRequestTimeout() {
+        return _requestTimeout;
+    }
 }
@@ -15,6 +15,7 @@ public class ApiUrlRouter<T> {
 
     private final String _baseUrl;
     private final Map<ApiUrl, T> _apiUrls = new LinkedHashMap<>();
+    private final Map<ApiUrl, Long> _requestTimeouts = new HashMap<>();
     private final T _errorApiRoute;
 
     public ApiUrlRouter(final String baseUrl, final T errorApiRoute) {
@@ -23,6 +24,13 @@ public class ApiUrlRouter<T> {
     }
 
     public void defineEndpoint(final String endpointPattern, final HttpMethod httpMethod, final T apiRoute) {
+        this.defineEndpoint(endpointPattern, httpMethod, apiRoute, null);
+    }
+
+    /**
+     * Defines the endpoint with a maximum request duration, in milliseconds; the timeout is available via ApiRoute.getRequestTimeout().
+     */
+    public void defineEndpoint(final String endpointPattern, final HttpMethod httpMethod, final T apiRoute, final Long requestTimeout) {
         final String path = _cleanUrl(_baseUrl + endpointPattern);
         final String[] segments = path.split("/");
 
@@ -49,6 +57,19 @@ public class ApiUrlRouter<T> {
         }
 
         _apiUrls.put(apiUrl, apiRoute);
+        if (requestTimeout != null) {
+            _requestTimeouts.put(apiUrl, requestTimeout);
+        }
+        else {
+            _requestTimeouts.remove(apiUrl);
+        }
+    }
+
+    /**
+     * Returns true if any endpoint has been defined with a request timeout.
+     */
+    public Boolean hasRequestTimeouts() {
+        return (! _requestTimeouts.isEmpty());
     }
 
     public ApiRoute<T> route(final Request request) throws RouteNotFoundException {
@@ -64,7 +85,7 @@ public class ApiUrlRouter<T> {
                 final Map<String, String> urlParameters = apiUrl.getParameters(path);
 
                 final T matchingApiUrl = _apiUrls.get(apiUrl);
-                final ApiRoute<T> matchingApiRoute = new ApiRoute<T>(matchingApiUrl, urlParameters);
+                final ApiRoute<T> matchingApiRoute = new ApiRoute<T>(matchingApiUrl, urlParameters, _requestTimeouts.get(apiUrl));
 
                 matches.add(new Tuple<>(matchingApiRoute, matchType));
             }
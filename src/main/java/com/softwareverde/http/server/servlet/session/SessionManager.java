@@ -69,7 +69,7 @@ public class SessionManager {
     }
 
     public static SessionId getSessionId(final Request request) {
-        final List<Cookie> cookies = request.getCookies();
+        final List<Cookie> cookies = request.getCookies(SESSION_COOKIE_KEY);
         for (final Cookie cookie : cookies) {
             final String cookieKey = cookie.getKey();
             if (Util.areEqual(SESSION_COOKIE_KEY, cookieKey)) {
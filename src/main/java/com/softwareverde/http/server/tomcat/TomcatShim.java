@@ -2,24 +2,39 @@ package com.softwareverde.http.server.tomcat;
 
 import com.softwareverde.http.HttpMethod;
 import com.softwareverde.http.cookie.Cookie;
+import com.softwareverde.http.server.servlet.AsyncServlet;
 import com.softwareverde.http.server.servlet.Servlet;
 import com.softwareverde.http.server.servlet.request.Request;
 import com.softwareverde.http.server.servlet.request.RequestInflater;
+import com.softwareverde.http.server.servlet.response.ContentWriter;
 import com.softwareverde.http.server.servlet.response.Response;
+import com.softwareverde.http.server.servlet.response.ResponseCompressor;
 import com.softwareverde.http.server.tomcat.request.TomcatRequest;
+import com.softwareverde.logging.Logger;
 import com.softwareverde.util.IoUtil;
 import com.softwareverde.util.StringUtil;
 
+import javax.servlet.AsyncContext;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.OutputStream;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
 
 public class TomcatShim extends HttpServlet {
     public static Request createRequestFromTomcatRequest(final HttpServletRequest httpServletRequest) {
+        return TomcatShim.createRequestFromTomcatRequest(httpServletRequest, false);
+    }
+
+    /**
+     * Creates the Request from the HttpServletRequest.
+     *  If shouldStreamRequestBody is true, the request body is not read; it is instead provided via Request.getRequestBody().
+     */
+    public static Request createRequestFromTomcatRequest(final HttpServletRequest httpServletRequest, final Boolean shouldStreamRequestBody) {
         final TomcatRequest request = new TomcatRequest();
 
         request.setLocalHost(httpServletRequest);
@@ -75,6 +90,15 @@ public class TomcatShim extends HttpServlet {
         }
         catch (final Exception exception) { exception.printStackTrace(); }
 
+        if (shouldStreamRequestBody) {
+            try {
+                request.setRequestBody(httpServletRequest.getInputStream());
+            }
+            catch (final Exception exception) { exception.printStackTrace(); }
+
+            return request;
+        }
+
         try {
             final String rawPostData = IoUtil.streamToString(httpServletRequest.getInputStream());
             request.setPostParameters(RequestInflater.POST_PARAMETERS_PARSER.parse(rawPostData));
@@ -86,11 +110,22 @@ public class TomcatShim extends HttpServlet {
     }
 
     protected final Servlet _servlet;
+    protected final ResponseCompressor _responseCompressor;
 
-    protected void _handleRequest(final HttpServletRequest httpServletRequest, final HttpServletResponse httpServletResponse) throws ServletException, IOException {
-        String responseContent = "Server error.";
+    /**
+     * Writes the Response to the HttpServletResponse; if the Response is null, a server error is sent instead.
+     *  The content of Responses to HEAD requests is not written (and streamed content is not produced).
+     */
+    protected void _writeResponse(final Response response, final HttpServletRequest httpServletRequest, final HttpServletResponse httpServletResponse) throws IOException {
+        final boolean isHeadRequest = "HEAD".equalsIgnoreCase(httpServletRequest.getMethod());
+        byte[] responseContent = StringUtil.stringToBytes("Server error.");
+        ContentWriter contentWriter = null;
         try {
-            final Response response = _servlet.onRequest(TomcatShim.createRequestFromTomcatRequest(httpServletRequest));
+            if (response == null) { throw new NullPointerException("Null Response."); }
+
+            if (_responseCompressor != null) {
+                _responseCompressor.compress(response, httpServletRequest.getHeader("Accept-Encoding"), httpServletRequest.getMethod());
+            }
 
             httpServletResponse.setStatus(response.getCode());
 
@@ -104,20 +139,124 @@ public class TomcatShim extends HttpServlet {
                 }
             }
 
-            final byte[] responseBytes = response.getContent();
-            httpServletResponse.setContentLength(responseBytes.length);
-            responseContent = StringUtil.bytesToString(responseBytes);
+            if (isHeadRequest) { // The content is not written; only its length is sent...
+                final Long contentByteCount = response.getContentByteCount();
+                if (contentByteCount != null) {
+                    httpServletResponse.setHeader("Content-Length", String.valueOf(contentByteCount));
+                }
+                return;
+            }
+            else if (response.isContentStreamed()) {
+                // NOTE: Without a known length, the container sends the content with chunked transfer-encoding.
+                final Long contentByteCount = response.getContentByteCount();
+                if (contentByteCount != null) {
+                    httpServletResponse.setHeader("Content-Length", String.valueOf(contentByteCount));
+                }
+                contentWriter = response.getContentWriter();
+            }
+            else {
+                final byte[] responseBytes = response.getContent();
+                httpServletResponse.setContentLength(responseBytes.length);
+                responseContent = responseBytes;
+            }
         }
         catch (final Exception exception) {
             httpServletResponse.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            contentWriter = null;
         }
 
-        final PrintWriter writer = httpServletResponse.getWriter();
-        writer.write(responseContent);
+        final OutputStream outputStream = httpServletResponse.getOutputStream();
+        if (contentWriter != null) {
+            contentWriter.writeContent(outputStream);
+        }
+        else { // The content is written as bytes, since it may be compressed (or otherwise binary)...
+            outputStream.write(responseContent);
+        }
+        outputStream.flush();
+    }
+
+    /**
+     * Suspends the container's request until the AsyncServlet's Response resolves, releasing the container's thread.
+     *  NOTE: The TomcatShim must be registered with async support enabled (e.x. Wrapper.setAsyncSupported(true)); otherwise the Response is awaited synchronously.
+     */
+    protected void _handleAsyncRequest(final AsyncServlet asyncServlet, final Request request, final HttpServletRequest httpServletRequest, final HttpServletResponse httpServletResponse) throws IOException {
+        CompletableFuture<Response> responseFuture;
+        try {
+            responseFuture = asyncServlet.onRequestAsync(request);
+        }
+        catch (final Exception exception) {
+            responseFuture = new CompletableFuture<Response>();
+            responseFuture.completeExceptionally(exception);
+        }
+
+        if (! httpServletRequest.isAsyncSupported()) {
+            Response response = null;
+            try {
+                response = responseFuture.join();
+            }
+            catch (final Exception exception) {
+                Logger.warn(TomcatShim.class, "Unable to handle request.", exception);
+            }
+
+            _writeResponse(response, httpServletRequest, httpServletResponse);
+            return;
+        }
+
+        final AsyncContext asyncContext = httpServletRequest.startAsync();
+        responseFuture.whenComplete(new BiConsumer<Response, Throwable>() {
+            @Override
+            public void accept(final Response response, final Throwable throwable) {
+                if (throwable != null) {
+                    Logger.warn(TomcatShim.class, "Unable to handle request.", throwable);
+                }
+
+                try {
+                    _writeResponse((throwable == null ? response : null), (HttpServletRequest) asyncContext.getRequest(), (HttpServletResponse) asyncContext.getResponse());
+                }
+                catch (final Exception exception) {
+                    Logger.warn(TomcatShim.class, "Unable to write response.", exception);
+                }
+                finally {
+                    asyncContext.complete();
+                }
+            }
+        });
+    }
+
+    protected void _handleRequest(final HttpServletRequest httpServletRequest, final HttpServletResponse httpServletResponse) throws ServletException, IOException {
+        final Request request;
+        try {
+            request = TomcatShim.createRequestFromTomcatRequest(httpServletRequest, _servlet.shouldStreamRequestBody());
+        }
+        catch (final Exception exception) {
+            _writeResponse(null, httpServletRequest, httpServletResponse);
+            return;
+        }
+
+        if (_servlet instanceof AsyncServlet) {
+            _handleAsyncRequest((AsyncServlet) _servlet, request, httpServletRequest, httpServletResponse);
+            return;
+        }
+
+        Response response = null;
+        try {
+            response = _servlet.onRequest(request);
+        }
+        catch (final Exception exception) { }
+
+        _writeResponse(response, httpServletRequest, httpServletResponse);
     }
 
     public TomcatShim(final Servlet servlet) {
+        this(servlet, null);
+    }
+
+    /**
+     * Compresses each Response via the ResponseCompressor, as negotiated by the request's Accept-Encoding header.
+     */
+    public TomcatShim(final Servlet servlet, final ResponseCompressor responseCompressor) {
         _servlet = servlet;
+        _responseCompressor = responseCompressor;
     }
 
     @Override
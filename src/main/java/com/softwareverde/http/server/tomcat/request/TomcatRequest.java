@@ -9,6 +9,7 @@ import com.softwareverde.http.server.servlet.request.Request;
 import com.softwareverde.util.Util;
 
 import javax.servlet.http.HttpServletRequest;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -83,13 +84,15 @@ public class TomcatRequest extends Request {
         _headers.clear();
         for (final String key : headers.keySet()) {
             final List<String> values = headers.get(key);
-            _headers.setHeader(key, Util.copyList(values));
+            _headers.setHeader(key, values); // Headers retains its own copy...
         }
     }
 
     public void setCookies(final List<Cookie> cookies) {
-        _cookies.clear();
-        _cookies.addAll(cookies);
+        _cookieIndex.clear();
+        for (final Cookie cookie : cookies) {
+            _cookieIndex.addCookie(cookie, cookie.getValue());
+        }
     }
 
     public void setGetParameters(final GetParameters getParameters) {
@@ -107,4 +110,8 @@ public class TomcatRequest extends Request {
     public void setRawPostData(final byte[] rawPostData) {
         _rawPostData = rawPostData;
     }
+
+    public void setRequestBody(final InputStream requestBody) {
+        _requestBody = requestBody;
+    }
 }
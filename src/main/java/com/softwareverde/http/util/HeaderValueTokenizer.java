@@ -0,0 +1,351 @@
+package com.softwareverde.http.util;
+
+/**
+ * <p>Tokenizes structured header values (e.x. "text/html; charset=utf-8", "gzip;q=0.8, deflate;q=0.5") without allocating.</p>
+ *
+ * <p>The value is traversed as a comma-separated list of elements via HeaderValueTokenizer.nextElement(), and each element's
+ * ";key=value" parameters via HeaderValueTokenizer.nextParameter().  Commas and semicolons within quoted strings are not
+ * treated as separators.  Elements and parameters are tracked as index ranges within the original value; the comparison
+ * methods are case-insensitive and do not allocate, while the getters create a String only when invoked.</p>
+ *
+ * <p>Instances are not thread-safe, but may be reused for multiple values via HeaderValueTokenizer.reset().</p>
+ */
+public class HeaderValueTokenizer {
+    public static final Integer MAX_QUALITY = 1000;
+
+    protected static Boolean _isWhitespace(final char c) {
+        return ( (c == ' ') || (c == '\t') );
+    }
+
+    protected String _value;
+    protected int _position;
+
+    protected int _elementStart;
+    protected int _elementEnd;              // Exclusive; trailing whitespace removed.
+    protected int _elementParametersStart;  // The index of the element's first semicolon, if any.
+    protected int _elementParametersEnd;    // The index of the comma (or end of value) terminating the element.
+    protected int _quality;
+
+    protected int _parameterPosition;
+    protected int _parameterNameStart;
+    protected int _parameterNameEnd;
+    protected int _parameterValueStart;     // Excludes the quotes of a quoted value.
+    protected int _parameterValueEnd;
+    protected Boolean _isParameterValueQuoted;
+    protected Boolean _hasParameterValueEscapes;
+
+    /**
+     * Returns the index of the closing quote of the quoted string starting at the provided index, or the end of the value if it is unterminated.
+     */
+    protected int _skipQuotedString(final int quoteIndex, final int endIndex) {
+        int position = (quoteIndex + 1);
+        while (position < endIndex) {
+            final char c = _value.charAt(position);
+            if (c == '\\') {
+                position += 2;
+                continue;
+            }
+            if (c == '"') { return position; }
+            position += 1;
+        }
+        return endIndex;
+    }
+
+    protected int _skipWhitespace(final int startIndex, final int endIndex) {
+        int position = startIndex;
+        while ( (position < endIndex) && _isWhitespace(_value.charAt(position)) ) {
+            position += 1;
+        }
+        return position;
+    }
+
+    protected int _trimTrailingWhitespace(final int startIndex, final int endIndex) {
+        int position = endIndex;
+        while ( (position > startIndex) && _isWhitespace(_value.charAt(position - 1)) ) {
+            position -= 1;
+        }
+        return position;
+    }
+
+    /**
+     * Returns the index of the comma (or end of value) following the provided index, ignoring commas within quoted strings.
+     */
+    protected int _findElementEnd(final int startIndex, final int length) {
+        int position = startIndex;
+        while (position < length) {
+            final char c = _value.charAt(position);
+            if (c == ',') { return position; }
+            if (c == '"') {
+                position = _skipQuotedString(position, length);
+            }
+            position += 1;
+        }
+        return length;
+    }
+
+    /**
+     * Parses the parameter beginning at the provided index (after its semicolon), and returns the index following it.
+     */
+    protected int _parseParameter(final int startIndex, final int endIndex) {
+        final int nameStart = _skipWhitespace(startIndex, endIndex);
+        int position = nameStart;
+        while (position < endIndex) {
+            final char c = _value.charAt(position);
+            if ( (c == '=') || (c == ';') ) { break; }
+            position += 1;
+        }
+
+        _parameterNameStart = nameStart;
+        _parameterNameEnd = _trimTrailingWhitespace(nameStart, position);
+        _isParameterValueQuoted = false;
+        _hasParameterValueEscapes = false;
+
+        if ( (position >= endIndex) || (_value.charAt(position) != '=') ) { // The parameter has no value...
+            _parameterValueStart = position;
+            _parameterValueEnd = position;
+            return position;
+        }
+
+        final int valueStart = _skipWhitespace(position + 1, endIndex);
+        if ( (valueStart < endIndex) && (_value.charAt(valueStart) == '"') ) {
+            final int closingQuoteIndex = _skipQuotedString(valueStart, endIndex);
+            _isParameterValueQuoted = true;
+            final int escapeIndex = _value.indexOf('\\', valueStart);
+            _hasParameterValueEscapes = ( (escapeIndex >= 0) && (escapeIndex < closingQuoteIndex) );
+            _parameterValueStart = (valueStart + 1);
+            _parameterValueEnd = Math.min(closingQuoteIndex, endIndex);
+
+            position = Math.min(closingQuoteIndex + 1, endIndex);
+            while ( (position < endIndex) && (_value.charAt(position) != ';') ) { // Characters between the closing quote and the next parameter are ignored...
+                position += 1;
+            }
+            return position;
+        }
+
+        position = valueStart;
+        while ( (position < endIndex) && (_value.charAt(position) != ';') ) {
+            position += 1;
+        }
+        _parameterValueStart = valueStart;
+        _parameterValueEnd = _trimTrailingWhitespace(valueStart, position);
+        return position;
+    }
+
+    /**
+     * Parses a qvalue (e.x. "0.5") into thousandths, or returns 0 if the value is malformed.
+     */
+    protected int _parseQuality(final int startIndex, final int endIndex) {
+        int quality = 0;
+        int position = startIndex;
+        int integerDigitCount = 0;
+        while ( (position < endIndex) && (Character.isDigit(_value.charAt(position))) ) {
+            quality = Math.min(((quality * 10) + (_value.charAt(position) - '0')), MAX_QUALITY);
+            integerDigitCount += 1;
+            position += 1;
+        }
+        quality = Math.min(quality * 1000, MAX_QUALITY);
+
+        int fractionDigitCount = 0;
+        if (position < endIndex) {
+            if (_value.charAt(position) != '.') { return 0; }
+            position += 1;
+
+            int multiplier = 100;
+            while ( (position < endIndex) && (Character.isDigit(_value.charAt(position))) ) {
+                quality += ((_value.charAt(position) - '0') * multiplier);
+                multiplier /= 10;
+                fractionDigitCount += 1;
+                position += 1;
+            }
+            if (position < endIndex) { return 0; }
+        }
+        if ( (integerDigitCount == 0) && (fractionDigitCount == 0) ) { return 0; }
+
+        return Math.min(quality, MAX_QUALITY);
+    }
+
+    protected Boolean _regionEquals(final int startIndex, final int endIndex, final String value) {
+        if (value == null) { return false; }
+
+        final int length = (endIndex - startIndex);
+        if (length != value.length()) { return false; }
+        return _value.regionMatches(true, startIndex, value, 0, length);
+    }
+
+    protected String _unescape(final int startIndex, final int endIndex) {
+        final StringBuilder stringBuilder = new StringBuilder(endIndex - startIndex);
+        int position = startIndex;
+        while (position < endIndex) {
+            final char c = _value.charAt(position);
+            if ( (c == '\\') && ((position + 1) < endIndex) ) {
+                stringBuilder.append(_value.charAt(position + 1));
+                position += 2;
+                continue;
+            }
+            stringBuilder.append(c);
+            position += 1;
+        }
+        return stringBuilder.toString();
+    }
+
+    public HeaderValueTokenizer() {
+        this.reset(null);
+    }
+
+    public HeaderValueTokenizer(final String value) {
+        this.reset(value);
+    }
+
+    /**
+     * Prepares the tokenizer to traverse the provided value; a null value is treated as empty.
+     */
+    public void reset(final String value) {
+        _value = (value != null ? value : "");
+        _position = 0;
+
+        _elementStart = 0;
+        _elementEnd = 0;
+        _elementParametersStart = 0;
+        _elementParametersEnd = 0;
+        _quality = MAX_QUALITY;
+
+        _parameterPosition = 0;
+        _parameterNameStart = 0;
+        _parameterNameEnd = 0;
+        _parameterValueStart = 0;
+        _parameterValueEnd = 0;
+        _isParameterValueQuoted = false;
+        _hasParameterValueEscapes = false;
+    }
+
+    /**
+     * Advances to the next non-empty element of the comma-separated value.  Returns false once the value is exhausted.
+     *  The element's quality (its "q" parameter) is parsed as the element is found; its parameters may then be traversed.
+     */
+    public Boolean nextElement() {
+        final int length = _value.length();
+        while (_position < length) {
+            final int elementStart = _skipWhitespace(_position, length);
+
+            int position = elementStart;
+            while (position < length) { // Find the end of the element's value...
+                final char c = _value.charAt(position);
+                if ( (c == ',') || (c == ';') ) { break; }
+                if (c == '"') {
+                    position = _skipQuotedString(position, length);
+                }
+                position += 1;
+            }
+            position = Math.min(position, length);
+            final int elementEnd = _trimTrailingWhitespace(elementStart, position);
+
+            int quality = MAX_QUALITY;
+            final int parametersStart = position;
+            while ( (position < length) && (_value.charAt(position) == ';') ) { // Find the end of the element's parameters...
+                position = _parseParameter(position + 1, _findElementEnd(position + 1, length));
+                if (_regionEquals(_parameterNameStart, _parameterNameEnd, "q")) {
+                    quality = _parseQuality(_parameterValueStart, _parameterValueEnd);
+                }
+            }
+
+            _position = Math.min(position + 1, length);
+
+            final Boolean hasParameters = (parametersStart < position);
+            if ( (elementEnd == elementStart) && (! hasParameters) ) { continue; } // Skips empty elements (e.x. "a, , b")...
+
+            _elementStart = elementStart;
+            _elementEnd = elementEnd;
+            _elementParametersStart = parametersStart;
+            _elementParametersEnd = position;
+            _quality = quality;
+            _parameterPosition = parametersStart;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Advances to the current element's next parameter.  Returns false once the element's parameters are exhausted.
+     */
+    public Boolean nextParameter() {
+        while (_parameterPosition < _elementParametersEnd) {
+            if (_value.charAt(_parameterPosition) != ';') { return false; }
+
+            _parameterPosition = _parseParameter(_parameterPosition + 1, _elementParametersEnd);
+            if (_parameterNameEnd > _parameterNameStart) { return true; } // Skips empty parameters (e.x. "a;;b=c")...
+        }
+        return false;
+    }
+
+    public String getElement() {
+        return _value.substring(_elementStart, _elementEnd);
+    }
+
+    public Boolean elementEquals(final String value) {
+        return _regionEquals(_elementStart, _elementEnd, value);
+    }
+
+    public Boolean elementStartsWith(final String prefix) {
+        final int prefixLength = prefix.length();
+        if ((_elementEnd - _elementStart) < prefixLength) { return false; }
+        return _value.regionMatches(true, _elementStart, prefix, 0, prefixLength);
+    }
+
+    public Boolean elementEndsWith(final String suffix) {
+        final int suffixLength = suffix.length();
+        if ((_elementEnd - _elementStart) < suffixLength) { return false; }
+        return _value.regionMatches(true, (_elementEnd - suffixLength), suffix, 0, suffixLength);
+    }
+
+    /**
+     * Returns the current element's quality (its "q" parameter) in thousandths, from 0 to 1000.  Returns 1000 if unspecified.
+     */
+    public Integer getQuality() {
+        return _quality;
+    }
+
+    public String getParameterName() {
+        return _value.substring(_parameterNameStart, _parameterNameEnd);
+    }
+
+    public Boolean parameterNameEquals(final String name) {
+        return _regionEquals(_parameterNameStart, _parameterNameEnd, name);
+    }
+
+    /**
+     * Returns the current parameter's value, with its quotes removed and its escapes resolved, or an empty string if the parameter has no value.
+     */
+    public String getParameterValue() {
+        if (_hasParameterValueEscapes) {
+            return _unescape(_parameterValueStart, _parameterValueEnd);
+        }
+        return _value.substring(_parameterValueStart, _parameterValueEnd);
+    }
+
+    public Boolean parameterValueEquals(final String value) {
+        if (_hasParameterValueEscapes) {
+            return this.getParameterValue().equalsIgnoreCase(value);
+        }
+        return _regionEquals(_parameterValueStart, _parameterValueEnd, value);
+    }
+
+    public Boolean isParameterValueQuoted() {
+        return _isParameterValueQuoted;
+    }
+
+    /**
+     * Returns the value of the current element's parameter with the provided name (case-insensitive), or null if it is not present.
+     *  NOTE: Parameter traversal restarts from the element's first parameter and is exhausted upon return.
+     */
+    public String getParameter(final String name) {
+        _parameterPosition = _elementParametersStart;
+        while (this.nextParameter()) {
+            if (this.parameterNameEquals(name)) {
+                final String value = this.getParameterValue();
+                _parameterPosition = _elementParametersEnd;
+                return value;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,63 @@
+package com.softwareverde.http.server.engine;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * <p>Provides Unix domain socket channels via UnixDomainSocketAddress.</p>
+ *
+ * <p>This implementation is used on Java 16 and later; see src/main/java for the implementation used on earlier JVMs.</p>
+ */
+public class UnixDomainSockets {
+    protected UnixDomainSockets() { }
+
+    /**
+     * Returns true if Unix domain sockets are supported by the running JVM.
+     */
+    public static Boolean isSupported() {
+        return true;
+    }
+
+    /**
+     * Opens a ServerSocketChannel bound to the Unix domain socket at the path.
+     *  An existing socket file at the path (e.x. left behind by a previous process) is replaced; any other existing file causes an IOException.
+     */
+    public static ServerSocketChannel openServerSocketChannel(final String socketPath, final Integer backlogCount) throws IOException {
+        final Path path = Path.of(socketPath);
+        if (Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+            final BasicFileAttributes fileAttributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if (! fileAttributes.isOther()) {
+                throw new IOException("Unable to bind Unix domain socket; file already exists: " + socketPath);
+            }
+            Files.delete(path);
+        }
+
+        final ServerSocketChannel serverSocketChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            serverSocketChannel.bind(UnixDomainSocketAddress.of(path), backlogCount);
+        }
+        catch (final IOException exception) {
+            serverSocketChannel.close();
+            throw exception;
+        }
+        return serverSocketChannel;
+    }
+
+    /**
+     * Returns the path of the Unix domain socket address, or null if the address is not a Unix domain socket address.
+     *  The path of an unnamed socket (e.x. a connecting client) is empty.
+     */
+    public static String getPath(final SocketAddress socketAddress) {
+        if (! (socketAddress instanceof UnixDomainSocketAddress)) { return null; }
+
+        final UnixDomainSocketAddress unixDomainSocketAddress = (UnixDomainSocketAddress) socketAddress;
+        return unixDomainSocketAddress.getPath().toString();
+    }
+}
@@ -0,0 +1,29 @@
+package com.softwareverde.http.server.executor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * <p>Provides virtual threads when running on a JVM that supports them.</p>
+ *
+ * <p>This implementation is packaged within the multi-release jar (META-INF/versions/21) and is used on Java 21 and later.</p>
+ */
+public class VirtualThreads {
+    protected VirtualThreads() { }
+
+    /**
+     * Returns true if virtual threads are supported by the running JVM.
+     */
+    public static Boolean isSupported() {
+        return true;
+    }
+
+    /**
+     * Returns an ExecutorService that runs each task on a new virtual thread, or null if virtual threads are not supported.
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor(final String threadNamePrefix) {
+        final ThreadFactory threadFactory = Thread.ofVirtual().name(threadNamePrefix, 0L).factory();
+        return Executors.newThreadPerTaskExecutor(threadFactory);
+    }
+}
@@ -0,0 +1,47 @@
+package com.softwareverde.http.querystring;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class QueryStringIndexTests {
+    @Test
+    public void should_index_and_decode_parameters() {
+        // Setup
+        final byte[] bytes = "a=1&b=hello+world&&=ignored&c&%C3%A9t%C3%A9=%E2%82%AC&a=2&d=100%&e=x=y".getBytes(StandardCharsets.UTF_8);
+
+        // Action
+        final QueryStringIndex queryStringIndex = QueryStringIndex.parse(bytes);
+
+        // Assert
+        Assert.assertEquals(Integer.valueOf(7), queryStringIndex.getParameterCount());
+        Assert.assertEquals("1", queryStringIndex.get("a"));
+        Assert.assertEquals(Arrays.asList("1", "2"), queryStringIndex.getValues("a"));
+        Assert.assertEquals("hello world", queryStringIndex.get("b"));
+        Assert.assertTrue(queryStringIndex.containsKey("c"));
+        Assert.assertEquals("", queryStringIndex.get("c"));
+        Assert.assertEquals("\u20AC", queryStringIndex.get("\u00E9t\u00E9"));
+        Assert.assertEquals("\u00E9t\u00E9", queryStringIndex.getKey(3));
+        Assert.assertEquals("100%", queryStringIndex.get("d"));
+        Assert.assertEquals("x=y", queryStringIndex.get("e"));
+        Assert.assertNull(queryStringIndex.get("missing"));
+        Assert.assertTrue(queryStringIndex.getValues("missing").isEmpty());
+    }
+
+    @Test
+    public void should_index_range_of_bytes() {
+        // Setup
+        final byte[] bytes = "GET /?key=value&other=1 HTTP/1.1".getBytes(StandardCharsets.UTF_8);
+
+        // Action
+        final QueryStringIndex queryStringIndex = QueryStringIndex.parse(bytes, 6, 17);
+
+        // Assert
+        Assert.assertEquals(Integer.valueOf(2), queryStringIndex.getParameterCount());
+        Assert.assertEquals("value", queryStringIndex.get("key"));
+        Assert.assertEquals("1", queryStringIndex.get("other"));
+        Assert.assertEquals(Integer.valueOf(0), QueryStringIndex.parse((String) null).getParameterCount());
+    }
+}
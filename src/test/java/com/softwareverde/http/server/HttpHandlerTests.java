@@ -0,0 +1,168 @@
+package com.softwareverde.http.server;
+
+import com.softwareverde.http.server.engine.Exchange;
+import com.softwareverde.http.server.servlet.AsyncServlet;
+import com.softwareverde.http.server.servlet.Servlet;
+import com.softwareverde.http.server.servlet.request.HostInformation;
+import com.softwareverde.http.server.servlet.request.Request;
+import com.softwareverde.http.server.servlet.request.RequestInflater;
+import com.softwareverde.http.server.servlet.request.RequestPool;
+import com.softwareverde.http.server.servlet.response.Response;
+import com.softwareverde.http.server.servlet.routed.ApplicationServlet;
+import com.softwareverde.http.server.servlet.routed.Environment;
+import com.softwareverde.http.websocket.ConnectionLayer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+public class HttpHandlerTests {
+    protected static class TestExchange implements Exchange {
+        public final List<Response> sentResponses = new ArrayList<Response>();
+
+        @Override
+        public String getRequestMethod() { return "GET"; }
+
+        @Override
+        public URI getRequestUri() { return URI.create("/api?key=value"); }
+
+        @Override
+        public String getContextPath() { return "/api"; }
+
+        @Override
+        public Map<String, List<String>> getRequestHeaders() { return new HashMap<String, List<String>>(); }
+
+        @Override
+        public HostInformation getLocalHostInformation() { return null; }
+
+        @Override
+        public HostInformation getRemoteHostInformation() { return null; }
+
+        @Override
+        public InputStream getRequestBody() { return new ByteArrayInputStream(new byte[0]); }
+
+        @Override
+        public synchronized void sendResponse(final Response response) {
+            this.sentResponses.add(response);
+        }
+
+        @Override
+        public ConnectionLayer upgradeToWebSocket(final Response response) { return null; }
+    }
+
+    protected static class PendingAsyncServlet implements AsyncServlet {
+        public final CompletableFuture<Response> responseFuture = new CompletableFuture<Response>();
+        public Request request;
+
+        @Override
+        public CompletableFuture<Response> onRequestAsync(final Request request) {
+            this.request = request;
+            return this.responseFuture;
+        }
+    }
+
+    @Test
+    public void should_recycle_async_request_once_response_future_completes() throws Exception {
+        // Setup
+        final PendingAsyncServlet asyncServlet = new PendingAsyncServlet();
+        final HttpHandler httpHandler = new HttpHandler(asyncServlet, false);
+        httpHandler.setRequestPool(new RequestPool(new RequestInflater(), true));
+        final TestExchange exchange = new TestExchange();
+
+        // Action
+        httpHandler.handle(exchange);
+        final String parameterValueBeforeResponse = asyncServlet.request.getGetParameters().get("key");
+
+        final Response response = new Response();
+        response.setCode(Response.Codes.OK);
+        asyncServlet.responseFuture.complete(response);
+
+        // Assert
+        Assert.assertEquals("value", parameterValueBeforeResponse);
+        Assert.assertEquals(1, exchange.sentResponses.size());
+        Assert.assertSame(response, exchange.sentResponses.get(0));
+        try {
+            asyncServlet.request.getGetParameters();
+            Assert.fail();
+        }
+        catch (final IllegalStateException exception) { }
+    }
+
+    @Test
+    public void should_not_recycle_async_request_when_response_future_is_cancelled() throws Exception {
+        // Setup
+        final PendingAsyncServlet asyncServlet = new PendingAsyncServlet();
+        final HttpHandler httpHandler = new HttpHandler(asyncServlet, false);
+        httpHandler.setRequestPool(new RequestPool(new RequestInflater(), true));
+        final TestExchange exchange = new TestExchange();
+
+        // Action
+        httpHandler.handle(exchange);
+        asyncServlet.responseFuture.cancel(true);
+
+        // Assert
+        Assert.assertEquals("value", asyncServlet.request.getGetParameters().get("key"));
+    }
+
+    @Test
+    public void should_only_watch_request_once_deadline_is_set() throws Exception {
+        // Setup
+        final RequestDeadlineWatchdog requestDeadlineWatchdog = new RequestDeadlineWatchdog(1000L);
+        final Integer[] watchedRequestCounts = new Integer[2];
+        final Servlet servlet = new Servlet() {
+            @Override
+            public Response onRequest(final Request request) {
+                watchedRequestCounts[0] = requestDeadlineWatchdog.getWatchedRequestCount();
+                request.setDeadline(System.currentTimeMillis() + 60000L);
+                watchedRequestCounts[1] = requestDeadlineWatchdog.getWatchedRequestCount();
+
+                final Response response = new Response();
+                response.setCode(Response.Codes.OK);
+                return response;
+            }
+        };
+        final HttpHandler httpHandler = new HttpHandler(servlet, false);
+        httpHandler.setRequestDeadlineWatchdog(requestDeadlineWatchdog);
+        final TestExchange exchange = new TestExchange();
+
+        // Action
+        httpHandler.handle(exchange);
+        requestDeadlineWatchdog.shutdown();
+
+        // Assert
+        Assert.assertFalse(httpHandler.hasRequestTimeouts());
+        Assert.assertEquals(Integer.valueOf(0), watchedRequestCounts[0]);
+        Assert.assertEquals(Integer.valueOf(1), watchedRequestCounts[1]);
+        Assert.assertEquals(Integer.valueOf(0), requestDeadlineWatchdog.getWatchedRequestCount());
+        Assert.assertEquals(Response.Codes.OK, exchange.sentResponses.get(0).getCode());
+    }
+
+    @Test
+    public void should_invoke_overridden_on_request_of_application_servlet() throws Exception {
+        // Setup
+        final Response overriddenResponse = new Response();
+        overriddenResponse.setCode(Response.Codes.OK);
+        final ApplicationServlet<Environment> applicationServlet = new ApplicationServlet<Environment>(null) {
+            @Override
+            public Response onRequest(final Request request) {
+                return overriddenResponse;
+            }
+        };
+        final HttpHandler httpHandler = new HttpHandler(applicationServlet, false);
+        final TestExchange exchange = new TestExchange();
+
+        // Action
+        httpHandler.handle(exchange);
+
+        // Assert
+        Assert.assertEquals(1, exchange.sentResponses.size());
+        Assert.assertSame(overriddenResponse, exchange.sentResponses.get(0));
+    }
+}
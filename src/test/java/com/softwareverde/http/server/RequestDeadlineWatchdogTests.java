@@ -0,0 +1,121 @@
+package com.softwareverde.http.server;
+
+import com.softwareverde.http.server.servlet.request.Request;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class RequestDeadlineWatchdogTests {
+    protected static class TestWatchedRequest extends RequestDeadlineWatchdog.WatchedRequest {
+        public final CountDownLatch expiredLatch = new CountDownLatch(1);
+
+        public TestWatchedRequest(final Request request) {
+            super(request);
+        }
+
+        @Override
+        protected void _onExpired() {
+            expiredLatch.countDown();
+        }
+    }
+
+    @Test
+    public void should_only_shorten_request_deadline() {
+        // Setup
+        final Request request = new Request();
+        final long now = System.currentTimeMillis();
+
+        // Action
+        final Long initialDeadline = request.getDeadline();
+        request.setDeadline(now + 1000L);
+        request.setDeadline(now + 5000L);
+
+        // Assert
+        Assert.assertNull(initialDeadline);
+        Assert.assertEquals(Long.valueOf(now + 1000L), request.getDeadline());
+        Assert.assertTrue(request.getRemainingTime() <= 1000L);
+        Assert.assertFalse(request.isDeadlineExceeded());
+    }
+
+    @Test
+    public void should_interrupt_thread_processing_expired_request() throws Exception {
+        // Setup
+        final RequestDeadlineWatchdog requestDeadlineWatchdog = new RequestDeadlineWatchdog(5L);
+        final Request request = new Request();
+        request.setDeadline(System.currentTimeMillis() + 50L);
+
+        final TestWatchedRequest watchedRequest = new TestWatchedRequest(request);
+        requestDeadlineWatchdog.watch(watchedRequest);
+
+        // Action
+        boolean wasInterrupted = false;
+        try {
+            Thread.sleep(5000L);
+        }
+        catch (final InterruptedException exception) {
+            wasInterrupted = true;
+        }
+        final boolean wasExpired = watchedRequest.expiredLatch.await(1L, TimeUnit.SECONDS);
+        final Boolean wasCompleted = requestDeadlineWatchdog.complete(watchedRequest);
+        requestDeadlineWatchdog.shutdown();
+
+        // Assert
+        Assert.assertTrue(wasInterrupted);
+        Assert.assertTrue(wasExpired);
+        Assert.assertFalse(wasCompleted);
+        Assert.assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    public void should_cancel_pending_response_of_released_request() throws Exception {
+        // Setup
+        final RequestDeadlineWatchdog requestDeadlineWatchdog = new RequestDeadlineWatchdog(5L);
+        final Request request = new Request();
+        request.setDeadline(System.currentTimeMillis() + 50L);
+
+        final TestWatchedRequest watchedRequest = new TestWatchedRequest(request);
+        requestDeadlineWatchdog.watch(watchedRequest);
+
+        final CompletableFuture<Object> responseFuture = new CompletableFuture<Object>();
+        final AtomicBoolean wasCompletedAfterExpiration = new AtomicBoolean(true);
+        responseFuture.whenComplete((final Object response, final Throwable throwable) -> {
+            wasCompletedAfterExpiration.set(requestDeadlineWatchdog.complete(watchedRequest));
+        });
+
+        // Action
+        watchedRequest.release(responseFuture);
+        final boolean wasExpired = watchedRequest.expiredLatch.await(1L, TimeUnit.SECONDS);
+        requestDeadlineWatchdog.shutdown();
+
+        // Assert
+        Assert.assertTrue(wasExpired);
+        Assert.assertTrue(responseFuture.isCancelled());
+        Assert.assertFalse(wasCompletedAfterExpiration.get());
+        Assert.assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    public void should_not_expire_request_completed_before_deadline() throws Exception {
+        // Setup
+        final RequestDeadlineWatchdog requestDeadlineWatchdog = new RequestDeadlineWatchdog(5L);
+        final Request request = new Request();
+        request.setDeadline(System.currentTimeMillis() + 50L);
+
+        final TestWatchedRequest watchedRequest = new TestWatchedRequest(request);
+        requestDeadlineWatchdog.watch(watchedRequest);
+
+        // Action
+        final Boolean wasCompleted = requestDeadlineWatchdog.complete(watchedRequest);
+        final boolean wasExpired = watchedRequest.expiredLatch.await(200L, TimeUnit.MILLISECONDS);
+        requestDeadlineWatchdog.shutdown();
+
+        // Assert
+        Assert.assertTrue(wasCompleted);
+        Assert.assertFalse(wasExpired);
+        Assert.assertEquals(Integer.valueOf(0), requestDeadlineWatchdog.getWatchedRequestCount());
+    }
+}
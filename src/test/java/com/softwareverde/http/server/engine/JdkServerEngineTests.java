@@ -0,0 +1,72 @@
+package com.softwareverde.http.server.engine;
+
+import com.softwareverde.http.server.servlet.response.Response;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+public class JdkServerEngineTests {
+    protected static String _sendAndReceiveUntilClosed(final Integer port, final String request) throws IOException {
+        try (final Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setSoTimeout(5000);
+            socket.getOutputStream().write(request.getBytes(StandardCharsets.ISO_8859_1));
+            socket.getOutputStream().flush();
+
+            final InputStream inputStream = socket.getInputStream();
+            final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int byteCount;
+            while ((byteCount = inputStream.read(buffer)) >= 0) {
+                byteArrayOutputStream.write(buffer, 0, byteCount);
+            }
+            return new String(byteArrayOutputStream.toByteArray(), StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    @Test
+    public void should_respond_with_service_unavailable_when_executor_rejects_request() throws Exception {
+        // Setup
+        final ExchangeHandler exchangeHandler = new ExchangeHandler() {
+            @Override
+            public void handle(final Exchange exchange) throws IOException {
+                final Response response = new Response();
+                response.setCode(Response.Codes.OK);
+                exchange.sendResponse(response);
+            }
+        };
+        final Executor rejectingExecutor = new Executor() {
+            @Override
+            public void execute(final Runnable runnable) {
+                throw new RejectedExecutionException("Saturated.");
+            }
+        };
+        final Map<String, ExchangeHandler> exchangeHandlers = new HashMap<String, ExchangeHandler>();
+        exchangeHandlers.put("/", exchangeHandler);
+
+        final JdkServerEngine serverEngine = new JdkServerEngine();
+        serverEngine.start(new InetSocketAddress("127.0.0.1", 0), 16, null, exchangeHandlers, rejectingExecutor);
+        final Integer port = serverEngine._server.getAddress().getPort();
+
+        try {
+            // Action
+            final String response = _sendAndReceiveUntilClosed(port, "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n");
+
+            // Assert
+            Assert.assertTrue(response.startsWith("HTTP/1.1 503 "));
+            Assert.assertTrue(response.contains("Retry-after: 1\r\n"));
+        }
+        finally {
+            serverEngine.stop();
+        }
+    }
+}
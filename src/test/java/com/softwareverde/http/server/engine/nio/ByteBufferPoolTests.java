@@ -0,0 +1,127 @@
+package com.softwareverde.http.server.engine.nio;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+public class ByteBufferPoolTests {
+    @Test
+    public void should_reuse_released_buffer() {
+        // Setup
+        final ByteBufferPool byteBufferPool = new ByteBufferPool();
+        final ByteBuffer byteBuffer = byteBufferPool.acquire(100);
+        byteBuffer.put((byte) 1);
+
+        // Action
+        byteBufferPool.release(byteBuffer);
+        final ByteBuffer reusedByteBuffer = byteBufferPool.acquire(4096);
+
+        // Assert
+        Assert.assertTrue(byteBuffer.isDirect());
+        Assert.assertEquals(4096, byteBuffer.capacity());
+        Assert.assertSame(byteBuffer, reusedByteBuffer);
+        Assert.assertEquals(0, reusedByteBuffer.position());
+        Assert.assertEquals(4096, reusedByteBuffer.limit());
+    }
+
+    @Test
+    public void should_not_pool_oversized_buffers() {
+        // Setup
+        final ByteBufferPool byteBufferPool = new ByteBufferPool();
+
+        // Action
+        final ByteBuffer byteBuffer = byteBufferPool.acquire(65537);
+        byteBufferPool.release(byteBuffer);
+
+        // Assert
+        Assert.assertFalse(byteBuffer.isDirect());
+        Assert.assertEquals(65537, byteBuffer.capacity());
+        Assert.assertEquals(Long.valueOf(0L), byteBufferPool.getLeasedBufferCount());
+    }
+
+    @Test
+    public void should_report_unreleased_buffers() {
+        // Setup
+        final ByteBufferPool byteBufferPool = new ByteBufferPool();
+        byteBufferPool.enableLeakDetection(true);
+
+        // Action
+        final ByteBuffer releasedByteBuffer = byteBufferPool.acquire(16384);
+        byteBufferPool.acquire(16384);
+        byteBufferPool.release(releasedByteBuffer);
+        byteBufferPool.release(releasedByteBuffer); // Released twice; ignored...
+
+        // Assert
+        Assert.assertEquals(Long.valueOf(1L), byteBufferPool.getLeasedBufferCount());
+        Assert.assertEquals(1, byteBufferPool.getLeasedBufferAcquisitions().size());
+    }
+
+    @Test
+    public void should_not_lease_buffer_twice_when_released_twice() {
+        // Setup
+        final ByteBufferPool byteBufferPool = new ByteBufferPool();
+        final ByteBuffer byteBuffer = byteBufferPool.acquire(4096);
+
+        // Action
+        byteBufferPool.release(byteBuffer);
+        byteBufferPool.release(byteBuffer); // Released twice; ignored...
+        final ByteBuffer firstByteBuffer = byteBufferPool.acquire(4096);
+        final ByteBuffer secondByteBuffer = byteBufferPool.acquire(4096);
+
+        // Assert
+        Assert.assertSame(byteBuffer, firstByteBuffer);
+        Assert.assertNotSame(firstByteBuffer, secondByteBuffer);
+        Assert.assertEquals(Long.valueOf(2L), byteBufferPool.getLeasedBufferCount());
+    }
+
+    @Test
+    public void should_track_leases_across_threads() throws Exception {
+        // Setup
+        final ByteBufferPool byteBufferPool = new ByteBufferPool();
+        final Integer threadCount = 4;
+        final Integer iterationCount = 10000;
+        final Boolean[] wasBufferShared = new Boolean[]{ false };
+
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < threadCount; ++i) {
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < iterationCount; ++j) {
+                        final ByteBuffer firstByteBuffer = byteBufferPool.acquire(4096);
+                        final ByteBuffer secondByteBuffer = byteBufferPool.acquire(4096);
+                        if (firstByteBuffer == secondByteBuffer) {
+                            wasBufferShared[0] = true;
+                        }
+                        byteBufferPool.release(secondByteBuffer);
+                        byteBufferPool.release(firstByteBuffer);
+                    }
+                }
+            }));
+        }
+
+        // Action
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        final Set<ByteBuffer> leasedByteBuffers = Collections.newSetFromMap(new IdentityHashMap<ByteBuffer, Boolean>());
+        for (int i = 0; i < (threadCount * 2); ++i) {
+            leasedByteBuffers.add(byteBufferPool.acquire(4096));
+        }
+
+        // Assert
+        Assert.assertFalse(wasBufferShared[0]);
+        Assert.assertEquals((threadCount * 2), leasedByteBuffers.size());
+        Assert.assertEquals(Long.valueOf(threadCount * 2), byteBufferPool.getLeasedBufferCount());
+    }
+}
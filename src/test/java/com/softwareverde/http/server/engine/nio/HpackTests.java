@@ -0,0 +1,122 @@
+package com.softwareverde.http.server.engine.nio;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class HpackTests {
+    protected static byte[] _hexToBytes(final String hexString) {
+        final String string = hexString.replace(" ", "");
+        final byte[] bytes = new byte[string.length() / 2];
+        for (int i = 0; i < bytes.length; ++i) {
+            bytes[i] = (byte) Integer.parseInt(string.substring(i * 2, (i * 2) + 2), 16);
+        }
+        return bytes;
+    }
+
+    protected static void _assertHeader(final String expectedName, final String expectedValue, final Hpack.Header header) {
+        Assert.assertEquals(expectedName, header.name);
+        Assert.assertEquals(expectedValue, header.value);
+    }
+
+    protected static void _assertHeaders(final List<Hpack.Header> expectedHeaders, final List<Hpack.Header> headers) {
+        Assert.assertEquals(expectedHeaders.size(), headers.size());
+        for (int i = 0; i < expectedHeaders.size(); ++i) {
+            _assertHeader(expectedHeaders.get(i).name, expectedHeaders.get(i).value, headers.get(i));
+        }
+    }
+
+    @Test
+    public void should_decode_request_examples_without_huffman_coding() throws Exception {
+        // Setup (RFC 7541, Appendix C.3)
+        final HpackDecoder hpackDecoder = new HpackDecoder(4096);
+
+        // Action
+        final List<Hpack.Header> firstHeaders = hpackDecoder.decode(_hexToBytes("8286 8441 0f77 7777 2e65 7861 6d70 6c65 2e63 6f6d"), 8192);
+        final List<Hpack.Header> secondHeaders = hpackDecoder.decode(_hexToBytes("8286 84be 5808 6e6f 2d63 6163 6865"), 8192);
+        final List<Hpack.Header> thirdHeaders = hpackDecoder.decode(_hexToBytes("8287 85bf 400a 6375 7374 6f6d 2d6b 6579 0c63 7573 746f 6d2d 7661 6c75 65"), 8192);
+
+        // Assert
+        Assert.assertEquals(4, firstHeaders.size());
+        _assertHeader(":method", "GET", firstHeaders.get(0));
+        _assertHeader(":scheme", "http", firstHeaders.get(1));
+        _assertHeader(":path", "/", firstHeaders.get(2));
+        _assertHeader(":authority", "www.example.com", firstHeaders.get(3));
+
+        Assert.assertEquals(5, secondHeaders.size());
+        _assertHeader(":authority", "www.example.com", secondHeaders.get(3));
+        _assertHeader("cache-control", "no-cache", secondHeaders.get(4));
+
+        Assert.assertEquals(5, thirdHeaders.size());
+        _assertHeader(":scheme", "https", thirdHeaders.get(1));
+        _assertHeader(":path", "/index.html", thirdHeaders.get(2));
+        _assertHeader(":authority", "www.example.com", thirdHeaders.get(3));
+        _assertHeader("custom-key", "custom-value", thirdHeaders.get(4));
+    }
+
+    @Test
+    public void should_decode_request_examples_with_huffman_coding() throws Exception {
+        // Setup (RFC 7541, Appendix C.4)
+        final HpackDecoder hpackDecoder = new HpackDecoder(4096);
+
+        // Action
+        final List<Hpack.Header> firstHeaders = hpackDecoder.decode(_hexToBytes("8286 8441 8cf1 e3c2 e5f2 3a6b a0ab 90f4 ff"), 8192);
+        final List<Hpack.Header> secondHeaders = hpackDecoder.decode(_hexToBytes("8286 84be 5886 a8eb 1064 9cbf"), 8192);
+        final List<Hpack.Header> thirdHeaders = hpackDecoder.decode(_hexToBytes("8287 85bf 4088 25a8 49e9 5ba9 7d7f 8925 a849 e95b b8e8 b4bf"), 8192);
+
+        // Assert
+        _assertHeader(":authority", "www.example.com", firstHeaders.get(3));
+        _assertHeader("cache-control", "no-cache", secondHeaders.get(4));
+        _assertHeader("custom-key", "custom-value", thirdHeaders.get(4));
+    }
+
+    @Test
+    public void should_reject_header_list_larger_than_maximum() throws Exception {
+        // Setup
+        final HpackDecoder hpackDecoder = new HpackDecoder(4096);
+
+        // Action
+        final List<Hpack.Header> headers = hpackDecoder.decode(_hexToBytes("8286 8441 0f77 7777 2e65 7861 6d70 6c65 2e63 6f6d"), 64);
+
+        // Assert
+        Assert.assertNull(headers);
+    }
+
+    @Test
+    public void should_round_trip_huffman_coding() throws Exception {
+        // Setup
+        final byte[] bytes = "Mon, 21 Oct 2013 20:13:21 GMT; custom-value=\u00FF\u0000".getBytes(StandardCharsets.ISO_8859_1);
+
+        // Action
+        final byte[] encodedBytes = HpackHuffman.encode(bytes);
+        final byte[] decodedBytes = HpackHuffman.decode(encodedBytes, 0, encodedBytes.length);
+
+        // Assert
+        Assert.assertEquals(HpackHuffman.getEncodedByteCount(bytes), encodedBytes.length);
+        Assert.assertArrayEquals(bytes, decodedBytes);
+    }
+
+    @Test
+    public void should_decode_encoded_headers() throws Exception {
+        // Setup
+        final HpackEncoder hpackEncoder = new HpackEncoder();
+        final HpackDecoder hpackDecoder = new HpackDecoder(4096);
+
+        final List<Hpack.Header> headers = new ArrayList<Hpack.Header>();
+        headers.add(new Hpack.Header(":status", "200"));
+        headers.add(new Hpack.Header("content-type", "application/json"));
+        headers.add(new Hpack.Header("x-custom", "value"));
+        headers.add(new Hpack.Header("content-length", "1234"));
+
+        // Action
+        final List<Hpack.Header> firstHeaders = hpackDecoder.decode(hpackEncoder.encode(headers), 8192);
+        final List<Hpack.Header> secondHeaders = hpackDecoder.decode(hpackEncoder.encode(headers), 8192);
+
+        // Assert
+        _assertHeaders(headers, firstHeaders);
+        _assertHeaders(headers, secondHeaders);
+    }
+}
@@ -0,0 +1,288 @@
+package com.softwareverde.http.server.engine.nio;
+
+import com.softwareverde.http.server.engine.Exchange;
+import com.softwareverde.http.server.engine.ExchangeHandler;
+import com.softwareverde.http.server.servlet.response.Response;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class Http2ConnectionTests {
+    protected static class Frame {
+        public final int type;
+        public final int flags;
+        public final int streamId;
+        public final byte[] payload;
+
+        public Frame(final int type, final int flags, final int streamId, final byte[] payload) {
+            this.type = type;
+            this.flags = flags;
+            this.streamId = streamId;
+            this.payload = payload;
+        }
+
+        public int getErrorCode() { // RST_STREAM and GOAWAY...
+            final int offset = (this.type == Http2Frame.Types.GOAWAY ? 4 : 0);
+            return Http2Frame.readInteger(this.payload, offset);
+        }
+    }
+
+    /**
+     * A prior-knowledge (h2c) client that writes raw frames and reads the server's frames.
+     */
+    protected static class Http2Client implements AutoCloseable {
+        protected final Socket _socket;
+        protected final OutputStream _outputStream;
+        protected final DataInputStream _inputStream;
+        protected final HpackEncoder _hpackEncoder = new HpackEncoder();
+
+        public Http2Client(final Integer port) throws IOException {
+            _socket = new Socket("127.0.0.1", port);
+            _socket.setSoTimeout(5000);
+            _outputStream = _socket.getOutputStream();
+            _inputStream = new DataInputStream(_socket.getInputStream());
+
+            _outputStream.write(Http2Frame.CONNECTION_PREFACE);
+            _outputStream.write(Http2Frame.newSettingsFrame());
+            _outputStream.flush();
+        }
+
+        public void sendRequest(final int streamId, final String path) throws IOException {
+            final List<Hpack.Header> headers = new ArrayList<Hpack.Header>();
+            headers.add(new Hpack.Header(":method", "GET"));
+            headers.add(new Hpack.Header(":scheme", "http"));
+            headers.add(new Hpack.Header(":path", path));
+            headers.add(new Hpack.Header(":authority", "localhost"));
+            final byte[] headerBlock = _hpackEncoder.encode(headers);
+
+            final int flags = (Http2Frame.Flags.END_HEADERS | Http2Frame.Flags.END_STREAM);
+            _outputStream.write(Http2Frame.newFrame(Http2Frame.Types.HEADERS, flags, streamId, headerBlock, 0, headerBlock.length));
+        }
+
+        public void send(final byte[] frame) throws IOException {
+            _outputStream.write(frame);
+        }
+
+        public void flush() throws IOException {
+            _outputStream.flush();
+        }
+
+        /**
+         * Returns the next frame, or null once the server has closed the connection.
+         */
+        public Frame readFrame() throws IOException {
+            final byte[] header = new byte[Http2Frame.HEADER_BYTE_COUNT];
+            try {
+                _inputStream.readFully(header);
+            }
+            catch (final EOFException exception) {
+                return null;
+            }
+
+            final int length = (((header[0] & 0xFF) << 16) | ((header[1] & 0xFF) << 8) | (header[2] & 0xFF));
+            final int streamId = (Http2Frame.readInteger(header, 5) & 0x7FFFFFFF);
+            final byte[] payload = new byte[length];
+            _inputStream.readFully(payload);
+            return new Frame((header[3] & 0xFF), (header[4] & 0xFF), streamId, payload);
+        }
+
+        /**
+         * Returns the next frame of the type on the stream, skipping any other frames, or null once the server has closed the connection.
+         */
+        public Frame readFrame(final int type, final int streamId) throws IOException {
+            while (true) {
+                final Frame frame = this.readFrame();
+                if (frame == null) { return null; }
+                if ( (frame.type == type) && (frame.streamId == streamId) ) { return frame; }
+            }
+        }
+
+        /**
+         * Returns the first HEADERS or RST_STREAM frame on the stream, or null once the server has closed the connection.
+         */
+        public Frame readStreamOutcome(final int streamId) throws IOException {
+            while (true) {
+                final Frame frame = this.readFrame();
+                if (frame == null) { return null; }
+                if (frame.streamId != streamId) { continue; }
+                if ( (frame.type == Http2Frame.Types.HEADERS) || (frame.type == Http2Frame.Types.RST_STREAM) ) { return frame; }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            _socket.close();
+        }
+    }
+
+    protected static NioServerEngine _startServerEngine(final ExchangeHandler exchangeHandler, final ExecutorService executorService) throws IOException {
+        final Map<String, ExchangeHandler> exchangeHandlers = new HashMap<String, ExchangeHandler>();
+        exchangeHandlers.put("/", exchangeHandler);
+
+        final NioServerEngine serverEngine = new NioServerEngine(1);
+        serverEngine.enableHttp2(true);
+        serverEngine.start(new InetSocketAddress("127.0.0.1", 0), 16, null, exchangeHandlers, executorService);
+        return serverEngine;
+    }
+
+    protected static Integer _getPort(final NioServerEngine serverEngine) throws IOException {
+        final InetSocketAddress localAddress = (InetSocketAddress) serverEngine._serverSocketChannels.get(0).getLocalAddress();
+        return localAddress.getPort();
+    }
+
+    protected static ExchangeHandler _createExchangeHandler(final CountDownLatch releaseLatch) {
+        return new ExchangeHandler() {
+            @Override
+            public void handle(final Exchange exchange) throws IOException {
+                if (releaseLatch != null) {
+                    try {
+                        releaseLatch.await(10L, TimeUnit.SECONDS);
+                    }
+                    catch (final InterruptedException exception) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                final Response response = new Response();
+                response.setCode(Response.Codes.OK);
+                response.setContent("OK");
+                exchange.sendResponse(response);
+            }
+        };
+    }
+
+    @Test
+    public void should_respond_to_request_on_its_stream() throws Exception {
+        // Setup
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        final NioServerEngine serverEngine = _startServerEngine(_createExchangeHandler(null), executorService);
+
+        try (final Http2Client http2Client = new Http2Client(_getPort(serverEngine))) {
+            // Action
+            http2Client.sendRequest(1, "/");
+            http2Client.flush();
+            final Frame frame = http2Client.readStreamOutcome(1);
+
+            // Assert
+            Assert.assertEquals(Http2Frame.Types.HEADERS, frame.type);
+        }
+        finally {
+            serverEngine.stop();
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void should_count_reset_streams_against_limit_until_their_handlers_return() throws Exception {
+        // Setup
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        final ExecutorService executorService = Executors.newFixedThreadPool(4);
+        final NioServerEngine serverEngine = _startServerEngine(_createExchangeHandler(releaseLatch), executorService);
+
+        try (final Http2Client http2Client = new Http2Client(_getPort(serverEngine))) {
+            int streamId = 1;
+            for (int i = 0; i < Http2Connection.MAX_CONCURRENT_STREAMS; ++i) {
+                http2Client.sendRequest(streamId, "/");
+                http2Client.send(Http2Frame.newRstStreamFrame(streamId, Http2Exception.ErrorCodes.CANCEL));
+                streamId += 2;
+            }
+
+            // Action
+            final int refusedStreamId = streamId;
+            http2Client.sendRequest(refusedStreamId, "/");
+            http2Client.flush();
+            final Frame refusedFrame = http2Client.readStreamOutcome(refusedStreamId);
+
+            releaseLatch.countDown();
+            Thread.sleep(500L); // Allow the reset streams' handlers to return...
+
+            final int acceptedStreamId = (refusedStreamId + 2);
+            http2Client.sendRequest(acceptedStreamId, "/");
+            http2Client.flush();
+            final Frame acceptedFrame = http2Client.readStreamOutcome(acceptedStreamId);
+
+            // Assert
+            Assert.assertEquals(Http2Frame.Types.RST_STREAM, refusedFrame.type);
+            Assert.assertEquals(Http2Exception.ErrorCodes.REFUSED_STREAM.intValue(), refusedFrame.getErrorCode());
+            Assert.assertEquals(Http2Frame.Types.HEADERS, acceptedFrame.type);
+        }
+        finally {
+            releaseLatch.countDown();
+            serverEngine.stop();
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void should_go_away_with_enhance_your_calm_after_too_many_resets() throws Exception {
+        // Setup
+        final ExecutorService executorService = Executors.newFixedThreadPool(4);
+        final NioServerEngine serverEngine = _startServerEngine(_createExchangeHandler(null), executorService);
+
+        try (final Http2Client http2Client = new Http2Client(_getPort(serverEngine))) {
+            // Action
+            int streamId = 1;
+            for (int i = 0; i <= Http2Connection.MAX_RESET_STREAM_COUNT; ++i) {
+                http2Client.sendRequest(streamId, "/");
+                http2Client.send(Http2Frame.newRstStreamFrame(streamId, Http2Exception.ErrorCodes.CANCEL));
+                streamId += 2;
+            }
+            http2Client.flush();
+            final Frame goAwayFrame = http2Client.readFrame(Http2Frame.Types.GOAWAY, 0);
+
+            // Assert
+            Assert.assertNotNull(goAwayFrame);
+            Assert.assertEquals(Http2Exception.ErrorCodes.ENHANCE_YOUR_CALM.intValue(), goAwayFrame.getErrorCode());
+        }
+        finally {
+            serverEngine.stop();
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void should_go_away_and_close_after_client_goes_away() throws Exception {
+        // Setup
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        final NioServerEngine serverEngine = _startServerEngine(_createExchangeHandler(null), executorService);
+
+        try (final Http2Client http2Client = new Http2Client(_getPort(serverEngine))) {
+            http2Client.sendRequest(1, "/");
+            http2Client.flush();
+            http2Client.readStreamOutcome(1);
+
+            // Action
+            http2Client.send(Http2Frame.newGoAwayFrame(0, Http2Exception.ErrorCodes.NO_ERROR));
+            http2Client.flush();
+            final Frame goAwayFrame = http2Client.readFrame(Http2Frame.Types.GOAWAY, 0);
+
+            Frame remainingFrame;
+            do {
+                remainingFrame = http2Client.readFrame();
+            } while (remainingFrame != null);
+
+            // Assert
+            Assert.assertNotNull(goAwayFrame);
+            Assert.assertEquals(Http2Exception.ErrorCodes.NO_ERROR.intValue(), goAwayFrame.getErrorCode());
+            Assert.assertEquals(1, Http2Frame.readInteger(goAwayFrame.payload, 0)); // The last stream processed...
+        }
+        finally {
+            serverEngine.stop();
+            executorService.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.softwareverde.http.server.engine.nio;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class HttpRequestParserTests {
+    protected static class ByteArrayBodySink implements HttpRequestParser.BodySink {
+        public final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        @Override
+        public int getAvailableByteCount() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public void write(final ByteBuffer byteBuffer, final int byteCount) {
+            final byte[] buffer = new byte[byteCount];
+            byteBuffer.get(buffer);
+            this.bytes.write(buffer, 0, byteCount);
+        }
+    }
+
+    protected static ByteBuffer _toByteBuffer(final String string) {
+        return ByteBuffer.wrap(string.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    public void should_parse_request_head() throws Exception {
+        // Setup
+        final HttpRequestParser httpRequestParser = new HttpRequestParser();
+        final ByteBuffer byteBuffer = _toByteBuffer("GET /path?key=value HTTP/1.1\r\nHost: localhost\r\nX-Multi: a\r\nx-multi: b\r\n\r\n");
+
+        // Action
+        final Boolean isHeadComplete = httpRequestParser.parseHead(byteBuffer);
+
+        // Assert
+        Assert.assertTrue(isHeadComplete);
+        Assert.assertTrue(httpRequestParser.isComplete());
+
+        final HttpRequestParser.RequestHead requestHead = httpRequestParser.getRequestHead();
+        Assert.assertEquals("GET", requestHead.getMethod());
+        Assert.assertEquals("/path?key=value", requestHead.getTarget());
+        Assert.assertEquals("HTTP/1.1", requestHead.getVersion());
+        Assert.assertEquals("localhost", requestHead.getHeader("host"));
+        Assert.assertTrue(requestHead.isKeepAlive());
+    }
+
+    @Test
+    public void should_parse_request_head_split_across_fragments() throws Exception {
+        // Setup
+        final HttpRequestParser httpRequestParser = new HttpRequestParser();
+        final String request = "POST /upload HTTP/1.1\r\nContent-Length: 5\r\n\r\nhello";
+        final ByteArrayBodySink bodySink = new ByteArrayBodySink();
+
+        // Action
+        for (int i = 0; i < request.length(); ++i) {
+            final ByteBuffer byteBuffer = _toByteBuffer(request.substring(i, i + 1));
+            if (! httpRequestParser.isHeadComplete()) {
+                httpRequestParser.parseHead(byteBuffer);
+            }
+            httpRequestParser.parseBody(byteBuffer, bodySink);
+        }
+
+        // Assert
+        Assert.assertTrue(httpRequestParser.isComplete());
+        Assert.assertEquals(Long.valueOf(5L), httpRequestParser.getContentLength());
+        Assert.assertEquals("hello", new String(bodySink.bytes.toByteArray(), StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    public void should_parse_chunked_body() throws Exception {
+        // Setup
+        final HttpRequestParser httpRequestParser = new HttpRequestParser();
+        final ByteBuffer byteBuffer = _toByteBuffer("POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n5;ext=1\r\nhello\r\n6\r\n world\r\n0\r\nTrailer: value\r\n\r\n");
+        final ByteArrayBodySink bodySink = new ByteArrayBodySink();
+
+        // Action
+        httpRequestParser.parseHead(byteBuffer);
+        httpRequestParser.parseBody(byteBuffer, bodySink);
+
+        // Assert
+        Assert.assertTrue(httpRequestParser.isChunked());
+        Assert.assertTrue(httpRequestParser.isComplete());
+        Assert.assertEquals("hello world", new String(bodySink.bytes.toByteArray(), StandardCharsets.ISO_8859_1));
+        Assert.assertFalse(byteBuffer.hasRemaining());
+    }
+
+    @Test
+    public void should_leave_pipelined_request_in_buffer() throws Exception {
+        // Setup
+        final HttpRequestParser httpRequestParser = new HttpRequestParser();
+        final ByteBuffer byteBuffer = _toByteBuffer("GET /first HTTP/1.1\r\n\r\nGET /second HTTP/1.1\r\n\r\n");
+
+        // Action
+        httpRequestParser.parseHead(byteBuffer);
+        final String firstTarget = httpRequestParser.getRequestHead().getTarget();
+        httpRequestParser.reset();
+        httpRequestParser.parseHead(byteBuffer);
+        final String secondTarget = httpRequestParser.getRequestHead().getTarget();
+
+        // Assert
+        Assert.assertEquals("/first", firstTarget);
+        Assert.assertEquals("/second", secondTarget);
+    }
+
+    @Test
+    public void should_reject_oversized_headers() {
+        // Setup
+        final HttpRequestParser httpRequestParser = new HttpRequestParser(64);
+        final ByteBuffer byteBuffer = _toByteBuffer("GET / HTTP/1.1\r\nX-Large: 0123456789012345678901234567890123456789012345678901234567890123456789\r\n\r\n");
+
+        // Action
+        Integer responseCode = null;
+        try {
+            httpRequestParser.parseHead(byteBuffer);
+        }
+        catch (final HttpParseException exception) {
+            responseCode = exception.getResponseCode();
+        }
+
+        // Assert
+        Assert.assertEquals(Integer.valueOf(431), responseCode);
+    }
+
+    @Test
+    public void should_reject_conflicting_content_lengths() {
+        // Setup
+        final HttpRequestParser httpRequestParser = new HttpRequestParser();
+        final ByteBuffer byteBuffer = _toByteBuffer("POST / HTTP/1.1\r\nContent-Length: 5\r\nContent-Length: 6\r\n\r\n");
+
+        // Action
+        Integer responseCode = null;
+        try {
+            httpRequestParser.parseHead(byteBuffer);
+        }
+        catch (final HttpParseException exception) {
+            responseCode = exception.getResponseCode();
+        }
+
+        // Assert
+        Assert.assertEquals(Integer.valueOf(400), responseCode);
+    }
+
+    @Test
+    public void should_not_keep_alive_http_1_0_by_default() throws Exception {
+        // Setup
+        final HttpRequestParser httpRequestParser = new HttpRequestParser();
+        final ByteBuffer byteBuffer = _toByteBuffer("GET / HTTP/1.0\r\n\r\n");
+
+        // Action
+        httpRequestParser.parseHead(byteBuffer);
+
+        // Assert
+        Assert.assertFalse(httpRequestParser.getRequestHead().isKeepAlive());
+    }
+
+    protected static Integer _getParseErrorCode(final String request) {
+        final HttpRequestParser httpRequestParser = new HttpRequestParser();
+        final ByteBuffer byteBuffer = _toByteBuffer(request);
+        try {
+            httpRequestParser.parseHead(byteBuffer);
+            httpRequestParser.parseBody(byteBuffer, new ByteArrayBodySink());
+        }
+        catch (final HttpParseException exception) {
+            return exception.getResponseCode();
+        }
+        return null;
+    }
+
+    @Test
+    public void should_reject_lengths_that_are_not_strictly_digits() {
+        // Action / Assert
+        Assert.assertEquals(Integer.valueOf(400), _getParseErrorCode("POST / HTTP/1.1\r\nContent-Length: +5\r\n\r\nhello"));
+        Assert.assertEquals(Integer.valueOf(400), _getParseErrorCode("POST / HTTP/1.1\r\nContent-Length: -0\r\n\r\n"));
+        Assert.assertEquals(Integer.valueOf(400), _getParseErrorCode("POST / HTTP/1.1\r\nContent-Length: \r\n\r\n"));
+        Assert.assertEquals(Integer.valueOf(400), _getParseErrorCode("POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n+a\r\n0123456789\r\n0\r\n\r\n"));
+        Assert.assertEquals(Integer.valueOf(400), _getParseErrorCode("POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n-0\r\n\r\n"));
+        Assert.assertEquals(Integer.valueOf(400), _getParseErrorCode("POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n0x5\r\nhello\r\n0\r\n\r\n"));
+        Assert.assertNull(_getParseErrorCode("POST / HTTP/1.1\r\nContent-Length: 5\r\n\r\nhello"));
+        Assert.assertNull(_getParseErrorCode("POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\nA\r\n0123456789\r\n0\r\n\r\n"));
+    }
+
+    @Test
+    public void should_reject_transfer_encoding_with_content_length() {
+        // Action / Assert
+        Assert.assertEquals(Integer.valueOf(400), _getParseErrorCode("POST / HTTP/1.1\r\nContent-Length: 5\r\nTransfer-Encoding: chunked\r\n\r\n0\r\n\r\n"));
+    }
+
+    @Test
+    public void should_use_every_transfer_encoding_header_line() {
+        // Action / Assert
+        Assert.assertEquals(Integer.valueOf(400), _getParseErrorCode("POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\nTransfer-Encoding: gzip\r\n\r\n0\r\n\r\n"));
+        Assert.assertNull(_getParseErrorCode("POST / HTTP/1.1\r\nTransfer-Encoding: gzip\r\nTransfer-Encoding: chunked\r\n\r\n0\r\n\r\n"));
+    }
+}
@@ -0,0 +1,104 @@
+package com.softwareverde.http.server.engine.nio;
+
+import com.softwareverde.http.server.servlet.response.CannedResponse;
+import com.softwareverde.http.server.servlet.response.Response;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+public class HttpResponseEncoderTests {
+    @Test
+    public void should_encode_canned_head_once() {
+        // Setup
+        final CannedResponse cannedResponse = new CannedResponse(Response.Codes.NOT_FOUND, "application/json", "{\"wasSuccess\":false}");
+
+        // Action
+        final byte[] head = HttpResponseEncoder.encodeCannedHead(cannedResponse);
+        final byte[] cachedHead = HttpResponseEncoder.encodeCannedHead(cannedResponse);
+        final byte[] trailer = HttpResponseEncoder.encodeCannedHeadTrailer(cannedResponse, "close");
+
+        // Assert
+        Assert.assertSame(head, cachedHead);
+
+        final String encodedHead = new String(head, StandardCharsets.ISO_8859_1) + new String(trailer, StandardCharsets.ISO_8859_1);
+        Assert.assertTrue(encodedHead.startsWith("HTTP/1.1 404 Not Found\r\n"));
+        Assert.assertTrue(encodedHead.contains("Content-Type: application/json\r\n"));
+        Assert.assertTrue(encodedHead.contains("Content-Length: 20\r\n"));
+        Assert.assertTrue(encodedHead.contains("Date: "));
+        Assert.assertTrue(encodedHead.endsWith("Connection: close\r\n\r\n"));
+    }
+
+    @Test
+    public void should_not_modify_canned_response() {
+        // Setup
+        final CannedResponse cannedResponse = new CannedResponse(Response.Codes.NOT_FOUND, null, "Not found.");
+
+        // Action
+        Exception setHeaderException = null;
+        try {
+            cannedResponse.setHeader(Response.Headers.CONNECTION, "close");
+        }
+        catch (final UnsupportedOperationException exception) {
+            setHeaderException = exception;
+        }
+
+        Exception headersException = null;
+        try {
+            cannedResponse.getHeaders().clear();
+        }
+        catch (final UnsupportedOperationException exception) {
+            headersException = exception;
+        }
+
+        // Assert
+        Assert.assertNotNull(setHeaderException);
+        Assert.assertNotNull(headersException);
+        Assert.assertEquals(Response.Codes.NOT_FOUND, cannedResponse.getCode());
+        Assert.assertEquals("Not found.", new String(cannedResponse.getContent(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void should_encode_head_from_pre_encoded_and_custom_headers() {
+        // Setup
+        final Response response = new Response();
+        response.setCode(Response.Codes.OK);
+        response.setHeader(Response.Headers.CONTENT_TYPE, "application/json");
+        response.setHeader("X-Custom-Header", "caf\u00E9 \u2713");
+
+        // Action
+        final byte[] head = HttpResponseEncoder.encodeHead(response, 1234567890L, false, "keep-alive");
+
+        // Assert
+        final String encodedHead = new String(head, StandardCharsets.ISO_8859_1);
+        Assert.assertTrue(encodedHead.startsWith("HTTP/1.1 200 OK\r\n"));
+        Assert.assertTrue(encodedHead.contains("Content-Type: application/json\r\n"));
+        Assert.assertTrue(encodedHead.contains("X-Custom-Header: caf\u00E9 ?\r\n"));
+        Assert.assertTrue(encodedHead.contains("Date: " + EncodedHeaders.getDate().substring(0, 5)));
+        Assert.assertTrue(encodedHead.contains("Content-Length: 1234567890\r\n"));
+        Assert.assertTrue(encodedHead.endsWith("Connection: keep-alive\r\n\r\n"));
+    }
+
+    @Test
+    public void should_replace_response_with_line_break_in_header() {
+        // Setup
+        final Response validResponse = new Response();
+        validResponse.setCode(Response.Codes.OK);
+        validResponse.setHeader("Location", "/next");
+
+        final Response invalidResponse = new Response();
+        invalidResponse.setCode(Response.Codes.OK);
+        invalidResponse.setHeader("Location", "/next\r\nSet-Cookie: injected=1");
+
+        // Action
+        final Response sentValidResponse = HttpResponseEncoder.requireValidHead(validResponse);
+        final Response sentInvalidResponse = HttpResponseEncoder.requireValidHead(invalidResponse);
+
+        // Assert
+        Assert.assertSame(validResponse, sentValidResponse);
+        Assert.assertEquals("Location", HttpResponseEncoder.findInvalidHeader(invalidResponse));
+        Assert.assertNotSame(invalidResponse, sentInvalidResponse);
+        Assert.assertEquals(Response.Codes.SERVER_ERROR, sentInvalidResponse.getCode());
+        Assert.assertNull(HttpResponseEncoder.findInvalidHeader(sentInvalidResponse));
+    }
+}
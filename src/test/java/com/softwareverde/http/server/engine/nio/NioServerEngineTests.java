@@ -0,0 +1,583 @@
+package com.softwareverde.http.server.engine.nio;
+
+import com.softwareverde.http.server.engine.Exchange;
+import com.softwareverde.http.server.engine.ExchangeHandler;
+import com.softwareverde.http.server.servlet.response.ContentWriter;
+import com.softwareverde.http.server.servlet.response.Response;
+import com.softwareverde.http.websocket.ConnectionLayer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class NioServerEngineTests {
+    protected static NioServerEngine _startServerEngine(final ExchangeHandler exchangeHandler, final Executor executor) throws IOException {
+        final Map<String, ExchangeHandler> exchangeHandlers = new HashMap<String, ExchangeHandler>();
+        exchangeHandlers.put("/", exchangeHandler);
+
+        final NioServerEngine serverEngine = new NioServerEngine(1);
+        serverEngine.start(new InetSocketAddress("127.0.0.1", 0), 16, null, exchangeHandlers, executor);
+        return serverEngine;
+    }
+
+    protected static Integer _getPort(final NioServerEngine serverEngine) throws IOException {
+        final InetSocketAddress localAddress = (InetSocketAddress) serverEngine._serverSocketChannels.get(0).getLocalAddress();
+        return localAddress.getPort();
+    }
+
+    protected static String _readUntilClosed(final InputStream inputStream) throws IOException {
+        final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+        int byteCount;
+        while ((byteCount = inputStream.read(buffer)) >= 0) {
+            byteArrayOutputStream.write(buffer, 0, byteCount);
+        }
+        return new String(byteArrayOutputStream.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Returns the bytes received until the end of the next response head (i.e. the empty line), or until the server closes the connection.
+     */
+    protected static String _readHead(final InputStream inputStream) throws IOException {
+        final StringBuilder stringBuilder = new StringBuilder();
+        int b;
+        while ((b = inputStream.read()) >= 0) {
+            stringBuilder.append((char) b);
+            if ( (stringBuilder.length() >= 4) && (stringBuilder.lastIndexOf("\r\n\r\n") == (stringBuilder.length() - 4)) ) { break; }
+        }
+        return stringBuilder.toString();
+    }
+
+    /**
+     * Sends the raw request bytes and returns everything received until the server closes the connection.
+     */
+    protected static String _sendAndReceiveUntilClosed(final Integer port, final String request) throws IOException {
+        try (final Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setSoTimeout(5000);
+            socket.getOutputStream().write(request.getBytes(StandardCharsets.ISO_8859_1));
+            socket.getOutputStream().flush();
+
+            return _readUntilClosed(socket.getInputStream());
+        }
+    }
+
+    /**
+     * Sends the raw request bytes over the Unix domain socket and returns everything received until the server closes the connection.
+     *  UnixDomainSocketAddress is resolved reflectively, since it is not available on every JVM the tests are compiled for.
+     */
+    protected static String _sendAndReceiveUntilClosed(final String socketPath, final String request) throws Exception {
+        final Class<?> unixDomainSocketAddressClass = Class.forName("java.net.UnixDomainSocketAddress");
+        final SocketAddress socketAddress = (SocketAddress) unixDomainSocketAddressClass.getMethod("of", String.class).invoke(null, socketPath);
+
+        final ScheduledExecutorService timeoutExecutorService = Executors.newSingleThreadScheduledExecutor();
+        try (final SocketChannel socketChannel = SocketChannel.open(StandardProtocolFamily.valueOf("UNIX"))) {
+            timeoutExecutorService.schedule(new Callable<Void>() {
+                @Override
+                public Void call() throws IOException {
+                    socketChannel.close(); // Unblocks the read if the server never closes the connection...
+                    return null;
+                }
+            }, 5L, TimeUnit.SECONDS);
+
+            socketChannel.connect(socketAddress);
+            socketChannel.write(ByteBuffer.wrap(request.getBytes(StandardCharsets.ISO_8859_1)));
+
+            return _readUntilClosed(Channels.newInputStream(socketChannel));
+        }
+        finally {
+            timeoutExecutorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the body of the chunked response, or null if the response is not a complete chunked message.
+     */
+    protected static String _decodeChunkedBody(final String response) {
+        final int headEndIndex = response.indexOf("\r\n\r\n");
+        if (headEndIndex < 0) { return null; }
+
+        final StringBuilder stringBuilder = new StringBuilder();
+        int index = (headEndIndex + 4);
+        while (true) {
+            final int sizeEndIndex = response.indexOf("\r\n", index);
+            if (sizeEndIndex < 0) { return null; }
+
+            final int chunkByteCount = Integer.parseInt(response.substring(index, sizeEndIndex), 16);
+            if (chunkByteCount == 0) {
+                return (response.startsWith("\r\n", sizeEndIndex + 2) ? stringBuilder.toString() : null);
+            }
+
+            final int chunkStartIndex = (sizeEndIndex + 2);
+            final int chunkEndIndex = (chunkStartIndex + chunkByteCount);
+            if ( (chunkEndIndex + 2) > response.length() ) { return null; }
+
+            stringBuilder.append(response, chunkStartIndex, chunkEndIndex);
+            index = (chunkEndIndex + 2);
+        }
+    }
+
+    @Test
+    public void should_respond_with_service_unavailable_when_executor_rejects_request() throws Exception {
+        // Setup
+        final ExchangeHandler exchangeHandler = new ExchangeHandler() {
+            @Override
+            public void handle(final Exchange exchange) throws IOException {
+                final Response response = new Response();
+                response.setCode(Response.Codes.OK);
+                exchange.sendResponse(response);
+            }
+        };
+        final Executor rejectingExecutor = new Executor() {
+            @Override
+            public void execute(final Runnable runnable) {
+                throw new RejectedExecutionException("Saturated.");
+            }
+        };
+        final NioServerEngine serverEngine = _startServerEngine(exchangeHandler, rejectingExecutor);
+
+        try {
+            // Action
+            final String response = _sendAndReceiveUntilClosed(_getPort(serverEngine), "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n");
+
+            // Assert
+            Assert.assertTrue(response.startsWith("HTTP/1.1 503 "));
+            Assert.assertTrue(response.contains("Retry-After: 1\r\n"));
+            Assert.assertTrue(response.contains("Connection: close\r\n"));
+        }
+        finally {
+            serverEngine.stop();
+        }
+    }
+
+    @Test
+    public void should_write_pipelined_responses_in_request_order() throws Exception {
+        // Setup
+        final Integer requestCount = 3;
+        final List<Exchange> exchanges = new ArrayList<Exchange>();
+        final CountDownLatch dispatchedLatch = new CountDownLatch(requestCount);
+        final ExchangeHandler exchangeHandler = new ExchangeHandler() {
+            @Override
+            public void handle(final Exchange exchange) {
+                synchronized (exchanges) {
+                    exchanges.add(exchange);
+                }
+                dispatchedLatch.countDown(); // Responded to later, once every request has been dispatched...
+            }
+        };
+        final ExecutorService executorService = Executors.newFixedThreadPool(requestCount);
+        final NioServerEngine serverEngine = _startServerEngine(exchangeHandler, executorService);
+
+        final Thread responderThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (! dispatchedLatch.await(5L, TimeUnit.SECONDS)) { return; }
+
+                    final List<Exchange> respondedExchanges;
+                    synchronized (exchanges) {
+                        respondedExchanges = new ArrayList<Exchange>(exchanges);
+                    }
+
+                    // Respond in the reverse order of the requests' paths...
+                    for (int i = requestCount; i > 0; --i) {
+                        for (final Exchange exchange : respondedExchanges) {
+                            if (! exchange.getRequestUri().getPath().equals("/" + i)) { continue; }
+
+                            final Response response = new Response();
+                            response.setCode(Response.Codes.OK);
+                            response.setContent("response-" + i + "\n");
+                            exchange.sendResponse(response);
+                            Thread.sleep(50L);
+                        }
+                    }
+                }
+                catch (final Exception exception) { }
+            }
+        });
+        responderThread.start();
+
+        try {
+            // Action
+            final String responses = _sendAndReceiveUntilClosed(_getPort(serverEngine),
+                "GET /1 HTTP/1.1\r\nHost: localhost\r\n\r\n" +
+                "GET /2 HTTP/1.1\r\nHost: localhost\r\n\r\n" +
+                "GET /3 HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"
+            );
+            responderThread.join(5000L);
+
+            // Assert
+            Assert.assertEquals(0L, dispatchedLatch.getCount()); // Each request was dispatched before any response was sent...
+
+            final int firstIndex = responses.indexOf("response-1\n");
+            final int secondIndex = responses.indexOf("response-2\n");
+            final int thirdIndex = responses.indexOf("response-3\n");
+            Assert.assertTrue(firstIndex >= 0);
+            Assert.assertTrue(firstIndex < secondIndex);
+            Assert.assertTrue(secondIndex < thirdIndex);
+            Assert.assertEquals(3, responses.split("HTTP/1.1 200 ", -1).length - 1);
+        }
+        finally {
+            serverEngine.stop();
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void should_refuse_web_socket_upgrade_over_unix_domain_socket() throws Exception {
+        // Setup
+        final NioServerEngine serverEngine = new NioServerEngine(1);
+        if (! serverEngine.isUnixDomainSocketSupported()) { return; } // Requires Java 16 or later...
+
+        final ConnectionLayer[] connectionLayers = new ConnectionLayer[1];
+        final ExchangeHandler exchangeHandler = new ExchangeHandler() {
+            @Override
+            public void handle(final Exchange exchange) throws IOException {
+                if (exchange.getRequestUri().getPath().equals("/web-socket")) {
+                    final Response upgradeResponse = new Response();
+                    upgradeResponse.setCode(Response.Codes.SWITCHING_PROTOCOLS);
+                    upgradeResponse.setHeader(Response.Headers.UPGRADE, Response.Headers.WebSocket.Values.UPGRADE);
+                    connectionLayers[0] = exchange.upgradeToWebSocket(upgradeResponse);
+                    if (connectionLayers[0] != null) { return; }
+                }
+
+                final Response response = new Response();
+                response.setCode(Response.Codes.SERVER_ERROR);
+                response.setHeader(Response.Headers.CONNECTION, "close");
+                exchange.sendResponse(response);
+            }
+        };
+        final Map<String, ExchangeHandler> exchangeHandlers = new HashMap<String, ExchangeHandler>();
+        exchangeHandlers.put("/", exchangeHandler);
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        final Path directory = Files.createTempDirectory("NioServerEngineTests");
+        final String socketPath = directory.resolve("server.sock").toString();
+        serverEngine.startUnixDomainSocket(socketPath, 16, null, exchangeHandlers, executorService);
+
+        try {
+            // Action
+            final String upgradeResponse = _sendAndReceiveUntilClosed(socketPath, "GET /web-socket HTTP/1.1\r\nHost: localhost\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n\r\n");
+            final String nextResponse = _sendAndReceiveUntilClosed(socketPath, "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n");
+
+            // Assert
+            Assert.assertNull(connectionLayers[0]);
+            Assert.assertTrue(upgradeResponse.startsWith("HTTP/1.1 500 "));
+            Assert.assertTrue(nextResponse.startsWith("HTTP/1.1 500 ")); // The selector thread is still serving connections...
+        }
+        finally {
+            serverEngine.stop();
+            executorService.shutdown();
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    @Test
+    public void should_stream_response_of_unknown_length_with_chunked_encoding() throws Exception {
+        // Setup
+        final ExchangeHandler exchangeHandler = new ExchangeHandler() {
+            @Override
+            public void handle(final Exchange exchange) throws IOException {
+                final Response response = new Response();
+                response.setCode(Response.Codes.OK);
+                response.setContentWriter(new ContentWriter() {
+                    @Override
+                    public void writeContent(final OutputStream outputStream) throws IOException {
+                        outputStream.write("Hello, ".getBytes(StandardCharsets.ISO_8859_1));
+                        outputStream.flush();
+                        outputStream.write("World!".getBytes(StandardCharsets.ISO_8859_1));
+                    }
+                });
+                exchange.sendResponse(response);
+            }
+        };
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        final NioServerEngine serverEngine = _startServerEngine(exchangeHandler, executorService);
+
+        try {
+            // Action
+            final String response = _sendAndReceiveUntilClosed(_getPort(serverEngine), "GET / HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+
+            // Assert
+            final String head = response.substring(0, response.indexOf("\r\n\r\n") + 2);
+            Assert.assertTrue(response.startsWith("HTTP/1.1 200 "));
+            Assert.assertTrue(head.contains("Transfer-Encoding: chunked\r\n"));
+            Assert.assertFalse(head.contains("Content-Length:"));
+            Assert.assertEquals("Hello, World!", _decodeChunkedBody(response));
+        }
+        finally {
+            serverEngine.stop();
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void should_stream_request_body_to_handler_before_it_is_fully_received() throws Exception {
+        // Setup
+        final int bodyByteCount = (NioConnection.MAX_BUFFERED_BODY_BYTE_COUNT * 4); // Larger than the connection buffers...
+        final CountDownLatch dispatchedLatch = new CountDownLatch(1);
+        final ExchangeHandler exchangeHandler = new ExchangeHandler() {
+            @Override
+            public void handle(final Exchange exchange) throws IOException {
+                dispatchedLatch.countDown();
+
+                long byteCount = 0L;
+                long checksum = 0L;
+                final InputStream requestBody = exchange.getRequestBody();
+                final byte[] buffer = new byte[8192];
+                int readByteCount;
+                while ((readByteCount = requestBody.read(buffer)) >= 0) {
+                    for (int i = 0; i < readByteCount; ++i) {
+                        checksum += (buffer[i] & 0xFF);
+                    }
+                    byteCount += readByteCount;
+                }
+
+                final Response response = new Response();
+                response.setCode(Response.Codes.OK);
+                response.setContent(byteCount + ":" + checksum);
+                exchange.sendResponse(response);
+            }
+        };
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        final NioServerEngine serverEngine = _startServerEngine(exchangeHandler, executorService);
+
+        final byte[] body = new byte[bodyByteCount];
+        long expectedChecksum = 0L;
+        for (int i = 0; i < bodyByteCount; ++i) {
+            body[i] = (byte) (i % 251);
+            expectedChecksum += (body[i] & 0xFF);
+        }
+
+        try (final Socket socket = new Socket("127.0.0.1", _getPort(serverEngine))) {
+            socket.setSoTimeout(5000);
+            final OutputStream outputStream = socket.getOutputStream();
+
+            // Action
+            outputStream.write(("POST / HTTP/1.1\r\nHost: localhost\r\nContent-Length: " + bodyByteCount + "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            outputStream.flush();
+            final boolean wasDispatchedBeforeBody = dispatchedLatch.await(5L, TimeUnit.SECONDS);
+
+            outputStream.write(body);
+            outputStream.flush();
+            final String response = _readUntilClosed(socket.getInputStream());
+
+            // Assert
+            Assert.assertTrue(wasDispatchedBeforeBody);
+            Assert.assertTrue(response.startsWith("HTTP/1.1 200 "));
+            Assert.assertTrue(response.endsWith("\r\n\r\n" + bodyByteCount + ":" + expectedChecksum));
+        }
+        finally {
+            serverEngine.stop();
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void should_serve_connections_from_each_reuse_port_acceptor() throws Exception {
+        // Setup
+        final Integer acceptorCount = 4;
+        final ExchangeHandler exchangeHandler = new ExchangeHandler() {
+            @Override
+            public void handle(final Exchange exchange) throws IOException {
+                final Response response = new Response();
+                response.setCode(Response.Codes.OK);
+                response.setContent("OK");
+                exchange.sendResponse(response);
+            }
+        };
+        final Map<String, ExchangeHandler> exchangeHandlers = new HashMap<String, ExchangeHandler>();
+        exchangeHandlers.put("/", exchangeHandler);
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        final NioServerEngine serverEngine = new NioServerEngine(1);
+        serverEngine.setAcceptorCount(acceptorCount);
+        serverEngine.start(new InetSocketAddress("127.0.0.1", 0), 16, null, exchangeHandlers, executorService);
+
+        try {
+            final boolean isReusePortSupported;
+            try (final ServerSocketChannel serverSocketChannel = ServerSocketChannel.open()) {
+                isReusePortSupported = serverSocketChannel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+            }
+
+            // Action
+            final Integer port = _getPort(serverEngine);
+            final List<String> responses = new ArrayList<String>();
+            for (int i = 0; i < (acceptorCount * 8); ++i) {
+                responses.add(_sendAndReceiveUntilClosed(port, "GET / HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"));
+            }
+
+            // Assert
+            Assert.assertEquals(acceptorCount.intValue(), serverEngine._acceptorThreads.size());
+            Assert.assertEquals((isReusePortSupported ? acceptorCount.intValue() : 1), serverEngine._serverSocketChannels.size());
+            for (final ServerSocketChannel serverSocketChannel : serverEngine._serverSocketChannels) {
+                Assert.assertEquals(port.intValue(), ((InetSocketAddress) serverSocketChannel.getLocalAddress()).getPort());
+            }
+            for (final String response : responses) {
+                Assert.assertTrue(response.startsWith("HTTP/1.1 200 "));
+            }
+        }
+        finally {
+            serverEngine.stop();
+            executorService.shutdown();
+        }
+    }
+
+    protected static ExchangeHandler _createEchoExchangeHandler() {
+        return new ExchangeHandler() {
+            @Override
+            public void handle(final Exchange exchange) throws IOException {
+                if (! exchange.getRequestUri().getPath().equals("/upload")) {
+                    final Response response = new Response();
+                    response.setCode(Response.Codes.NOT_FOUND);
+                    exchange.sendResponse(response); // Rejected without reading the body...
+                    return;
+                }
+
+                final String requestBody = _readUntilClosed(exchange.getRequestBody());
+                final Response response = new Response();
+                response.setCode(Response.Codes.OK);
+                response.setContent(requestBody);
+                exchange.sendResponse(response);
+            }
+        };
+    }
+
+    @Test
+    public void should_send_continue_once_handler_reads_request_body() throws Exception {
+        // Setup
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        final NioServerEngine serverEngine = _startServerEngine(_createEchoExchangeHandler(), executorService);
+
+        try (final Socket socket = new Socket("127.0.0.1", _getPort(serverEngine))) {
+            socket.setSoTimeout(5000);
+            final OutputStream outputStream = socket.getOutputStream();
+            final InputStream inputStream = socket.getInputStream();
+
+            // Action
+            outputStream.write("POST /upload HTTP/1.1\r\nHost: localhost\r\nContent-Length: 5\r\nExpect: 100-continue\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            outputStream.flush();
+            final String continueResponse = _readHead(inputStream);
+
+            outputStream.write("Hello".getBytes(StandardCharsets.ISO_8859_1));
+            outputStream.flush();
+            final String response = _readUntilClosed(inputStream);
+
+            // Assert
+            Assert.assertEquals("HTTP/1.1 100 Continue\r\n\r\n", continueResponse);
+            Assert.assertTrue(response.startsWith("HTTP/1.1 200 "));
+            Assert.assertTrue(response.endsWith("\r\n\r\nHello"));
+        }
+        finally {
+            serverEngine.stop();
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void should_not_send_continue_when_handler_rejects_request_without_reading_body() throws Exception {
+        // Setup
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        final NioServerEngine serverEngine = _startServerEngine(_createEchoExchangeHandler(), executorService);
+
+        try (final Socket socket = new Socket("127.0.0.1", _getPort(serverEngine))) {
+            socket.setSoTimeout(5000);
+            final OutputStream outputStream = socket.getOutputStream();
+
+            // Action
+            outputStream.write("POST /missing HTTP/1.1\r\nHost: localhost\r\nContent-Length: 5\r\nExpect: 100-continue\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            outputStream.flush();
+            final String response = _readUntilClosed(socket.getInputStream()); // The connection is closed rather than awaiting the unsent body...
+
+            // Assert
+            Assert.assertTrue(response.startsWith("HTTP/1.1 404 "));
+            Assert.assertFalse(response.contains("100 Continue"));
+        }
+        finally {
+            serverEngine.stop();
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void should_write_response_head_and_body_intact_across_partial_gathering_writes() throws Exception {
+        // Setup
+        final int contentByteCount = (4 * 1024 * 1024); // Together with the client's small receive buffer, larger than the socket buffers, so the gathering writes are partial...
+        final byte[] content = new byte[contentByteCount];
+        for (int i = 0; i < contentByteCount; ++i) {
+            content[i] = (byte) (i % 251);
+        }
+
+        final ExchangeHandler exchangeHandler = new ExchangeHandler() {
+            @Override
+            public void handle(final Exchange exchange) throws IOException {
+                final Response response = new Response();
+                response.setCode(Response.Codes.OK);
+                response.setContent(content);
+                exchange.sendResponse(response);
+            }
+        };
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        final NioServerEngine serverEngine = _startServerEngine(exchangeHandler, executorService);
+
+        try (final Socket socket = new Socket("127.0.0.1", _getPort(serverEngine))) {
+            socket.setSoTimeout(5000);
+            socket.setReceiveBufferSize(65536);
+
+            // Action
+            socket.getOutputStream().write("GET / HTTP/1.1\r\nHost: localhost\r\n\r\nGET / HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            socket.getOutputStream().flush();
+            Thread.sleep(250L); // Allow the socket buffers to fill...
+
+            final String responses = _readUntilClosed(socket.getInputStream());
+
+            // Assert
+            final String[] responseHeads = new String[2];
+            int index = 0;
+            for (int i = 0; i < responseHeads.length; ++i) {
+                final int headEndIndex = (responses.indexOf("\r\n\r\n", index) + 4);
+                responseHeads[i] = responses.substring(index, headEndIndex);
+
+                final byte[] receivedContent = responses.substring(headEndIndex, Math.min(responses.length(), headEndIndex + contentByteCount)).getBytes(StandardCharsets.ISO_8859_1);
+                Assert.assertArrayEquals(content, receivedContent);
+                index = (headEndIndex + contentByteCount);
+            }
+
+            Assert.assertEquals(responses.length(), index);
+            for (final String responseHead : responseHeads) {
+                Assert.assertTrue(responseHead.startsWith("HTTP/1.1 200 "));
+                Assert.assertTrue(responseHead.contains("Content-Length: " + contentByteCount + "\r\n"));
+            }
+        }
+        finally {
+            serverEngine.stop();
+            executorService.shutdown();
+        }
+    }
+}
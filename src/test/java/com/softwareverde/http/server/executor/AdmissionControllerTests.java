@@ -0,0 +1,51 @@
+package com.softwareverde.http.server.executor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdmissionControllerTests {
+    protected static final Long MS_IN_NS = 1000000L;
+
+    @Test
+    public void should_shed_task_that_exceeded_max_wait() {
+        // Setup
+        final AdmissionController admissionController = new AdmissionController(5L, 100L, 1000L);
+
+        // Action
+        final Boolean shouldShed = admissionController.shouldShed(1500L * MS_IN_NS, 0);
+
+        // Assert
+        Assert.assertTrue(shouldShed);
+    }
+
+    @Test
+    public void should_not_shed_momentary_queue_burst() {
+        // Setup
+        final AdmissionController admissionController = new AdmissionController(5L, 100L, 1000L);
+
+        // Action
+        final Boolean firstShouldShed = admissionController.shouldShed(50L * MS_IN_NS, 10);
+        final Boolean secondShouldShed = admissionController.shouldShed(1L * MS_IN_NS, 0);
+
+        // Assert
+        Assert.assertFalse(firstShouldShed);
+        Assert.assertFalse(secondShouldShed);
+    }
+
+    @Test
+    public void should_shed_once_queue_delay_persists_beyond_interval() throws Exception {
+        // Setup
+        final AdmissionController admissionController = new AdmissionController(5L, 20L, 1000L);
+
+        // Action
+        final Boolean initialShouldShed = admissionController.shouldShed(50L * MS_IN_NS, 10);
+        Thread.sleep(30L);
+        final Boolean persistentShouldShed = admissionController.shouldShed(50L * MS_IN_NS, 10);
+        final Boolean recoveredShouldShed = admissionController.shouldShed(1L * MS_IN_NS, 10);
+
+        // Assert
+        Assert.assertFalse(initialShouldShed);
+        Assert.assertTrue(persistentShouldShed);
+        Assert.assertFalse(recoveredShouldShed);
+    }
+}
@@ -0,0 +1,174 @@
+package com.softwareverde.http.server.executor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class BulkheadTests {
+    @Test
+    public void should_reject_tasks_beyond_concurrency_and_queue_depth() throws Exception {
+        // Setup
+        final ExecutorService executorService = Executors.newCachedThreadPool();
+        final Bulkhead bulkhead = new Bulkhead(executorService, 2, 1);
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        final CountDownLatch completedLatch = new CountDownLatch(3);
+        final Runnable blockingTask = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    releaseLatch.await();
+                }
+                catch (final InterruptedException exception) { }
+                completedLatch.countDown();
+            }
+        };
+
+        // Action
+        final List<Boolean> results = new ArrayList<Boolean>();
+        for (int i = 0; i < 4; ++i) {
+            results.add(bulkhead.execute(blockingTask));
+        }
+        final Integer activeCount = bulkhead.getActiveCount();
+        final Integer queuedCount = bulkhead.getQueuedCount();
+        releaseLatch.countDown();
+        final boolean didComplete = completedLatch.await(5L, TimeUnit.SECONDS);
+        executorService.shutdown();
+
+        // Assert
+        Assert.assertEquals(true, results.get(0));
+        Assert.assertEquals(true, results.get(1));
+        Assert.assertEquals(true, results.get(2));
+        Assert.assertEquals(false, results.get(3));
+        Assert.assertEquals(Integer.valueOf(2), activeCount);
+        Assert.assertEquals(Integer.valueOf(1), queuedCount);
+        Assert.assertTrue(didComplete);
+        Assert.assertEquals(Long.valueOf(3L), bulkhead.getAcceptedCount());
+        Assert.assertEquals(Long.valueOf(1L), bulkhead.getRejectedCount());
+    }
+
+    @Test
+    public void should_run_tasks_on_submitting_thread_without_executor() {
+        // Setup
+        final Bulkhead bulkhead = new Bulkhead(null, 1, 0);
+        final Thread submittingThread = Thread.currentThread();
+        final List<Thread> executingThreads = new ArrayList<Thread>();
+
+        // Action
+        final Boolean wasAccepted = bulkhead.execute(new Runnable() {
+            @Override
+            public void run() {
+                executingThreads.add(Thread.currentThread());
+            }
+        });
+
+        // Assert
+        Assert.assertTrue(wasAccepted);
+        Assert.assertEquals(submittingThread, executingThreads.get(0));
+        Assert.assertEquals(Integer.valueOf(0), bulkhead.getActiveCount());
+    }
+
+    @Test
+    public void should_release_concurrency_when_executor_rejects() {
+        // Setup
+        final Executor rejectingExecutor = new Executor() {
+            @Override
+            public void execute(final Runnable runnable) {
+                throw new RejectedExecutionException();
+            }
+        };
+        final Bulkhead bulkhead = new Bulkhead(rejectingExecutor, 1, 0);
+
+        // Action
+        final Boolean wasAccepted = bulkhead.execute(new Runnable() {
+            @Override
+            public void run() { }
+        });
+
+        // Assert
+        Assert.assertFalse(wasAccepted);
+        Assert.assertEquals(Integer.valueOf(0), bulkhead.getActiveCount());
+        Assert.assertEquals(Long.valueOf(1L), bulkhead.getRejectedCount());
+    }
+
+    @Test
+    public void should_release_concurrency_when_task_throws_error() {
+        // Setup
+        final Bulkhead bulkhead = new Bulkhead(null, 1, 0);
+        final List<Boolean> completedTasks = new ArrayList<Boolean>();
+
+        // Action
+        try {
+            bulkhead.execute(new Runnable() {
+                @Override
+                public void run() {
+                    throw new Error("Task failed.");
+                }
+            });
+            Assert.fail();
+        }
+        catch (final Error error) { }
+
+        final Boolean wasAccepted = bulkhead.execute(new Runnable() {
+            @Override
+            public void run() {
+                completedTasks.add(true);
+            }
+        });
+
+        // Assert
+        Assert.assertTrue(wasAccepted);
+        Assert.assertEquals(1, completedTasks.size());
+        Assert.assertEquals(Integer.valueOf(0), bulkhead.getActiveCount());
+    }
+
+    @Test
+    public void should_run_queued_task_on_another_thread_when_task_throws_error() {
+        // Setup
+        final List<Runnable> dispatchedRunnables = new ArrayList<Runnable>();
+        final Executor deferredExecutor = new Executor() {
+            @Override
+            public void execute(final Runnable runnable) {
+                dispatchedRunnables.add(runnable);
+            }
+        };
+        final Bulkhead bulkhead = new Bulkhead(deferredExecutor, 1, 1);
+        final List<Boolean> completedTasks = new ArrayList<Boolean>();
+
+        bulkhead.execute(new Runnable() {
+            @Override
+            public void run() {
+                throw new Error("Task failed.");
+            }
+        });
+        bulkhead.execute(new Runnable() {
+            @Override
+            public void run() {
+                completedTasks.add(true);
+            }
+        });
+
+        // Action
+        try {
+            dispatchedRunnables.get(0).run();
+            Assert.fail();
+        }
+        catch (final Error error) { }
+        final Integer activeCountAfterError = bulkhead.getActiveCount();
+        dispatchedRunnables.get(1).run();
+
+        // Assert
+        Assert.assertEquals(2, dispatchedRunnables.size());
+        Assert.assertEquals(Integer.valueOf(1), activeCountAfterError);
+        Assert.assertEquals(1, completedTasks.size());
+        Assert.assertEquals(Integer.valueOf(0), bulkhead.getActiveCount());
+        Assert.assertEquals(Integer.valueOf(0), bulkhead.getQueuedCount());
+    }
+}
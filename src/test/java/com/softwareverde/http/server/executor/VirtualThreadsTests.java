@@ -0,0 +1,106 @@
+package com.softwareverde.http.server.executor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class VirtualThreadsTests {
+    /**
+     * Returns true if the tests are run against the multi-release overlay classes on Java 21 (see the testJava21 Gradle task).
+     */
+    protected static Boolean _areOverlaysLoaded() {
+        return Boolean.parseBoolean(System.getProperty("http-servlet.test.areOverlaysLoaded"));
+    }
+
+    /**
+     * Thread.isVirtual() is resolved reflectively, since it is not available on every JVM the tests are compiled for.
+     */
+    protected static Boolean _isVirtual(final Thread thread) throws Exception {
+        return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+    }
+
+    @Test
+    public void should_run_tasks_on_virtual_threads_when_supported() throws Exception {
+        // Setup
+        final List<Thread> executingThreads = new ArrayList<Thread>();
+        final CountDownLatch completedLatch = new CountDownLatch(1);
+
+        // Action
+        final Boolean isSupported = VirtualThreads.isSupported();
+        final ExecutorService executorService = VirtualThreads.newVirtualThreadPerTaskExecutor("VirtualThreadsTests-");
+        if (executorService != null) {
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    executingThreads.add(Thread.currentThread());
+                    completedLatch.countDown();
+                }
+            });
+            completedLatch.await(5L, TimeUnit.SECONDS);
+            executorService.shutdown();
+        }
+
+        // Assert
+        if (_areOverlaysLoaded()) {
+            Assert.assertTrue(isSupported);
+        }
+
+        if (! isSupported) {
+            Assert.assertNull(executorService);
+            return;
+        }
+
+        Assert.assertEquals(1, executingThreads.size());
+        Assert.assertTrue(_isVirtual(executingThreads.get(0)));
+        Assert.assertTrue(executingThreads.get(0).getName().startsWith("VirtualThreadsTests-"));
+    }
+
+    @Test
+    public void should_limit_concurrency_of_unbounded_executor() throws Exception {
+        // Setup
+        final Integer maxConcurrency = 2;
+        final Integer taskCount = 10;
+        final ExecutorService unboundedExecutorService = (VirtualThreads.isSupported() ? VirtualThreads.newVirtualThreadPerTaskExecutor("VirtualThreadsTests-") : Executors.newCachedThreadPool());
+        final ConcurrencyLimitedExecutorService executorService = new ConcurrencyLimitedExecutorService(unboundedExecutorService, maxConcurrency);
+
+        final AtomicInteger runningCount = new AtomicInteger(0);
+        final AtomicInteger maxRunningCount = new AtomicInteger(0);
+        final CountDownLatch completedLatch = new CountDownLatch(taskCount);
+
+        // Action
+        for (int i = 0; i < taskCount; ++i) {
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    final int concurrentCount = runningCount.incrementAndGet();
+                    int maxCount;
+                    while ( ((maxCount = maxRunningCount.get()) < concurrentCount) && (! maxRunningCount.compareAndSet(maxCount, concurrentCount)) ) { }
+
+                    try {
+                        Thread.sleep(20L);
+                    }
+                    catch (final InterruptedException exception) {
+                        Thread.currentThread().interrupt();
+                    }
+                    runningCount.decrementAndGet();
+                    completedLatch.countDown();
+                }
+            });
+        }
+        final boolean didComplete = completedLatch.await(5L, TimeUnit.SECONDS);
+        executorService.shutdown();
+        executorService.awaitTermination(5L, TimeUnit.SECONDS);
+
+        // Assert
+        Assert.assertTrue(didComplete);
+        Assert.assertTrue(maxRunningCount.get() <= maxConcurrency);
+        Assert.assertEquals(Integer.valueOf(0), executorService.getActiveCount());
+    }
+}
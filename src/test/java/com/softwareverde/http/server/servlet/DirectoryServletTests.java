@@ -0,0 +1,138 @@
+package com.softwareverde.http.server.servlet;
+
+import com.softwareverde.http.HttpMethod;
+import com.softwareverde.http.server.servlet.request.Request;
+import com.softwareverde.http.server.servlet.response.Response;
+import com.softwareverde.http.server.servlet.response.ResponseCompressor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+public class DirectoryServletTests {
+    protected static class FakeRequest extends Request {
+        public FakeRequest(final HttpMethod method, final String filePath) {
+            _method = method;
+            _filePath = filePath;
+        }
+
+        public void setHeader(final String key, final String value) {
+            final List<String> values = new ArrayList<String>();
+            values.add(value);
+            _headers.setHeader(key, values);
+        }
+    }
+
+    protected static File _createDirectory(final String fileContents) throws Exception {
+        final File directory = Files.createTempDirectory("DirectoryServletTests").toFile();
+        directory.deleteOnExit();
+
+        final File file = new File(directory, "index.html");
+        Files.write(file.toPath(), fileContents.getBytes(StandardCharsets.UTF_8));
+        file.deleteOnExit();
+
+        return directory;
+    }
+
+    @Test
+    public void should_answer_head_request_without_reading_file() throws Exception {
+        // Setup
+        final File directory = _createDirectory("<html></html>");
+        final DirectoryServlet directoryServlet = new DirectoryServlet(directory);
+
+        // Action
+        final Response response = directoryServlet.onRequest(new FakeRequest(HttpMethod.HEAD, "/index.html"));
+
+        // Assert
+        Assert.assertEquals(Response.Codes.OK, response.getCode());
+        Assert.assertTrue(response.isContentStreamed());
+        Assert.assertEquals(Long.valueOf(13L), response.getContentByteCount());
+        Assert.assertNotNull(response.getHeaders().get(Response.Headers.ETAG));
+        Assert.assertNotNull(response.getHeaders().get(Response.Headers.LAST_MODIFIED));
+    }
+
+    @Test
+    public void should_answer_conditional_request_with_not_modified() throws Exception {
+        // Setup
+        final File directory = _createDirectory("<html></html>");
+        final DirectoryServlet directoryServlet = new DirectoryServlet(directory);
+        final Response initialResponse = directoryServlet.onRequest(new FakeRequest(HttpMethod.GET, "/index.html"));
+        final String entityTag = initialResponse.getHeaders().get(Response.Headers.ETAG).get(0);
+
+        final FakeRequest request = new FakeRequest(HttpMethod.GET, "/index.html");
+        request.setHeader("If-None-Match", "\"other\", " + entityTag);
+
+        // Action
+        final Response response = directoryServlet.onRequest(request);
+
+        // Assert
+        Assert.assertEquals("<html></html>", new String(initialResponse.getContent(), StandardCharsets.UTF_8));
+        Assert.assertEquals(Response.Codes.NOT_MODIFIED, response.getCode());
+        Assert.assertEquals(0, response.getContent().length);
+        Assert.assertEquals(entityTag, response.getHeaders().get(Response.Headers.ETAG).get(0));
+    }
+
+    @Test
+    public void should_not_compress_head_response() throws Exception {
+        // Setup
+        final StringBuilder stringBuilder = new StringBuilder();
+        for (int i = 0; i < 200; ++i) {
+            stringBuilder.append("<p>The quick brown fox jumps over the lazy dog.</p>\n");
+        }
+        final File directory = _createDirectory(stringBuilder.toString());
+        final DirectoryServlet directoryServlet = new DirectoryServlet(directory);
+        final ResponseCompressor responseCompressor = new ResponseCompressor();
+        final Response response = directoryServlet.onRequest(new FakeRequest(HttpMethod.HEAD, "/index.html"));
+
+        // Action
+        final String encoding = responseCompressor.compress(response, "gzip", "HEAD");
+
+        // Assert
+        Assert.assertNull(encoding);
+        Assert.assertNull(response.getHeaders().get(Response.Headers.CONTENT_ENCODING));
+        Assert.assertEquals(Long.valueOf(stringBuilder.length()), response.getContentByteCount());
+    }
+
+    @Test
+    public void should_match_quoted_entity_tag_containing_comma() throws Exception {
+        // Setup
+        final File directory = _createDirectory("<html></html>");
+        final DirectoryServlet directoryServlet = new DirectoryServlet(directory);
+        final Response initialResponse = directoryServlet.onRequest(new FakeRequest(HttpMethod.GET, "/index.html"));
+        final String entityTag = initialResponse.getHeaders().get(Response.Headers.ETAG).get(0);
+
+        final FakeRequest request = new FakeRequest(HttpMethod.GET, "/index.html");
+        request.setHeader("If-None-Match", "\"other," + entityTag.substring(1) + ", W/" + entityTag);
+
+        final FakeRequest mismatchedRequest = new FakeRequest(HttpMethod.GET, "/index.html");
+        mismatchedRequest.setHeader("If-None-Match", "\"other," + entityTag.substring(1));
+
+        // Action
+        final Response response = directoryServlet.onRequest(request);
+        final Response mismatchedResponse = directoryServlet.onRequest(mismatchedRequest);
+
+        // Assert
+        Assert.assertEquals(Response.Codes.NOT_MODIFIED, response.getCode());
+        Assert.assertEquals(Response.Codes.OK, mismatchedResponse.getCode());
+    }
+
+    @Test
+    public void should_not_evaluate_conditions_for_other_methods() throws Exception {
+        // Setup
+        final File directory = _createDirectory("<html></html>");
+        final DirectoryServlet directoryServlet = new DirectoryServlet(directory);
+
+        final FakeRequest request = new FakeRequest(HttpMethod.POST, "/index.html");
+        request.setHeader("If-None-Match", "*");
+
+        // Action
+        final Response response = directoryServlet.onRequest(request);
+
+        // Assert
+        Assert.assertEquals(Response.Codes.OK, response.getCode());
+    }
+}
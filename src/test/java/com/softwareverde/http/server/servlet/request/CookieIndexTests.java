@@ -0,0 +1,65 @@
+package com.softwareverde.http.server.servlet.request;
+
+import com.softwareverde.http.cookie.Cookie;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class CookieIndexTests {
+    @Test
+    public void should_index_cookies_case_insensitively() {
+        // Setup
+        final CookieIndex cookieIndex = new CookieIndex();
+
+        // Action
+        cookieIndex.addCookieHeader("Session=abc; theme=dark");
+
+        // Assert
+        Assert.assertEquals(2, cookieIndex.getCookies().size());
+        Assert.assertEquals("abc", cookieIndex.getCookie("Session").getValue());
+        Assert.assertEquals("abc", cookieIndex.getCookie("session").getValue());
+        Assert.assertEquals("dark", cookieIndex.getCookie("THEME").getValue());
+        Assert.assertNull(cookieIndex.getCookie("missing"));
+        Assert.assertTrue(cookieIndex.getCookies("missing").isEmpty());
+    }
+
+    @Test
+    public void should_retain_same_name_cookies_and_raw_values() {
+        // Setup
+        final CookieIndex cookieIndex = new CookieIndex();
+
+        // Action
+        cookieIndex.addCookieHeader("id=1; ID=2");
+        cookieIndex.addCookieHeader("id= \"3\" ; flag");
+
+        // Assert
+        final List<Cookie> cookies = cookieIndex.getCookies("Id");
+        Assert.assertEquals(3, cookies.size());
+        Assert.assertEquals("1", cookies.get(0).getValue());
+        Assert.assertEquals("2", cookies.get(1).getValue());
+        Assert.assertEquals("1", cookieIndex.getRawValue("id"));
+        Assert.assertEquals("\"3\"", cookieIndex.getRawValues("ID").get(2));
+        Assert.assertNull(cookieIndex.getRawValue("flag"));
+    }
+
+    @Test
+    public void should_keep_raw_value_with_its_cookie() {
+        // Setup
+        final CookieIndex cookieIndex = new CookieIndex();
+
+        // Action
+        cookieIndex.addCookieHeader("=orphan; id=1; id; ID=\"2\"; =; id=3");
+
+        // Assert
+        final List<Cookie> cookies = cookieIndex.getCookies("id");
+        final List<String> rawValues = cookieIndex.getRawValues("id");
+        Assert.assertEquals(3, cookies.size());
+        Assert.assertEquals(3, rawValues.size());
+        Assert.assertEquals("1", rawValues.get(0));
+        Assert.assertEquals("\"2\"", rawValues.get(1));
+        Assert.assertEquals("ID", cookies.get(1).getKey());
+        Assert.assertEquals("3", rawValues.get(2));
+        Assert.assertEquals("3", cookies.get(2).getValue());
+    }
+}
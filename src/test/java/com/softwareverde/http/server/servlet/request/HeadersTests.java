@@ -0,0 +1,75 @@
+package com.softwareverde.http.server.servlet.request;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class HeadersTests {
+    @Test
+    public void should_lookup_headers_case_insensitively() {
+        // Setup
+        final Headers headers = new Headers();
+        headers.setHeader("Content-Length", Arrays.asList(" 42 "));
+        headers.setHeader("X-Custom-Header", Arrays.asList("a", "b"));
+
+        // Action
+        final List<String> customHeaderValues = headers.getHeader("x-custom-HEADER");
+
+        // Assert
+        Assert.assertTrue(headers.containsHeader("CONTENT-LENGTH"));
+        Assert.assertTrue(headers.getHeaderNames().contains("x-custom-header"));
+        Assert.assertEquals(Arrays.asList("a", "b"), customHeaderValues);
+        Assert.assertEquals("a", headers.getFirst("X-CUSTOM-HEADER"));
+        Assert.assertEquals(Integer.valueOf(42), headers.getInt("content-length"));
+        Assert.assertEquals(Long.valueOf(42L), headers.getLong("Content-Length"));
+        Assert.assertNull(headers.getInt("X-Custom-Header"));
+        Assert.assertNull(headers.getFirst("Missing"));
+    }
+
+    @Test
+    public void should_merge_values_for_differently_cased_names() {
+        // Setup
+        final Headers headers = new Headers();
+        headers.addHeaderValues("Cookie", Arrays.asList("a=1"));
+
+        // Action
+        headers.addHeaderValues("cookie", Arrays.asList("b=2"));
+
+        // Assert
+        Assert.assertEquals(1, headers.getHeaderNames().size());
+        Assert.assertEquals(Arrays.asList("a=1", "b=2"), headers.getHeader("COOKIE"));
+    }
+
+    @Test
+    public void should_share_values_with_read_only_view() {
+        // Setup
+        final Headers headers = new Headers();
+        final List<String> values = new ArrayList<String>();
+        values.add("localhost");
+        headers.setHeader("Host", values);
+        values.add("ignored");
+
+        // Action
+        final Headers readOnlyView = headers.getReadOnlyView();
+
+        // Assert
+        Assert.assertSame(readOnlyView, headers.getReadOnlyView());
+        Assert.assertSame(headers.getHeader("host"), readOnlyView.getHeader("HOST"));
+        Assert.assertEquals(1, readOnlyView.getHeader("host").size());
+
+        try {
+            readOnlyView.setHeader("Host", values);
+            Assert.fail();
+        }
+        catch (final UnsupportedOperationException exception) { }
+
+        try {
+            readOnlyView.getHeader("host").add("other");
+            Assert.fail();
+        }
+        catch (final UnsupportedOperationException exception) { }
+    }
+}
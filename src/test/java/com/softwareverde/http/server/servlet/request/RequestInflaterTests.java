@@ -0,0 +1,150 @@
+package com.softwareverde.http.server.servlet.request;
+
+import com.softwareverde.http.server.engine.Exchange;
+import com.softwareverde.http.server.servlet.response.Response;
+import com.softwareverde.http.websocket.ConnectionLayer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class RequestInflaterTests {
+    protected static class FakeExchange implements Exchange {
+        public final Map<String, List<String>> headers = new HashMap<String, List<String>>();
+        public Integer headerAccessCount = 0;
+        public Integer requestBodyAccessCount = 0;
+        public Integer failingRequestBodyReadCount = 0;
+        public final String requestUri;
+        public final byte[] requestBody;
+
+        public FakeExchange(final String requestUri, final String requestBody) {
+            this.requestUri = requestUri;
+            this.requestBody = requestBody.getBytes(StandardCharsets.UTF_8);
+        }
+
+        public void addHeader(final String key, final String value) {
+            final List<String> values = new ArrayList<String>();
+            values.add(value);
+            this.headers.put(key, values);
+        }
+
+        @Override
+        public String getRequestMethod() { return "POST"; }
+
+        @Override
+        public URI getRequestUri() { return URI.create(this.requestUri); }
+
+        @Override
+        public String getContextPath() { return "/"; }
+
+        @Override
+        public Map<String, List<String>> getRequestHeaders() {
+            this.headerAccessCount += 1;
+            return this.headers;
+        }
+
+        @Override
+        public HostInformation getLocalHostInformation() { return null; }
+
+        @Override
+        public HostInformation getRemoteHostInformation() { return null; }
+
+        @Override
+        public InputStream getRequestBody() {
+            this.requestBodyAccessCount += 1;
+            if (this.failingRequestBodyReadCount > 0) {
+                this.failingRequestBodyReadCount -= 1;
+                return new InputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        throw new IOException("Connection reset.");
+                    }
+                };
+            }
+            return new ByteArrayInputStream(this.requestBody);
+        }
+
+        @Override
+        public void sendResponse(final Response response) { }
+
+        @Override
+        public ConnectionLayer upgradeToWebSocket(final Response response) { return null; }
+    }
+
+    @Test
+    public void should_not_inflate_unaccessed_properties() {
+        // Setup
+        final FakeExchange exchange = new FakeExchange("/index.html?key=value", "a=b");
+        exchange.addHeader("Cookie", "name=value");
+        final RequestInflater requestInflater = new RequestInflater();
+
+        // Action
+        final Request request = requestInflater.createRequest(exchange);
+        final String filePath = request.getFilePath();
+
+        // Assert
+        Assert.assertEquals("/index.html", filePath);
+        Assert.assertEquals("key=value", request.getQueryString());
+        Assert.assertEquals(Integer.valueOf(0), exchange.headerAccessCount);
+        Assert.assertEquals(Integer.valueOf(0), exchange.requestBodyAccessCount);
+    }
+
+    @Test
+    public void should_inflate_properties_once_upon_first_access() {
+        // Setup
+        final FakeExchange exchange = new FakeExchange("/?key=value", "a=b");
+        exchange.addHeader("Cookie", "name=value");
+        exchange.addHeader("Content-Type", "application/x-www-form-urlencoded");
+        final RequestInflater requestInflater = new RequestInflater();
+        final Request request = requestInflater.createRequest(exchange);
+
+        // Action
+        final String cookieValue = request.getCookie("name").getValue();
+        final String getParameterValue = request.getGetParameters().get("key");
+        final String postParameterValue = request.getPostParameters().get("a");
+        final String getParameterIndexValue = request.getGetParameterIndex().get("key");
+        final String postParameterIndexValue = request.getPostParameterIndex().get("a");
+        final byte[] rawPostData = request.getRawPostData();
+        request.getCookies();
+        request.getHeaders();
+
+        // Assert
+        Assert.assertEquals("value", cookieValue);
+        Assert.assertEquals("value", getParameterValue);
+        Assert.assertEquals("b", postParameterValue);
+        Assert.assertEquals("value", getParameterIndexValue);
+        Assert.assertEquals("b", postParameterIndexValue);
+        Assert.assertEquals("a=b", new String(rawPostData, StandardCharsets.UTF_8));
+        Assert.assertEquals(Integer.valueOf(1), exchange.headerAccessCount);
+        Assert.assertEquals(Integer.valueOf(1), exchange.requestBodyAccessCount);
+    }
+
+    @Test
+    public void should_retry_request_body_read_after_failure() {
+        // Setup
+        final FakeExchange exchange = new FakeExchange("/", "a=b");
+        exchange.addHeader("Content-Type", "application/x-www-form-urlencoded");
+        exchange.failingRequestBodyReadCount = 1;
+        final RequestInflater requestInflater = new RequestInflater();
+        final Request request = requestInflater.createRequest(exchange);
+
+        // Action
+        final byte[] failedRawPostData = request.getRawPostData();
+        final String postParameterValue = request.getPostParameters().get("a");
+        final byte[] rawPostData = request.getRawPostData();
+
+        // Assert
+        Assert.assertNull(failedRawPostData);
+        Assert.assertEquals("b", postParameterValue);
+        Assert.assertEquals("a=b", new String(rawPostData, StandardCharsets.UTF_8));
+        Assert.assertEquals(Integer.valueOf(2), exchange.requestBodyAccessCount);
+    }
+}
@@ -0,0 +1,73 @@
+package com.softwareverde.http.server.servlet.request;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RequestPoolTests {
+    @Test
+    public void should_reuse_released_request_without_previous_state() {
+        // Setup
+        final RequestPool requestPool = new RequestPool(new RequestInflater());
+
+        final RequestInflaterTests.FakeExchange exchange = new RequestInflaterTests.FakeExchange("/first?key=value", "a=b");
+        exchange.addHeader("Cookie", "name=value");
+        final Request request = requestPool.createRequest(exchange, false);
+        request.getCookies();
+        request.getGetParameters();
+        request.setDeadline(System.currentTimeMillis());
+
+        // Action
+        requestPool.release(request);
+        final Request reusedRequest = requestPool.createRequest(new RequestInflaterTests.FakeExchange("/second", ""), false);
+
+        // Assert
+        Assert.assertSame(request, reusedRequest);
+        Assert.assertEquals("/second", reusedRequest.getFilePath());
+        Assert.assertNull(reusedRequest.getCookie("name"));
+        Assert.assertTrue(reusedRequest.getHeaders().getHeaderNames().isEmpty());
+        Assert.assertNull(reusedRequest.getGetParameters().get("key"));
+        Assert.assertNull(reusedRequest.getDeadline());
+    }
+
+    @Test
+    public void should_reuse_request_released_by_another_thread() throws Exception {
+        // Setup
+        final RequestPool requestPool = new RequestPool(new RequestInflater());
+        final Request request = requestPool.createRequest(new RequestInflaterTests.FakeExchange("/first", ""), false);
+
+        final Thread releasingThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                requestPool.release(request);
+            }
+        });
+
+        // Action
+        releasingThread.start();
+        releasingThread.join();
+        final Request reusedRequest = requestPool.createRequest(new RequestInflaterTests.FakeExchange("/second", ""), false);
+
+        // Assert
+        Assert.assertSame(request, reusedRequest);
+        Assert.assertEquals("/second", reusedRequest.getFilePath());
+    }
+
+    @Test
+    public void should_detect_use_after_release() {
+        // Setup
+        final RequestPool requestPool = new RequestPool(new RequestInflater(), true);
+        final Request request = requestPool.createRequest(new RequestInflaterTests.FakeExchange("/?key=value", ""), false);
+
+        // Action
+        requestPool.release(request);
+        final Request nextRequest = requestPool.createRequest(new RequestInflaterTests.FakeExchange("/", ""), false);
+
+        // Assert
+        Assert.assertNotSame(request, nextRequest);
+        try {
+            request.getGetParameters();
+            Assert.fail();
+        }
+        catch (final IllegalStateException exception) { }
+    }
+}
@@ -0,0 +1,172 @@
+package com.softwareverde.http.server.servlet.response;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+public class ResponseCompressorTests {
+    protected static String _createContent(final Integer lineCount) {
+        final StringBuilder stringBuilder = new StringBuilder();
+        for (int i = 0; i < lineCount; ++i) {
+            stringBuilder.append("{\"line\": ");
+            stringBuilder.append(i);
+            stringBuilder.append(", \"value\": \"The quick brown fox jumps over the lazy dog.\"}\n");
+        }
+        return stringBuilder.toString();
+    }
+
+    protected static byte[] _readAll(final InputStream inputStream) throws IOException {
+        final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+        int byteCount;
+        while ((byteCount = inputStream.read(buffer)) >= 0) {
+            byteArrayOutputStream.write(buffer, 0, byteCount);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    protected static Response _createResponse(final String content, final String contentType) {
+        final Response response = new Response();
+        response.setCode(Response.Codes.OK);
+        response.setHeader(Response.Headers.CONTENT_TYPE, contentType);
+        response.setContent(content);
+        return response;
+    }
+
+    protected static String _getHeader(final Response response, final String headerName) {
+        final List<String> values = response.getHeaders().get(headerName);
+        if ( (values == null) || (values.isEmpty()) ) { return null; }
+        return values.get(0);
+    }
+
+    @Test
+    public void should_select_preferred_encoding() {
+        Assert.assertEquals(ResponseCompressor.Encodings.GZIP, ResponseCompressor.selectEncoding("gzip, deflate, br"));
+        Assert.assertEquals(ResponseCompressor.Encodings.GZIP, ResponseCompressor.selectEncoding("deflate, gzip"));
+        Assert.assertEquals(ResponseCompressor.Encodings.DEFLATE, ResponseCompressor.selectEncoding("gzip;q=0, deflate"));
+        Assert.assertEquals(ResponseCompressor.Encodings.DEFLATE, ResponseCompressor.selectEncoding("gzip;q=0.5, deflate;q=0.8"));
+        Assert.assertEquals(ResponseCompressor.Encodings.GZIP, ResponseCompressor.selectEncoding("*"));
+        Assert.assertNull(ResponseCompressor.selectEncoding("br"));
+        Assert.assertNull(ResponseCompressor.selectEncoding("identity"));
+        Assert.assertNull(ResponseCompressor.selectEncoding(null));
+    }
+
+    @Test
+    public void should_gzip_compressible_content_above_threshold() throws Exception {
+        // Setup
+        final ResponseCompressor responseCompressor = new ResponseCompressor();
+        final String content = _createContent(200);
+        final Response response = _createResponse(content, "application/json");
+
+        // Action
+        final String encoding = responseCompressor.compress(response, "gzip, deflate");
+
+        // Assert
+        Assert.assertEquals(ResponseCompressor.Encodings.GZIP, encoding);
+        Assert.assertEquals(ResponseCompressor.Encodings.GZIP, _getHeader(response, Response.Headers.CONTENT_ENCODING));
+        Assert.assertEquals("Accept-Encoding", _getHeader(response, "Vary"));
+        Assert.assertTrue(response.getContent().length < content.length());
+
+        final byte[] decompressedContent = _readAll(new GZIPInputStream(new ByteArrayInputStream(response.getContent())));
+        Assert.assertEquals(content, new String(decompressedContent, "UTF-8"));
+    }
+
+    @Test
+    public void should_reuse_deflater_across_responses() throws Exception {
+        // Setup
+        final ResponseCompressor responseCompressor = new ResponseCompressor();
+        final String firstContent = _createContent(100);
+        final String secondContent = _createContent(300);
+        final Response firstResponse = _createResponse(firstContent, "text/plain");
+        final Response secondResponse = _createResponse(secondContent, "text/plain");
+
+        // Action
+        responseCompressor.compress(firstResponse, "deflate");
+        responseCompressor.compress(secondResponse, "deflate");
+
+        // Assert
+        Assert.assertEquals(firstContent, new String(_readAll(new InflaterInputStream(new ByteArrayInputStream(firstResponse.getContent()))), "UTF-8"));
+        Assert.assertEquals(secondContent, new String(_readAll(new InflaterInputStream(new ByteArrayInputStream(secondResponse.getContent()))), "UTF-8"));
+    }
+
+    @Test
+    public void should_share_bounded_deflater_pool_across_threads() throws Exception {
+        // Setup
+        final ResponseCompressor responseCompressor = new ResponseCompressor();
+        final String content = _createContent(100);
+        final Response firstResponse = _createResponse(content, "text/plain");
+        final Response secondResponse = _createResponse(content, "text/plain");
+
+        // Action
+        responseCompressor.compress(firstResponse, "gzip");
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                responseCompressor.compress(secondResponse, "gzip");
+            }
+        });
+        thread.start();
+        thread.join();
+        final Integer pooledDeflaterCount = responseCompressor._gzipDeflaters.size();
+
+        for (int i = 0; i < (ResponseCompressor.MAX_POOLED_DEFLATER_COUNT * 2); ++i) {
+            responseCompressor._releaseDeflater(new Deflater(), true);
+        }
+
+        // Assert
+        Assert.assertEquals(Integer.valueOf(1), pooledDeflaterCount);
+        Assert.assertEquals(content, new String(_readAll(new GZIPInputStream(new ByteArrayInputStream(secondResponse.getContent()))), "UTF-8"));
+        Assert.assertEquals(ResponseCompressor.MAX_POOLED_DEFLATER_COUNT.intValue(), responseCompressor._gzipDeflaters.size());
+    }
+
+    @Test
+    public void should_not_compress_small_or_incompressible_content() throws Exception {
+        // Setup
+        final ResponseCompressor responseCompressor = new ResponseCompressor();
+        final Response smallResponse = _createResponse("{\"ok\": true}", "application/json");
+        final Response imageResponse = _createResponse(_createContent(200), "image/png");
+
+        // Action
+        final String smallEncoding = responseCompressor.compress(smallResponse, "gzip");
+        final String imageEncoding = responseCompressor.compress(imageResponse, "gzip");
+
+        // Assert
+        Assert.assertNull(smallEncoding);
+        Assert.assertNull(_getHeader(smallResponse, Response.Headers.CONTENT_ENCODING));
+        Assert.assertEquals("Accept-Encoding", _getHeader(smallResponse, "Vary"));
+
+        Assert.assertNull(imageEncoding);
+        Assert.assertNull(_getHeader(imageResponse, Response.Headers.CONTENT_ENCODING));
+        Assert.assertNull(_getHeader(imageResponse, "Vary"));
+    }
+
+    @Test
+    public void should_gzip_streamed_content() throws Exception {
+        // Setup
+        final ResponseCompressor responseCompressor = new ResponseCompressor();
+        final String content = _createContent(500);
+        final Response response = new Response();
+        response.setCode(Response.Codes.OK);
+        response.setHeader(Response.Headers.CONTENT_TYPE, "text/plain");
+        response.setContentStream(new ByteArrayInputStream(content.getBytes("UTF-8")), (long) content.length());
+
+        // Action
+        final String encoding = responseCompressor.compress(response, "gzip");
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        response.getContentWriter().writeContent(outputStream);
+
+        // Assert
+        Assert.assertEquals(ResponseCompressor.Encodings.GZIP, encoding);
+        Assert.assertNull(response.getContentByteCount());
+        final byte[] decompressedContent = _readAll(new GZIPInputStream(new ByteArrayInputStream(outputStream.toByteArray())));
+        Assert.assertEquals(content, new String(decompressedContent, "UTF-8"));
+    }
+}
@@ -0,0 +1,83 @@
+package com.softwareverde.http.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HeaderValueTokenizerTests {
+    @Test
+    public void should_tokenize_media_type_and_parameters() {
+        // Setup
+        final HeaderValueTokenizer headerValueTokenizer = new HeaderValueTokenizer("Multipart/Form-Data ; charset=utf-8;boundary=\"a;b,c\"");
+
+        // Action
+        final Boolean hasElement = headerValueTokenizer.nextElement();
+
+        // Assert
+        Assert.assertTrue(hasElement);
+        Assert.assertTrue(headerValueTokenizer.elementEquals("multipart/form-data"));
+        Assert.assertTrue(headerValueTokenizer.elementStartsWith("multipart/"));
+        Assert.assertEquals("Multipart/Form-Data", headerValueTokenizer.getElement());
+
+        Assert.assertTrue(headerValueTokenizer.nextParameter());
+        Assert.assertTrue(headerValueTokenizer.parameterNameEquals("CHARSET"));
+        Assert.assertTrue(headerValueTokenizer.parameterValueEquals("UTF-8"));
+        Assert.assertFalse(headerValueTokenizer.isParameterValueQuoted());
+
+        Assert.assertTrue(headerValueTokenizer.nextParameter());
+        Assert.assertEquals("boundary", headerValueTokenizer.getParameterName());
+        Assert.assertEquals("a;b,c", headerValueTokenizer.getParameterValue());
+        Assert.assertTrue(headerValueTokenizer.isParameterValueQuoted());
+
+        Assert.assertFalse(headerValueTokenizer.nextParameter());
+        Assert.assertEquals("a;b,c", headerValueTokenizer.getParameter("Boundary"));
+        Assert.assertFalse(headerValueTokenizer.nextElement());
+    }
+
+    @Test
+    public void should_tokenize_list_with_quality_values() {
+        // Setup
+        final HeaderValueTokenizer headerValueTokenizer = new HeaderValueTokenizer("gzip;q=0.5, , deflate ; q=1.0,br;q=0,identity;q=bad, *");
+
+        // Action / Assert
+        Assert.assertTrue(headerValueTokenizer.nextElement());
+        Assert.assertEquals("gzip", headerValueTokenizer.getElement());
+        Assert.assertEquals(Integer.valueOf(500), headerValueTokenizer.getQuality());
+
+        Assert.assertTrue(headerValueTokenizer.nextElement());
+        Assert.assertEquals("deflate", headerValueTokenizer.getElement());
+        Assert.assertEquals(Integer.valueOf(1000), headerValueTokenizer.getQuality());
+
+        Assert.assertTrue(headerValueTokenizer.nextElement());
+        Assert.assertEquals("br", headerValueTokenizer.getElement());
+        Assert.assertEquals(Integer.valueOf(0), headerValueTokenizer.getQuality());
+
+        Assert.assertTrue(headerValueTokenizer.nextElement());
+        Assert.assertEquals("identity", headerValueTokenizer.getElement());
+        Assert.assertEquals(Integer.valueOf(0), headerValueTokenizer.getQuality());
+
+        Assert.assertTrue(headerValueTokenizer.nextElement());
+        Assert.assertTrue(headerValueTokenizer.elementEquals("*"));
+        Assert.assertEquals(Integer.valueOf(1000), headerValueTokenizer.getQuality());
+
+        Assert.assertFalse(headerValueTokenizer.nextElement());
+    }
+
+    @Test
+    public void should_unescape_quoted_parameter_and_reset() {
+        // Setup
+        final HeaderValueTokenizer headerValueTokenizer = new HeaderValueTokenizer("attachment; filename=\"a\\\"b.txt\"");
+        headerValueTokenizer.nextElement();
+
+        // Action
+        final String filename = headerValueTokenizer.getParameter("filename");
+        headerValueTokenizer.reset("\"etag,1\", W/\"etag2\"");
+
+        // Assert
+        Assert.assertEquals("a\"b.txt", filename);
+        Assert.assertTrue(headerValueTokenizer.nextElement());
+        Assert.assertEquals("\"etag,1\"", headerValueTokenizer.getElement());
+        Assert.assertTrue(headerValueTokenizer.nextElement());
+        Assert.assertEquals("W/\"etag2\"", headerValueTokenizer.getElement());
+        Assert.assertFalse(headerValueTokenizer.nextElement());
+    }
+}